@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.expression.aggregator.CountAggregator;
+import org.apache.phoenix.expression.aggregator.LongSumAggregator;
+import org.apache.phoenix.schema.types.PLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-row aggregation cost of the {@code SUM} and {@code COUNT} aggregators, both through
+ * the object path used by the generic group by cache and through the fixed width state path
+ * used by the compact group by cache.
+ *
+ * @since 5.3.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregatorBenchmark {
+    private static final int ROWS = 4096;
+
+    private ImmutableBytesWritable[] values;
+    private LongSumAggregator sum;
+    private CountAggregator count;
+    private byte[] state;
+    private final ImmutableBytesWritable result = new ImmutableBytesWritable();
+
+    @Setup
+    public void setup() {
+        values = new ImmutableBytesWritable[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            values[i] = new ImmutableBytesWritable(PLong.INSTANCE.toBytes((long) i * 31));
+        }
+        sum = new LongSumAggregator();
+        count = new CountAggregator();
+        state = new byte[sum.getStateWidth() + count.getStateWidth()];
+    }
+
+    @Benchmark
+    public ImmutableBytesWritable sumAndCount() {
+        sum.reset();
+        count.reset();
+        for (ImmutableBytesWritable value : values) {
+            sum.aggregate(null, value);
+            count.aggregate(null, value);
+        }
+        sum.evaluate(null, result);
+        count.evaluate(null, result);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] sumAndCountFixedWidthState() {
+        int countOffset = sum.getStateWidth();
+        sum.initState(state, 0);
+        count.initState(state, countOffset);
+        for (ImmutableBytesWritable value : values) {
+            sum.aggregate(state, 0, value);
+            count.aggregate(state, countOffset, value);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.PDatum;
+import org.apache.phoenix.schema.RowKeySchema;
+import org.apache.phoenix.schema.RowKeySchema.RowKeySchemaBuilder;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PChar;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.PhoenixRuntime;
+
+/**
+ * Shared fixtures for the benchmarks in this package.
+ *
+ * @since 5.3.0
+ */
+final class BenchmarkUtil {
+
+    /**
+     * URL of a connection that keeps metadata in memory and never talks to a cluster, which
+     * is enough to compile statements and buffer mutations.
+     */
+    static final String CONNECTIONLESS_URL = PhoenixRuntime.JDBC_PROTOCOL
+            + PhoenixRuntime.JDBC_PROTOCOL_SEPARATOR + PhoenixRuntime.CONNECTIONLESS;
+
+    /** Width of the leading CHAR column of {@link #newRowKeySchema()}. */
+    static final int TENANT_WIDTH = 3;
+
+    private BenchmarkUtil() {
+    }
+
+    /**
+     * Row key of a typical multi-tenant table:
+     * {@code (TENANT CHAR(3) NOT NULL, ID VARCHAR NOT NULL, SEQ BIGINT NOT NULL)}.
+     */
+    static RowKeySchema newRowKeySchema() {
+        return new RowKeySchemaBuilder(3)
+                .addField(newDatum(PChar.INSTANCE, TENANT_WIDTH, SortOrder.ASC), false,
+                    SortOrder.ASC)
+                .addField(newDatum(PVarchar.INSTANCE, null, SortOrder.ASC), false, SortOrder.ASC)
+                .addField(newDatum(PLong.INSTANCE, null, SortOrder.ASC), false, SortOrder.ASC)
+                .build();
+    }
+
+    static byte[] tenant(int tenant) {
+        return Bytes.toBytes(String.format("t%02d", tenant));
+    }
+
+    static byte[] id(int id) {
+        return Bytes.toBytes(String.format("id%06d", id));
+    }
+
+    static byte[] seq(long seq) {
+        return PLong.INSTANCE.toBytes(seq);
+    }
+
+    /**
+     * Builds a row key of {@link #newRowKeySchema()}. Keys generated with increasing
+     * arguments sort in the same order as the arguments.
+     */
+    static byte[] rowKey(int tenant, int id, long seq) {
+        return ByteUtil.concat(tenant(tenant), id(id), QueryConstants.SEPARATOR_BYTE_ARRAY,
+            seq(seq));
+    }
+
+    static Connection newConnectionlessConnection() throws SQLException {
+        return DriverManager.getConnection(CONNECTIONLESS_URL);
+    }
+
+    static PDatum newDatum(final PDataType type, final Integer maxLength,
+            final SortOrder sortOrder) {
+        return new PDatum() {
+            @Override
+            public boolean isNullable() {
+                return false;
+            }
+
+            @Override
+            public PDataType getDataType() {
+                return type;
+            }
+
+            @Override
+            public Integer getMaxLength() {
+                return maxLength;
+            }
+
+            @Override
+            public Integer getScale() {
+                return null;
+            }
+
+            @Override
+            public SortOrder getSortOrder() {
+                return sortOrder;
+            }
+        };
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.ExpressionType;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.join.HashCacheFactory;
+import org.apache.phoenix.memory.GlobalMemoryManager;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.ResultTuple;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.util.TupleUtil;
+import org.iq80.snappy.Snappy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Deserialization of a hash join build side on the region server by
+ * {@link HashCacheFactory#newCache}: decompression, tuple parsing and hashing of the join
+ * keys, for both the default and the compact cache layout.
+ *
+ * @since 5.3.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashCacheFactoryBenchmark {
+    private static final byte[] CF = Bytes.toBytes("0");
+    private static final byte[] CQ = Bytes.toBytes("K");
+
+    @Param({ "10000", "100000" })
+    public int rows;
+
+    /** Number of rows sharing each join key. */
+    @Param({ "1", "8" })
+    public int rowsPerKey;
+
+    @Param({ "false", "true" })
+    public boolean compact;
+
+    private ImmutableBytesWritable cachePtr;
+    private HashCacheFactory factory;
+    private GlobalMemoryManager memoryManager;
+
+    @Setup
+    public void setup() throws IOException {
+        Expression onExpression = new KeyValueColumnExpression(
+                BenchmarkUtil.newDatum(PLong.INSTANCE, null, SortOrder.getDefault()), CF, CQ);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(1);
+        WritableUtils.writeVInt(out, ExpressionType.valueOf(onExpression).ordinal());
+        onExpression.write(out);
+        int exprSize = bytes.size() + Bytes.SIZEOF_INT;
+        // A negative expression size flags that every key has a single row
+        out.writeInt(rowsPerKey == 1 ? -exprSize : exprSize);
+        out.writeInt(rows);
+        for (int i = 0; i < rows; i++) {
+            Cell cell = new KeyValue(Bytes.toBytes("row" + i), CF, CQ, 1L,
+                    PLong.INSTANCE.toBytes((long) (i / rowsPerKey)));
+            TupleUtil.write(new ResultTuple(Result.create(Collections.singletonList(cell))), out);
+        }
+        out.flush();
+        byte[] uncompressed = bytes.toByteArray();
+        byte[] compressed = new byte[Snappy.maxCompressedLength(uncompressed.length)];
+        int compressedSize = Snappy.compress(uncompressed, 0, uncompressed.length, compressed, 0);
+        cachePtr = new ImmutableBytesWritable(compressed, 0, compressedSize);
+
+        Configuration conf = new Configuration(false);
+        conf.setBoolean(QueryServices.COMPACT_HASH_CACHE_ENABLED_ATTRIB, compact);
+        factory = new HashCacheFactory();
+        factory.setConf(conf);
+        memoryManager = new GlobalMemoryManager(Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public void newCache() throws Exception {
+        try (Closeable cache = factory.newCache(cachePtr, new byte[0], memoryManager.allocate(0),
+                false, 0)) {
+            // Nothing to do, building the cache is what is measured
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.hbase.index.AbstractValueGetter;
+import org.apache.phoenix.hbase.index.ValueGetter;
+import org.apache.phoenix.hbase.index.covered.update.ColumnReference;
+import org.apache.phoenix.hbase.index.util.GenericKeyValueBuilder;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.hbase.index.util.KeyValueBuilder;
+import org.apache.phoenix.index.IndexMaintainer;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTableKey;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.util.ByteUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Builds the index row for a data row update with
+ * {@link IndexMaintainer#buildUpdateMutation}, the per-row work the index region observer
+ * does for every mutation of an indexed table. The maintainer is obtained from a
+ * connectionless connection, exactly as it is shipped to the region servers.
+ *
+ * @since 5.3.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexMaintainerBenchmark {
+    private static final String TABLE = "INDEX_MAINTAINER_BENCH";
+    private static final String INDEX = "INDEX_MAINTAINER_BENCH_IDX";
+    private static final int ROWS = 256;
+
+    private Connection conn;
+    private IndexMaintainer maintainer;
+    private final KeyValueBuilder builder = GenericKeyValueBuilder.INSTANCE;
+    private ImmutableBytesWritable[] rowKeys;
+    private ValueGetter[] valueGetters;
+
+    @Setup
+    public void setup() throws SQLException {
+        conn = BenchmarkUtil.newConnectionlessConnection();
+        conn.createStatement().execute("CREATE TABLE IF NOT EXISTS " + TABLE
+                + " (K1 VARCHAR NOT NULL, K2 INTEGER NOT NULL, V1 VARCHAR, V2 INTEGER,"
+                + " V3 VARCHAR CONSTRAINT PK PRIMARY KEY (K1, K2)) COLUMN_ENCODED_BYTES = 0");
+        conn.createStatement().execute("CREATE INDEX IF NOT EXISTS " + INDEX + " ON " + TABLE
+                + " (V1, V2) INCLUDE (V3)");
+        PhoenixConnection pconn = conn.unwrap(PhoenixConnection.class);
+        PTable table = pconn.getTable(new PTableKey(pconn.getTenantId(), TABLE));
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        table.getIndexMaintainers(ptr, pconn);
+        List<IndexMaintainer> maintainers = IndexMaintainer.deserialize(ptr, builder, true);
+        maintainer = maintainers.get(0);
+
+        rowKeys = new ImmutableBytesWritable[ROWS];
+        valueGetters = new ValueGetter[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            byte[] row = ByteUtil.concat(PVarchar.INSTANCE.toBytes("key" + i),
+                QueryConstants.SEPARATOR_BYTE_ARRAY, PInteger.INSTANCE.toBytes(i));
+            Map<ColumnReference, byte[]> values = Maps.newHashMap();
+            // Column encoding is off, so qualifiers are the column names
+            for (ColumnReference ref : maintainer.getAllColumns()) {
+                String name = Bytes.toString(ref.getQualifier());
+                values.put(ref, "V2".equals(name) ? PInteger.INSTANCE.toBytes(i * 7)
+                        : PVarchar.INSTANCE.toBytes(name + "-" + i));
+            }
+            rowKeys[i] = new ImmutableBytesWritable(row);
+            valueGetters[i] = newValueGetter(row, values);
+        }
+    }
+
+    @TearDown
+    public void close() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public int buildUpdateMutation() throws Exception {
+        int size = 0;
+        for (int i = 0; i < ROWS; i++) {
+            size += maintainer.buildUpdateMutation(builder, valueGetters[i], rowKeys[i],
+                HConstants.LATEST_TIMESTAMP, null, null, false).size();
+        }
+        return size;
+    }
+
+    private static ValueGetter newValueGetter(final byte[] row,
+            final Map<ColumnReference, byte[]> values) {
+        return new AbstractValueGetter() {
+            @Override
+            public ImmutableBytesWritable getLatestValue(ColumnReference ref, long ts) {
+                byte[] value = values.get(ref);
+                return value == null ? null : new ImmutableBytesPtr(value);
+            }
+
+            @Override
+            public byte[] getRowKey() {
+                return row;
+            }
+        };
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.phoenix.execute.MutationState;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Merges the uncommitted mutations of one connection into another with
+ * {@link MutationState#join(MutationState)}, which happens for every statement executed with
+ * auto commit off and for every parallel UPSERT SELECT chunk. Half of the joined rows collide
+ * with rows already buffered, so both the append and the per-row merge paths are covered.
+ * <p>
+ * Mutations are buffered on connectionless connections, so no cluster is needed.
+ *
+ * @since 5.3.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(1)
+public class MutationStateBenchmark {
+    private static final String TABLE = "MUTATION_STATE_BENCH";
+
+    @Param({ "1000", "10000" })
+    public int rows;
+
+    private PhoenixConnection target;
+    private PhoenixConnection source;
+
+    @Setup(Level.Trial)
+    public void createTable() throws SQLException {
+        target = newConnection();
+        source = newConnection();
+        target.createStatement().execute("CREATE TABLE IF NOT EXISTS " + TABLE
+                + " (K1 VARCHAR NOT NULL, K2 BIGINT NOT NULL, V1 VARCHAR, V2 INTEGER"
+                + " CONSTRAINT PK PRIMARY KEY (K1, K2))");
+    }
+
+    @Setup(Level.Invocation)
+    public void bufferMutations() throws SQLException {
+        upsert(target, 0, rows);
+        upsert(source, rows / 2, rows / 2 + rows);
+    }
+
+    @Benchmark
+    public MutationState join() throws SQLException {
+        MutationState state = target.getMutationState();
+        state.join(source.getMutationState());
+        return state;
+    }
+
+    @TearDown(Level.Invocation)
+    public void rollback() throws SQLException {
+        target.rollback();
+        source.rollback();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        source.close();
+        target.close();
+    }
+
+    private static PhoenixConnection newConnection() throws SQLException {
+        Connection conn = BenchmarkUtil.newConnectionlessConnection();
+        conn.setAutoCommit(false);
+        return conn.unwrap(PhoenixConnection.class);
+    }
+
+    private static void upsert(Connection conn, int from, int to) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPSERT INTO " + TABLE + " VALUES (?, ?, ?, ?)")) {
+            for (int i = from; i < to; i++) {
+                stmt.setString(1, "key" + (i % 100));
+                stmt.setLong(2, i);
+                stmt.setString(3, "value" + i);
+                stmt.setInt(4, i);
+                stmt.execute();
+            }
+        }
+    }
+}
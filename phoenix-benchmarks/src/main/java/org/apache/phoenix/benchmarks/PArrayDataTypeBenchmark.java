@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.schema.types.PArrayDataType;
+import org.apache.phoenix.schema.types.PArrayDataTypeDecoder;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PIntegerArray;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.schema.types.PVarcharArray;
+import org.apache.phoenix.schema.types.PhoenixArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Random element access into serialized arrays with
+ * {@link PArrayDataTypeDecoder#positionAtArrayElement}, as done by {@code ARRAY_ELEM} and
+ * array index expressions, plus a full deserialization for comparison.
+ *
+ * @since 5.3.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PArrayDataTypeBenchmark {
+    private static final int LOOKUPS = 256;
+
+    @Param({ "INTEGER", "VARCHAR" })
+    public String baseType;
+
+    @Param({ "16", "1024" })
+    public int length;
+
+    private PArrayDataType arrayType;
+    private PDataType elementType;
+    private byte[] arrayBytes;
+    private int[] indexes;
+    private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+
+    @Setup
+    public void setup() {
+        Object[] elements;
+        if ("INTEGER".equals(baseType)) {
+            arrayType = PIntegerArray.INSTANCE;
+            elementType = PInteger.INSTANCE;
+            elements = new Integer[length];
+            for (int i = 0; i < length; i++) {
+                elements[i] = i * 7;
+            }
+        } else {
+            arrayType = PVarcharArray.INSTANCE;
+            elementType = PVarchar.INSTANCE;
+            elements = new String[length];
+            for (int i = 0; i < length; i++) {
+                elements[i] = "element-" + i;
+            }
+        }
+        PhoenixArray array = PArrayDataType.instantiatePhoenixArray(elementType, elements);
+        arrayBytes = arrayType.toBytes(array);
+        indexes = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            indexes[i] = (int) ((i * 2654435761L) % length);
+        }
+    }
+
+    @Benchmark
+    public void elementAccess(Blackhole bh) {
+        Integer byteSize = elementType.getByteSize();
+        for (int index : indexes) {
+            ptr.set(arrayBytes);
+            bh.consume(PArrayDataTypeDecoder.positionAtArrayElement(ptr, index, elementType,
+                byteSize));
+            bh.consume(ptr.getLength());
+        }
+    }
+
+    @Benchmark
+    public Object toObject() {
+        return arrayType.toObject(arrayBytes, 0, arrayBytes.length);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.schema.RowKeySchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Walks every field of a batch of row keys with {@link RowKeySchema#iterator} and
+ * {@link RowKeySchema#next}, which is how row key columns are located during projection and
+ * key range computation.
+ *
+ * @since 5.3.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowKeySchemaBenchmark {
+    private static final int ROWS = 1024;
+
+    private RowKeySchema schema;
+    private byte[][] rowKeys;
+    private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+
+    @Setup
+    public void setup() {
+        schema = BenchmarkUtil.newRowKeySchema();
+        rowKeys = new byte[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            rowKeys[i] = BenchmarkUtil.rowKey(i % 10, i, i * 31L);
+        }
+    }
+
+    @Benchmark
+    public void iterateAllFields(Blackhole bh) {
+        int nFields = schema.getFieldCount();
+        for (byte[] rowKey : rowKeys) {
+            int maxOffset = schema.iterator(rowKey, ptr);
+            for (int i = 0; i < nFields; i++) {
+                bh.consume(schema.next(ptr, i, maxOffset));
+            }
+        }
+    }
+
+    @Benchmark
+    public void positionLastField(Blackhole bh) {
+        int last = schema.getFieldCount() - 1;
+        for (byte[] rowKey : rowKeys) {
+            bh.consume(schema.iterator(rowKey, ptr, last));
+            bh.consume(ptr.getOffset());
+        }
+    }
+}
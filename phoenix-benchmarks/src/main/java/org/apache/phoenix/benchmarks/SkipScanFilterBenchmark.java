@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.filter.SkipScanFilter;
+import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.schema.RowKeySchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Lists;
+
+/**
+ * Drives a {@link SkipScanFilter} over a sorted run of cells the way a region scanner does:
+ * every cell goes through {@link SkipScanFilter#filterCell(Cell)}, and on a seek the scan
+ * jumps to {@link SkipScanFilter#getNextCellHint(Cell)}. The cost measured is the
+ * navigation across the slots, not the I/O it saves.
+ *
+ * @since 5.3.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SkipScanFilterBenchmark {
+    private static final byte[] CF = Bytes.toBytes("0");
+    private static final byte[] CQ = Bytes.toBytes("V");
+    private static final int TENANTS = 20;
+    private static final int IDS = 200;
+    private static final int SEQS = 4;
+
+    /** Number of ID point lookups per selected tenant. */
+    @Param({ "1", "16", "128" })
+    public int idKeys;
+
+    private SkipScanFilter template;
+    private Cell[] cells;
+
+    @Setup
+    public void setup() {
+        RowKeySchema schema = BenchmarkUtil.newRowKeySchema();
+        List<KeyRange> tenants = new ArrayList<>();
+        for (int t = 0; t < TENANTS; t += 2) {
+            tenants.add(KeyRange.getKeyRange(BenchmarkUtil.tenant(t)));
+        }
+        List<KeyRange> ids = new ArrayList<>();
+        int step = Math.max(1, IDS / idKeys);
+        for (int i = 0; i < IDS && ids.size() < idKeys; i += step) {
+            ids.add(KeyRange.getKeyRange(BenchmarkUtil.id(i)));
+        }
+        List<KeyRange> seqs = Lists.newArrayList(
+            KeyRange.getKeyRange(BenchmarkUtil.seq(1), true, BenchmarkUtil.seq(2), true));
+        List<List<KeyRange>> slots = Lists.newArrayList(tenants, ids, seqs);
+        template = new SkipScanFilter(slots, schema);
+
+        cells = new Cell[TENANTS * IDS * SEQS];
+        int n = 0;
+        for (int t = 0; t < TENANTS; t++) {
+            for (int i = 0; i < IDS; i++) {
+                for (int s = 0; s < SEQS; s++) {
+                    cells[n++] = new KeyValue(BenchmarkUtil.rowKey(t, i, s), CF, CQ, 1L, CQ);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void navigate(Blackhole bh) throws Exception {
+        // The filter tracks its position, so each pass starts from a fresh copy
+        SkipScanFilter filter = new SkipScanFilter(template, false);
+        int i = 0;
+        while (i < cells.length && !filter.filterAllRemaining()) {
+            ReturnCode code = filter.filterCell(cells[i]);
+            if (code == ReturnCode.SEEK_NEXT_USING_HINT) {
+                Cell hint = filter.getNextCellHint(cells[i]);
+                bh.consume(hint);
+                i = seek(hint, i + 1);
+            } else {
+                bh.consume(code);
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the first cell at or after {@code hint}, searching from
+     * {@code from} the way a seek over sorted store files would.
+     */
+    private int seek(Cell hint, int from) {
+        int low = from;
+        int high = cells.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Cell cell = cells[mid];
+            if (Bytes.compareTo(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength(),
+                    hint.getRowArray(), hint.getRowOffset(), hint.getRowLength()) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
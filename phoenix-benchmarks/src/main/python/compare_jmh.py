@@ -0,0 +1,91 @@
+#!/usr/bin/env python3
+# -*- coding: utf-8 -*-
+############################################################################
+#
+# Licensed to the Apache Software Foundation (ASF) under one
+# or more contributor license agreements.  See the NOTICE file
+# distributed with this work for additional information
+# regarding copyright ownership.  The ASF licenses this file
+# to you under the Apache License, Version 2.0 (the
+# "License"); you may not use this file except in compliance
+# with the License.  You may obtain a copy of the License at
+#
+# http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+############################################################################
+"""
+Compares two JMH result files written with -rf json and prints, for every benchmark and
+parameter combination present in both, the baseline and candidate scores and the relative
+change. A change is flagged when the two confidence intervals do not overlap.
+
+    python3 compare_jmh.py baseline.json candidate.json [--threshold PERCENT]
+
+Exits with 1 when a flagged regression is larger than the threshold, so the script can
+gate a commit in CI.
+"""
+
+from __future__ import print_function
+import argparse
+import json
+import sys
+
+
+def load(path):
+    results = {}
+    with open(path) as f:
+        for run in json.load(f):
+            params = run.get('params') or {}
+            key = run['benchmark'] + ''.join(
+                '|%s=%s' % (k, params[k]) for k in sorted(params))
+            metric = run['primaryMetric']
+            error = metric.get('scoreError')
+            if error is None or error != error:  # NaN with a single iteration
+                error = 0.0
+            results[key] = (run['mode'], metric['score'], error, metric['scoreUnit'])
+    return results
+
+
+def lower_is_better(mode):
+    # thrpt is operations per unit of time, every other mode measures time per operation
+    return mode != 'thrpt'
+
+
+def main():
+    parser = argparse.ArgumentParser(description='Compare two JMH JSON result files')
+    parser.add_argument('baseline')
+    parser.add_argument('candidate')
+    parser.add_argument('--threshold', type=float, default=5.0,
+                        help='regression in percent that fails the comparison (default 5)')
+    args = parser.parse_args()
+
+    baseline = load(args.baseline)
+    candidate = load(args.candidate)
+    regressions = 0
+    print('%-70s %14s %14s %9s' % ('Benchmark', 'Baseline', 'Candidate', 'Change'))
+    for key in sorted(set(baseline) & set(candidate)):
+        mode, base, base_err, unit = baseline[key]
+        _, cand, cand_err, _ = candidate[key]
+        change = (cand - base) * 100.0 / base if base else 0.0
+        worse = change > 0 if lower_is_better(mode) else change < 0
+        significant = abs(cand - base) > base_err + cand_err
+        flag = ''
+        if significant:
+            flag = 'WORSE' if worse else 'better'
+            if worse and abs(change) > args.threshold:
+                regressions += 1
+        name = key.replace('org.apache.phoenix.benchmarks.', '')
+        print('%-70s %14.3f %14.3f %+8.1f%% %s %s' % (name, base, cand, change, unit, flag))
+    for key in sorted(set(baseline) ^ set(candidate)):
+        print('%-70s only in %s' % (key.replace('org.apache.phoenix.benchmarks.', ''),
+                                   'baseline' if key in baseline else 'candidate'))
+    return 1 if regressions else 0
+
+
+if __name__ == '__main__':
+    sys.exit(main())
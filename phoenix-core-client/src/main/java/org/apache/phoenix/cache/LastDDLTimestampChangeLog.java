@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bounded log of the tables, views and indexes whose metadata changed, as seen by the
+ * invalidations of a region server metadata cache. Every DDL operation invalidates the cache of
+ * every region server, so the log of any region server has every change. Clients follow the log
+ * to learn which of their cached tables are stale without validating each of them.
+ * <p>
+ * Each change has a sequence number. A client asks for the changes after the last sequence
+ * number it has seen, and gets them unless the log has since dropped some of them, or the log is
+ * not the one the sequence number came from, as happens after a region server restart. The
+ * client then has to assume any of its cached tables may be stale.
+ * <p>
+ * Calls never wait for a change. They are served by region server RPC handlers, and every
+ * client follows the log of some region server, so a waiting call per client would tie up the
+ * handlers. Clients ask again after their polling interval instead.
+ *
+ * @since 5.3.0
+ */
+public class LastDDLTimestampChangeLog {
+
+    /**
+     * The changes after a sequence number.
+     */
+    public static class Changes {
+        private final long logId;
+        private final long sequenceNumber;
+        private final List<byte[][]> tables;
+
+        private Changes(long logId, long sequenceNumber, List<byte[][]> tables) {
+            this.logId = logId;
+            this.sequenceNumber = sequenceNumber;
+            this.tables = tables;
+        }
+
+        /**
+         * @return the id of the log, to pass along with the sequence number when asking for
+         * the next changes
+         */
+        public long getLogId() {
+            return logId;
+        }
+
+        /**
+         * @return the sequence number of the last change, to ask for the next changes with
+         */
+        public long getSequenceNumber() {
+            return sequenceNumber;
+        }
+
+        /**
+         * @return false if the log no longer has all the changes asked for
+         */
+        public boolean isComplete() {
+            return tables != null;
+        }
+
+        /**
+         * @return the tenant id, schema name and table name of each changed table, empty if
+         * the changes are not complete
+         */
+        public List<byte[][]> getTables() {
+            return tables == null ? Collections.<byte[][]>emptyList() : tables;
+        }
+    }
+
+    private final long logId = ThreadLocalRandom.current().nextLong();
+    private final byte[][][] tables;
+    // number of changes logged so far, guarded by this
+    private long sequenceNumber;
+
+    public LastDDLTimestampChangeLog(int capacity) {
+        this.tables = new byte[capacity][][];
+    }
+
+    /**
+     * Logs a change to the metadata of the given table.
+     */
+    public synchronized void logChange(byte[] tenantID, byte[] schemaName, byte[] tableName) {
+        tables[(int) (sequenceNumber % tables.length)] =
+                new byte[][] { tenantID, schemaName, tableName };
+        sequenceNumber++;
+    }
+
+    /**
+     * Returns the id and the current sequence number of the log, to ask for the changes logged
+     * from now on with. The changes are not complete, since the earlier changes are not returned.
+     */
+    public synchronized Changes subscribe() {
+        return new Changes(logId, sequenceNumber, null);
+    }
+
+    /**
+     * Returns the changes logged after the given sequence number of the given log, without
+     * waiting if there are none yet.
+     *
+     * @param logId the id of the log the sequence number came from
+     * @param sequenceNumber the sequence number of the last change already seen
+     */
+    public synchronized Changes getChanges(long logId, long sequenceNumber) {
+        if (logId != this.logId || sequenceNumber > this.sequenceNumber
+                || sequenceNumber < this.sequenceNumber - tables.length) {
+            return new Changes(this.logId, this.sequenceNumber, null);
+        }
+        List<byte[][]> changedTables = new ArrayList<>((int) (this.sequenceNumber - sequenceNumber));
+        for (long i = sequenceNumber; i < this.sequenceNumber; i++) {
+            changedTables.add(tables[(int) (i % tables.length)]);
+        }
+        return new Changes(this.logId, this.sequenceNumber, changedTables);
+    }
+}
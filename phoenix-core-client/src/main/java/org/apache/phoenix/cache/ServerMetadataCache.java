@@ -25,4 +25,5 @@ public interface ServerMetadataCache {
     long getLastDDLTimestampForTable(byte[] tenantID, byte[] schemaName, byte[] tableName)
             throws SQLException;
     void invalidate(byte[] tenantID, byte[] schemaName, byte[] tableName);
+    LastDDLTimestampChangeLog getChangeLog();
 }
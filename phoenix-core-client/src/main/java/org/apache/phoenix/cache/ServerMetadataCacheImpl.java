@@ -53,6 +53,11 @@ public class ServerMetadataCacheImpl implements ServerMetadataCache {
     private static final String PHOENIX_COPROC_REGIONSERVER_CACHE_SIZE
             = "phoenix.coprocessor.regionserver.cache.size";
     private static final long DEFAULT_PHOENIX_COPROC_REGIONSERVER_CACHE_SIZE = 10000L;
+    // number of invalidations kept for the clients following the changes of their cached tables
+    private static final String PHOENIX_COPROC_REGIONSERVER_CHANGE_LOG_SIZE
+            = "phoenix.coprocessor.regionserver.change.log.size";
+    private static final int DEFAULT_PHOENIX_COPROC_REGIONSERVER_CHANGE_LOG_SIZE = 10000;
+    private final LastDDLTimestampChangeLog changeLog;
     private static volatile ServerMetadataCacheImpl cacheInstance;
     private MetricsMetadataCachingSource metricsSource;
 
@@ -90,6 +95,9 @@ public class ServerMetadataCacheImpl implements ServerMetadataCache {
                 // maximum number of entries this cache can handle.
                 .maximumSize(maxSize)
                 .build();
+        changeLog = new LastDDLTimestampChangeLog(
+                conf.getInt(PHOENIX_COPROC_REGIONSERVER_CHANGE_LOG_SIZE,
+                        DEFAULT_PHOENIX_COPROC_REGIONSERVER_CHANGE_LOG_SIZE));
     }
 
     /**
@@ -148,6 +156,15 @@ public class ServerMetadataCacheImpl implements ServerMetadataCache {
         byte[] tableKey = SchemaUtil.getTableKey(tenantID, schemaName, tableName);
         ImmutableBytesPtr tableKeyPtr = new ImmutableBytesPtr(tableKey);
         lastDDLTimestampMap.invalidate(tableKeyPtr);
+        changeLog.logChange(tenantID, schemaName, tableName);
+    }
+
+    /**
+     * Returns the log of the invalidations of this cache, which clients follow to find out
+     * which of their cached tables changed.
+     */
+    public LastDDLTimestampChangeLog getChangeLog() {
+        return changeLog;
     }
 
     protected Connection getConnection(Properties properties) throws SQLException {
@@ -233,11 +233,38 @@ public class FromCompiler {
         if (fromNode instanceof NamedTableNode)
             return new SingleTableColumnResolver(connection, (NamedTableNode) fromNode, true, 1, statement.getUdfParseNodes(), alwaysHitServer, mutatingTableName);
 
+        if (!alwaysHitServer) {
+            // Refresh the expired cache entries of the joined tables in one go rather than
+            // with an RPC per table as each of them is resolved
+            List<TableName> tableNames = new ArrayList<>();
+            addJoinedTableNames(fromNode, connection, mutatingTableName, tableNames);
+            new MetaDataClient(connection).updateCacheOfExpiredTables(tableNames);
+        }
         MultiTableColumnResolver visitor = new MultiTableColumnResolver(connection, 1, statement.getUdfParseNodes(), mutatingTableName);
         fromNode.accept(visitor);
         return visitor;
     }
 
+    private static void addJoinedTableNames(TableNode node, PhoenixConnection connection,
+            TableName mutatingTableName, List<TableName> tableNames) {
+        if (node instanceof JoinTableNode) {
+            addJoinedTableNames(((JoinTableNode) node).getLHS(), connection, mutatingTableName,
+                    tableNames);
+            addJoinedTableNames(((JoinTableNode) node).getRHS(), connection, mutatingTableName,
+                    tableNames);
+        } else if (node instanceof NamedTableNode) {
+            TableName tableName = ((NamedTableNode) node).getName();
+            // The mutating table is always resolved from the server
+            if (tableName.equals(mutatingTableName)) {
+                return;
+            }
+            if (tableName.getSchemaName() == null && connection.getSchema() != null) {
+                tableName = TableName.create(connection.getSchema(), tableName.getTableName());
+            }
+            tableNames.add(tableName);
+        }
+    }
+
     /**
      * Refresh the inner state of {@link MultiTableColumnResolver} for the derivedTableNode when
      * the derivedTableNode is changed for some sql optimization.
@@ -58,7 +58,9 @@ import org.apache.phoenix.execute.SortMergeJoinPlan;
 import org.apache.phoenix.execute.TupleProjectionPlan;
 import org.apache.phoenix.execute.TupleProjector;
 import org.apache.phoenix.execute.UnionPlan;
+import org.apache.phoenix.expression.CoerceExpression;
 import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
 import org.apache.phoenix.expression.LiteralExpression;
 import org.apache.phoenix.expression.RowValueConstructorExpression;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
@@ -68,6 +70,7 @@ import org.apache.phoenix.jdbc.PhoenixStatement;
 import org.apache.phoenix.join.HashJoinInfo;
 import org.apache.phoenix.optimize.Cost;
 import org.apache.phoenix.parse.AliasedNode;
+import org.apache.phoenix.parse.ColumnParseNode;
 import org.apache.phoenix.parse.EqualParseNode;
 import org.apache.phoenix.parse.HintNode.Hint;
 import org.apache.phoenix.parse.JoinTableNode.JoinType;
@@ -444,11 +447,16 @@ public class QueryCompiler {
                             hashExpressions);
                     Expression keyRangeLhsExpression = keyRangeExpressions.getFirst();
                     Expression keyRangeRhsExpression = keyRangeExpressions.getSecond();
+                    Pair<Expression, Expression> bloomFilterExpressions = new Pair<Expression, Expression>(null, null);
+                    if (keyRangeLhsExpression == null && !table.isSubselect()) {
+                        getBloomFilterExpressions(bloomFilterExpressions, query, subContexts[i], joinSpec);
+                    }
                     joinTypes[i] = joinSpec.getType();
                     if (i < count - 1) {
                         fieldPositions[i + 1] = fieldPositions[i] + (tables[i] == null ? 0 : (tables[i].getColumns().size() - tables[i].getPKColumns().size()));
                     }
-                    hashPlans[i] = new HashSubPlan(i, subPlans[i], optimized ? null : hashExpressions, joinSpec.isSingleValueOnly(), usePersistentCache, keyRangeLhsExpression, keyRangeRhsExpression);
+                    hashPlans[i] = new HashSubPlan(i, subPlans[i], optimized ? null : hashExpressions, joinSpec.isSingleValueOnly(), usePersistentCache, keyRangeLhsExpression, keyRangeRhsExpression,
+                            bloomFilterExpressions.getFirst(), bloomFilterExpressions.getSecond());
                 }
                 TupleProjector.serializeProjectorIntoScan(context.getScan(), tupleProjector,
                         wildcardIncludesDynamicCols);
@@ -684,6 +692,55 @@ public class QueryCompiler {
         return type == JoinType.Semi && complete;
     }
 
+    /**
+     * Finds an equi-join condition whose probe side is a non row key column of the probe
+     * table, so that a Bloom filter over the build side keys can be pushed into the probe
+     * scan. Join keys on row key columns are served by the key range of
+     * {@link #getKeyExpressionCombinations}. Unlike the join expressions, which are compiled
+     * against the projected join table, the probe side is compiled against the table itself
+     * so that a scan filter can evaluate it.
+     */
+    private void getBloomFilterExpressions(Pair<Expression, Expression> combination,
+            SelectStatement query, StatementContext rhsContext, JoinSpec joinSpec)
+            throws SQLException {
+        JoinType type = joinSpec.getType();
+        if ((type != JoinType.Inner && type != JoinType.Semi) || this.noChildParentJoinOptimization)
+            return;
+
+        StatementContext lhsContext = new StatementContext(statement,
+                FromCompiler.getResolverForQuery(query, statement.getConnection()), bindManager,
+                new Scan(), new SequenceManager(statement));
+        ExpressionCompiler lhsCompiler = new ExpressionCompiler(lhsContext);
+        ExpressionCompiler rhsCompiler = new ExpressionCompiler(rhsContext);
+        for (EqualParseNode condition : joinSpec.getOnConditions()) {
+            if (!(condition.getLHS() instanceof ColumnParseNode)) {
+                continue;
+            }
+            Expression lhs;
+            try {
+                lhsCompiler.reset();
+                lhs = condition.getLHS().accept(lhsCompiler);
+            } catch (ColumnNotFoundException | AmbiguousColumnException e) {
+                continue; // refers to a table joined before
+            }
+            if (!(lhs instanceof KeyValueColumnExpression)) {
+                continue;
+            }
+            rhsCompiler.reset();
+            Expression rhs = condition.getRHS().accept(rhsCompiler);
+            // Build side keys are matched by their bytes in the type of the probe side
+            if (rhs.getDataType() != lhs.getDataType()) {
+                if (!rhs.getDataType().isCoercibleTo(lhs.getDataType())) {
+                    continue;
+                }
+                rhs = CoerceExpression.create(rhs, lhs.getDataType());
+            }
+            combination.setFirst(lhs);
+            combination.setSecond(rhs);
+            return;
+        }
+    }
+
     protected QueryPlan compileSubquery(
             SelectStatement subquerySelectStatement,
             boolean pushDownMaxRows) throws SQLException {
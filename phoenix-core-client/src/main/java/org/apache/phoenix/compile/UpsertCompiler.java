@@ -19,6 +19,8 @@ package org.apache.phoenix.compile;
 
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
@@ -34,6 +36,8 @@ import org.apache.phoenix.exception.DataExceedsCapacityException;
 import org.apache.phoenix.exception.SQLExceptionCode;
 import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.execute.AggregatePlan;
+import org.apache.phoenix.execute.BulkUpsertSink;
+import org.apache.phoenix.execute.BulkUpsertSinkFactory;
 import org.apache.phoenix.execute.MutationState;
 import org.apache.phoenix.execute.MutationState.MultiRowMutationState;
 import org.apache.phoenix.execute.MutationState.RowMutationState;
@@ -96,14 +100,16 @@ import org.apache.phoenix.schema.types.PUnsignedLong;
 import org.apache.phoenix.schema.types.PVarbinary;
 import org.apache.phoenix.thirdparty.com.google.common.collect.ImmutableList;
 import org.apache.phoenix.thirdparty.com.google.common.collect.Lists;
-import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
 import org.apache.phoenix.thirdparty.com.google.common.collect.Sets;
 import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.ClientUtil;
+import org.apache.phoenix.util.EncodedColumnsUtil;
 import org.apache.phoenix.util.ExpressionUtil;
 import org.apache.phoenix.util.IndexUtil;
 import org.apache.phoenix.util.ScanUtil;
 import org.apache.phoenix.util.SchemaUtil;
 
+import java.io.IOException;
 import java.sql.ParameterMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -111,9 +117,9 @@ import java.sql.Timestamp;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import static org.apache.phoenix.thirdparty.com.google.common.base.Preconditions.checkArgument;
@@ -125,8 +131,9 @@ public class UpsertCompiler {
             PTable table, MultiRowMutationState mutation, PhoenixStatement statement, boolean useServerTimestamp,
             IndexMaintainer maintainer, byte[][] viewConstants, byte[] onDupKeyBytes, int numSplColumns,
             int maxHBaseClientKeyValueSize) throws SQLException {
-        long columnValueSize = 0;
-        Map<PColumn,byte[]> columnValues = Maps.newHashMapWithExpectedSize(columnIndexes.length);
+        PColumn[] columns = new PColumn[columnIndexes.length];
+        byte[][] columnValues = new byte[columnIndexes.length][];
+        int columnCount = 0;
         byte[][] pkValues = new byte[table.getPKColumns().size()][];
         // If the table uses salting, the first byte is the salting byte, set to an empty array
         // here and we will fill in the byte later in PRowImpl.
@@ -164,8 +171,8 @@ public class UpsertCompiler {
                     } 
                 }
             } else {
-                columnValues.put(column, value);
-                columnValueSize += (column.getEstimatedSize() + value.length);
+                columns[columnCount] = column;
+                columnValues[columnCount++] = value;
             }
         }
         ImmutableBytesPtr ptr = new ImmutableBytesPtr();
@@ -184,7 +191,8 @@ public class UpsertCompiler {
                     regionPrefix.length));
             }
         } 
-        mutation.put(ptr, new RowMutationState(columnValues, columnValueSize, statement.getConnection().getStatementExecutionCounter(), rowTsColInfo, onDupKeyBytes));
+        mutation.put(ptr, new RowMutationState(mutation.getArena(), columns, columnValues, columnCount,
+                statement.getConnection().getStatementExecutionCounter(), rowTsColInfo, onDupKeyBytes));
     }
 
     public static String getExceedMaxHBaseClientKeyValueAllowanceRowkeyAndColumnInfo(
@@ -211,6 +219,20 @@ public class UpsertCompiler {
             RowProjector projector, ResultIterator iterator, int[] columnIndexes,
             int[] pkSlotIndexes, boolean useServerTimestamp,
             boolean prefixSysColValues) throws SQLException {
+        return upsertSelect(childContext, tableRef, projector, iterator, columnIndexes,
+                pkSlotIndexes, useServerTimestamp, prefixSysColValues, null);
+    }
+
+    /**
+     * Upserts the rows of the iterator into the table. When a bulk upsert sink is given, each
+     * batch of rows is turned into data and index table mutations that are written to the sink
+     * instead of being kept in or sent through the mutation state, and the returned mutation
+     * state only carries the number of rows.
+     */
+    private static MutationState upsertSelect(StatementContext childContext, TableRef tableRef,
+            RowProjector projector, ResultIterator iterator, int[] columnIndexes,
+            int[] pkSlotIndexes, boolean useServerTimestamp,
+            boolean prefixSysColValues, BulkUpsertSink sink) throws SQLException {
         PhoenixStatement statement = childContext.getStatement();
         PhoenixConnection connection = statement.getConnection();
         ConnectionQueryServices services = connection.getQueryServices();
@@ -286,8 +308,12 @@ public class UpsertCompiler {
                         useServerTimestamp, indexMaintainer, viewConstants, null,
                         numSplColumns, maxHBaseClientKeyValueSize);
                 rowCount++;
+                if (sink != null) {
+                    if (rowCount % batchSize == 0) {
+                        writeToSink(sink, tableRef, mutation, maxSize, maxSizeBytes, connection);
+                    }
                 // Commit a batch if auto commit is true and we're at our batch size
-                if (autoFlush && rowCount % batchSize == 0) {
+                } else if (autoFlush && rowCount % batchSize == 0) {
                     MutationState state = new MutationState(tableRef, mutation, 0,
                             maxSize, maxSizeBytes, connection);
                     connection.getMutationState().join(state);
@@ -296,6 +322,10 @@ public class UpsertCompiler {
                 }
             }
 
+            if (sink != null) {
+                writeToSink(sink, tableRef, mutation, maxSize, maxSizeBytes, connection);
+                return new MutationState(maxSize, maxSizeBytes, connection, rowCount);
+            }
             if (autoFlush) {
                 // If auto commit is true, this last batch will be committed upon return
                 sizeOffset = rowCount / batchSize * batchSize;
@@ -305,6 +335,55 @@ public class UpsertCompiler {
         }
     }
 
+    private static void writeToSink(BulkUpsertSink sink, TableRef tableRef,
+            MultiRowMutationState mutation, int maxSize, long maxSizeBytes,
+            PhoenixConnection connection) throws SQLException {
+        if (mutation.isEmpty()) {
+            return;
+        }
+        // Include the index rows, as nothing on the server maintains them for bulk loaded
+        // data. The data table comes first, so that its rows are loaded before the index rows.
+        Iterator<Pair<byte[], List<Mutation>>> iterator =
+                new MutationState(tableRef, mutation, 0, maxSize, maxSizeBytes, connection)
+                        .toMutations(true);
+        try {
+            while (iterator.hasNext()) {
+                Pair<byte[], List<Mutation>> pair = iterator.next();
+                setIndexRowsUnverified(tableRef.getTable(), pair.getFirst(), pair.getSecond());
+                sink.write(pair.getFirst(), pair.getSecond());
+            }
+        } catch (IOException e) {
+            throw ClientUtil.parseServerException(e);
+        }
+        mutation.clear();
+    }
+
+    /**
+     * Bulk loaded index rows never go through the three phase index write, so the rows of
+     * global indexes are written as unverified, as in the first phase, and get verified
+     * against the data table by read repair.
+     */
+    private static void setIndexRowsUnverified(PTable table, byte[] physicalTableName,
+            List<Mutation> mutations) {
+        for (PTable index : table.getIndexes()) {
+            if (index.getIndexType() != IndexType.GLOBAL
+                    || !Bytes.equals(index.getPhysicalName().getBytes(), physicalTableName)) {
+                continue;
+            }
+            byte[] emptyCF = SchemaUtil.getEmptyColumnFamily(index);
+            byte[] emptyCQ = EncodedColumnsUtil.getEmptyKeyValueInfo(index).getFirst();
+            for (Mutation m : mutations) {
+                if (m instanceof Put) {
+                    long timestamp = IndexUtil.getMaxTimestamp(m);
+                    IndexUtil.removeEmptyColumn(m, emptyCF, emptyCQ);
+                    ((Put) m).addColumn(emptyCF, emptyCQ, timestamp,
+                            QueryConstants.UNVERIFIED_BYTES);
+                }
+            }
+            return;
+        }
+    }
+
     private static class UpsertingParallelIteratorFactory extends MutatingParallelIteratorFactory {
         private RowProjector projector;
         private int[] columnIndexes;
@@ -395,6 +474,7 @@ public class UpsertCompiler {
         int nValuesToSet;
         boolean sameTable = false;
         boolean runOnServer = false;
+        boolean bulkLoadToBe = false;
         boolean serverUpsertSelectEnabled =
                 services.getProps().getBoolean(QueryServices.ENABLE_SERVER_UPSERT_SELECT,
                         QueryServicesOptions.DEFAULT_ENABLE_SERVER_UPSERT_SELECT);
@@ -617,6 +697,17 @@ public class UpsertCompiler {
                         && !select.isJoin() && !hasWhereSubquery && table.getRowTimestampColPos() == -1;
             }
             runOnServer &= allowServerMutations;
+            // A bulk loaded UPSERT SELECT funnels all rows through a single sink on the client,
+            // so neither the server nor the parallel mutating iterators may write them. Indexes
+            // of mutable tables are maintained on the server, which is the only place the index
+            // rows of the old values of existing rows get deleted, so such tables fall back to
+            // the normal commit path.
+            bulkLoadToBe = upsert.getHint().hasHint(Hint.BULK_LOAD) && !table.isTransactional()
+                    && (table.isImmutableRows() || table.getIndexes().isEmpty());
+            if (bulkLoadToBe) {
+                runOnServer = false;
+                parallelIteratorFactoryToBe = null;
+            }
             // If we may be able to run on the server, add a hint that favors using the data table
             // if all else is equal.
             // TODO: it'd be nice if we could figure out in advance if the PK is potentially changing,
@@ -696,6 +787,7 @@ public class UpsertCompiler {
         final int[] columnIndexes = columnIndexesToBe;
         final int[] pkSlotIndexes = pkSlotIndexesToBe;
         final boolean useServerTimestamp = useServerTimestampToBe;
+        final boolean bulkLoad = bulkLoadToBe;
         if (table.getRowTimestampColPos() == -1 && useServerTimestamp) {
             throw new IllegalStateException("For a table without row timestamp column, useServerTimestamp cannot be true");
         }
@@ -806,7 +898,7 @@ public class UpsertCompiler {
             ////////////////////////////////////////////////////////////////////
             // UPSERT SELECT run client-side
             /////////////////////////////////////////////////////////////////////
-            return new ClientUpsertSelectMutationPlan(queryPlan, tableRef, originalQueryPlan, parallelIteratorFactory, projector, columnIndexes, pkSlotIndexes, useServerTimestamp, maxSize, maxSizeBytes);
+            return new ClientUpsertSelectMutationPlan(queryPlan, tableRef, originalQueryPlan, parallelIteratorFactory, projector, columnIndexes, pkSlotIndexes, useServerTimestamp, bulkLoad, maxSize, maxSizeBytes);
         }
 
             
@@ -1378,10 +1470,11 @@ public class UpsertCompiler {
         private final int[] columnIndexes;
         private final int[] pkSlotIndexes;
         private final boolean useServerTimestamp;
+        private final boolean bulkLoad;
         private final int maxSize;
         private final long maxSizeBytes;
 
-        public ClientUpsertSelectMutationPlan(QueryPlan queryPlan, TableRef tableRef, QueryPlan originalQueryPlan, UpsertingParallelIteratorFactory parallelIteratorFactory, RowProjector projector, int[] columnIndexes, int[] pkSlotIndexes, boolean useServerTimestamp, int maxSize, long maxSizeBytes) {
+        public ClientUpsertSelectMutationPlan(QueryPlan queryPlan, TableRef tableRef, QueryPlan originalQueryPlan, UpsertingParallelIteratorFactory parallelIteratorFactory, RowProjector projector, int[] columnIndexes, int[] pkSlotIndexes, boolean useServerTimestamp, boolean bulkLoad, int maxSize, long maxSizeBytes) {
             this.queryPlan = queryPlan;
             this.tableRef = tableRef;
             this.originalQueryPlan = originalQueryPlan;
@@ -1390,6 +1483,7 @@ public class UpsertCompiler {
             this.columnIndexes = columnIndexes;
             this.pkSlotIndexes = pkSlotIndexes;
             this.useServerTimestamp = useServerTimestamp;
+            this.bulkLoad = bulkLoad;
             this.maxSize = maxSize;
             this.maxSizeBytes = maxSizeBytes;
             queryPlan.getContext().setClientSideUpsertSelect(true);
@@ -1427,6 +1521,9 @@ public class UpsertCompiler {
 
         @Override
         public MutationState execute() throws SQLException {
+            if (bulkLoad) {
+                return bulkUpsertSelect();
+            }
             ResultIterator iterator = queryPlan.iterator();
             if (parallelIteratorFactory == null) {
                 return upsertSelect(new StatementContext(statement, queryPlan.getContext().getScan()), tableRef, projector, iterator, columnIndexes, pkSlotIndexes, useServerTimestamp, false);
@@ -1457,6 +1554,19 @@ public class UpsertCompiler {
             }
         }
 
+        private MutationState bulkUpsertSelect() throws SQLException {
+            try (BulkUpsertSink sink = BulkUpsertSinkFactory.getSink(statement.getConnection())) {
+                MutationState state = upsertSelect(
+                        new StatementContext(statement, queryPlan.getContext().getScan()),
+                        tableRef, projector, queryPlan.iterator(), columnIndexes, pkSlotIndexes,
+                        useServerTimestamp, false, sink);
+                sink.load();
+                return state;
+            } catch (IOException e) {
+                throw ClientUtil.parseServerException(e);
+            }
+        }
+
         @Override
         public ExplainPlan getExplainPlan() throws SQLException {
             ExplainPlan explainPlan = queryPlan.getExplainPlan();
@@ -1468,7 +1578,7 @@ public class UpsertCompiler {
             ExplainPlanAttributesBuilder newBuilder =
                 new ExplainPlanAttributesBuilder(explainPlanAttributes);
             newBuilder.setAbstractExplainPlan("UPSERT SELECT");
-            planSteps.add("UPSERT SELECT");
+            planSteps.add(bulkLoad ? "UPSERT SELECT VIA HFILE BULK LOAD" : "UPSERT SELECT");
             planSteps.addAll(queryPlanSteps);
             return new ExplainPlan(planSteps, newBuilder.build());
         }
@@ -81,6 +81,10 @@ public class BaseScannerRegionObserverConstants {
             "_IndexRebuildDisableLoggingVerifyType";
     public static final String INDEX_REBUILD_DISABLE_LOGGING_BEYOND_MAXLOOKBACK_AGE =
             "_IndexRebuildDisableLoggingBeyondMaxLookbackAge";
+    // Verify index rows by comparing the digests of buckets of index rows first
+    public static final String INDEX_REBUILD_VERIFY_WITH_DIGESTS = "_IndexRebuildVerifyWithDigests";
+    // The number of buckets of index rows whose digests an index table scan returns instead of rows
+    public static final String INDEX_VERIFY_DIGEST_BUCKETS = "_IndexVerifyDigestBuckets";
     @Deprecated
     public static final String LOCAL_INDEX_FILTER = "_LocalIndexFilter";
     @Deprecated
@@ -283,6 +283,26 @@ public abstract class MetaDataProtocol extends MetaDataService {
         public MetaDataMutationResult() {
         }
 
+        /**
+         * Shallow copy, used to hand out the result of a single call to several callers that
+         * may each modify their own copy.
+         */
+        public MetaDataMutationResult(MetaDataMutationResult result) {
+            this.returnCode = result.returnCode;
+            this.mutationTime = result.mutationTime;
+            this.table = result.table;
+            this.tableNamesToDelete = result.tableNamesToDelete;
+            this.sharedTablesToDelete = result.sharedTablesToDelete;
+            this.columnName = result.columnName;
+            this.familyName = result.familyName;
+            this.wasUpdated = result.wasUpdated;
+            this.schema = result.schema;
+            this.viewIndexId = result.viewIndexId;
+            this.viewIndexIdType = result.viewIndexIdType;
+            this.functions = new ArrayList<PFunction>(result.functions);
+            this.autoPartitionNum = result.autoPartitionNum;
+        }
+
         public MetaDataMutationResult(MutationCode returnCode, long currentTime, PTable table, PColumn column) {
             this(returnCode, currentTime, table);
             if(column != null){
@@ -474,6 +474,8 @@ public enum SQLExceptionCode {
             "Missing ENCODED_QUALIFIER."),
     EXECUTE_BATCH_FOR_STMT_WITH_RESULT_SET(1151, "XCL51", "A batch operation can't include a "
             + "statement that produces result sets.", Factory.BATCH_UPDATE_ERROR),
+    BULK_LOAD_SINK_UNAVAILABLE(1154, "XCL54",
+            "Unable to create the sink for an UPSERT SELECT with the BULK_LOAD hint."),
 
 
     /**
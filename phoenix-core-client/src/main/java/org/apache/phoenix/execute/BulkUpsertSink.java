@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.execute;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.Mutation;
+
+/**
+ * Destination of the rows produced by an UPSERT SELECT with the BULK_LOAD hint. Instead of
+ * being sent to the region servers as mutations, the cells of the data and index rows are
+ * handed to the sink, which writes them to HFiles and bulk loads them on {@link #load()}.
+ * Closing the sink discards anything that has not been loaded.
+ *
+ * @since 5.3.0
+ */
+public interface BulkUpsertSink extends Closeable {
+
+    /**
+     * Adds the cells of the given mutations to the sink.
+     * @param physicalTableName physical name of the table the mutations belong to
+     * @param mutations puts for the data table or one of its indexes
+     * @throws IOException
+     */
+    void write(byte[] physicalTableName, List<Mutation> mutations) throws IOException;
+
+    /**
+     * Writes out any buffered cells and bulk loads everything written so far into the
+     * target tables, in the order the tables were first written to.
+     * @throws IOException
+     */
+    void load() throws IOException;
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.execute;
+
+import java.lang.reflect.InvocationTargetException;
+import java.sql.SQLException;
+
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.exception.SQLExceptionInfo;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
+
+/**
+ * Creates the {@link BulkUpsertSink} configured through
+ * {@link QueryServices#UPSERT_SELECT_BULK_LOAD_SINK_CLASS_ATTRIB}. The default implementation
+ * writes HFiles and lives with the server side code, so it is loaded by name.
+ *
+ * @since 5.3.0
+ */
+public class BulkUpsertSinkFactory {
+
+    private BulkUpsertSinkFactory() {
+    }
+
+    public static BulkUpsertSink getSink(PhoenixConnection connection) throws SQLException {
+        String className = connection.getQueryServices().getProps().get(
+                QueryServices.UPSERT_SELECT_BULK_LOAD_SINK_CLASS_ATTRIB,
+                QueryServicesOptions.DEFAULT_UPSERT_SELECT_BULK_LOAD_SINK_CLASS);
+        try {
+            Class<? extends BulkUpsertSink> clazz =
+                    Class.forName(className).asSubclass(BulkUpsertSink.class);
+            return clazz.getConstructor(PhoenixConnection.class).newInstance(connection);
+        } catch (InvocationTargetException e) {
+            throw new SQLExceptionInfo.Builder(SQLExceptionCode.BULK_LOAD_SINK_UNAVAILABLE)
+                    .setMessage(className).setRootCause(e.getCause()).build().buildException();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new SQLExceptionInfo.Builder(SQLExceptionCode.BULK_LOAD_SINK_UNAVAILABLE)
+                    .setMessage(className).setRootCause(e).build().buildException();
+        }
+    }
+}
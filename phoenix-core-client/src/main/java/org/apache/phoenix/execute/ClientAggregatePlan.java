@@ -139,7 +139,8 @@ public class ClientAggregatePlan extends ClientProcessingPlan {
     public ResultIterator iterator(ParallelScanGrouper scanGrouper, Scan scan) throws SQLException {
         ResultIterator iterator = delegate.iterator(scanGrouper, scan);
         if (where != null) {
-            iterator = new FilterResultIterator(iterator, where);
+            iterator = new FilterResultIterator(iterator, where,
+                    FilterResultIterator.getBatchSize(context));
         }
         
         AggregatingResultIterator aggResultIterator;
@@ -173,10 +174,12 @@ public class ClientAggregatePlan extends ClientProcessingPlan {
                     // Pass in orderBy to apply any sort that has been optimized away
                     aggResultIterator = new ClientHashAggregatingResultIterator(context, iterator, serverAggregators, keyExpressions, orderBy);
                 } else {
-                    iterator =
+                    OrderedResultIterator orderedIterator =
                             new OrderedResultIterator(iterator, keyExpressionOrderBy,
                                     spoolingEnabled, thresholdBytes, null, null,
                                     projector.getEstimatedRowByteSize());
+                    OrderedResultIterator.setClientExternalSort(orderedIterator, context);
+                    iterator = orderedIterator;
                     aggResultIterator = new ClientGroupedAggregatingResultIterator(LookAheadResultIterator.wrap(iterator), serverAggregators, keyExpressions);
                 }
             }
@@ -90,7 +90,8 @@ public class ClientScanPlan extends ClientProcessingPlan {
     public ResultIterator iterator(ParallelScanGrouper scanGrouper, Scan scan) throws SQLException {
         ResultIterator iterator = delegate.iterator(scanGrouper, scan);
         if (where != null) {
-            iterator = new FilterResultIterator(iterator, where);
+            iterator = new FilterResultIterator(iterator, where,
+                    FilterResultIterator.getBatchSize(context));
         }
         
         if (!orderBy.getOrderByExpressions().isEmpty()) { // TopN
@@ -102,10 +103,12 @@ public class ClientScanPlan extends ClientProcessingPlan {
                     context.getConnection().getQueryServices().getProps().getBoolean(
                         QueryServices.CLIENT_ORDERBY_SPOOLING_ENABLED_ATTRIB,
                         QueryServicesOptions.DEFAULT_CLIENT_ORDERBY_SPOOLING_ENABLED);
-            iterator =
+            OrderedResultIterator orderedIterator =
                     new OrderedResultIterator(iterator, orderBy.getOrderByExpressions(),
                             spoolingEnabled, thresholdBytes, limit, offset,
                             projector.getEstimatedRowByteSize());
+            OrderedResultIterator.setClientExternalSort(orderedIterator, context);
+            iterator = orderedIterator;
         } else {
             if (offset != null) {
                 iterator = new OffsetResultIterator(iterator, offset);
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.execute;
+
+/**
+ * Append only byte arena holding the column values of uncommitted rows of a table. Values are
+ * copied into large shared chunks rather than kept as one array per value, and rows refer to
+ * them by offset. Values larger than a fraction of a chunk get a chunk of their own so that
+ * the end of the current chunk is not wasted.
+ * <p>
+ * Bytes are never freed individually, a chunk is reclaimed once no row refers to it anymore.
+ *
+ * @since 5.3.0
+ */
+public final class ColumnValueArena {
+    static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final int chunkSize;
+    private byte[] chunk;
+    private int position;
+    private byte[] lastChunk;
+
+    public ColumnValueArena() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    ColumnValueArena(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reserves length contiguous bytes.
+     *
+     * @return the offset of the reserved bytes in {@link #getLastChunk()}
+     */
+    public int allocate(int length) {
+        if (length > chunkSize / 8) {
+            lastChunk = new byte[length];
+            return 0;
+        }
+        if (chunk == null || position + length > chunk.length) {
+            chunk = new byte[chunkSize];
+            position = 0;
+        }
+        int offset = position;
+        position += length;
+        lastChunk = chunk;
+        return offset;
+    }
+
+    /**
+     * @return the chunk of the last allocation
+     */
+    public byte[] getLastChunk() {
+        return lastChunk;
+    }
+}
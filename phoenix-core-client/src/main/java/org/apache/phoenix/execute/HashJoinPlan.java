@@ -36,13 +36,16 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.phoenix.thirdparty.com.google.common.base.Optional;
 import org.apache.commons.codec.binary.Hex;
+import org.apache.hadoop.hbase.CompareOperator;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.cache.ServerCacheClient.ServerCache;
 import org.apache.phoenix.compile.ColumnProjector;
 import org.apache.phoenix.compile.ExplainPlan;
+import org.apache.phoenix.compile.ExplainPlanAttributes.ExplainPlanAttributesBuilder;
 import org.apache.phoenix.compile.FromCompiler;
+import org.apache.phoenix.compile.OrderByCompiler.OrderBy;
 import org.apache.phoenix.compile.QueryPlan;
 import org.apache.phoenix.compile.RowProjector;
 import org.apache.phoenix.compile.ScanRanges;
@@ -54,6 +57,9 @@ import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.execute.visitor.AvgRowWidthVisitor;
 import org.apache.phoenix.execute.visitor.QueryPlanVisitor;
 import org.apache.phoenix.execute.visitor.RowCountVisitor;
+import org.apache.phoenix.expression.AndExpression;
+import org.apache.phoenix.expression.BloomFilterExpression;
+import org.apache.phoenix.expression.ComparisonExpression;
 import org.apache.phoenix.expression.Determinism;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.InListExpression;
@@ -78,16 +84,22 @@ import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.TableRef;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.schema.types.PArrayDataType;
+import org.apache.phoenix.schema.types.PBinary;
 import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PChar;
 import org.apache.phoenix.schema.types.PDataType;
 import org.apache.phoenix.schema.types.PVarbinary;
+import org.apache.phoenix.schema.types.PVarchar;
 import org.apache.phoenix.util.ClientUtil;
 import org.apache.phoenix.util.CostUtil;
 import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.SQLCloseables;
+import org.apache.phoenix.util.ScanUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
 import org.apache.phoenix.thirdparty.com.google.common.collect.Lists;
 import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
 import org.apache.phoenix.thirdparty.com.google.common.collect.Sets;
@@ -112,6 +124,8 @@ public class HashJoinPlan extends DelegateQueryPlan {
     private Long estimateInfoTs;
     private boolean getEstimatesCalled;
     private boolean hasSubPlansWithPersistentCache;
+    private Integer partitionJoinIndex;
+    private int numPartitions = 1;
     
     public static HashJoinPlan create(SelectStatement statement, 
             QueryPlan plan, HashJoinInfo joinInfo, SubPlan[] subPlans) throws SQLException {
@@ -165,7 +179,73 @@ public class HashJoinPlan extends DelegateQueryPlan {
         if (scan == null) {
             scan = delegate.getContext().getScan();
         }
-        
+        if (getPartitionJoinIndex() >= 0) {
+            return new PartitionedJoinResultIterator(scanGrouper, scan);
+        }
+        return iteratorForPartition(scanGrouper, scan);
+    }
+
+    /**
+     * Decides whether the join has to run as multiple passes over hash partitions of one
+     * of its build sides: this is the case when exactly one build side is estimated to be
+     * larger than the max server cache size and the rows of the probe side can be joined
+     * one partition at a time, i.e. the join is a plain scan without ordering, limit,
+     * offset or aggregation on top of it.
+     *
+     * @return the index of the join to partition or -1 if the join runs as a single pass
+     */
+    private int getPartitionJoinIndex() throws SQLException {
+        if (partitionJoinIndex != null) {
+            return partitionJoinIndex;
+        }
+        partitionJoinIndex = -1;
+        ReadOnlyProps props = getContext().getConnection().getQueryServices().getProps();
+        if (hasSubPlansWithPersistentCache
+                || !props.getBoolean(QueryServices.HASH_JOIN_PARTITIONED_ENABLED_ATTRIB,
+                        QueryServicesOptions.DEFAULT_HASH_JOIN_PARTITIONED_ENABLED)
+                || !isPartitionable(delegate, joinInfo)) {
+            return partitionJoinIndex;
+        }
+        int candidate = -1;
+        long candidateBytes = 0;
+        for (int i = 0; i < subPlans.length; i++) {
+            Long bytes = subPlans[i].getInnerPlan().getEstimatedBytesToScan();
+            if (bytes == null || bytes <= serverCacheLimit) {
+                continue;
+            }
+            if (candidate >= 0 || !(subPlans[i] instanceof HashSubPlan)
+                    || ((HashSubPlan) subPlans[i]).hashExpressions == null
+                    || !joinInfo.earlyEvaluation()[i]) {
+                return partitionJoinIndex;
+            }
+            candidate = i;
+            candidateBytes = bytes;
+        }
+        if (candidate >= 0) {
+            // Leave some room for skew between partitions
+            int maxPartitions = props.getInt(QueryServices.HASH_JOIN_MAX_PARTITIONS_ATTRIB,
+                    QueryServicesOptions.DEFAULT_HASH_JOIN_MAX_PARTITIONS);
+            long partitions = (2 * candidateBytes + serverCacheLimit - 1) / serverCacheLimit;
+            numPartitions = (int) Math.max(2, Math.min(maxPartitions, partitions));
+            partitionJoinIndex = candidate;
+        }
+        return partitionJoinIndex;
+    }
+
+    /**
+     * @return whether the rows of the probe side can be joined one hash partition at a time.
+     *         The results of the passes are concatenated, so the probe side must be an
+     *         unordered scan: a row key order, which has no order by expressions, is lost.
+     */
+    @VisibleForTesting
+    static boolean isPartitionable(QueryPlan delegate, HashJoinInfo joinInfo) {
+        return joinInfo != null && delegate instanceof ScanPlan && joinInfo.getLimit() == null
+                && delegate.getLimit() == null && delegate.getOffset() == null
+                && delegate.getOrderBy() == OrderBy.EMPTY_ORDER_BY
+                && !ScanUtil.forceRowKeyOrder(delegate.getContext());
+    }
+
+    private ResultIterator iteratorForPartition(ParallelScanGrouper scanGrouper, Scan scan) throws SQLException {
         int count = subPlans.length;
         PhoenixConnection connection = getContext().getConnection();
         ConnectionQueryServices services = connection.getQueryServices();
@@ -250,7 +330,8 @@ public class HashJoinPlan extends DelegateQueryPlan {
         
         ResultIterator iterator = joinInfo == null ? delegate.iterator(scanGrouper, scan) : ((BaseQueryPlan) delegate).iterator(dependencies, scanGrouper, scan);
         if (statement.getInnerSelectStatement() != null && postFilter != null) {
-            iterator = new FilterResultIterator(iterator, postFilter);
+            iterator = new FilterResultIterator(iterator, postFilter,
+                    FilterResultIterator.getBatchSize(delegate.getContext()));
         }
 
         if (hasSubPlansWithPersistentCache) {
@@ -283,17 +364,149 @@ public class HashJoinPlan extends DelegateQueryPlan {
         return peeking;
     }
 
+    /**
+     * Runs the join once per hash partition of the partitioned build side, each pass
+     * sending only that partition to the region servers and having them skip the probe
+     * rows of all other partitions. Passes run one after the other, so that at most one
+     * partition is held in the server caches at any time.
+     */
+    private class PartitionedJoinResultIterator extends LookAheadResultIterator {
+        private final ParallelScanGrouper scanGrouper;
+        private final Scan scan;
+        private ResultIterator current;
+        private int nextPartition;
+
+        PartitionedJoinResultIterator(ParallelScanGrouper scanGrouper, Scan scan) {
+            this.scanGrouper = scanGrouper;
+            this.scan = scan;
+        }
+
+        @Override
+        protected Tuple advance() throws SQLException {
+            while (true) {
+                if (current == null) {
+                    if (nextPartition == numPartitions) {
+                        return null;
+                    }
+                    // Caches of the previous pass have been closed along with its iterator
+                    dependencies.clear();
+                    joinInfo.setPartition(partitionJoinIndex, numPartitions, nextPartition++);
+                    current = iteratorForPartition(scanGrouper, scan);
+                }
+                Tuple tuple = current.next();
+                if (tuple != null) {
+                    return tuple;
+                }
+                current.close();
+                current = null;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (current != null) {
+                    current.close();
+                    current = null;
+                }
+            } finally {
+                nextPartition = numPartitions;
+                joinInfo.clearPartition();
+            }
+        }
+
+        @Override
+        public void explain(List<String> planSteps) {
+        }
+
+        @Override
+        public void explain(List<String> planSteps,
+                ExplainPlanAttributesBuilder explainPlanAttributesBuilder) {
+        }
+    }
+
     private Expression createKeyRangeExpression(Expression lhsExpression,
             Expression rhsExpression, List<Expression> rhsValues, 
             ImmutableBytesWritable ptr, boolean rowKeyOrderOptimizable) throws SQLException {
         if (rhsValues.isEmpty())
             return LiteralExpression.newConstant(false, PBoolean.INSTANCE, Determinism.ALWAYS);        
         
+        if (useBloomFilter(lhsExpression, rhsValues.size())) {
+            return createBloomFilterExpression(lhsExpression, rhsValues, ptr, rowKeyOrderOptimizable);
+        }
+
         rhsValues.add(0, lhsExpression);
         
         return InListExpression.create(rhsValues, false, ptr, rowKeyOrderOptimizable);
     }
 
+    private boolean isBloomFilterEnabled() {
+        return getContext().getConnection().getQueryServices().getProps().getBoolean(
+            QueryServices.HASH_JOIN_BLOOM_FILTER_ENABLED_ATTRIB,
+            QueryServicesOptions.DEFAULT_HASH_JOIN_BLOOM_FILTER_ENABLED);
+    }
+
+    private boolean useBloomFilter(Expression lhsExpression, int nValues) {
+        ReadOnlyProps props = getContext().getConnection().getQueryServices().getProps();
+        if (!isBloomFilterEnabled()
+                || nValues < props.getInt(QueryServices.HASH_JOIN_BLOOM_FILTER_MIN_KEYS_ATTRIB,
+                        QueryServicesOptions.DEFAULT_HASH_JOIN_BLOOM_FILTER_MIN_KEYS)) {
+            return false;
+        }
+        // The filter matches values by their bytes, so only types with a single byte
+        // representation per value qualify. RVCs stay on the IN list path.
+        PDataType type = lhsExpression.getDataType();
+        if (lhsExpression instanceof RowValueConstructorExpression || type.isArrayType()) {
+            return false;
+        }
+        return type == PVarchar.INSTANCE || type == PVarbinary.INSTANCE
+                || (type.isFixedWidth() && type.getByteSize() != null
+                        && type != PChar.INSTANCE && type != PBinary.INSTANCE);
+    }
+
+    /**
+     * Builds {@code lhs >= min AND lhs <= max AND BLOOM_FILTER(lhs)} over the build side
+     * values, so that the range bounds the scan if lhs is in the row key and the Bloom filter
+     * drops most of the non-matching rows on the region server before they reach the join.
+     */
+    private Expression createBloomFilterExpression(Expression lhsExpression,
+            List<Expression> rhsValues, ImmutableBytesWritable ptr,
+            boolean rowKeyOrderOptimizable) throws SQLException {
+        List<ImmutableBytesWritable> values = Lists.newArrayListWithExpectedSize(rhsValues.size());
+        ImmutableBytesWritable min = null;
+        ImmutableBytesWritable max = null;
+        for (Expression rhsValue : rhsValues) {
+            // Values are ascending literals of the join key type
+            if (!rhsValue.evaluate(null, ptr) || ptr.getLength() == 0) {
+                continue; // nulls never match
+            }
+            ImmutableBytesWritable value = new ImmutableBytesWritable(ptr.copyBytes());
+            values.add(value);
+            if (min == null || value.compareTo(min) < 0) {
+                min = value;
+            }
+            if (max == null || value.compareTo(max) > 0) {
+                max = value;
+            }
+        }
+        if (values.isEmpty()) {
+            return LiteralExpression.newConstant(false, PBoolean.INSTANCE, Determinism.ALWAYS);
+        }
+        PDataType type = lhsExpression.getDataType();
+        Expression minExpression = LiteralExpression.newConstant(
+            type.toObject(min.get()), type, Determinism.ALWAYS);
+        Expression maxExpression = LiteralExpression.newConstant(
+            type.toObject(max.get()), type, Determinism.ALWAYS);
+        List<Expression> filters = Lists.newArrayListWithExpectedSize(3);
+        filters.add(ComparisonExpression.create(CompareOperator.GREATER_OR_EQUAL,
+            Arrays.asList(lhsExpression, minExpression), ptr, rowKeyOrderOptimizable));
+        filters.add(ComparisonExpression.create(CompareOperator.LESS_OR_EQUAL,
+            Arrays.asList(lhsExpression, maxExpression), ptr, rowKeyOrderOptimizable));
+        filters.add(BloomFilterExpression.create(lhsExpression, values,
+            QueryServicesOptions.DEFAULT_HASH_JOIN_BLOOM_FILTER_FALSE_POSITIVE_RATE));
+        return AndExpression.create(filters);
+    }
+
     @Override
     public ExplainPlan getExplainPlan() throws SQLException {
         // TODO : Support ExplainPlanAttributes for HashJoinPlan
@@ -312,6 +525,9 @@ public class HashJoinPlan extends DelegateQueryPlan {
         if (joinInfo != null && joinInfo.getLimit() != null) {
             planSteps.add("    JOIN-SCANNER " + joinInfo.getLimit() + " ROW LIMIT");
         }
+        if (getPartitionJoinIndex() >= 0) {
+            planSteps.add("    JOIN TABLE " + partitionJoinIndex + " IN " + numPartitions + " HASH PARTITIONS");
+        }
         return new ExplainPlan(planSteps);
     }
 
@@ -369,8 +585,12 @@ public class HashJoinPlan extends DelegateQueryPlan {
                 rhsByteSum += rhsBytes;
             }
 
+            int passes = 1;
             if (rhsByteSum > serverCacheLimit) {
-                return Cost.UNKNOWN;
+                if (getPartitionJoinIndex() < 0) {
+                    return Cost.UNKNOWN;
+                }
+                passes = numPartitions;
             }
 
             // Calculate the cost of aggregation and ordering that is performed with the HashJoinPlan
@@ -395,11 +615,15 @@ public class HashJoinPlan extends DelegateQueryPlan {
             }
 
             // Calculate the cost of child nodes
-            Cost lhsCost = new Cost(0, 0, r.doubleValue() * w);
+            // Each pass of a partitioned join scans both sides again
+            Cost lhsCost = new Cost(0, 0, r.doubleValue() * w * passes);
             Cost rhsCost = Cost.ZERO;
             for (SubPlan subPlan : subPlans) {
                 rhsCost = rhsCost.plus(subPlan.getInnerPlan().getCost());
             }
+            for (int i = 1; i < passes; i++) {
+                cost = cost.plus(rhsCost);
+            }
             return cost.plus(lhsCost).plus(rhsCost);
         } catch (SQLException e) {
         }
@@ -509,6 +733,8 @@ public class HashJoinPlan extends DelegateQueryPlan {
         private final boolean usePersistentCache;
         private final Expression keyRangeLhsExpression;
         private final Expression keyRangeRhsExpression;
+        private final Expression bloomFilterLhsExpression;
+        private final Expression bloomFilterRhsExpression;
         private final MessageDigest digest;
         
         public HashSubPlan(int index, QueryPlan subPlan, 
@@ -517,6 +743,23 @@ public class HashJoinPlan extends DelegateQueryPlan {
                 boolean usePersistentCache,
                 Expression keyRangeLhsExpression, 
                 Expression keyRangeRhsExpression) {
+            this(index, subPlan, hashExpressions, singleValueOnly, usePersistentCache,
+                    keyRangeLhsExpression, keyRangeRhsExpression, null, null);
+        }
+
+        /**
+         * @param bloomFilterLhsExpression join key of the probe table on a non row key column,
+         *            compiled against the table itself, or null
+         * @param bloomFilterRhsExpression build side join key matching bloomFilterLhsExpression
+         */
+        public HashSubPlan(int index, QueryPlan subPlan,
+                List<Expression> hashExpressions,
+                boolean singleValueOnly,
+                boolean usePersistentCache,
+                Expression keyRangeLhsExpression,
+                Expression keyRangeRhsExpression,
+                Expression bloomFilterLhsExpression,
+                Expression bloomFilterRhsExpression) {
             this.index = index;
             this.plan = subPlan;
             this.hashExpressions = hashExpressions;
@@ -524,6 +767,8 @@ public class HashJoinPlan extends DelegateQueryPlan {
             this.usePersistentCache = usePersistentCache;
             this.keyRangeLhsExpression = keyRangeLhsExpression;
             this.keyRangeRhsExpression = keyRangeRhsExpression;
+            this.bloomFilterLhsExpression = bloomFilterLhsExpression;
+            this.bloomFilterRhsExpression = bloomFilterRhsExpression;
             try {
                 this.digest = MessageDigest.getInstance("SHA-256");
             } catch (NoSuchAlgorithmException e) {
@@ -535,7 +780,12 @@ public class HashJoinPlan extends DelegateQueryPlan {
         public ServerCache execute(HashJoinPlan parent) throws SQLException {
             ScanRanges ranges = parent.delegate.getContext().getScanRanges();
             List<Expression> keyRangeRhsValues = null;
-            if (keyRangeRhsExpression != null) {
+            Expression rhsKeyExpression = keyRangeRhsExpression;
+            if (rhsKeyExpression == null && bloomFilterRhsExpression != null
+                    && parent.isBloomFilterEnabled()) {
+                rhsKeyExpression = bloomFilterRhsExpression;
+            }
+            if (rhsKeyExpression != null) {
                 keyRangeRhsValues = Lists.<Expression>newArrayList();
             }
             ServerCache cache = null;
@@ -562,10 +812,13 @@ public class HashJoinPlan extends DelegateQueryPlan {
                             " for " + queryString);
                     if (cache == null) {
                         LOGGER.debug("Making RPC to add cache " + Hex.encodeHexString(cacheId));
+                        HashJoinInfo joinInfo = parent.joinInfo;
+                        boolean partitioned = joinInfo.getPartitionJoinIndex() == index;
                         cache = parent.hashClient.addHashCache(ranges, cacheId, iterator,
                                 plan.getEstimatedSize(), hashExpressions, singleValueOnly, usePersistentCache,
-                                parent.delegate.getTableRef().getTable(), keyRangeRhsExpression,
-                                keyRangeRhsValues);
+                                parent.delegate.getTableRef().getTable(), rhsKeyExpression,
+                                keyRangeRhsValues, partitioned ? joinInfo.getNumPartitions() : 1,
+                                partitioned ? joinInfo.getPartition() : 0);
                         long endTime = EnvironmentEdgeManager.currentTimeMillis();
                         boolean isSet = parent.firstJobEndTime.compareAndSet(0, endTime);
                         if (!isSet && (endTime
@@ -593,8 +846,14 @@ public class HashJoinPlan extends DelegateQueryPlan {
                     iterator.close();
                 }
             }
-            if (keyRangeRhsValues != null) {
+            if (keyRangeRhsValues != null && keyRangeLhsExpression != null) {
                 parent.keyRangeExpressions.add(parent.createKeyRangeExpression(keyRangeLhsExpression, keyRangeRhsExpression, keyRangeRhsValues, plan.getContext().getTempPtr(), plan.getContext().getCurrentTable().getTable().rowKeyOrderOptimizable()));
+            } else if (keyRangeRhsValues != null
+                    && parent.useBloomFilter(bloomFilterLhsExpression, keyRangeRhsValues.size())) {
+                // Not a row key column, so the filter only drops rows on the region server
+                parent.keyRangeExpressions.add(parent.createBloomFilterExpression(
+                    bloomFilterLhsExpression, keyRangeRhsValues, plan.getContext().getTempPtr(),
+                    plan.getContext().getCurrentTable().getTable().rowKeyOrderOptimizable()));
             }
             return cache;
         }
@@ -628,6 +887,12 @@ public class HashJoinPlan extends DelegateQueryPlan {
 
         @Override
         public List<String> getPostSteps(HashJoinPlan parent) throws SQLException {
+            if (keyRangeLhsExpression == null && bloomFilterLhsExpression != null
+                    && parent.isBloomFilterEnabled()) {
+                return Collections.<String> singletonList("    DYNAMIC SERVER FILTER BY "
+                        + bloomFilterLhsExpression.toString() + " IN BLOOM FILTER ("
+                        + bloomFilterRhsExpression.toString() + ")");
+            }
             if (keyRangeLhsExpression == null)
                 return Collections.<String> emptyList();
             
@@ -36,12 +36,15 @@ import static org.apache.phoenix.query.QueryServices.WILDCARD_QUERY_DYNAMIC_COLS
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_WILDCARD_QUERY_DYNAMIC_COLS_ATTRIB;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -49,13 +52,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.AsyncTable;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
@@ -91,6 +101,7 @@ import org.apache.phoenix.monitoring.MutationMetricQueue.MutationMetric;
 import org.apache.phoenix.monitoring.MutationMetricQueue.NoOpMutationMetricsQueue;
 import org.apache.phoenix.monitoring.ReadMetricQueue;
 import org.apache.phoenix.monitoring.TableMetricsManager;
+import org.apache.phoenix.query.ConnectionQueryServices;
 import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
@@ -118,6 +129,7 @@ import org.apache.phoenix.transaction.PhoenixTransactionContext;
 import org.apache.phoenix.transaction.PhoenixTransactionContext.PhoenixVisibilityLevel;
 import org.apache.phoenix.transaction.TransactionFactory;
 import org.apache.phoenix.transaction.TransactionFactory.Provider;
+import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.ClientUtil;
 import org.apache.phoenix.util.CDCUtil;
 import org.apache.phoenix.util.EncodedColumnsUtil;
@@ -125,6 +137,7 @@ import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.IndexUtil;
 import org.apache.phoenix.util.LogUtil;
 import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.SQLCloseable;
 import org.apache.phoenix.util.SchemaUtil;
 import org.apache.phoenix.util.SizedUtil;
@@ -134,6 +147,7 @@ import org.apache.phoenix.util.WALAnnotationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
 import org.apache.phoenix.thirdparty.com.google.common.base.Preconditions;
 import org.apache.phoenix.thirdparty.com.google.common.base.Predicate;
 import org.apache.phoenix.thirdparty.com.google.common.collect.Iterators;
@@ -180,6 +194,8 @@ public class MutationState implements SQLCloseable {
     private static boolean allDeletesMutations = true;
 
     private final boolean indexRegionObserverEnabledAllTables;
+    // Number of mutation batches of a table that may be in flight at once while committing
+    private final int maxInFlightMutationBatches;
 
     public static void resetAllMutationState(){
         allDeletesMutations = true;
@@ -246,6 +262,13 @@ public class MutationState implements SQLCloseable {
                 this.connection.getQueryServices().getConfiguration().get(
                     INDEX_REGION_OBSERVER_ENABLED_ALL_TABLES_ATTRIB,
                     DEFAULT_INDEX_REGION_OBSERVER_ENABLED_ALL_TABLES));
+        ReadOnlyProps props = this.connection.getQueryServices().getProps();
+        this.maxInFlightMutationBatches = props.getBoolean(
+                QueryServices.MUTATE_PIPELINE_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_MUTATE_PIPELINE_ENABLED)
+                ? props.getInt(QueryServices.MUTATE_PIPELINE_MAX_IN_FLIGHT_BATCHES_ATTRIB,
+                        QueryServicesOptions.DEFAULT_MUTATE_PIPELINE_MAX_IN_FLIGHT_BATCHES)
+                : 1;
     }
 
     public MutationState(TableRef table, MultiRowMutationState mutations, long sizeOffset,
@@ -511,6 +534,13 @@ public class MutationState implements SQLCloseable {
             ImmutableBytesPtr key = rowEntry.getKey();
             RowMutationState newRowMutationState = rowEntry.getValue();
             RowMutationState existingRowMutationState = existingRows.get(key);
+            boolean isMergeable = existingRowMutationState != null
+                    && !existingRowMutationState.isDelete() && !newRowMutationState.isDelete();
+            if (srcRows.arena != null && !isMergeable) {
+                // Don't let a kept row pin the arena chunk of the source batch, which is
+                // mostly empty when the batch is a single UPSERT VALUES statement
+                newRowMutationState.repack(existingRows.getArena());
+            }
             if (existingRowMutationState == null) {
                 existingRows.put(key, newRowMutationState);
                 if (incrementRowCount && !isIndex) { // Don't count index rows in row count
@@ -520,9 +550,7 @@ public class MutationState implements SQLCloseable {
                 }
                 continue;
             }
-            Map<PColumn, byte[]> existingValues = existingRowMutationState.getColumnValues();
-            Map<PColumn, byte[]> newValues = newRowMutationState.getColumnValues();
-            if (existingValues != PRow.DELETE_MARKER && newValues != PRow.DELETE_MARKER) {
+            if (isMergeable) {
                 // Check if we can merge existing column values with new column values
                 long beforeMergeSize = existingRowMutationState.calculateEstimatedSize();
                 boolean isMerged = existingRowMutationState.join(rowEntry.getValue());
@@ -534,6 +562,9 @@ public class MutationState implements SQLCloseable {
                 } else {
                     // cannot merge regular upsert and conditional upsert
                     // conflicting row is not a new row so no need to increment numRows
+                    if (srcRows.arena != null) {
+                        newRowMutationState.repack(existingRows.getArena());
+                    }
                     conflictingRows.put(key, newRowMutationState);
                 }
             } else {
@@ -807,7 +838,7 @@ public class MutationState implements SQLCloseable {
             }
             PRow row = table.newRow(connection.getKeyValueBuilder(), timestampToUse, key, hasOnDupKey);
             List<Mutation> rowMutations, rowMutationsPertainingToIndex;
-            if (rowEntry.getValue().getColumnValues() == PRow.DELETE_MARKER) { // means delete
+            if (state.isDelete()) {
                 row.delete();
                 rowMutations = row.toRowMutations();
                 String sourceOfDelete = getConnection().getSourceOfOperation();
@@ -822,8 +853,8 @@ public class MutationState implements SQLCloseable {
                 rowMutationsPertainingToIndex = Collections.emptyList();
 
             } else {
-                for (Map.Entry<PColumn, byte[]> valueEntry : rowEntry.getValue().getColumnValues().entrySet()) {
-                    row.setValue(valueEntry.getKey(), valueEntry.getValue());
+                for (int i = 0; i < state.getColumnCount(); i++) {
+                    row.setValue(state.getColumn(i), state.getColumnValue(i));
                 }
                 if (wildcardIncludesDynamicCols && row.setAttributesForDynamicColumnsIfReqd()) {
                     row.setAttributeToProcessDynamicColumnsMetadata();
@@ -1045,12 +1076,10 @@ public class MutationState implements SQLCloseable {
                         rowEntry : rowKeyToColumnMap.entrySet()) {
                     RowMutationState valueEntry = rowEntry.getValue();
                     if (valueEntry != null) {
-                        Map<PColumn, byte[]> colValues = valueEntry.getColumnValues();
-                        if (colValues != PRow.DELETE_MARKER) {
-                            for (PColumn column : colValues.keySet()) {
-                                if (!column.isDynamic()) {
-                                    columns.add(column);
-                                }
+                        for (int i = 0; i < valueEntry.getColumnCount(); i++) {
+                            PColumn column = valueEntry.getColumn(i);
+                            if (!column.isDynamic()) {
+                                columns.add(column);
                             }
                         }
                     }
@@ -1409,6 +1438,102 @@ public class MutationState implements SQLCloseable {
         }
     }
 
+    @VisibleForTesting
+    boolean isPipelineEligible(PTable table, List<List<Mutation>> mutationBatchList,
+            boolean shouldRetryIndexedMutation) {
+        if (maxInFlightMutationBatches <= 1 || mutationBatchList.size() <= 1
+                || table.isTransactional() || shouldRetryIndexedMutation) {
+            return false;
+        }
+        // Batches after a failed one may have been applied and are sent again on retry, which
+        // is only safe for mutations that are idempotent
+        for (List<Mutation> mutationBatch : mutationBatchList) {
+            for (Mutation mutation : mutationBatch) {
+                if (mutation.getAttribute(PhoenixIndexBuilderHelper.ATOMIC_OP_ATTRIB) != null) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the async table to pipeline the batches of a table through, or null if the async
+     * client is not available. The table is given the operation timeout, RPC timeouts and
+     * retries that the blocking {@link Table} of {@link ConnectionQueryServices#getTable} gets
+     * from the configuration of the query services, rather than the defaults of the async
+     * connection, so that a pipelined commit fails after as long as a blocking one.
+     */
+    @VisibleForTesting
+    AsyncTable<?> getPipelineTable(byte[] htableName) {
+        AsyncConnection asyncConnection;
+        try {
+            asyncConnection = connection.getQueryServices().getAsyncConnection().join();
+        } catch (CompletionException e) {
+            LOGGER.debug("Sending mutations without pipelining: {}", e.toString());
+            return null;
+        }
+        Configuration config = connection.getQueryServices().getConfiguration();
+        int rpcTimeout = config.getInt(HConstants.HBASE_RPC_TIMEOUT_KEY,
+                HConstants.DEFAULT_HBASE_RPC_TIMEOUT);
+        return asyncConnection.getTableBuilder(TableName.valueOf(htableName))
+                .setOperationTimeout(config.getInt(HConstants.HBASE_CLIENT_OPERATION_TIMEOUT,
+                        HConstants.DEFAULT_HBASE_CLIENT_OPERATION_TIMEOUT), TimeUnit.MILLISECONDS)
+                .setRpcTimeout(rpcTimeout, TimeUnit.MILLISECONDS)
+                .setWriteRpcTimeout(config.getInt(HConstants.HBASE_RPC_WRITE_TIMEOUT_KEY,
+                        rpcTimeout), TimeUnit.MILLISECONDS)
+                .setMaxAttempts(config.getInt(HConstants.HBASE_CLIENT_RETRIES_NUMBER,
+                        HConstants.DEFAULT_HBASE_CLIENT_RETRIES_NUMBER) + 1)
+                .build();
+    }
+
+    /**
+     * Sends the batches of a table through the HBase async client, which groups each batch by
+     * region server, keeping up to {@link #maxInFlightMutationBatches} of them in flight
+     * instead of waiting for each batch before sending the next one. Batches are removed from
+     * the list in order as they complete, so after a failure the list holds the batches that
+     * may not have been applied, as with blocking sends. Batches still in flight when one
+     * fails are waited for before the failure is thrown.
+     */
+    @VisibleForTesting
+    void sendBatchesPipelined(AsyncTable<?> asyncTable, byte[] htableName,
+            List<List<Mutation>> mutationBatchList) throws IOException {
+        Deque<CompletableFuture<?>> inFlight = new ArrayDeque<>(maxInFlightMutationBatches);
+        int submitted = 0;
+        try {
+            while (true) {
+                while (inFlight.size() < maxInFlightMutationBatches
+                        && submitted < mutationBatchList.size()) {
+                    inFlight.add(asyncTable.batchAll(mutationBatchList.get(submitted++)));
+                }
+                CompletableFuture<?> oldest = inFlight.poll();
+                if (oldest == null) {
+                    return;
+                }
+                oldest.get();
+                List<Mutation> mutationBatch = mutationBatchList.remove(0);
+                submitted--;
+                batchCount++;
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Sent pipelined batch of " + mutationBatch.size() + " for "
+                            + Bytes.toString(htableName));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (InterruptedIOException) new InterruptedIOException(e.getMessage()).initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } finally {
+            // Let the batches still in flight settle so that a retry does not race with them
+            if (!inFlight.isEmpty()) {
+                CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[inFlight.size()]))
+                        .handle((v, t) -> null).join();
+            }
+        }
+    }
+
     private void sendMutations(Iterator<Entry<TableInfo, List<Mutation>>> mutationsIterator, Span span, ImmutableBytesWritable indexMetaDataPtr, boolean isVerifiedPhase)
             throws SQLException {
         while (mutationsIterator.hasNext()) {
@@ -1471,6 +1596,19 @@ public class MutationState implements SQLCloseable {
                     totalMutationBytesObject = calculateMutationSize(mutationList, true);
 
                     child.addTimelineAnnotation("Attempt " + retryCount);
+                    AsyncTable<?> asyncTable =
+                            isPipelineEligible(table, mutationBatchList, shouldRetryIndexedMutation)
+                                    ? getPipelineTable(htableName) : null;
+                    if (asyncTable != null) {
+                        try {
+                            sendBatchesPipelined(asyncTable, htableName, mutationBatchList);
+                        } catch (IOException e) {
+                            currentMutationBatch = mutationBatchList.isEmpty() ? null
+                                    : mutationBatchList.get(0);
+                            throw e;
+                        }
+                    }
+                    // Sends whatever the pipeline did not
                     Iterator<List<Mutation>> itrListMutation = mutationBatchList.iterator();
                     while (itrListMutation.hasNext()) {
                         final List<Mutation> mutationBatch = itrListMutation.next();
@@ -2240,12 +2378,23 @@ public class MutationState implements SQLCloseable {
     public static class MultiRowMutationState {
         private Map<ImmutableBytesPtr, RowMutationState> rowKeyToRowMutationState;
         private long estimatedSize;
+        private ColumnValueArena arena;
 
         public MultiRowMutationState(int size) {
             this.rowKeyToRowMutationState = Maps.newHashMapWithExpectedSize(size);
             this.estimatedSize = 0;
         }
 
+        /**
+         * @return the arena in which the column values of new rows of this batch are stored
+         */
+        public ColumnValueArena getArena() {
+            if (arena == null) {
+                arena = new ColumnValueArena();
+            }
+            return arena;
+        }
+
         public RowMutationState put(ImmutableBytesPtr ptr, RowMutationState rowMutationState) {
             estimatedSize += rowMutationState.calculateEstimatedSize();
             return rowKeyToRowMutationState.put(ptr, rowMutationState);
@@ -2258,6 +2407,10 @@ public class MutationState implements SQLCloseable {
         public void putAll(MultiRowMutationState other) {
             estimatedSize += other.estimatedSize;
             rowKeyToRowMutationState.putAll(other.rowKeyToRowMutationState);
+            if (arena == null) {
+                // Keep filling the chunk the rows already live in rather than starting another
+                arena = other.arena;
+            }
         }
 
         public boolean isEmpty() {
@@ -2275,6 +2428,7 @@ public class MutationState implements SQLCloseable {
         public void clear() {
             rowKeyToRowMutationState.clear();
             estimatedSize = 0;
+            arena = null;
         }
 
         public Collection<RowMutationState> values() {
@@ -2282,24 +2436,130 @@ public class MutationState implements SQLCloseable {
         }
     }
 
+    /**
+     * Uncommitted state of a row. Column values are not kept as a map of separate arrays but
+     * packed into a single buffer, usually a chunk of the {@link ColumnValueArena} of the batch
+     * the row was added to, with an offset and a length per column. Values are only copied out
+     * when the HBase mutations of the row are generated.
+     */
     public static class RowMutationState {
+        private static final PColumn[] NO_COLUMNS = new PColumn[0];
+        private static final int[] NO_OFFSETS = new int[0];
+        // Overhead of a column value: its column, offset and length
+        private static final int COLUMN_VALUE_OVERHEAD = SizedUtil.POINTER_SIZE + 2 * SizedUtil.INT_SIZE;
+
+        private final boolean isDelete;
         @Nonnull
-        private Map<PColumn, byte[]> columnValues;
+        private PColumn[] columns;
+        private byte[] valueBuffer;
+        // Offset and length of the value of each column
+        private int[] valueOffsets;
         private int[] statementIndexes;
         @Nonnull
         private final RowTimestampColInfo rowTsColInfo;
         private byte[] onDupKeyBytes;
         private long colValuesSize;
 
-        public RowMutationState(@Nonnull Map<PColumn, byte[]> columnValues, long colValuesSize, int statementIndex,
+        /**
+         * Creates a row from a map of column values, or a delete of the row if the map is
+         * {@link PRow#DELETE_MARKER}.
+         */
+        public RowMutationState(@Nonnull Map<PColumn, byte[]> columnValues, int statementIndex,
                 @Nonnull RowTimestampColInfo rowTsColInfo, byte[] onDupKeyBytes) {
             checkNotNull(columnValues);
             checkNotNull(rowTsColInfo);
-            this.columnValues = columnValues;
+            this.isDelete = columnValues == PRow.DELETE_MARKER;
+            this.statementIndexes = new int[] { statementIndex };
+            this.rowTsColInfo = rowTsColInfo;
+            this.onDupKeyBytes = onDupKeyBytes;
+            int count = columnValues.size();
+            PColumn[] columns = new PColumn[count];
+            byte[][] values = new byte[count][];
+            int i = 0;
+            for (Map.Entry<PColumn, byte[]> entry : columnValues.entrySet()) {
+                columns[i] = entry.getKey();
+                values[i++] = entry.getValue();
+            }
+            pack(null, columns, values, count);
+        }
+
+        /**
+         * Creates a row with the first count columns and values of the given arrays, copying
+         * the values into the arena.
+         */
+        public RowMutationState(ColumnValueArena arena, PColumn[] columns, byte[][] values,
+                int count, int statementIndex, @Nonnull RowTimestampColInfo rowTsColInfo,
+                byte[] onDupKeyBytes) {
+            checkNotNull(rowTsColInfo);
+            this.isDelete = false;
             this.statementIndexes = new int[] { statementIndex };
             this.rowTsColInfo = rowTsColInfo;
             this.onDupKeyBytes = onDupKeyBytes;
-            this.colValuesSize = colValuesSize;
+            pack(arena, columns, values, count);
+        }
+
+        private void pack(ColumnValueArena arena, PColumn[] columns, byte[][] values, int count) {
+            if (count == 0) {
+                this.columns = NO_COLUMNS;
+                this.valueOffsets = NO_OFFSETS;
+                this.valueBuffer = ByteUtil.EMPTY_BYTE_ARRAY;
+                this.colValuesSize = 0;
+                return;
+            }
+            int totalLength = 0;
+            for (int i = 0; i < count; i++) {
+                totalLength += values[i] == null ? 0 : values[i].length;
+            }
+            int offset;
+            if (arena == null) {
+                valueBuffer = new byte[totalLength];
+                offset = 0;
+            } else {
+                offset = arena.allocate(totalLength);
+                valueBuffer = arena.getLastChunk();
+            }
+            this.columns = count == columns.length ? columns : Arrays.copyOf(columns, count);
+            this.valueOffsets = new int[count * 2];
+            for (int i = 0; i < count; i++) {
+                int length = values[i] == null ? 0 : values[i].length;
+                if (length > 0) {
+                    System.arraycopy(values[i], 0, valueBuffer, offset, length);
+                }
+                valueOffsets[2 * i] = offset;
+                valueOffsets[2 * i + 1] = length;
+                offset += length;
+            }
+            this.colValuesSize = SizedUtil.ARRAY_SIZE * 3 + totalLength
+                    + (long) count * COLUMN_VALUE_OVERHEAD;
+        }
+
+        /**
+         * Moves the column values of the row into the arena. Used when the row is kept by
+         * another batch than the one it was added to.
+         */
+        void repack(ColumnValueArena arena) {
+            int count = columns.length;
+            if (count == 0) {
+                return;
+            }
+            int totalLength = 0;
+            for (int i = 0; i < count; i++) {
+                totalLength += valueOffsets[2 * i + 1];
+            }
+            int offset = arena.allocate(totalLength);
+            byte[] buffer = arena.getLastChunk();
+            for (int i = 0; i < count; i++) {
+                int length = valueOffsets[2 * i + 1];
+                System.arraycopy(valueBuffer, valueOffsets[2 * i], buffer, offset, length);
+                valueOffsets[2 * i] = offset;
+                offset += length;
+            }
+            valueBuffer = buffer;
+        }
+
+        @VisibleForTesting
+        byte[] getValueBuffer() {
+            return valueBuffer;
         }
 
         public long calculateEstimatedSize() {
@@ -2311,7 +2571,40 @@ public class MutationState implements SQLCloseable {
             return onDupKeyBytes;
         }
 
+        /**
+         * @return true if this is a delete of the row
+         */
+        public boolean isDelete() {
+            return isDelete;
+        }
+
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        public PColumn getColumn(int index) {
+            return columns[index];
+        }
+
+        /**
+         * @return a copy of the value of the column at the given index
+         */
+        public byte[] getColumnValue(int index) {
+            int offset = valueOffsets[2 * index];
+            return Arrays.copyOfRange(valueBuffer, offset, offset + valueOffsets[2 * index + 1]);
+        }
+
+        /**
+         * @return a copy of the column values, or {@link PRow#DELETE_MARKER} for a delete
+         */
         public Map<PColumn, byte[]> getColumnValues() {
+            if (isDelete) {
+                return PRow.DELETE_MARKER;
+            }
+            Map<PColumn, byte[]> columnValues = Maps.newHashMapWithExpectedSize(columns.length);
+            for (int i = 0; i < columns.length; i++) {
+                columnValues.put(columns[i], getColumnValue(i));
+            }
             return columnValues;
         }
 
@@ -2319,6 +2612,15 @@ public class MutationState implements SQLCloseable {
             return statementIndexes;
         }
 
+        private int indexOf(PColumn column) {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equals(column)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
         /**
          * Join the newRow with the current row if it doesn't conflict with it.
          * A regular upsert conflicts with a conditional upsert
@@ -2332,16 +2634,7 @@ public class MutationState implements SQLCloseable {
             // If we already have a row and the new row has an ON DUPLICATE KEY clause
             // ignore the new values (as that's what the server will do).
             if (newRow.onDupKeyBytes == null) {
-                // increment the column value size by the new row column value size
-                colValuesSize += newRow.colValuesSize;
-                for (Map.Entry<PColumn, byte[]> entry : newRow.columnValues.entrySet()) {
-                    PColumn col = entry.getKey();
-                    byte[] oldValue = columnValues.put(col, entry.getValue());
-                    if (oldValue != null) {
-                        // decrement column value size by the size of all column values that were replaced
-                        colValuesSize -= (col.getEstimatedSize() + oldValue.length);
-                    }
-                }
+                mergeValues(newRow);
             }
             // Concatenate ON DUPLICATE KEY bytes to allow multiple
             // increments of the same row in the same commit batch.
@@ -2350,6 +2643,46 @@ public class MutationState implements SQLCloseable {
             return true;
         }
 
+        private void mergeValues(RowMutationState newRow) {
+            int[] existingIndexes = new int[newRow.columns.length];
+            boolean fitsInPlace = true;
+            for (int i = 0; i < newRow.columns.length; i++) {
+                existingIndexes[i] = indexOf(newRow.columns[i]);
+                if (existingIndexes[i] < 0
+                        || newRow.valueOffsets[2 * i + 1] > valueOffsets[2 * existingIndexes[i] + 1]) {
+                    fitsInPlace = false;
+                }
+            }
+            if (fitsInPlace) {
+                // Overwrite the bytes of the replaced values, which belong to this row only
+                for (int i = 0; i < newRow.columns.length; i++) {
+                    int j = existingIndexes[i];
+                    int length = newRow.valueOffsets[2 * i + 1];
+                    System.arraycopy(newRow.valueBuffer, newRow.valueOffsets[2 * i], valueBuffer,
+                            valueOffsets[2 * j], length);
+                    colValuesSize -= valueOffsets[2 * j + 1] - length;
+                    valueOffsets[2 * j + 1] = length;
+                }
+                return;
+            }
+            // Repack the existing values overlaid with the new ones into a buffer of the row
+            int count = columns.length;
+            PColumn[] mergedColumns = Arrays.copyOf(columns, count + newRow.columns.length);
+            byte[][] mergedValues = new byte[mergedColumns.length][];
+            for (int i = 0; i < count; i++) {
+                mergedValues[i] = getColumnValue(i);
+            }
+            for (int i = 0; i < newRow.columns.length; i++) {
+                int j = existingIndexes[i];
+                if (j < 0) {
+                    j = count++;
+                    mergedColumns[j] = newRow.columns[i];
+                }
+                mergedValues[j] = newRow.getColumnValue(i);
+            }
+            pack(null, mergedColumns, mergedValues, count);
+        }
+
         @Nonnull
         RowTimestampColInfo getRowTimestampColInfo() {
             return rowTsColInfo;
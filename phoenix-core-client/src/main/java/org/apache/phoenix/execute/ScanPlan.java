@@ -52,6 +52,7 @@ import org.apache.phoenix.iterate.ConcatResultIterator;
 import org.apache.phoenix.iterate.LimitingResultIterator;
 import org.apache.phoenix.iterate.MergeSortRowKeyResultIterator;
 import org.apache.phoenix.iterate.MergeSortTopNResultIterator;
+import org.apache.phoenix.iterate.MultiGetResultIterator;
 import org.apache.phoenix.iterate.OffsetResultIterator;
 import org.apache.phoenix.iterate.ParallelIteratorFactory;
 import org.apache.phoenix.iterate.ParallelIterators;
@@ -305,7 +306,12 @@ public class ScanPlan extends BaseQueryPlan {
         estimateInfoTimestamp = iterators.getEstimateInfoTimestamp();
         splits = iterators.getSplits();
         scans = iterators.getScans();
-        if (isOffsetOnServer) {
+        if (!isOrdered && MultiGetResultIterator.isMultiGetEligible(this, scan)) {
+            scanner = new MultiGetResultIterator(this, scan, iterators);
+            if (limit != null) {
+                scanner = new LimitingResultIterator(scanner, limit);
+            }
+        } else if (isOffsetOnServer) {
             scanner = new ConcatResultIterator(iterators);
             if (limit != null) {
                 scanner = new LimitingResultIterator(scanner, limit);
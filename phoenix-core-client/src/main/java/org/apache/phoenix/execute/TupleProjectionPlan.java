@@ -189,7 +189,8 @@ public class TupleProjectionPlan extends DelegateQueryPlan {
         };
         
         if (postFilter != null) {
-            iterator = new FilterResultIterator(iterator, postFilter);
+            iterator = new FilterResultIterator(iterator, postFilter,
+                    FilterResultIterator.getBatchSize(getContext()));
         }
         
         return iterator;
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PDataType;
+
+/**
+ * 
+ * Tests whether the value of its child may be contained in a set of values
+ * summarized by a Bloom filter. Evaluates to TRUE for every value of the set
+ * and for a small fraction of other values, and to FALSE otherwise. Values
+ * are hashed in their ascending byte representation, regardless of the sort
+ * order of the child.
+ *
+ * Used to push the join keys of a hash join build side down to the scan of
+ * the probe side when there are too many of them to be turned into an IN list.
+ * 
+ * @since 5.3.0
+ */
+public class BloomFilterExpression extends BaseSingleExpression {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private int numHashFunctions;
+    private long[] bits;
+
+    /**
+     * @param child expression whose value is tested
+     * @param values ascending byte representations of the values of the set
+     * @param falsePositiveRate expected fraction of values outside of the set
+     * that evaluate to TRUE
+     */
+    public static BloomFilterExpression create(Expression child, List<ImmutableBytesWritable> values,
+            double falsePositiveRate) {
+        int n = Math.max(1, values.size());
+        long numBits = (long) (-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int numWords = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (numBits + 63) >>> 6));
+        int numHashFunctions = Math.max(1,
+            (int) Math.round((double) numWords * Long.SIZE / n * Math.log(2)));
+        BloomFilterExpression expression =
+                new BloomFilterExpression(child, numHashFunctions, new long[numWords]);
+        for (ImmutableBytesWritable value : values) {
+            expression.put(value.get(), value.getOffset(), value.getLength());
+        }
+        return expression;
+    }
+
+    public BloomFilterExpression() {
+    }
+
+    private BloomFilterExpression(Expression child, int numHashFunctions, long[] bits) {
+        super(child);
+        this.numHashFunctions = numHashFunctions;
+        this.bits = bits;
+    }
+
+    public BloomFilterExpression(List<Expression> children, int numHashFunctions, long[] bits) {
+        super(children);
+        this.numHashFunctions = numHashFunctions;
+        this.bits = bits;
+    }
+
+    public BloomFilterExpression clone(List<Expression> children) {
+        return new BloomFilterExpression(children, numHashFunctions, bits);
+    }
+
+    private static long hash(byte[] b, int offset, int length, boolean invert) {
+        long h = FNV_OFFSET_BASIS;
+        for (int i = offset; i < offset + length; i++) {
+            h ^= (invert ? ~b[i] : b[i]) & 0xff;
+            h *= FNV_PRIME;
+        }
+        // Final avalanche of MurmurHash3 so that both halves are usable
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private void put(byte[] b, int offset, int length) {
+        long h = hash(b, offset, length, false);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        long numBits = (long) bits.length * Long.SIZE;
+        for (int i = 1; i <= numHashFunctions; i++) {
+            int combined = h1 + i * h2;
+            long bit = (combined < 0 ? ~combined : combined) % numBits;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private boolean mightContain(byte[] b, int offset, int length, boolean invert) {
+        long h = hash(b, offset, length, invert);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        long numBits = (long) bits.length * Long.SIZE;
+        for (int i = 1; i <= numHashFunctions; i++) {
+            int combined = h1 + i * h2;
+            long bit = (combined < 0 ? ~combined : combined) % numBits;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+        Expression child = getChild();
+        if (!child.evaluate(tuple, ptr)) {
+            return false;
+        }
+        if (ptr.getLength() == 0) { // null never matches, so evaluates to null
+            return true;
+        }
+        boolean invert = child.getSortOrder() == SortOrder.DESC;
+        ptr.set(mightContain(ptr.get(), ptr.getOffset(), ptr.getLength(), invert)
+                ? PDataType.TRUE_BYTES : PDataType.FALSE_BYTES);
+        return true;
+    }
+
+    @Override
+    public PDataType getDataType() {
+        return PBoolean.INSTANCE;
+    }
+
+    @Override
+    public void readFields(DataInput input) throws IOException {
+        super.readFields(input);
+        numHashFunctions = WritableUtils.readVInt(input);
+        bits = new long[WritableUtils.readVInt(input)];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = input.readLong();
+        }
+    }
+
+    @Override
+    public void write(DataOutput output) throws IOException {
+        super.write(output);
+        WritableUtils.writeVInt(output, numHashFunctions);
+        WritableUtils.writeVInt(output, bits.length);
+        for (long word : bits) {
+            output.writeLong(word);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = super.hashCode();
+        result = prime * result + numHashFunctions;
+        result = prime * result + Arrays.hashCode(bits);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!super.equals(obj)) return false;
+        BloomFilterExpression other = (BloomFilterExpression) obj;
+        return numHashFunctions == other.numHashFunctions && Arrays.equals(bits, other.bits);
+    }
+
+    @Override
+    public String toString() {
+        return "BLOOM_FILTER(" + getChild() + ", " + bits.length * Long.SIZE + " bits)";
+    }
+}
@@ -196,7 +196,8 @@ public enum ExpressionType {
     JsonValueFunction(JsonValueFunction.class),
     JsonQueryFunction(JsonQueryFunction.class),
     JsonExistsFunction(JsonExistsFunction.class),
-    JsonModifyFunction(JsonModifyFunction.class)
+    JsonModifyFunction(JsonModifyFunction.class),
+    BloomFilterExpression(BloomFilterExpression.class)
     ;
 
     ExpressionType(Class<? extends Expression> clazz) {
@@ -31,7 +31,7 @@ import org.apache.phoenix.util.SizedUtil;
  * 
  * @since 0.1
  */
-public class CountAggregator extends BaseAggregator {
+public class CountAggregator extends BaseAggregator implements FixedWidthStateAggregator {
 
     private long count = 0;
     private byte[] buffer = null;
@@ -55,6 +55,28 @@ public class CountAggregator extends BaseAggregator {
         return false;
     }
 
+    @Override
+    public int getStateWidth() {
+        return getDataType().getByteSize();
+    }
+
+    @Override
+    public void initState(byte[] state, int offset) {
+        getDataType().getCodec().encodeLong(0, state, offset);
+    }
+
+    @Override
+    public void aggregate(byte[] state, int offset, ImmutableBytesWritable ptr) {
+        long stateCount = getDataType().getCodec().decodeLong(state, offset, SortOrder.getDefault());
+        getDataType().getCodec().encodeLong(stateCount + 1, state, offset);
+    }
+
+    @Override
+    public boolean evaluate(byte[] state, int offset, ImmutableBytesWritable ptr) {
+        ptr.set(state, offset, getStateWidth());
+        return true;
+    }
+
     @Override
     public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
         if (buffer == null) {
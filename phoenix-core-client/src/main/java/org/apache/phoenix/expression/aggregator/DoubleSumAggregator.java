@@ -18,6 +18,7 @@
 package org.apache.phoenix.expression.aggregator;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 
 import org.apache.phoenix.schema.types.PDouble;
 import org.apache.phoenix.schema.SortOrder;
@@ -25,7 +26,7 @@ import org.apache.phoenix.schema.types.PDataType;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.util.SizedUtil;
 
-public class DoubleSumAggregator extends BaseAggregator {
+public class DoubleSumAggregator extends BaseAggregator implements FixedWidthStateAggregator {
     
     private double sum = 0;
     private byte[] buffer;
@@ -68,6 +69,39 @@ public class DoubleSumAggregator extends BaseAggregator {
         return true;
     }
 
+    /*
+     * The state is laid out as a single byte flagging whether any value has been
+     * aggregated yet, followed by the encoded sum.
+     */
+    @Override
+    public int getStateWidth() {
+        return Bytes.SIZEOF_BYTE + getDataType().getByteSize();
+    }
+
+    @Override
+    public void initState(byte[] state, int offset) {
+        state[offset] = 0;
+        getDataType().getCodec().encodeDouble(0, state, offset + Bytes.SIZEOF_BYTE);
+    }
+
+    @Override
+    public void aggregate(byte[] state, int offset, ImmutableBytesWritable ptr) {
+        double value = getInputDataType().getCodec().decodeDouble(ptr, sortOrder);
+        double stateSum = getDataType().getCodec().decodeDouble(state, offset + Bytes.SIZEOF_BYTE,
+                SortOrder.getDefault());
+        getDataType().getCodec().encodeDouble(stateSum + value, state, offset + Bytes.SIZEOF_BYTE);
+        state[offset] = 1;
+    }
+
+    @Override
+    public boolean evaluate(byte[] state, int offset, ImmutableBytesWritable ptr) {
+        if (state[offset] == 0 && isNullable()) {
+            return false;
+        }
+        ptr.set(state, offset + Bytes.SIZEOF_BYTE, getDataType().getByteSize());
+        return true;
+    }
+
     @Override
     public PDataType getDataType() {
         return PDouble.INSTANCE;
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.aggregator;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+
+/**
+ * Aggregator whose intermediate state fits in a fixed number of bytes and can
+ * therefore be kept outside of the aggregator instance. On the server side this
+ * lets a single aggregator instance operate over the state of many groups stored
+ * in a shared byte slab instead of allocating one aggregator per group.
+ *
+ * @since 5.3.0
+ */
+public interface FixedWidthStateAggregator extends Aggregator {
+
+    /**
+     * @return the number of bytes needed to hold the state of this aggregator,
+     * or -1 if the state of this aggregator is not of a fixed width
+     */
+    int getStateWidth();
+
+    /**
+     * Initialize the state at the given offset to that of a freshly reset aggregator
+     * @param state the buffer holding the state
+     * @param offset the offset of the state within the buffer
+     */
+    void initState(byte[] state, int offset);
+
+    /**
+     * Incrementally aggregate the value into the state at the given offset
+     * @param state the buffer holding the state
+     * @param offset the offset of the state within the buffer
+     * @param ptr the bytes pointer to the value to aggregate
+     */
+    void aggregate(byte[] state, int offset, ImmutableBytesWritable ptr);
+
+    /**
+     * Evaluate the state at the given offset
+     * @param state the buffer holding the state
+     * @param offset the offset of the state within the buffer
+     * @param ptr the bytes pointer set to the evaluated value
+     * @return true if the value is not null and false otherwise
+     */
+    boolean evaluate(byte[] state, int offset, ImmutableBytesWritable ptr);
+}
@@ -32,9 +32,11 @@ import org.apache.phoenix.util.SizedUtil;
  * 
  * @since 0.1
  */
-abstract public class MinAggregator extends BaseAggregator {
+abstract public class MinAggregator extends BaseAggregator implements FixedWidthStateAggregator {
     /** Used to store the accumulate the results of the MIN function */
     protected final ImmutableBytesWritable value = new ImmutableBytesWritable(ByteUtil.EMPTY_BYTE_ARRAY);
+    /** Points to the value held in an externally stored state while aggregating into it */
+    private final ImmutableBytesWritable stateValue = new ImmutableBytesWritable();
     
     public MinAggregator(SortOrder sortOrder) {
         super(sortOrder);
@@ -80,6 +82,51 @@ abstract public class MinAggregator extends BaseAggregator {
         }
     }
     
+    /*
+     * The state is only of a fixed width for fixed width types and is laid out as a
+     * single byte flagging whether any value has been aggregated yet, followed by the
+     * current min (or max) value.
+     */
+    @Override
+    public int getStateWidth() {
+        Integer byteSize = getDataType().getByteSize();
+        if (!getDataType().isFixedWidth() || byteSize == null) {
+            return -1;
+        }
+        return Bytes.SIZEOF_BYTE + byteSize;
+    }
+
+    @Override
+    public void initState(byte[] state, int offset) {
+        state[offset] = 0;
+    }
+
+    @Override
+    public void aggregate(byte[] state, int offset, ImmutableBytesWritable ptr) {
+        int byteSize = getStateWidth() - Bytes.SIZEOF_BYTE;
+        if (ptr.getLength() != byteSize) {
+            throw new IllegalStateException("Expected value of " + byteSize
+                    + " bytes, but got " + ptr.getLength() + " bytes");
+        }
+        if (state[offset] != 0) {
+            stateValue.set(state, offset + Bytes.SIZEOF_BYTE, byteSize);
+            if (keepFirst(stateValue, ptr)) {
+                return;
+            }
+        }
+        System.arraycopy(ptr.get(), ptr.getOffset(), state, offset + Bytes.SIZEOF_BYTE, byteSize);
+        state[offset] = 1;
+    }
+
+    @Override
+    public boolean evaluate(byte[] state, int offset, ImmutableBytesWritable ptr) {
+        if (state[offset] == 0) {
+            return false;
+        }
+        ptr.set(state, offset + Bytes.SIZEOF_BYTE, getStateWidth() - Bytes.SIZEOF_BYTE);
+        return true;
+    }
+
     @Override
     public String toString() {
         return "MIN [value=" + Bytes.toStringBinary(value.get(),value.getOffset(),value.getLength()) + "]";
@@ -18,6 +18,7 @@
 package org.apache.phoenix.expression.aggregator;
 
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 
 import org.apache.phoenix.schema.types.PLong;
 import org.apache.phoenix.schema.SortOrder;
@@ -32,7 +33,7 @@ import org.apache.phoenix.util.SizedUtil;
  * 
  * @since 0.1
  */
-abstract public class NumberSumAggregator extends BaseAggregator {
+abstract public class NumberSumAggregator extends BaseAggregator implements FixedWidthStateAggregator {
     private long sum = 0;
     private byte[] buffer;
 
@@ -87,6 +88,39 @@ abstract public class NumberSumAggregator extends BaseAggregator {
         return true;
     }
 
+    /*
+     * The state is laid out as a single byte flagging whether any value has been
+     * aggregated yet, followed by the encoded sum.
+     */
+    @Override
+    public int getStateWidth() {
+        return Bytes.SIZEOF_BYTE + getBufferLength();
+    }
+
+    @Override
+    public void initState(byte[] state, int offset) {
+        state[offset] = 0;
+        getDataType().getCodec().encodeLong(0, state, offset + Bytes.SIZEOF_BYTE);
+    }
+
+    @Override
+    public void aggregate(byte[] state, int offset, ImmutableBytesWritable ptr) {
+        long value = getInputDataType().getCodec().decodeLong(ptr, sortOrder);
+        long stateSum = getDataType().getCodec().decodeLong(state, offset + Bytes.SIZEOF_BYTE,
+                SortOrder.getDefault());
+        getDataType().getCodec().encodeLong(stateSum + value, state, offset + Bytes.SIZEOF_BYTE);
+        state[offset] = 1;
+    }
+
+    @Override
+    public boolean evaluate(byte[] state, int offset, ImmutableBytesWritable ptr) {
+        if (state[offset] == 0 && isNullable()) {
+            return false;
+        }
+        ptr.set(state, offset + Bytes.SIZEOF_BYTE, getBufferLength());
+        return true;
+    }
+
     @Override
     public final PDataType getDataType() {
         return PLong.INSTANCE;
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.vector;
+
+import java.util.List;
+
+/**
+ * Vectorized AND / OR, mirroring {@link org.apache.phoenix.expression.AndOrExpression}.
+ * Once a row reaches the stop value (FALSE for AND, TRUE for OR) the remaining
+ * children are not evaluated for it. Rows that never reach the stop value are
+ * null if any child was null for them.
+ *
+ * @since 5.3.0
+ */
+public class AndOrVectorExpression extends BaseVectorExpression {
+    private final boolean isAnd;
+    private final List<VectorExpression> children;
+    private final Selection remaining;
+    private final Selection next;
+    private boolean[] seenNull = new boolean[0];
+
+    public AndOrVectorExpression(boolean isAnd, List<VectorExpression> children) {
+        super(VectorType.BOOLEAN);
+        this.isAnd = isAnd;
+        this.children = children;
+        this.remaining = new Selection(0);
+        this.next = new Selection(0);
+    }
+
+    @Override
+    public ColumnVector evaluate(TupleBatch batch, Selection selection) {
+        ColumnVector result = getResult(batch);
+        if (seenNull.length < batch.getCapacity()) {
+            seenNull = new boolean[batch.getCapacity()];
+        }
+        boolean stopValue = !isAnd;
+        remaining.set(selection);
+        next.ensureCapacity(selection.size());
+        for (int i = 0; i < selection.size(); i++) {
+            seenNull[selection.get(i)] = false;
+        }
+        for (VectorExpression child : children) {
+            ColumnVector value = child.evaluate(batch, remaining);
+            next.clear();
+            for (int i = 0; i < remaining.size(); i++) {
+                int row = remaining.get(i);
+                if (value.isNull(row)) {
+                    seenNull[row] = true;
+                    next.add(row);
+                } else if (value.getBoolean(row) == stopValue) {
+                    result.setBoolean(row, stopValue);
+                } else {
+                    next.add(row);
+                }
+            }
+            remaining.set(next);
+            if (remaining.isEmpty()) {
+                return result;
+            }
+        }
+        for (int i = 0; i < remaining.size(); i++) {
+            int row = remaining.get(i);
+            if (seenNull[row]) {
+                result.setNull(row);
+            } else {
+                result.setBoolean(row, !stopValue);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return (isAnd ? "AND" : "OR") + children.toString();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.vector;
+
+import java.util.List;
+
+/**
+ * Vectorized arithmetic over long or double operands, mirroring
+ * {@link org.apache.phoenix.expression.LongAddExpression},
+ * {@link org.apache.phoenix.expression.DoubleAddExpression} and their subtract,
+ * multiply and divide counterparts. A row is null as soon as one of its operands
+ * is null (or, for doubles, not finite), and later operands are not evaluated for it.
+ *
+ * @since 5.3.0
+ */
+public class ArithmeticVectorExpression extends BaseVectorExpression {
+    public enum Op {
+        ADD, SUBTRACT, MULTIPLY, DIVIDE
+    }
+
+    private final Op op;
+    private final List<VectorExpression> children;
+    private final Selection remaining;
+    private final Selection next;
+
+    public ArithmeticVectorExpression(VectorType type, Op op, List<VectorExpression> children) {
+        super(type);
+        if (type == VectorType.BOOLEAN) {
+            throw new IllegalArgumentException("Arithmetic is not supported for " + type);
+        }
+        this.op = op;
+        this.children = children;
+        this.remaining = new Selection(0);
+        this.next = new Selection(0);
+    }
+
+    @Override
+    public ColumnVector evaluate(TupleBatch batch, Selection selection) {
+        ColumnVector result = getResult(batch);
+        remaining.set(selection);
+        next.ensureCapacity(selection.size());
+        boolean isDouble = getType() == VectorType.DOUBLE;
+        for (int c = 0; c < children.size(); c++) {
+            ColumnVector operand = children.get(c).evaluate(batch, remaining);
+            next.clear();
+            for (int i = 0; i < remaining.size(); i++) {
+                int row = remaining.get(i);
+                if (operand.isNull(row)) {
+                    result.setNull(row);
+                    continue;
+                }
+                if (isDouble) {
+                    double value = operand.getDouble(row);
+                    if (Double.isNaN(value) || Double.isInfinite(value)) {
+                        result.setNull(row);
+                        continue;
+                    }
+                    result.setDouble(row, c == 0 ? value : apply(result.getDouble(row), value));
+                } else {
+                    long value = operand.getLong(row);
+                    result.setLong(row, c == 0 ? value : apply(result.getLong(row), value));
+                }
+                next.add(row);
+            }
+            remaining.set(next);
+            if (remaining.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private long apply(long lhs, long rhs) {
+        switch (op) {
+        case ADD:
+            return lhs + rhs;
+        case SUBTRACT:
+            return lhs - rhs;
+        case MULTIPLY:
+            return lhs * rhs;
+        default:
+            return lhs / rhs;
+        }
+    }
+
+    private double apply(double lhs, double rhs) {
+        switch (op) {
+        case ADD:
+            return lhs + rhs;
+        case SUBTRACT:
+            return lhs - rhs;
+        case MULTIPLY:
+            return lhs * rhs;
+        default:
+            return lhs / rhs;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return op + children.toString();
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.vector;
+
+/**
+ * Base class for vector expressions that reuses the result vector across batches.
+ *
+ * @since 5.3.0
+ */
+public abstract class BaseVectorExpression implements VectorExpression {
+    private final VectorType type;
+    private ColumnVector result;
+
+    protected BaseVectorExpression(VectorType type) {
+        this.type = type;
+    }
+
+    @Override
+    public VectorType getType() {
+        return type;
+    }
+
+    protected ColumnVector getResult(TupleBatch batch) {
+        if (result == null) {
+            result = new ColumnVector(type, batch.getCapacity());
+        } else {
+            result.ensureCapacity(batch.getCapacity());
+        }
+        return result;
+    }
+}
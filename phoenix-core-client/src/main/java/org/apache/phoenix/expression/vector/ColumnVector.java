@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.vector;
+
+/**
+ * Values of an expression evaluated over a {@link TupleBatch}, indexed by the
+ * position of the row within the batch. Only the positions contained in the
+ * {@link Selection} the vector was evaluated for are defined.
+ *
+ * @since 5.3.0
+ */
+public class ColumnVector {
+    private final VectorType type;
+    private long[] longs;
+    private double[] doubles;
+    private boolean[] nulls;
+
+    public ColumnVector(VectorType type, int capacity) {
+        this.type = type;
+        this.nulls = new boolean[capacity];
+        if (type == VectorType.DOUBLE) {
+            this.doubles = new double[capacity];
+        } else {
+            this.longs = new long[capacity];
+        }
+    }
+
+    public VectorType getType() {
+        return type;
+    }
+
+    /**
+     * Grows the vector, if necessary, so that it can hold at least capacity rows.
+     */
+    public void ensureCapacity(int capacity) {
+        if (nulls.length >= capacity) {
+            return;
+        }
+        nulls = new boolean[capacity];
+        if (type == VectorType.DOUBLE) {
+            doubles = new double[capacity];
+        } else {
+            longs = new long[capacity];
+        }
+    }
+
+    public boolean isNull(int row) {
+        return nulls[row];
+    }
+
+    public void setNull(int row) {
+        nulls[row] = true;
+    }
+
+    public long getLong(int row) {
+        return longs[row];
+    }
+
+    public void setLong(int row, long value) {
+        longs[row] = value;
+        nulls[row] = false;
+    }
+
+    public double getDouble(int row) {
+        return type == VectorType.DOUBLE ? doubles[row] : longs[row];
+    }
+
+    public void setDouble(int row, double value) {
+        doubles[row] = value;
+        nulls[row] = false;
+    }
+
+    public boolean getBoolean(int row) {
+        return longs[row] != 0;
+    }
+
+    public void setBoolean(int row, boolean value) {
+        longs[row] = value ? 1 : 0;
+        nulls[row] = false;
+    }
+
+    /**
+     * @return true if the row is non null and holds a TRUE boolean value.
+     */
+    public boolean isTrue(int row) {
+        return !nulls[row] && longs[row] != 0;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.vector;
+
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.phoenix.util.ByteUtil;
+
+/**
+ * Vectorized comparison of two operands of the same {@link VectorType}, mirroring
+ * {@link org.apache.phoenix.expression.ComparisonExpression}. The right hand side
+ * is only evaluated for rows where the left hand side is not null.
+ *
+ * @since 5.3.0
+ */
+public class ComparisonVectorExpression extends BaseVectorExpression {
+    private final CompareOperator op;
+    private final VectorExpression lhs;
+    private final VectorExpression rhs;
+    private final Selection nonNull;
+
+    public ComparisonVectorExpression(CompareOperator op, VectorExpression lhs,
+            VectorExpression rhs) {
+        super(VectorType.BOOLEAN);
+        if (lhs.getType() != rhs.getType()) {
+            throw new IllegalArgumentException("Cannot compare " + lhs.getType() + " to "
+                    + rhs.getType());
+        }
+        this.op = op;
+        this.lhs = lhs;
+        this.rhs = rhs;
+        this.nonNull = new Selection(0);
+    }
+
+    @Override
+    public ColumnVector evaluate(TupleBatch batch, Selection selection) {
+        ColumnVector result = getResult(batch);
+        ColumnVector left = lhs.evaluate(batch, selection);
+        nonNull.ensureCapacity(selection.size());
+        nonNull.clear();
+        for (int i = 0; i < selection.size(); i++) {
+            int row = selection.get(i);
+            if (left.isNull(row)) {
+                result.setNull(row);
+            } else {
+                nonNull.add(row);
+            }
+        }
+        if (nonNull.isEmpty()) {
+            return result;
+        }
+        ColumnVector right = rhs.evaluate(batch, nonNull);
+        boolean isDouble = lhs.getType() == VectorType.DOUBLE;
+        for (int i = 0; i < nonNull.size(); i++) {
+            int row = nonNull.get(i);
+            if (right.isNull(row)) {
+                result.setNull(row);
+                continue;
+            }
+            int compareResult = isDouble
+                    ? Double.compare(left.getDouble(row), right.getDouble(row))
+                    : Long.compare(left.getLong(row), right.getLong(row));
+            result.setBoolean(row, ByteUtil.compare(op, compareResult));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return lhs + " " + op + " " + rhs;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.vector;
+
+/**
+ * Vector expression for a constant value.
+ *
+ * @since 5.3.0
+ */
+public class LiteralVectorExpression extends BaseVectorExpression {
+    private final boolean isNull;
+    private final long longValue;
+    private final double doubleValue;
+
+    private LiteralVectorExpression(VectorType type, boolean isNull, long longValue,
+            double doubleValue) {
+        super(type);
+        this.isNull = isNull;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+    }
+
+    public static LiteralVectorExpression newNull(VectorType type) {
+        return new LiteralVectorExpression(type, true, 0, 0);
+    }
+
+    public static LiteralVectorExpression newLong(long value) {
+        return new LiteralVectorExpression(VectorType.LONG, false, value, value);
+    }
+
+    public static LiteralVectorExpression newDouble(double value) {
+        return new LiteralVectorExpression(VectorType.DOUBLE, false, 0, value);
+    }
+
+    public static LiteralVectorExpression newBoolean(boolean value) {
+        return new LiteralVectorExpression(VectorType.BOOLEAN, false, value ? 1 : 0, 0);
+    }
+
+    @Override
+    public ColumnVector evaluate(TupleBatch batch, Selection selection) {
+        ColumnVector result = getResult(batch);
+        for (int i = 0; i < selection.size(); i++) {
+            int row = selection.get(i);
+            if (isNull) {
+                result.setNull(row);
+            } else if (getType() == VectorType.DOUBLE) {
+                result.setDouble(row, doubleValue);
+            } else {
+                result.setLong(row, longValue);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        if (isNull) {
+            return "null";
+        }
+        switch (getType()) {
+        case DOUBLE:
+            return Double.toString(doubleValue);
+        case BOOLEAN:
+            return Boolean.toString(longValue != 0);
+        default:
+            return Long.toString(longValue);
+        }
+    }
+}
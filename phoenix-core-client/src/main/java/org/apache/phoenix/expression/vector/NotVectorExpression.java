@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.vector;
+
+/**
+ * Vectorized NOT, mirroring {@link org.apache.phoenix.expression.NotExpression}.
+ *
+ * @since 5.3.0
+ */
+public class NotVectorExpression extends BaseVectorExpression {
+    private final VectorExpression child;
+
+    public NotVectorExpression(VectorExpression child) {
+        super(VectorType.BOOLEAN);
+        this.child = child;
+    }
+
+    @Override
+    public ColumnVector evaluate(TupleBatch batch, Selection selection) {
+        ColumnVector result = getResult(batch);
+        ColumnVector value = child.evaluate(batch, selection);
+        for (int i = 0; i < selection.size(); i++) {
+            int row = selection.get(i);
+            if (value.isNull(row)) {
+                result.setNull(row);
+            } else {
+                result.setBoolean(row, !value.getBoolean(row));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "NOT " + child;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.vector;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PDataType;
+
+/**
+ * Adapts an expression without a vectorized implementation by evaluating it
+ * one row at a time and decoding its result into the vector. Used for column
+ * references and functions that feed vectorized operators.
+ *
+ * @since 5.3.0
+ */
+public class RowByRowVectorExpression extends BaseVectorExpression {
+    private final Expression expression;
+    private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+
+    public RowByRowVectorExpression(Expression expression) {
+        super(VectorType.of(expression.getDataType()));
+        if (getType() == null) {
+            throw new IllegalArgumentException("Expression cannot be vectorized: " + expression);
+        }
+        this.expression = expression;
+    }
+
+    @Override
+    public ColumnVector evaluate(TupleBatch batch, Selection selection) {
+        ColumnVector result = getResult(batch);
+        PDataType type = expression.getDataType();
+        SortOrder sortOrder = expression.getSortOrder();
+        for (int i = 0; i < selection.size(); i++) {
+            int row = selection.get(i);
+            expression.reset();
+            if (!expression.evaluate(batch.get(row), ptr) || ptr.getLength() == 0) {
+                result.setNull(row);
+                continue;
+            }
+            switch (getType()) {
+            case LONG:
+                result.setLong(row, type.getCodec().decodeLong(ptr, sortOrder));
+                break;
+            case DOUBLE:
+                result.setDouble(row, type.getCodec().decodeDouble(ptr, sortOrder));
+                break;
+            default:
+                result.setBoolean(row,
+                    Boolean.TRUE.equals(PBoolean.INSTANCE.toObject(ptr, type, sortOrder)));
+                break;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return expression.toString();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.vector;
+
+/**
+ * Ordered set of the row positions of a {@link TupleBatch} an expression is
+ * evaluated for. Used to skip rows for which a value is no longer needed, the
+ * same way row at a time evaluation short circuits.
+ *
+ * @since 5.3.0
+ */
+public class Selection {
+    private int[] rows;
+    private int size;
+
+    public Selection(int capacity) {
+        this.rows = new int[capacity];
+    }
+
+    /**
+     * Selects all rows of the batch.
+     */
+    public void selectAll(int batchSize) {
+        ensureCapacity(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            rows[i] = i;
+        }
+        size = batchSize;
+    }
+
+    /**
+     * Copies the rows of another selection.
+     */
+    public void set(Selection other) {
+        ensureCapacity(other.size);
+        System.arraycopy(other.rows, 0, rows, 0, other.size);
+        size = other.size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int row) {
+        rows[size++] = row;
+    }
+
+    public int get(int i) {
+        return rows[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (rows.length < capacity) {
+            int[] newRows = new int[capacity];
+            System.arraycopy(rows, 0, newRows, 0, size);
+            rows = newRows;
+        }
+    }
+}
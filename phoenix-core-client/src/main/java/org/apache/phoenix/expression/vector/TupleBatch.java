@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.vector;
+
+import java.util.Arrays;
+
+import org.apache.phoenix.schema.tuple.Tuple;
+
+/**
+ * A batch of rows that vectorized expressions are evaluated over at once.
+ *
+ * @since 5.3.0
+ */
+public class TupleBatch {
+    private final Tuple[] tuples;
+    private int size;
+
+    public TupleBatch(int capacity) {
+        this.tuples = new Tuple[capacity];
+    }
+
+    public int getCapacity() {
+        return tuples.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == tuples.length;
+    }
+
+    public void add(Tuple tuple) {
+        tuples[size++] = tuple;
+    }
+
+    public Tuple get(int row) {
+        return tuples[row];
+    }
+
+    public void clear() {
+        Arrays.fill(tuples, 0, size, null);
+        size = 0;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.vector;
+
+/**
+ * An expression that is evaluated for a batch of rows at a time, producing a
+ * {@link ColumnVector} of results instead of one serialized value per row.
+ * Built from a row at a time {@link org.apache.phoenix.expression.Expression}
+ * by the {@link VectorExpressionCompiler}. An expression that fails to evaluate
+ * for a row produces a null for that row.
+ *
+ * @since 5.3.0
+ */
+public interface VectorExpression {
+    /**
+     * @return the representation of the values produced by this expression
+     */
+    VectorType getType();
+
+    /**
+     * Evaluates the expression for the selected rows of the batch. The returned
+     * vector is owned by the expression and is only valid until the next call.
+     * @param batch the rows to evaluate over
+     * @param selection the positions within the batch to evaluate
+     * @return the vector holding the result for each selected position
+     */
+    ColumnVector evaluate(TupleBatch batch, Selection selection);
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.vector;
+
+import java.util.List;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.expression.AndExpression;
+import org.apache.phoenix.expression.ComparisonExpression;
+import org.apache.phoenix.expression.DoubleAddExpression;
+import org.apache.phoenix.expression.DoubleDivideExpression;
+import org.apache.phoenix.expression.DoubleMultiplyExpression;
+import org.apache.phoenix.expression.DoubleSubtractExpression;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.LongAddExpression;
+import org.apache.phoenix.expression.LongDivideExpression;
+import org.apache.phoenix.expression.LongMultiplyExpression;
+import org.apache.phoenix.expression.LongSubtractExpression;
+import org.apache.phoenix.expression.NotExpression;
+import org.apache.phoenix.expression.OrExpression;
+import org.apache.phoenix.expression.vector.ArithmeticVectorExpression.Op;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PDataType;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Lists;
+
+/**
+ * Translates a row at a time {@link Expression} tree into a {@link VectorExpression}.
+ * Boolean connectives, NOT, comparisons and long/double arithmetic are translated
+ * into their vectorized counterparts. Any other sub expression whose value fits
+ * a {@link VectorType} is evaluated one row at a time through a
+ * {@link RowByRowVectorExpression} and feeds the vectorized operators above it.
+ *
+ * @since 5.3.0
+ */
+public class VectorExpressionCompiler {
+
+    private VectorExpressionCompiler() {
+    }
+
+    /**
+     * @return the vectorized form of the given boolean expression or null if no part
+     * of it benefits from vectorized evaluation, in which case it should be evaluated
+     * one row at a time.
+     */
+    public static VectorExpression compile(Expression expression) {
+        if (expression.getDataType() != PBoolean.INSTANCE) {
+            return null;
+        }
+        VectorExpression vector = compileNode(expression);
+        if (vector == null || vector instanceof RowByRowVectorExpression
+                || vector instanceof LiteralVectorExpression) {
+            return null;
+        }
+        return vector;
+    }
+
+    private static VectorExpression compileNode(Expression expression) {
+        VectorType type = VectorType.of(expression.getDataType());
+        if (type == null) {
+            return null;
+        }
+        VectorExpression vector = null;
+        if (expression instanceof LiteralExpression) {
+            vector = compileLiteral((LiteralExpression) expression, type);
+        } else if (expression instanceof AndExpression || expression instanceof OrExpression) {
+            List<VectorExpression> children = compileChildren(expression, VectorType.BOOLEAN);
+            if (children != null) {
+                vector = new AndOrVectorExpression(expression instanceof AndExpression, children);
+            }
+        } else if (expression instanceof NotExpression) {
+            List<VectorExpression> children = compileChildren(expression, VectorType.BOOLEAN);
+            if (children != null) {
+                vector = new NotVectorExpression(children.get(0));
+            }
+        } else if (expression instanceof ComparisonExpression) {
+            vector = compileComparison((ComparisonExpression) expression);
+        } else {
+            Op op = getArithmeticOp(expression);
+            if (op != null) {
+                // Integral operands may feed a double operation, but not the other way around
+                List<VectorExpression> children = compileChildren(expression,
+                    type == VectorType.DOUBLE ? null : VectorType.LONG);
+                if (children != null) {
+                    vector = new ArithmeticVectorExpression(type, op, children);
+                }
+            }
+        }
+        return vector == null ? new RowByRowVectorExpression(expression) : vector;
+    }
+
+    private static VectorExpression compileLiteral(LiteralExpression literal, VectorType type) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        if (!literal.evaluate(null, ptr) || ptr.getLength() == 0) {
+            return LiteralVectorExpression.newNull(type);
+        }
+        PDataType dataType = literal.getDataType();
+        switch (type) {
+        case LONG:
+            return LiteralVectorExpression.newLong(
+                dataType.getCodec().decodeLong(ptr, literal.getSortOrder()));
+        case DOUBLE:
+            return LiteralVectorExpression.newDouble(
+                dataType.getCodec().decodeDouble(ptr, literal.getSortOrder()));
+        default:
+            return LiteralVectorExpression.newBoolean(Boolean.TRUE.equals(
+                PBoolean.INSTANCE.toObject(ptr, dataType, literal.getSortOrder())));
+        }
+    }
+
+    private static VectorExpression compileComparison(ComparisonExpression comparison) {
+        Expression lhs = comparison.getChildren().get(0);
+        Expression rhs = comparison.getChildren().get(1);
+        VectorType lhsType = VectorType.of(lhs.getDataType());
+        VectorType rhsType = VectorType.of(rhs.getDataType());
+        // Mixed long/double comparisons have their own rounding rules in PDataType.compareTo
+        if (lhsType == null || lhsType != rhsType || lhsType == VectorType.BOOLEAN) {
+            return null;
+        }
+        return new ComparisonVectorExpression(comparison.getFilterOp(), compileNode(lhs),
+                compileNode(rhs));
+    }
+
+    /**
+     * Compiles the children of an expression, requiring each to be of the given type,
+     * or of any numeric type if requiredType is null.
+     */
+    private static List<VectorExpression> compileChildren(Expression expression,
+            VectorType requiredType) {
+        List<VectorExpression> children =
+                Lists.newArrayListWithExpectedSize(expression.getChildren().size());
+        for (Expression child : expression.getChildren()) {
+            VectorType childType = VectorType.of(child.getDataType());
+            if (childType == null || (requiredType == null
+                    ? childType == VectorType.BOOLEAN : childType != requiredType)) {
+                return null;
+            }
+            children.add(compileNode(child));
+        }
+        return children;
+    }
+
+    private static Op getArithmeticOp(Expression expression) {
+        Class<?> clazz = expression.getClass();
+        if (clazz == LongAddExpression.class || clazz == DoubleAddExpression.class) {
+            return Op.ADD;
+        }
+        if (clazz == LongSubtractExpression.class || clazz == DoubleSubtractExpression.class) {
+            return Op.SUBTRACT;
+        }
+        if (clazz == LongMultiplyExpression.class || clazz == DoubleMultiplyExpression.class) {
+            return Op.MULTIPLY;
+        }
+        if (clazz == LongDivideExpression.class || clazz == DoubleDivideExpression.class) {
+            return Op.DIVIDE;
+        }
+        return null;
+    }
+}
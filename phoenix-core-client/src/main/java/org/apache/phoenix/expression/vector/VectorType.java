@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.vector;
+
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PFloat;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PSmallint;
+import org.apache.phoenix.schema.types.PTinyint;
+import org.apache.phoenix.schema.types.PUnsignedDouble;
+import org.apache.phoenix.schema.types.PUnsignedFloat;
+import org.apache.phoenix.schema.types.PUnsignedInt;
+import org.apache.phoenix.schema.types.PUnsignedLong;
+import org.apache.phoenix.schema.types.PUnsignedSmallint;
+import org.apache.phoenix.schema.types.PUnsignedTinyint;
+
+/**
+ * Primitive representation used for the values of a {@link ColumnVector}.
+ *
+ * @since 5.3.0
+ */
+public enum VectorType {
+    /** Integral values held as longs */
+    LONG,
+    /** Floating point values held as doubles */
+    DOUBLE,
+    /** Boolean values held as longs of 0 or 1 */
+    BOOLEAN;
+
+    /**
+     * @return the vector type used for values of the given data type or null if
+     * values of the type cannot be held in a primitive vector.
+     */
+    public static VectorType of(PDataType type) {
+        if (type == PLong.INSTANCE || type == PInteger.INSTANCE
+                || type == PSmallint.INSTANCE || type == PTinyint.INSTANCE
+                || type == PUnsignedLong.INSTANCE || type == PUnsignedInt.INSTANCE
+                || type == PUnsignedSmallint.INSTANCE || type == PUnsignedTinyint.INSTANCE) {
+            return LONG;
+        }
+        if (type == PDouble.INSTANCE || type == PFloat.INSTANCE
+                || type == PUnsignedDouble.INSTANCE || type == PUnsignedFloat.INSTANCE) {
+            return DOUBLE;
+        }
+        if (type == PBoolean.INSTANCE) {
+            return BOOLEAN;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.filter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.exceptions.DeserializationException;
+import org.apache.hadoop.hbase.filter.FilterBase;
+import org.apache.hadoop.hbase.util.Writables;
+import org.apache.hadoop.io.Writable;
+
+import org.apache.phoenix.thirdparty.com.google.common.base.Preconditions;
+import org.apache.phoenix.thirdparty.com.google.common.hash.Hasher;
+import org.apache.phoenix.thirdparty.com.google.common.hash.Hashing;
+
+/**
+ * This filter replaces the cells of each row with a single cell holding a digest of them. The
+ * digest covers the column, timestamp, type and value of every cell, so that it changes with
+ * every write that changes what a scan of the row returns, including a write at the timestamp
+ * of the existing cells. It is used to validate cached rows without retrieving them.
+ *
+ * @since 5.3.0
+ */
+public class RowDigestFilter extends FilterBase implements Writable {
+    private byte[] digestCF;
+    private byte[] digestCQ;
+
+    public RowDigestFilter() {}
+    public RowDigestFilter(byte[] digestCF, byte[] digestCQ) {
+        Preconditions.checkArgument(digestCF != null,
+                "Column family must not be null");
+        Preconditions.checkArgument(digestCQ != null,
+                "Column qualifier must not be null");
+        this.digestCF = digestCF;
+        this.digestCQ = digestCQ;
+    }
+
+    /**
+     * Returns the digest of the given cells of a row
+     */
+    public static byte[] getDigest(List<Cell> cells) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (Cell cell : cells) {
+            hasher.putInt(cell.getFamilyLength());
+            hasher.putBytes(cell.getFamilyArray(), cell.getFamilyOffset(),
+                    cell.getFamilyLength());
+            hasher.putInt(cell.getQualifierLength());
+            hasher.putBytes(cell.getQualifierArray(), cell.getQualifierOffset(),
+                    cell.getQualifierLength());
+            hasher.putLong(cell.getTimestamp());
+            hasher.putByte(cell.getTypeByte());
+            hasher.putInt(cell.getValueLength());
+            hasher.putBytes(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+        }
+        return hasher.hash().asBytes();
+    }
+
+    @Override
+    public boolean hasFilterRow() {
+        return true;
+    }
+
+    @Override
+    public void filterRowCells(List<Cell> kvs) throws IOException {
+        if (kvs.isEmpty()) {
+            return;
+        }
+        long maxTimestamp = 0;
+        for (Cell cell : kvs) {
+            maxTimestamp = Math.max(maxTimestamp, cell.getTimestamp());
+        }
+        byte[] row = CellUtil.cloneRow(kvs.get(0));
+        byte[] digest = getDigest(kvs);
+        kvs.clear();
+        kvs.add(new KeyValue(row, digestCF, digestCQ, maxTimestamp, digest));
+    }
+
+    public static RowDigestFilter parseFrom(final byte [] pbBytes) throws DeserializationException {
+        try {
+            return (RowDigestFilter) Writables.getWritable(pbBytes, new RowDigestFilter());
+        } catch (IOException e) {
+            throw new DeserializationException(e);
+        }
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(digestCF.length);
+        out.write(digestCF);
+        out.writeInt(digestCQ.length);
+        out.write(digestCQ);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        int length = in.readInt();
+        digestCF = new byte[length];
+        in.readFully(digestCF, 0, length);
+        length = in.readInt();
+        digestCQ = new byte[length];
+        in.readFully(digestCQ, 0, length);
+    }
+
+    @Override
+    public byte[] toByteArray() throws IOException {
+        return Writables.getBytes(this);
+    }
+}
@@ -78,6 +78,21 @@ public interface MetricsIndexerSource extends BaseSource {
   String POST_INDEX_UPDATE_FAILURE = "postIndexUpdateFailure";
   String POST_INDEX_UPDATE_FAILURE_DESC = "The number of failures of index updates post data updates";
 
+  String INDEX_WRITE_COALESCED_BATCHES = "indexWriteCoalescedBatches";
+  String INDEX_WRITE_COALESCED_BATCHES_DESC = "Histogram for the number of concurrent batches whose index updates were written in a single index commit";
+  String COALESCED_INDEX_WRITES = "coalescedIndexWrites";
+  String COALESCED_INDEX_WRITES_DESC = "The number of batches whose index updates were written by the index commit of another batch";
+
+  String ROW_LOCK_WAIT_TIME = "rowLockWaitTime";
+  String ROW_LOCK_WAIT_TIME_DESC = "Histogram for the time in milliseconds to acquire the row locks of a batch";
+  String ROW_LOCK_TIMEOUTS = "rowLockTimeouts";
+  String ROW_LOCK_TIMEOUTS_DESC = "The number of batches that timed out waiting for their row locks";
+
+  String INDEX_WRITE_LATENCY = "indexWriteLatency";
+  String INDEX_WRITE_LATENCY_DESC = "Histogram for the time in milliseconds of a batch write to an index table by the adaptive index committer";
+  String INDEX_WRITE_QUEUE_DEPTH = "indexWriteQueueDepth";
+  String INDEX_WRITE_QUEUE_DEPTH_DESC = "Histogram for the number of index mutations queued for the destination region server when index updates are queued by the adaptive index committer";
+
   /**
    * Updates the index preparation time histogram (preBatchMutate).
    * @param dataTableName  Physical data table name
@@ -209,4 +224,45 @@ public interface MetricsIndexerSource extends BaseSource {
    * @param dataTableName  Physical data table name
    */
   void incrementPostIndexUpdateFailures(String dataTableName);
+
+  /**
+   * Updates the histogram of the number of batches written by a coalesced index commit.
+   * @param dataTableName  Physical data table name
+   * @param batches number of batches whose index updates were written together
+   */
+  void updateIndexWriteCoalescedBatches(String dataTableName, long batches);
+
+  /**
+   * Increments the number of batches whose index updates were written by another batch.
+   * @param dataTableName  Physical data table name
+   * @param batches number of batches to add
+   */
+  void incrementCoalescedIndexWrites(String dataTableName, long batches);
+
+  /**
+   * Updates the histogram of the time to acquire the row locks of a batch.
+   * @param dataTableName  Physical data table name
+   * @param t time taken in milliseconds
+   */
+  void updateRowLockWaitTime(String dataTableName, long t);
+
+  /**
+   * Increments the number of batches that timed out waiting for their row locks.
+   * @param dataTableName  Physical data table name
+   */
+  void incrementRowLockTimeouts(String dataTableName);
+
+  /**
+   * Updates the histogram of the time of the batch writes to an index table.
+   * @param indexTableName  Physical index table name
+   * @param t time taken in milliseconds
+   */
+  void updateIndexWriteLatency(String indexTableName, long t);
+
+  /**
+   * Updates the histogram of the number of index mutations queued for a region server.
+   * @param server  Host and port of the destination region server of the queued index updates
+   * @param depth number of queued index mutations
+   */
+  void updateIndexWriteQueueDepth(String server, long depth);
 }
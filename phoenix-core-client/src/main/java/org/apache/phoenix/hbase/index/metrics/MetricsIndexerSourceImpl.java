@@ -46,6 +46,12 @@ public class MetricsIndexerSourceImpl extends BaseSourceImpl implements MetricsI
     private final MetricHistogram postIndexUpdateFailureTimeHisto;
     private final MutableFastCounter preIndexUpdateFailures;
     private final MutableFastCounter postIndexUpdateFailures;
+    private final MetricHistogram indexWriteCoalescedBatchesHisto;
+    private final MutableFastCounter coalescedIndexWrites;
+    private final MetricHistogram rowLockWaitTimeHisto;
+    private final MutableFastCounter rowLockTimeouts;
+    private final MetricHistogram indexWriteLatencyHisto;
+    private final MetricHistogram indexWriteQueueDepthHisto;
 
     public MetricsIndexerSourceImpl() {
         this(METRICS_NAME, METRICS_DESCRIPTION, METRICS_CONTEXT, METRICS_JMX_CONTEXT);
@@ -82,6 +88,18 @@ public class MetricsIndexerSourceImpl extends BaseSourceImpl implements MetricsI
                 POST_INDEX_UPDATE_FAILURE, POST_INDEX_UPDATE_FAILURE_DESC, 0L);
         preIndexUpdateFailures = getMetricsRegistry().newCounter(
                 PRE_INDEX_UPDATE_FAILURE, PRE_INDEX_UPDATE_FAILURE_DESC, 0L);
+        indexWriteCoalescedBatchesHisto = getMetricsRegistry().newHistogram(
+                INDEX_WRITE_COALESCED_BATCHES, INDEX_WRITE_COALESCED_BATCHES_DESC);
+        coalescedIndexWrites = getMetricsRegistry().newCounter(
+                COALESCED_INDEX_WRITES, COALESCED_INDEX_WRITES_DESC, 0L);
+        rowLockWaitTimeHisto = getMetricsRegistry().newHistogram(
+                ROW_LOCK_WAIT_TIME, ROW_LOCK_WAIT_TIME_DESC);
+        rowLockTimeouts = getMetricsRegistry().newCounter(
+                ROW_LOCK_TIMEOUTS, ROW_LOCK_TIMEOUTS_DESC, 0L);
+        indexWriteLatencyHisto = getMetricsRegistry().newHistogram(
+                INDEX_WRITE_LATENCY, INDEX_WRITE_LATENCY_DESC);
+        indexWriteQueueDepthHisto = getMetricsRegistry().newHistogram(
+                INDEX_WRITE_QUEUE_DEPTH, INDEX_WRITE_QUEUE_DEPTH_DESC);
     }
 
     @Override
@@ -204,10 +222,52 @@ public class MetricsIndexerSourceImpl extends BaseSourceImpl implements MetricsI
         postIndexUpdateFailures.incr();
     }
 
+    @Override
+    public void updateIndexWriteCoalescedBatches(String dataTableName, long batches) {
+        incrementTableSpecificHistogram(INDEX_WRITE_COALESCED_BATCHES, dataTableName, batches);
+        indexWriteCoalescedBatchesHisto.add(batches);
+    }
+
+    @Override
+    public void incrementCoalescedIndexWrites(String dataTableName, long batches) {
+        incrementTableSpecificCounter(COALESCED_INDEX_WRITES, dataTableName, batches);
+        coalescedIndexWrites.incr(batches);
+    }
+
+    @Override
+    public void updateRowLockWaitTime(String dataTableName, long t) {
+        incrementTableSpecificHistogram(ROW_LOCK_WAIT_TIME, dataTableName, t);
+        rowLockWaitTimeHisto.add(t);
+    }
+
+    @Override
+    public void incrementRowLockTimeouts(String dataTableName) {
+        incrementTableSpecificCounter(ROW_LOCK_TIMEOUTS, dataTableName);
+        rowLockTimeouts.incr();
+    }
+
+    @Override
+    public void updateIndexWriteLatency(String indexTableName, long t) {
+        incrementTableSpecificHistogram(INDEX_WRITE_LATENCY, indexTableName, t);
+        indexWriteLatencyHisto.add(t);
+    }
+
+    @Override
+    public void updateIndexWriteQueueDepth(String server, long depth) {
+        // Keyed by the destination server, as the queues are shared by all the index tables
+        incrementTableSpecificHistogram(INDEX_WRITE_QUEUE_DEPTH, server, depth);
+        indexWriteQueueDepthHisto.add(depth);
+    }
+
     private void incrementTableSpecificCounter(String baseCounterName, String tableName) {
+        incrementTableSpecificCounter(baseCounterName, tableName, 1);
+    }
+
+    private void incrementTableSpecificCounter(String baseCounterName, String tableName,
+            long delta) {
         MutableFastCounter indexSpecificCounter =
             getMetricsRegistry().getCounter(getCounterName(baseCounterName, tableName), 0);
-        indexSpecificCounter.incr();
+        indexSpecificCounter.incr(delta);
     }
 
     private void incrementTableSpecificHistogram(String baseCounterName, String tableName, long t) {
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.AsyncTable;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.phoenix.compile.ExplainPlanAttributes.ExplainPlanAttributesBuilder;
+import org.apache.phoenix.compile.OrderByCompiler.OrderBy;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.compile.StatementContext;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.exception.SQLExceptionInfo;
+import org.apache.phoenix.execute.ScanPlan;
+import org.apache.phoenix.query.ConnectionQueryServices;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTable.IndexType;
+import org.apache.phoenix.schema.StaleRegionBoundaryCacheException;
+import org.apache.phoenix.schema.tuple.ResultTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.ClientUtil;
+import org.apache.phoenix.util.ScanUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Result iterator of a query executed asynchronously. {@link #start(ConnectionQueryServices)}
+ * returns a future that completes once rows can be read without waiting on a round trip
+ * to the region servers.
+ * <p>
+ * The iterator of the plan is created on the async executor of the query services, as
+ * creating it may itself block: a hash join for example broadcasts its hash caches to the
+ * region servers from {@link QueryPlan#iterator()}. Point lookups that need no client side
+ * merging are then sent with the HBase async client, using the scans the plan prepared, so
+ * no thread is held while the region servers respond, and their rows are served from
+ * memory. Any other plan, and any point lookup that hits a stale region boundary, reads its
+ * first row from the iterator of the plan on the async executor. Further rows can be read
+ * ahead without blocking the caller with {@link #fetch(int, Executor)}; rows that were not
+ * read ahead block when read.
+ * <p>
+ * The iterator must not be read while a future returned by it is pending.
+ *
+ * @since 5.3.0
+ */
+public class AsyncResultIterator implements ResultIterator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncResultIterator.class);
+
+    private final QueryPlan plan;
+    // Rows read ahead of the caller
+    private final ArrayDeque<Tuple> buffered = new ArrayDeque<>();
+    // Set once the buffered rows are all there is
+    private volatile boolean exhausted;
+    private ResultIterator delegate;
+    private boolean closed;
+
+    public AsyncResultIterator(QueryPlan plan) {
+        this.plan = plan;
+    }
+
+    /**
+     * Whether the rows of the plan can be fetched with the HBase async client. This must be
+     * called after the iterator of the plan was created, as that is when its scans are set up.
+     */
+    public static boolean isAsyncScanEligible(QueryPlan plan) {
+        if (!(plan instanceof ScanPlan) || plan.getTableRef() == null) {
+            return false;
+        }
+        StatementContext context = plan.getContext();
+        if (!context.getConnection().getQueryServices().getProps().getBoolean(
+                QueryServices.ASYNC_POINT_LOOKUP_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_ASYNC_POINT_LOOKUP_ENABLED)) {
+            return false;
+        }
+        if (!context.getScanRanges().isPointLookup() || plan.getLimit() != null
+                || plan.getOffset() != null || context.getCDCTableRef() != null
+                || ScanUtil.isReversed(context.getScan())) {
+            return false;
+        }
+        // Rows of several scans are only concatenated, never merged
+        OrderBy orderBy = plan.getOrderBy();
+        PTable table = plan.getTableRef().getTable();
+        if (table.isTransactional() || table.getIndexType() == IndexType.LOCAL) {
+            return false;
+        }
+        if (orderBy != OrderBy.EMPTY_ORDER_BY && orderBy != OrderBy.FWD_ROW_KEY_ORDER_BY) {
+            return false;
+        }
+        if (table.getBucketNum() != null && ScanUtil.shouldRowsBeInRowKeyOrder(orderBy, context)) {
+            return false;
+        }
+        return !plan.getScans().isEmpty();
+    }
+
+    /**
+     * Starts fetching rows.
+     *
+     * @return a future completing once rows can be read, or exceptionally with the
+     *     SQLException the query failed with
+     */
+    public CompletableFuture<Void> start(final ConnectionQueryServices services) {
+        final Executor executor = services.getAsyncExecutor();
+        return CompletableFuture.runAsync(() -> {
+            try {
+                getDelegate();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor).thenCompose(v -> {
+            if (!isAsyncScanEligible(plan)) {
+                return prefetch(executor);
+            }
+            return services.getAsyncConnection()
+                    .thenCompose(this::scanAll)
+                    .handle((w, t) -> {
+                        if (t == null) {
+                            return CompletableFuture.<Void> completedFuture(null);
+                        }
+                        Throwable cause = t instanceof CompletionException && t.getCause() != null
+                                ? t.getCause() : t;
+                        if (cause instanceof UnsupportedOperationException) {
+                            return prefetch(executor);
+                        }
+                        SQLException e = cause instanceof SQLException ? (SQLException) cause
+                                : ClientUtil.parseServerException(cause);
+                        if (e instanceof StaleRegionBoundaryCacheException) {
+                            // The blocking iterators recompute their scans from fresh boundaries
+                            LOGGER.debug("Falling back to blocking scans after {}", e.toString());
+                            return prefetch(executor);
+                        }
+                        CompletableFuture<Void> failed = new CompletableFuture<>();
+                        failed.completeExceptionally(e);
+                        return failed;
+                    })
+                    .thenCompose(f -> f);
+        });
+    }
+
+    private CompletableFuture<Void> scanAll(AsyncConnection connection) {
+        final List<CompletableFuture<List<Result>>> futures = new ArrayList<>();
+        try {
+            PTable table = plan.getTableRef().getTable();
+            AsyncTable<?> htable = connection.getTable(
+                    TableName.valueOf(table.getPhysicalName().getBytes()));
+            for (List<Scan> scans : plan.getScans()) {
+                for (Scan scan : scans) {
+                    ScanUtil.setScanAttributesForClient(scan, table, plan.getContext());
+                    futures.add(htable.scanAll(scan));
+                }
+            }
+        } catch (SQLException e) {
+            throw new CompletionException(e);
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]))
+                .thenAccept(v -> {
+                    for (CompletableFuture<List<Result>> future : futures) {
+                        for (Result result : future.join()) {
+                            if (!result.isEmpty() && !ScanUtil.isDummy(result)) {
+                                buffered.add(new ResultTuple(result));
+                            }
+                        }
+                    }
+                    exhausted = true;
+                });
+    }
+
+    private CompletableFuture<Void> prefetch(Executor executor) {
+        return fetch(1, executor).thenApply(n -> null);
+    }
+
+    /**
+     * Reads rows ahead on the given executor until at least maxRows rows can be read without
+     * blocking or there are no more rows.
+     *
+     * @return a future completing with the number of rows that can be read without blocking,
+     *     which is less than maxRows only once all rows were read, or exceptionally with the
+     *     SQLException reading failed with
+     */
+    public CompletableFuture<Integer> fetch(final int maxRows, Executor executor) {
+        if (exhausted || buffered.size() >= maxRows) {
+            return CompletableFuture.completedFuture(buffered.size());
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                ResultIterator iterator = getDelegate();
+                while (buffered.size() < maxRows) {
+                    Tuple tuple = iterator.next();
+                    if (tuple == null) {
+                        exhausted = true;
+                        break;
+                    }
+                    buffered.add(tuple);
+                }
+                return buffered.size();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private synchronized ResultIterator getDelegate() throws SQLException {
+        if (closed) {
+            throw new SQLExceptionInfo.Builder(SQLExceptionCode.RESULTSET_CLOSED).build()
+                    .buildException();
+        }
+        if (delegate == null) {
+            delegate = plan.iterator();
+        }
+        return delegate;
+    }
+
+    @Override
+    public Tuple next() throws SQLException {
+        Tuple tuple = buffered.poll();
+        if (tuple != null || exhausted) {
+            return tuple;
+        }
+        return getDelegate().next();
+    }
+
+    @Override
+    public synchronized void close() throws SQLException {
+        closed = true;
+        buffered.clear();
+        if (delegate != null) {
+            delegate.close();
+        }
+    }
+
+    @Override
+    public void explain(List<String> planSteps) {
+        try {
+            getDelegate().explain(planSteps);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void explain(List<String> planSteps,
+            ExplainPlanAttributesBuilder explainPlanAttributesBuilder) {
+        try {
+            getDelegate().explain(planSteps, explainPlanAttributesBuilder);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncResultIterator [plan=" + plan + "]";
+    }
+}
@@ -64,6 +64,73 @@ public class BufferedSortedQueue extends BufferedQueue<ResultEntry> {
             }};
     }
 
+    /**
+     * Writes a {@link ResultEntry} in the format read by {@link #readResultEntry(DataInputStream)}.
+     */
+    static void writeResultEntry(DataOutputStream os, ResultEntry e) throws IOException {
+        int totalLen = 0;
+        List<KeyValue> keyValues = toKeyValues(e);
+        for (KeyValue kv : keyValues) {
+            totalLen += (kv.getLength() + Bytes.SIZEOF_INT);
+        }
+        os.writeInt(totalLen);
+        for (KeyValue kv : keyValues) {
+            os.writeInt(kv.getLength());
+            os.write(kv.getBuffer(), kv.getOffset(), kv
+                    .getLength());
+        }
+        ImmutableBytesWritable[] sortKeys = e.sortKeys;
+        os.writeInt(sortKeys.length);
+        for (ImmutableBytesWritable sortKey : sortKeys) {
+            if (sortKey != null) {
+                os.writeInt(sortKey.getLength());
+                os.write(sortKey.get(), sortKey.getOffset(),
+                        sortKey.getLength());
+            } else {
+                os.writeInt(0);
+            }
+        }
+    }
+
+    /**
+     * Reads a {@link ResultEntry} written by {@link #writeResultEntry(DataOutputStream, ResultEntry)}.
+     * @return the entry or null if the end marker was reached
+     */
+    static ResultEntry readResultEntry(DataInputStream is) throws IOException {
+        int length = is.readInt();
+        if (length < 0)
+            return null;
+
+        byte[] rb = new byte[length];
+        is.readFully(rb);
+        Result result = ResultUtil.toResult(new ImmutableBytesWritable(rb));
+        ResultTuple rt = new ResultTuple(result);
+        int sortKeySize = is.readInt();
+        ImmutableBytesWritable[] sortKeys = new ImmutableBytesWritable[sortKeySize];
+        for (int i = 0; i < sortKeySize; i++) {
+            int contentLength = is.readInt();
+            if (contentLength > 0) {
+                byte[] sortKeyContent = new byte[contentLength];
+                is.readFully(sortKeyContent);
+                sortKeys[i] = new ImmutableBytesWritable(sortKeyContent);
+            } else {
+                sortKeys[i] = null;
+            }
+        }
+
+        return new ResultEntry(sortKeys, rt);
+    }
+
+    private static List<KeyValue> toKeyValues(ResultEntry entry) {
+        Tuple result = entry.getResult();
+        int size = result.size();
+        List<KeyValue> kvs = new ArrayList<KeyValue>(size);
+        for (int i = 0; i < size; i++) {
+            kvs.add(PhoenixKeyValueUtil.maybeCopyCell(result.getValue(i)));
+        }
+        return kvs;
+    }
+
     private static class BufferedResultEntryPriorityQueue extends BufferedSegmentQueue<ResultEntry> {
         private MinMaxPriorityQueue<ResultEntry> results = null;
         
@@ -87,64 +154,12 @@ public class BufferedSortedQueue extends BufferedQueue<ResultEntry> {
 
         @Override
         protected void writeToStream(DataOutputStream os, ResultEntry e) throws IOException {
-            int totalLen = 0;
-            List<KeyValue> keyValues = toKeyValues(e);
-            for (KeyValue kv : keyValues) {
-                totalLen += (kv.getLength() + Bytes.SIZEOF_INT);
-            }
-            os.writeInt(totalLen);
-            for (KeyValue kv : keyValues) {
-                os.writeInt(kv.getLength());
-                os.write(kv.getBuffer(), kv.getOffset(), kv
-                        .getLength());
-            }
-            ImmutableBytesWritable[] sortKeys = e.sortKeys;
-            os.writeInt(sortKeys.length);
-            for (ImmutableBytesWritable sortKey : sortKeys) {
-                if (sortKey != null) {
-                    os.writeInt(sortKey.getLength());
-                    os.write(sortKey.get(), sortKey.getOffset(),
-                            sortKey.getLength());
-                } else {
-                    os.writeInt(0);
-                }
-            }
+            writeResultEntry(os, e);
         }
 
         @Override
         protected ResultEntry readFromStream(DataInputStream is) throws IOException {
-            int length = is.readInt();
-            if (length < 0)
-                return null;
-
-            byte[] rb = new byte[length];
-            is.readFully(rb);
-            Result result = ResultUtil.toResult(new ImmutableBytesWritable(rb));
-            ResultTuple rt = new ResultTuple(result);
-            int sortKeySize = is.readInt();
-            ImmutableBytesWritable[] sortKeys = new ImmutableBytesWritable[sortKeySize];
-            for (int i = 0; i < sortKeySize; i++) {
-                int contentLength = is.readInt();
-                if (contentLength > 0) {
-                    byte[] sortKeyContent = new byte[contentLength];
-                    is.readFully(sortKeyContent);
-                    sortKeys[i] = new ImmutableBytesWritable(sortKeyContent);
-                } else {
-                    sortKeys[i] = null;
-                }
-            }
-
-            return new ResultEntry(sortKeys, rt);
-        }
-
-        private List<KeyValue> toKeyValues(ResultEntry entry) {
-            Tuple result = entry.getResult();
-            int size = result.size();
-            List<KeyValue> kvs = new ArrayList<KeyValue>(size);
-            for (int i = 0; i < size; i++) {
-                kvs.add(PhoenixKeyValueUtil.maybeCopyCell(result.getValue(i)));
-            }
-            return kvs;
+            return readResultEntry(is);
         }
 
     }
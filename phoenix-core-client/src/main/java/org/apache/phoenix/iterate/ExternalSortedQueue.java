@@ -0,0 +1,517 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.monitoring.TaskExecutionMetricsHolder.NO_OP_INSTANCE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.OrderByExpression;
+import org.apache.phoenix.iterate.OrderedResultIterator.ResultEntry;
+import org.apache.phoenix.job.JobManager.JobCallable;
+import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
+import org.apache.phoenix.schema.SortOrder;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Lists;
+
+/**
+ * Sorted queue of {@link ResultEntry} for ORDER BY without LIMIT that does an external merge
+ * sort. Offered entries are appended to an in-memory run. Once a run reaches the configured
+ * size, it is sorted and spilled to a temporary file, optionally on an executor so that the
+ * next run fills while the previous one is being sorted. The first poll or peek merges all
+ * spilled runs and the last, in-memory, run with a loser tree.
+ * <p>
+ * The executor may be shared with other queries, so a run is written on the calling thread
+ * when all of the executor's threads are busy or it rejects the run, and a run that is
+ * waited on before the executor started it is run by the waiting thread instead. Waiting
+ * for runs therefore never depends on a free executor thread.
+ * <p>
+ * Runs are sorted on a parallel array of normalized key prefixes, the first eight bytes of
+ * the first sort key mapped so that unsigned comparison of prefixes agrees with the ORDER BY,
+ * so most comparisons are resolved without dereferencing the entries. The full comparator
+ * is only used to break ties between equal prefixes.
+ * <p>
+ * Entries can no longer be offered once the queue has started returning them.
+ *
+ * @since 5.3.0
+ */
+public class ExternalSortedQueue extends AbstractQueue<ResultEntry>
+        implements SizeAwareQueue<ResultEntry> {
+    private static final int EOF = -1;
+    private static final int INITIAL_RUN_CAPACITY = 1024;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    // Number of spilled runs that may still be sorting while the next run fills
+    private static final int MAX_PENDING_RUNS = 2;
+
+    private final Comparator<ResultEntry> comparator;
+    private final boolean usePrefix;
+    private final boolean ascending;
+    private final boolean nullsLast;
+    private final long runThresholdBytes;
+    private final ExecutorService executor;
+    private final List<Future<File>> spilledRuns = Lists.newArrayList();
+
+    private long[] prefixes = new long[INITIAL_RUN_CAPACITY];
+    private ResultEntry[] entries = new ResultEntry[INITIAL_RUN_CAPACITY];
+    private int runSize;
+    private long runBytes;
+    private int size;
+    private Run[] runs;
+    private LoserTree tree;
+    private boolean closed;
+
+    /**
+     * @param comparator comparator built from the ORDER BY expressions
+     * @param orderByExpressions the ORDER BY expressions, used to derive key prefixes
+     * @param runThresholdBytes size of the in-memory runs
+     * @param executor executor to sort and spill runs on, or null to do it on the calling thread
+     */
+    public ExternalSortedQueue(Comparator<ResultEntry> comparator,
+            List<OrderByExpression> orderByExpressions, long runThresholdBytes,
+            ExecutorService executor) {
+        this.comparator = comparator;
+        OrderByExpression first = orderByExpressions.get(0);
+        Expression expression = first.getExpression();
+        // DESC variable length keys are compared with a comparator that does not agree
+        // with a byte wise comparison of zero padded prefixes.
+        this.usePrefix = !(expression.getSortOrder() == SortOrder.DESC
+                && !expression.getDataType().isFixedWidth());
+        this.ascending = first.isAscending();
+        this.nullsLast = first.isNullsLast();
+        this.runThresholdBytes = runThresholdBytes;
+        this.executor = executor;
+    }
+
+    private long prefixOf(ResultEntry e) {
+        if (!usePrefix) {
+            return 0;
+        }
+        ImmutableBytesWritable key = e.getSortKey(0);
+        if (key == null) {
+            // Ties at the extremes are resolved by the comparator
+            return nullsLast ? -1L : 0L;
+        }
+        byte[] b = key.get();
+        int offset = key.getOffset();
+        int length = Math.min(8, key.getLength());
+        long prefix = 0;
+        for (int i = 0; i < 8; i++) {
+            prefix <<= 8;
+            if (i < length) {
+                prefix |= b[offset + i] & 0xFF;
+            }
+        }
+        return ascending ? prefix : ~prefix;
+    }
+
+    private int compare(long p1, ResultEntry e1, long p2, ResultEntry e2) {
+        int c = Long.compareUnsigned(p1, p2);
+        return c != 0 ? c : comparator.compare(e1, e2);
+    }
+
+    @Override
+    public boolean offer(ResultEntry e) {
+        if (closed || runs != null) {
+            throw new IllegalStateException("Cannot add entries to a queue being read");
+        }
+        if (runSize == entries.length) {
+            prefixes = Arrays.copyOf(prefixes, runSize * 2);
+            entries = Arrays.copyOf(entries, runSize * 2);
+        }
+        prefixes[runSize] = prefixOf(e);
+        entries[runSize++] = e;
+        runBytes += ResultEntry.sizeOf(e);
+        size++;
+        if (runBytes >= runThresholdBytes) {
+            spillRun();
+        }
+        return true;
+    }
+
+    private void spillRun() {
+        final long[] runPrefixes = prefixes;
+        final ResultEntry[] runEntries = entries;
+        final int n = runSize;
+        prefixes = new long[INITIAL_RUN_CAPACITY];
+        entries = new ResultEntry[INITIAL_RUN_CAPACITY];
+        runSize = 0;
+        runBytes = 0;
+        Callable<File> task = new JobCallable<File>() {
+            @Override
+            public File call() throws Exception {
+                sort(runPrefixes, runEntries, n);
+                File file = File.createTempFile(UUID.randomUUID().toString(), null);
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+                    for (int i = 0; i < n; i++) {
+                        BufferedSortedQueue.writeResultEntry(out, runEntries[i]);
+                    }
+                    out.writeInt(EOF);
+                } catch (IOException e) {
+                    file.delete();
+                    throw e;
+                }
+                return file;
+            }
+
+            @Override
+            public Object getJobId() {
+                return ExternalSortedQueue.this;
+            }
+
+            @Override
+            public TaskExecutionMetricsHolder getTaskExecutionMetric() {
+                return NO_OP_INSTANCE;
+            }
+        };
+        Future<File> future = null;
+        if (executor != null && !isSaturated(executor)) {
+            try {
+                future = executor.submit(task);
+            } catch (RejectedExecutionException e) {
+                future = null;
+            }
+        }
+        if (future == null) {
+            FutureTask<File> inline = new FutureTask<File>(task);
+            inline.run();
+            future = inline;
+        }
+        spilledRuns.add(future);
+        // Bound the number of runs held in memory while sorting
+        if (spilledRuns.size() > MAX_PENDING_RUNS) {
+            awaitRun(spilledRuns.size() - 1 - MAX_PENDING_RUNS);
+        }
+    }
+
+    private static boolean isSaturated(ExecutorService executor) {
+        if (!(executor instanceof ThreadPoolExecutor)) {
+            return false;
+        }
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+        return pool.getActiveCount() >= pool.getMaximumPoolSize();
+    }
+
+    private File awaitRun(int index) {
+        Future<File> future = spilledRuns.get(index);
+        if (future instanceof RunnableFuture) {
+            // Runs the task here if the executor has not started it yet, and is a no-op
+            // otherwise, so that we never block on a task queued behind other work
+            ((RunnableFuture<File>) future).run();
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Stable merge sort of the first n entries of a run by prefix, then comparator.
+     */
+    void sort(long[] runPrefixes, ResultEntry[] runEntries, int n) {
+        if (n < 2) {
+            return;
+        }
+        mergeSort(runPrefixes, runEntries, new long[n], new ResultEntry[n], 0, n);
+    }
+
+    private void mergeSort(long[] p, ResultEntry[] e, long[] tp, ResultEntry[] te, int from, int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                long prefix = p[i];
+                ResultEntry entry = e[i];
+                int j = i - 1;
+                while (j >= from && compare(p[j], e[j], prefix, entry) > 0) {
+                    p[j + 1] = p[j];
+                    e[j + 1] = e[j];
+                    j--;
+                }
+                p[j + 1] = prefix;
+                e[j + 1] = entry;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(p, e, tp, te, from, mid);
+        mergeSort(p, e, tp, te, mid, to);
+        if (compare(p[mid - 1], e[mid - 1], p[mid], e[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(p, from, tp, from, to - from);
+        System.arraycopy(e, from, te, from, to - from);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) {
+            if (compare(tp[j], te[j], tp[i], te[i]) < 0) {
+                p[k] = tp[j];
+                e[k++] = te[j++];
+            } else {
+                p[k] = tp[i];
+                e[k++] = te[i++];
+            }
+        }
+        while (i < mid) {
+            p[k] = tp[i];
+            e[k++] = te[i++];
+        }
+        while (j < to) {
+            p[k] = tp[j];
+            e[k++] = te[j++];
+        }
+    }
+
+    private void startMerge() {
+        if (runs != null || closed) {
+            return;
+        }
+        sort(prefixes, entries, runSize);
+        runs = new Run[spilledRuns.size() + 1];
+        try {
+            for (int i = 0; i < spilledRuns.size(); i++) {
+                runs[i] = new FileRun(awaitRun(i));
+            }
+            runs[spilledRuns.size()] = new InMemoryRun(prefixes, entries, runSize);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        prefixes = null;
+        entries = null;
+        tree = new LoserTree();
+    }
+
+    @Override
+    public ResultEntry poll() {
+        startMerge();
+        if (closed) {
+            return null;
+        }
+        int winner = tree.winner();
+        Run run = runs[winner];
+        ResultEntry e = run.head;
+        if (e == null) {
+            return null;
+        }
+        try {
+            run.advance();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        tree.replay(winner);
+        size--;
+        return e;
+    }
+
+    @Override
+    public ResultEntry peek() {
+        startMerge();
+        if (closed) {
+            return null;
+        }
+        return runs[tree.winner()].head;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getByteSize() {
+        return runBytes;
+    }
+
+    @Override
+    public Iterator<ResultEntry> iterator() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (runs != null) {
+            for (Run run : runs) {
+                if (run != null) {
+                    run.close();
+                }
+            }
+        }
+        for (Future<File> future : spilledRuns) {
+            if (future.cancel(false)) {
+                // Never started, so there is no file to delete
+                continue;
+            }
+            try {
+                future.get().delete();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ignored) {
+            }
+        }
+        spilledRuns.clear();
+        prefixes = null;
+        entries = null;
+        size = 0;
+    }
+
+    private abstract static class Run {
+        ResultEntry head;
+        long headPrefix;
+
+        abstract void advance() throws IOException;
+
+        void close() {
+        }
+    }
+
+    private static class InMemoryRun extends Run {
+        private final long[] prefixes;
+        private final ResultEntry[] entries;
+        private final int size;
+        private int index;
+
+        InMemoryRun(long[] prefixes, ResultEntry[] entries, int size) {
+            this.prefixes = prefixes;
+            this.entries = entries;
+            this.size = size;
+            advance();
+        }
+
+        @Override
+        void advance() {
+            if (index < size) {
+                headPrefix = prefixes[index];
+                head = entries[index];
+                entries[index++] = null;
+            } else {
+                head = null;
+            }
+        }
+    }
+
+    private class FileRun extends Run {
+        private final DataInputStream in;
+
+        FileRun(File file) throws IOException {
+            this.in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(file.toPath())));
+            advance();
+        }
+
+        @Override
+        void advance() throws IOException {
+            head = BufferedSortedQueue.readResultEntry(in);
+            if (head != null) {
+                headPrefix = prefixOf(head);
+            }
+        }
+
+        @Override
+        void close() {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Tournament tree over the runs, each internal node keeping the loser of the match
+     * played there. Replacing the head of the winning run takes a single pass from its
+     * leaf to the root, with one comparison per level.
+     */
+    private class LoserTree {
+        private final int k = runs.length;
+        private final int[] tree = new int[k];
+
+        LoserTree() {
+            int[] winners = new int[2 * k];
+            for (int i = 0; i < k; i++) {
+                winners[k + i] = i;
+            }
+            for (int node = k - 1; node > 0; node--) {
+                int left = winners[2 * node];
+                int right = winners[2 * node + 1];
+                if (less(left, right)) {
+                    winners[node] = left;
+                    tree[node] = right;
+                } else {
+                    winners[node] = right;
+                    tree[node] = left;
+                }
+            }
+            tree[0] = winners[1];
+        }
+
+        int winner() {
+            return tree[0];
+        }
+
+        void replay(int run) {
+            for (int node = (run + k) >>> 1; node > 0; node >>>= 1) {
+                if (less(tree[node], run)) {
+                    int loser = run;
+                    run = tree[node];
+                    tree[node] = loser;
+                }
+            }
+            tree[0] = run;
+        }
+
+        // Exhausted runs lose every match, ties go to the earlier run
+        private boolean less(int r1, int r2) {
+            Run run1 = runs[r1];
+            Run run2 = runs[r2];
+            if (run1.head == null) {
+                return false;
+            }
+            if (run2.head == null) {
+                return true;
+            }
+            int c = compare(run1.headPrefix, run1.head, run2.headPrefix, run2.head);
+            return c < 0 || (c == 0 && r1 < r2);
+        }
+    }
+}
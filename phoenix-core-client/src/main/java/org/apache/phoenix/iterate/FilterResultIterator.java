@@ -23,8 +23,17 @@ import java.util.List;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.phoenix.compile.ExplainPlanAttributes
     .ExplainPlanAttributesBuilder;
+import org.apache.phoenix.compile.StatementContext;
 import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.vector.ColumnVector;
+import org.apache.phoenix.expression.vector.Selection;
+import org.apache.phoenix.expression.vector.TupleBatch;
+import org.apache.phoenix.expression.vector.VectorExpression;
+import org.apache.phoenix.expression.vector.VectorExpressionCompiler;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.schema.types.PBoolean;
 
 
@@ -35,6 +44,9 @@ import org.apache.phoenix.schema.types.PBoolean;
  * returns false or the ptr contains a FALSE value}). May not be used where
  * the delegate provided is an {@link org.apache.phoenix.iterate.AggregatingResultIterator}.
  * For these, the {@link org.apache.phoenix.iterate.FilterAggregatingResultIterator} should be used.
+ * When constructed with a batch size, rows are pulled from the delegate a batch at a time
+ * and the expression is evaluated over the whole batch through its {@link VectorExpression}
+ * form, if it has one.
  *
  * 
  * @since 0.1
@@ -43,8 +55,23 @@ public class FilterResultIterator  extends LookAheadResultIterator {
     private final ResultIterator delegate;
     private final Expression expression;
     private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+    private final VectorExpression vectorExpression;
+    private final TupleBatch batch;
+    private final Selection selection;
+    private int[] passed;
+    private int passedCount;
+    private int passedIndex;
     
     public FilterResultIterator(ResultIterator delegate, Expression expression) {
+        this(delegate, expression, 0);
+    }
+
+    /**
+     * @param batchSize number of rows to filter at a time with the vectorized form of
+     * the expression. Rows are filtered one at a time if less than 2 or if the
+     * expression cannot be vectorized.
+     */
+    public FilterResultIterator(ResultIterator delegate, Expression expression, int batchSize) {
         if (delegate instanceof AggregatingResultIterator) {
             throw new IllegalArgumentException("FilterResultScanner may not be used with an aggregate delegate. Use phoenix.iterate.FilterAggregateResultScanner instead");
         }
@@ -53,10 +80,36 @@ public class FilterResultIterator  extends LookAheadResultIterator {
         if (expression.getDataType() != PBoolean.INSTANCE) {
             throw new IllegalArgumentException("FilterResultIterator requires a boolean expression, but got " + expression);
         }
+        this.vectorExpression = batchSize > 1 ? VectorExpressionCompiler.compile(expression) : null;
+        if (vectorExpression != null) {
+            this.batch = new TupleBatch(batchSize);
+            this.selection = new Selection(batchSize);
+            this.passed = new int[batchSize];
+        } else {
+            this.batch = null;
+            this.selection = null;
+        }
+    }
+
+    /**
+     * @return the batch size to use for client side filters of the given statement, or 0
+     * if vectorized filtering is disabled.
+     */
+    public static int getBatchSize(StatementContext context) {
+        ReadOnlyProps props = context.getConnection().getQueryServices().getProps();
+        if (!props.getBoolean(QueryServices.CLIENT_VECTORIZED_FILTER_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_CLIENT_VECTORIZED_FILTER_ENABLED)) {
+            return 0;
+        }
+        return props.getInt(QueryServices.CLIENT_VECTORIZED_FILTER_BATCH_SIZE_ATTRIB,
+                QueryServicesOptions.DEFAULT_CLIENT_VECTORIZED_FILTER_BATCH_SIZE);
     }
 
     @Override
     protected Tuple advance() throws SQLException {
+        if (vectorExpression != null) {
+            return advanceBatch();
+        }
         Tuple next;
         do {
             next = delegate.next();
@@ -64,6 +117,29 @@ public class FilterResultIterator  extends LookAheadResultIterator {
         } while (next != null && (!expression.evaluate(next, ptr) || ptr.getLength() == 0 || !Boolean.TRUE.equals(expression.getDataType().toObject(ptr))));
         return next;
     }
+
+    private Tuple advanceBatch() throws SQLException {
+        while (passedIndex == passedCount) {
+            batch.clear();
+            Tuple next;
+            while (!batch.isFull() && (next = delegate.next()) != null) {
+                batch.add(next);
+            }
+            if (batch.size() == 0) {
+                return null;
+            }
+            selection.selectAll(batch.size());
+            ColumnVector result = vectorExpression.evaluate(batch, selection);
+            passedCount = 0;
+            passedIndex = 0;
+            for (int row = 0; row < batch.size(); row++) {
+                if (result.isTrue(row)) {
+                    passed[passedCount++] = row;
+                }
+            }
+        }
+        return batch.get(passed[passedIndex++]);
+    }
     
     @Override
     public void close() throws SQLException {
@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.exception.SQLExceptionCode.OPERATION_TIMED_OUT;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_HBASE_COUNT_ROWS_SCANNED;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_HBASE_COUNT_RPC_CALLS;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_SCAN_BYTES;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.PageFilter;
+import org.apache.hadoop.hbase.io.TimeRange;
+import org.apache.phoenix.compile.ExplainPlanAttributes.ExplainPlanAttributesBuilder;
+import org.apache.phoenix.compile.OrderByCompiler.OrderBy;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.compile.ScanRanges;
+import org.apache.phoenix.compile.StatementContext;
+import org.apache.phoenix.coprocessorclient.BaseScannerRegionObserverConstants;
+import org.apache.phoenix.exception.SQLExceptionInfo;
+import org.apache.phoenix.execute.TupleProjector;
+import org.apache.phoenix.filter.SkipScanFilter;
+import org.apache.phoenix.join.HashJoinInfo;
+import org.apache.phoenix.monitoring.ScanMetricsHolder;
+import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTableType;
+import org.apache.phoenix.schema.tuple.ResultTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.ClientUtil;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.ScanUtil;
+
+/**
+ * Result iterator that runs a point lookup as batches of HBase gets instead of scans with a
+ * {@link SkipScanFilter}. The HBase client groups each batch by region server, so every
+ * server receives a single multi get RPC per batch, and no region needs to navigate between
+ * keys. The filter of the scan, minus the skip scan and page filters, is set on every get so
+ * that rows and columns are still filtered on the server.
+ * <p>
+ * Gets bypass the scanner coprocessors, so only plans whose rows need no server side
+ * processing beyond filters are eligible, see {@link #isMultiGetEligible(QueryPlan, Scan)}.
+ * Rows are returned in the order of their keys. The query timeout is checked before every
+ * batch, and every batch is counted as one RPC in the scan metrics of the query.
+ * <p>
+ * The path is opt in, see {@link QueryServices#MULTI_GET_POINT_LOOKUP_THRESHOLD_ATTRIB}.
+ *
+ * @since 5.3.0
+ */
+public class MultiGetResultIterator implements ResultIterator {
+    private final QueryPlan plan;
+    private final Scan scan;
+    private final ResultIterators iterators;
+    private final Iterator<KeyRange> keys;
+    private final int batchSize;
+    private final Filter filter;
+    private final ScanMetricsHolder scanMetricsHolder;
+    private final long maxQueryEndTime;
+    private Table htable;
+    private Result[] results;
+    private int index;
+    private boolean closed;
+
+    /**
+     * @param plan the point lookup plan
+     * @param scan the scan of the plan, once initialized by {@code iterators}
+     * @param iterators the scan iterators of the plan, only used for explain
+     */
+    public MultiGetResultIterator(QueryPlan plan, Scan scan, ResultIterators iterators) {
+        this.plan = plan;
+        this.scan = scan;
+        this.iterators = iterators;
+        this.keys = plan.getContext().getScanRanges().getPointLookupKeyIterator();
+        this.batchSize = Math.max(1, plan.getContext().getConnection().getQueryServices()
+                .getProps().getInt(QueryServices.MULTI_GET_BATCH_SIZE_ATTRIB,
+                        QueryServicesOptions.DEFAULT_MULTI_GET_BATCH_SIZE));
+        this.filter = getGetFilter(scan.getFilter());
+        StatementContext context = plan.getContext();
+        this.scanMetricsHolder = ScanMetricsHolder.getInstance(context.getReadMetricsQueue(),
+                plan.getTableRef().getTable().getPhysicalName().getString(), scan,
+                context.getConnection().getLogLevel());
+        this.maxQueryEndTime = EnvironmentEdgeManager.currentTimeMillis()
+                + context.getStatement().getQueryTimeoutInMillis();
+    }
+
+    /**
+     * Whether the point lookup of the plan can be run as batched gets. Must be called once
+     * the scan of the plan was initialized for its iterators.
+     */
+    public static boolean isMultiGetEligible(QueryPlan plan, Scan scan) {
+        StatementContext context = plan.getContext();
+        ScanRanges scanRanges = context.getScanRanges();
+        int threshold = context.getConnection().getQueryServices().getProps().getInt(
+                QueryServices.MULTI_GET_POINT_LOOKUP_THRESHOLD_ATTRIB,
+                QueryServicesOptions.DEFAULT_MULTI_GET_POINT_LOOKUP_THRESHOLD);
+        if (threshold <= 0 || !scanRanges.isPointLookup()
+                || scanRanges.getPointLookupCount() < threshold) {
+            return false;
+        }
+        if (plan.getOffset() != null || context.getCDCTableRef() != null
+                || ScanUtil.isReversed(scan) || scan.isRaw()) {
+            return false;
+        }
+        // Keys are sorted by their bytes, which for salted tables is not the row key order
+        OrderBy orderBy = plan.getOrderBy();
+        PTable table = plan.getTableRef().getTable();
+        if (orderBy != OrderBy.EMPTY_ORDER_BY && orderBy != OrderBy.FWD_ROW_KEY_ORDER_BY) {
+            return false;
+        }
+        if (table.getBucketNum() != null && ScanUtil.shouldRowsBeInRowKeyOrder(orderBy, context)) {
+            return false;
+        }
+        // Index rows are verified by a scanner coprocessor, and transactional reads need
+        // the snapshot of a scan
+        if (table.getType() == PTableType.INDEX || table.isTransactional()) {
+            return false;
+        }
+        return !ScanUtil.isLocalOrUncoveredGlobalIndex(scan)
+                && !HashJoinInfo.isHashJoin(scan)
+                && !TupleProjector.hasProjectorInScan(scan)
+                && !ScanUtil.isMaskTTLExpiredRows(scan)
+                && scan.getAttribute(BaseScannerRegionObserverConstants.SPECIFIC_ARRAY_INDEX) == null
+                && scan.getAttribute(BaseScannerRegionObserverConstants.JSON_VALUE_FUNCTION) == null
+                && scan.getAttribute(BaseScannerRegionObserverConstants.JSON_QUERY_FUNCTION) == null
+                && scan.getAttribute(BaseScannerRegionObserverConstants.DATA_TABLE_COLUMNS_TO_JOIN) == null
+                && scan.getAttribute(BaseScannerRegionObserverConstants.INDEX_FILTER) == null
+                && scan.getAttribute(BaseScannerRegionObserverConstants.READ_REPAIR_TRANSFORMING_TABLE) == null
+                && scan.getAttribute(BaseScannerRegionObserverConstants.TOPN) == null;
+    }
+
+    /**
+     * Returns the filter of a scan without the filters that only apply to a scan over a
+     * range of keys, or null if no filter is left.
+     */
+    static Filter getGetFilter(Filter filter) {
+        if (filter == null || filter instanceof SkipScanFilter || filter instanceof PageFilter) {
+            return null;
+        }
+        if (!(filter instanceof FilterList)
+                || ((FilterList) filter).getOperator() != FilterList.Operator.MUST_PASS_ALL) {
+            return filter;
+        }
+        List<Filter> filters = new ArrayList<>(((FilterList) filter).getFilters().size());
+        for (Filter f : ((FilterList) filter).getFilters()) {
+            if (!(f instanceof SkipScanFilter) && !(f instanceof PageFilter)) {
+                filters.add(f);
+            }
+        }
+        if (filters.isEmpty()) {
+            return null;
+        }
+        return filters.size() == 1 ? filters.get(0)
+                : new FilterList(FilterList.Operator.MUST_PASS_ALL, filters);
+    }
+
+    private Get newGet(byte[] key) throws IOException {
+        Get get = new Get(key);
+        for (Map.Entry<byte[], NavigableSet<byte[]>> entry : scan.getFamilyMap().entrySet()) {
+            if (entry.getValue() == null) {
+                get.addFamily(entry.getKey());
+            } else {
+                for (byte[] qualifier : entry.getValue()) {
+                    get.addColumn(entry.getKey(), qualifier);
+                }
+            }
+        }
+        TimeRange timeRange = scan.getTimeRange();
+        get.setTimeRange(timeRange.getMin(), timeRange.getMax());
+        for (Map.Entry<byte[], TimeRange> entry : scan.getColumnFamilyTimeRange().entrySet()) {
+            get.setColumnFamilyTimeRange(entry.getKey(), entry.getValue().getMin(),
+                    entry.getValue().getMax());
+        }
+        get.readVersions(scan.getMaxVersions());
+        get.setCacheBlocks(scan.getCacheBlocks());
+        get.setConsistency(scan.getConsistency());
+        get.setFilter(filter);
+        return get;
+    }
+
+    private boolean nextBatch() throws SQLException {
+        if (!keys.hasNext()) {
+            return false;
+        }
+        if (EnvironmentEdgeManager.currentTimeMillis() > maxQueryEndTime) {
+            throw new SQLExceptionInfo.Builder(OPERATION_TIMED_OUT).setMessage(
+                    ". Query couldn't be completed in the allotted time: "
+                            + plan.getContext().getStatement().getQueryTimeoutInMillis() + " ms")
+                    .build().buildException();
+        }
+        try {
+            if (htable == null) {
+                htable = plan.getContext().getConnection().getMutationState()
+                        .getHTable(plan.getTableRef().getTable());
+            }
+            List<Get> gets = new ArrayList<>(batchSize);
+            while (keys.hasNext() && gets.size() < batchSize) {
+                gets.add(newGet(keys.next().getLowerRange()));
+            }
+            results = htable.get(gets);
+            index = 0;
+            updateMetrics(gets.size());
+            return true;
+        } catch (IOException e) {
+            throw ClientUtil.parseServerException(e);
+        }
+    }
+
+    private void updateMetrics(int rowsRead) {
+        long bytes = 0;
+        for (Result result : results) {
+            if (result != null) {
+                bytes += Result.getTotalSizeOfCells(result);
+            }
+        }
+        scanMetricsHolder.getCountOfRPCcalls().change(1);
+        scanMetricsHolder.getCountOfRowsScanned().change(rowsRead);
+        scanMetricsHolder.getCountOfBytesInResults().change(bytes);
+        scanMetricsHolder.getCountOfBytesScanned().change(bytes);
+        GLOBAL_HBASE_COUNT_RPC_CALLS.update(1);
+        GLOBAL_HBASE_COUNT_ROWS_SCANNED.update(rowsRead);
+        GLOBAL_SCAN_BYTES.update(bytes);
+    }
+
+    @Override
+    public Tuple next() throws SQLException {
+        if (closed) {
+            return null;
+        }
+        while (true) {
+            while (results != null && index < results.length) {
+                Result result = results[index++];
+                if (result != null && !result.isEmpty()) {
+                    return new ResultTuple(result);
+                }
+            }
+            results = null;
+            if (!nextBatch()) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        results = null;
+        try {
+            if (htable != null) {
+                htable.close();
+            }
+        } catch (IOException e) {
+            throw ClientUtil.parseServerException(e);
+        } finally {
+            iterators.close();
+        }
+    }
+
+    @Override
+    public void explain(List<String> planSteps) {
+        iterators.explain(planSteps);
+        planSteps.add("    CLIENT MULTI-GET IN BATCHES OF " + batchSize + " KEYS");
+    }
+
+    @Override
+    public void explain(List<String> planSteps,
+            ExplainPlanAttributesBuilder explainPlanAttributesBuilder) {
+        iterators.explain(planSteps, explainPlanAttributesBuilder);
+        planSteps.add("    CLIENT MULTI-GET IN BATCHES OF " + batchSize + " KEYS");
+    }
+
+    @Override
+    public String toString() {
+        return "MultiGetResultIterator [scan=" + scan + ", batchSize=" + batchSize + "]";
+    }
+}
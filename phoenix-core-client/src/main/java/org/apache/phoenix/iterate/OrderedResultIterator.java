@@ -24,12 +24,14 @@ import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.compile.ExplainPlanAttributes.ExplainPlanAttributesBuilder;
+import org.apache.phoenix.compile.StatementContext;
 import org.apache.phoenix.coprocessorclient.BaseScannerRegionObserverConstants;
 import org.apache.phoenix.exception.PhoenixIOException;
 import org.apache.phoenix.execute.DescVarLengthFastByteComparisons;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.OrderByExpression;
 import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.SortOrder;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.thirdparty.com.google.common.base.Function;
@@ -40,6 +42,7 @@ import org.apache.phoenix.util.ByteUtil;
 import org.apache.phoenix.util.ClientUtil;
 import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.ScanUtil;
 import org.apache.phoenix.util.SizedUtil;
 import org.slf4j.Logger;
@@ -50,6 +53,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import static org.apache.phoenix.thirdparty.com.google.common.base.Preconditions.checkArgument;
 import static org.apache.phoenix.thirdparty.com.google.common.base.Preconditions.checkPositionIndex;
@@ -58,7 +62,9 @@ import static org.apache.phoenix.util.ScanUtil.isDummy;
 /**
  * Result scanner that sorts aggregated rows by columns specified in the ORDER BY clause.
  * <p>
- * Note that currently the sort is entirely done in memory. 
+ * Without spooling the sort is entirely done in memory. With spooling, rows beyond the
+ * threshold are spilled to disk, and an ORDER BY without LIMIT can use an external merge
+ * sort, see {@link #setExternalSort(long, ExecutorService)}.
  *  
  * 
  * @since 0.1
@@ -168,6 +174,8 @@ public class OrderedResultIterator implements PeekingResultIterator {
     private boolean serverSideIterator = false;
     private boolean firstScan = true;
     private boolean skipValidRowsSent = false;
+    private long externalSortRunBytes = 0;
+    private ExecutorService externalSortExecutor;
 
     protected ResultIterator getDelegate() {
         return delegate;
@@ -256,6 +264,32 @@ public class OrderedResultIterator implements PeekingResultIterator {
     public long getByteSize() {
         return byteSize;
     }
+
+    /**
+     * Sorts with an {@link ExternalSortedQueue} instead of the default spooling queue when
+     * spooling is enabled and there is no limit.
+     * @param runBytes size of the in-memory runs that are sorted and spilled
+     * @param executor executor to sort runs on, or null to sort them on the calling thread
+     */
+    public void setExternalSort(long runBytes, ExecutorService executor) {
+        this.externalSortRunBytes = runBytes;
+        this.externalSortExecutor = executor;
+    }
+
+    /**
+     * Enables the external sort for a client side ORDER BY of the given statement if it is
+     * configured, sorting runs on the query services executor.
+     */
+    public static void setClientExternalSort(OrderedResultIterator iterator, StatementContext context) {
+        ReadOnlyProps props = context.getConnection().getQueryServices().getProps();
+        if (props.getBoolean(QueryServices.CLIENT_ORDERBY_EXTERNAL_SORT_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_CLIENT_ORDERBY_EXTERNAL_SORT_ENABLED)) {
+            iterator.setExternalSort(props.getLongBytes(
+                    QueryServices.ORDERBY_EXTERNAL_SORT_RUN_BYTES_ATTRIB,
+                    QueryServicesOptions.DEFAULT_ORDERBY_EXTERNAL_SORT_RUN_BYTES),
+                    context.getConnection().getQueryServices().getExecutor());
+        }
+    }
     /**
      * Builds a comparator from the list of columns in ORDER BY clause.
      * @param orderByExpressions the columns in ORDER BY clause.
@@ -414,8 +448,12 @@ public class OrderedResultIterator implements PeekingResultIterator {
         final Comparator<ResultEntry> comparator = buildComparator(orderByExpressions);
         try{
             if (resultIterator == null) {
-                resultIterator = new RecordPeekingResultIterator(PhoenixQueues.newResultEntrySortedQueue(comparator,
-                        limit, spoolingEnabled, thresholdBytes));
+                resultIterator = new RecordPeekingResultIterator(
+                        spoolingEnabled && limit == null && externalSortRunBytes > 0
+                                ? PhoenixQueues.newExternalResultEntrySortedQueue(comparator,
+                                        orderByExpressions, externalSortRunBytes, externalSortExecutor)
+                                : PhoenixQueues.newResultEntrySortedQueue(comparator,
+                                        limit, spoolingEnabled, thresholdBytes));
             }
             final SizeAwareQueue<ResultEntry> queueEntries = ((RecordPeekingResultIterator)resultIterator).getQueueEntries();
             long startTime = EnvironmentEdgeManager.currentTimeMillis();
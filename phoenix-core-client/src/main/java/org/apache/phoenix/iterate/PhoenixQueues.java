@@ -20,9 +20,12 @@ package org.apache.phoenix.iterate;
 import java.io.IOException;
 import java.util.Comparator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.OrderByExpression;
 import org.apache.phoenix.iterate.OrderedResultIterator.ResultEntry;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.util.PhoenixKeyValueUtil;
@@ -41,6 +44,12 @@ public class PhoenixQueues {
         return new BufferedSortedQueue(comparator, limit, thresholdBytes);
     }
 
+    public static SizeAwareQueue<ResultEntry> newExternalResultEntrySortedQueue(
+            Comparator<ResultEntry> comparator, List<OrderByExpression> orderByExpressions,
+            long runThresholdBytes, ExecutorService executor) {
+        return new ExternalSortedQueue(comparator, orderByExpressions, runThresholdBytes, executor);
+    }
+
     public static SizeAwareQueue<Tuple> newBufferedTupleQueue(long thresholdBytes) {
         return new BufferedTupleQueue(thresholdBytes);
     }
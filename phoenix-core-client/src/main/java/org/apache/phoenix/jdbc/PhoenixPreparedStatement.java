@@ -45,6 +45,7 @@ import java.util.BitSet;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.phoenix.compile.BindManager;
 import org.apache.phoenix.compile.MutationPlan;
@@ -208,6 +209,45 @@ public class PhoenixPreparedStatement extends PhoenixStatement implements Phoeni
         return executeMutation(statement, createAuditQueryLogger(statement,query));
     }
 
+    /**
+     * Asynchronous variant of {@link #executeQuery()}.
+     * @see PhoenixStatement#executeQueryAsync(String)
+     */
+    public CompletableFuture<PhoenixResultSet> executeQueryAsync() {
+        try {
+            throwIfUnboundParameters();
+            if (statement.getOperation().isMutation()) {
+                throw new ExecuteQueryNotApplicableException(statement.getOperation());
+            }
+            return executeQueryAsync(statement, createQueryLogger(statement, query));
+        } catch (SQLException e) {
+            return failedFuture(e);
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #executeUpdate()}. Parameters must not be changed until
+     * the returned future completes.
+     * @see PhoenixStatement#executeUpdateAsync(String)
+     */
+    public CompletableFuture<Integer> executeUpdateAsync() {
+        try {
+            throwIfUnboundParameters();
+            if (!statement.getOperation().isMutation()) {
+                throw new ExecuteUpdateNotApplicableException(statement.getOperation());
+            }
+            if (!batch.isEmpty()) {
+                throw new SQLExceptionInfo.Builder(
+                        SQLExceptionCode.EXECUTE_UPDATE_WITH_NON_EMPTY_BATCH)
+                        .build().buildException();
+            }
+            return executeMutationAsync(statement, createAuditQueryLogger(statement, query),
+                    false);
+        } catch (SQLException e) {
+            return failedFuture(e);
+        }
+    }
+
     public QueryPlan optimizeQuery() throws SQLException {
         throwIfUnboundParameters();
         return optimizeQuery(statement);
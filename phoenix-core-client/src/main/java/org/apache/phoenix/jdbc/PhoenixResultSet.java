@@ -48,6 +48,7 @@ import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.phoenix.monitoring.TableMetricsManager;
 import org.apache.phoenix.thirdparty.com.google.common.primitives.Bytes;
@@ -68,6 +69,7 @@ import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.execute.TupleProjector;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.ProjectedColumnExpression;
+import org.apache.phoenix.iterate.AsyncResultIterator;
 import org.apache.phoenix.iterate.ResultIterator;
 import org.apache.phoenix.log.QueryLogInfo;
 import org.apache.phoenix.log.QueryLogger;
@@ -1471,6 +1473,29 @@ public class PhoenixResultSet implements PhoenixMonitoredResultSet, SQLCloseable
         return getObject(findColumn(columnLabel), type);
     }
 
+    /**
+     * Reads up to maxRows rows ahead on the async executor of the connection, so that as many
+     * calls to {@link #next()} return without waiting on the region servers. Only supported
+     * for result sets of {@link PhoenixStatement#executeQueryAsync(String)}. The result set
+     * must not be read while the returned future is pending.
+     *
+     * @return a future completing with the number of rows that can be read without
+     *     blocking, which is less than maxRows only once all rows were read
+     */
+    public CompletableFuture<Integer> fetchAsync(int maxRows) {
+        try {
+            checkOpen();
+            if (!(scanner instanceof AsyncResultIterator)) {
+                throw new SQLFeatureNotSupportedException(
+                        "Rows can only be read ahead for result sets of executeQueryAsync");
+            }
+        } catch (SQLException e) {
+            return PhoenixStatement.failedFuture(e);
+        }
+        return ((AsyncResultIterator) scanner).fetch(maxRows,
+                statement.getConnection().getQueryServices().getAsyncExecutor());
+    }
+
     @VisibleForTesting
     public ResultIterator getUnderlyingIterator() {
         return scanner;
@@ -65,6 +65,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
@@ -110,6 +112,7 @@ import org.apache.phoenix.execute.MutationState;
 import org.apache.phoenix.execute.visitor.QueryPlanVisitor;
 import org.apache.phoenix.expression.KeyValueColumnExpression;
 import org.apache.phoenix.expression.RowKeyColumnExpression;
+import org.apache.phoenix.iterate.AsyncResultIterator;
 import org.apache.phoenix.iterate.ExplainTable;
 import org.apache.phoenix.iterate.MaterializedResultIterator;
 import org.apache.phoenix.iterate.ParallelScanGrouper;
@@ -172,6 +175,7 @@ import org.apache.phoenix.parse.OrderByNode;
 import org.apache.phoenix.parse.PFunction;
 import org.apache.phoenix.parse.ParseNode;
 import org.apache.phoenix.parse.ParseNodeFactory;
+import org.apache.phoenix.parse.ParsedStatementCache;
 import org.apache.phoenix.parse.PrimaryKeyConstraint;
 import org.apache.phoenix.parse.SQLParser;
 import org.apache.phoenix.parse.SelectStatement;
@@ -226,6 +230,7 @@ import org.apache.phoenix.util.PhoenixContextExecutor;
 import org.apache.phoenix.util.PhoenixRuntime;
 import org.apache.phoenix.util.QueryUtil;
 import org.apache.phoenix.util.SQLCloseable;
+import org.apache.phoenix.util.ParseNodeUtil.CachedRewrite;
 import org.apache.phoenix.util.ParseNodeUtil.RewriteResult;
 import org.apache.phoenix.util.ValidateLastDDLTimestampUtil;
 import org.slf4j.Logger;
@@ -343,12 +348,94 @@ public class PhoenixStatement implements PhoenixMonitoredStatement, SQLCloseable
         return executeQuery(stmt, true, queryLogger, noCommit, this.validateLastDdlTimestamp);
     }
 
+    /**
+     * Compiles the query on the calling thread and returns a future completing with its
+     * result set once rows can be read without waiting on the region servers. Nothing that
+     * may wait on the region servers, including creating the iterator of the plan, runs on
+     * the calling thread.
+     * @see AsyncResultIterator
+     */
+    protected CompletableFuture<PhoenixResultSet> executeQueryAsync(
+            final CompilableStatement stmt, final QueryLogger queryLogger) {
+        final PhoenixResultSet rs;
+        try {
+            rs = executeQuery(stmt, true, queryLogger, false, this.validateLastDdlTimestamp,
+                    true);
+        } catch (SQLException e) {
+            return failedFuture(e);
+        }
+        ResultIterator iterator = rs.getUnderlyingIterator();
+        if (!(iterator instanceof AsyncResultIterator)) {
+            return CompletableFuture.completedFuture(rs);
+        }
+        return ((AsyncResultIterator) iterator).start(connection.getQueryServices())
+                .handle((v, t) -> {
+                    if (t != null) {
+                        try {
+                            rs.close();
+                        } catch (SQLException e) {
+                            t.addSuppressed(e);
+                        }
+                        throw t instanceof CompletionException ? (CompletionException) t
+                                : new CompletionException(t);
+                    }
+                    return rs;
+                });
+    }
+
+    /**
+     * Executes the mutation and returns a future of its update count. An UPSERT VALUES that
+     * is only buffered in the mutation state runs on the calling thread, anything that has to
+     * go to the region servers runs on the async executor of the query services.
+     */
+    protected CompletableFuture<Integer> executeMutationAsync(final CompilableStatement stmt,
+            final AuditQueryLogger queryLogger, final boolean flush) {
+        boolean buffered = !connection.getAutoCommit()
+                && !(flush && connection.getAutoFlush())
+                && stmt instanceof UpsertStatement
+                && ((UpsertStatement) stmt).getSelect() == null;
+        if (buffered) {
+            try {
+                return CompletableFuture.completedFuture(executeMutation(stmt, queryLogger));
+            } catch (SQLException e) {
+                return failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                int updateCount = executeMutation(stmt, queryLogger);
+                if (flush) {
+                    flushIfNecessary();
+                }
+                return updateCount;
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, connection.getQueryServices().getAsyncExecutor());
+    }
+
+    static <T> CompletableFuture<T> failedFuture(Throwable t) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
 
     private PhoenixResultSet executeQuery(final CompilableStatement stmt,
                                           final boolean doRetryOnMetaNotFoundError,
                                           final QueryLogger queryLogger, final boolean noCommit,
                                           boolean shouldValidateLastDdlTimestamp)
             throws SQLException {
+        return executeQuery(stmt, doRetryOnMetaNotFoundError, queryLogger, noCommit,
+                shouldValidateLastDdlTimestamp, false);
+    }
+
+    private PhoenixResultSet executeQuery(final CompilableStatement stmt,
+                                          final boolean doRetryOnMetaNotFoundError,
+                                          final QueryLogger queryLogger, final boolean noCommit,
+                                          boolean shouldValidateLastDdlTimestamp,
+                                          final boolean async)
+            throws SQLException {
         GLOBAL_SELECT_SQL_COUNTER.increment();
 
         try {
@@ -405,8 +492,12 @@ public class PhoenixStatement implements PhoenixMonitoredStatement, SQLCloseable
                                 }
                                 // this will create its own trace internally, so we don't wrap this
                                 // whole thing in tracing
-                                ResultIterator resultIterator = plan.iterator();
-                                if (LOGGER.isDebugEnabled()) {
+                                // Creating the iterator may go to the region servers, e.g. to
+                                // send the hash caches of a join, so an async query leaves it
+                                // to AsyncResultIterator.start() on the async executor
+                                ResultIterator resultIterator = async
+                                        ? new AsyncResultIterator(plan) : plan.iterator();
+                                if (LOGGER.isDebugEnabled() && !async) {
                                     String explainPlan = QueryUtil.getExplainPlan(resultIterator);
                                     LOGGER.debug(LogUtil.addCustomAnnotations(
                                             "Explain plan: " + explainPlan, connection));
@@ -414,8 +505,10 @@ public class PhoenixStatement implements PhoenixMonitoredStatement, SQLCloseable
                                 StatementContext context = plan.getContext();
                                 context.setQueryLogger(queryLogger);
                                 if (queryLogger.isDebugEnabled()) {
-                                    queryLogger.log(QueryLogInfo.EXPLAIN_PLAN_I,
-                                            QueryUtil.getExplainPlan(resultIterator));
+                                    if (!async) {
+                                        queryLogger.log(QueryLogInfo.EXPLAIN_PLAN_I,
+                                                QueryUtil.getExplainPlan(resultIterator));
+                                    }
                                     queryLogger.log(QueryLogInfo.GLOBAL_SCAN_DETAILS_I,
                                             context.getScan() != null ?
                                                     context.getScan().toString() :
@@ -464,7 +557,7 @@ public class PhoenixStatement implements PhoenixMonitoredStatement, SQLCloseable
                                         updateMetrics = false;
                                         //TODO we can log retry count and error for debugging in LOG table
                                         return executeQuery(stmt, false, queryLogger, noCommit,
-                                                                shouldValidateLastDdlTimestamp);
+                                                                shouldValidateLastDdlTimestamp, async);
                                     }
                                 }
                                 throw e;
@@ -486,7 +579,7 @@ public class PhoenixStatement implements PhoenixMonitoredStatement, SQLCloseable
                                         .updateCache(tenantId, schemaN, tableN, true);
                                 // skip last ddl timestamp validation in the retry
                                 return executeQuery(stmt, doRetryOnMetaNotFoundError, queryLogger,
-                                                        noCommit, false);
+                                                        noCommit, false, async);
                             }
                             catch (RuntimeException e) {
                                 // FIXME: Expression.evaluate does not throw SQLException
@@ -748,6 +841,11 @@ public class PhoenixStatement implements PhoenixMonitoredStatement, SQLCloseable
             super(from, hint, isDistinct, select, where, groupBy, having, orderBy, limit, offset, bindCount, isAggregate, hasSequence, selects, udfParseNodes);
         }
         
+        // The rewrite of this statement by its last compilation. A statement compiled repeatedly,
+        // by a prepared statement or through the ParsedStatementCache, is only rewritten again
+        // when it no longer resolves to the same tables
+        private volatile CachedRewrite cachedRewrite;
+
         private ExecutableSelectStatement(ExecutableSelectStatement select) {
             this(select.getFrom(), select.getHint(), select.isDistinct(), select.getSelect(), select.getWhere(),
                     select.getGroupBy(), select.getHaving(), select.getOrderBy(), select.getLimit(), select.getOffset(), select.getBindCount(),
@@ -762,8 +860,13 @@ public class PhoenixStatement implements PhoenixMonitoredStatement, SQLCloseable
                 phoenixStatement.throwIfUnallowedUserDefinedFunctions(getUdfParseNodes());
             }
 
-            RewriteResult rewriteResult =
-                    ParseNodeUtil.rewrite(this, phoenixStatement.getConnection());
+            PhoenixConnection connection = phoenixStatement.getConnection();
+            CachedRewrite rewrite = cachedRewrite;
+            RewriteResult rewriteResult = rewrite == null ? null : rewrite.get(connection);
+            if (rewriteResult == null) {
+                rewriteResult = ParseNodeUtil.rewrite(this, connection);
+                cachedRewrite = new CachedRewrite(rewriteResult, connection);
+            }
             QueryPlan queryPlan = new QueryCompiler(
                     phoenixStatement,
                     rewriteResult.getRewrittenSelectStatement(),
@@ -2267,13 +2370,30 @@ public class PhoenixStatement implements PhoenixMonitoredStatement, SQLCloseable
     }
     
     protected CompilableStatement parseStatement(String sql) throws SQLException {
+        ParsedStatementCache parsedStatementCache =
+                connection.getQueryServices().getParsedStatementCache();
+        String normalizedSql = null;
+        CompilableStatement statement = null;
+        if (parsedStatementCache.isEnabled()) {
+            normalizedSql = ParsedStatementCache.normalize(sql);
+            statement = (CompilableStatement) parsedStatementCache.get(normalizedSql);
+            if (statement != null) {
+                return statement;
+            }
+        }
         PhoenixStatementParser parser = null;
         try {
             parser = new PhoenixStatementParser(sql, new ExecutableNodeFactory());
         } catch (IOException e) {
             throw ClientUtil.parseServerException(e);
         }
-        CompilableStatement statement = parser.parseStatement();
+        statement = parser.parseStatement();
+        // Only DML statements are cached, as some DDL statements are modified when executed
+        if (parsedStatementCache.isEnabled() && (statement instanceof ExecutableSelectStatement
+                || statement instanceof ExecutableUpsertStatement
+                || statement instanceof ExecutableDeleteStatement)) {
+            parsedStatementCache.put(normalizedSql, statement);
+        }
         return statement;
     }
     
@@ -2384,6 +2504,59 @@ public class PhoenixStatement implements PhoenixMonitoredStatement, SQLCloseable
         return updateCount;
     }
 
+    /**
+     * Asynchronous variant of {@link #executeQuery(String)}. The query is compiled on the
+     * calling thread, which fails fast on syntax and metadata errors. Its iterator is created
+     * on the async executor of the connection. Point lookups are then sent with the HBase
+     * async client without holding any thread while they run, so a single connection can
+     * have many of them in flight. Other queries fetch their first row on the async
+     * executor, and further rows can be read ahead with
+     * {@link PhoenixResultSet#fetchAsync(int)}.
+     * <p>
+     * The statement must not be used again until the returned future completes.
+     *
+     * @return a future completing with the result set, or exceptionally with a
+     *     {@link CompletionException} caused by the SQLException the query failed with
+     */
+    public CompletableFuture<PhoenixResultSet> executeQueryAsync(String sql) {
+        try {
+            CompilableStatement stmt = parseStatement(sql);
+            if (stmt.getOperation().isMutation()) {
+                throw new ExecuteQueryNotApplicableException(sql);
+            }
+            return executeQueryAsync(stmt, createQueryLogger(stmt, sql));
+        } catch (SQLException e) {
+            return failedFuture(e);
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #executeUpdate(String)}. When auto commit is off, an
+     * UPSERT VALUES completes immediately as it is only buffered on the client; other
+     * statements run on the async executor of the connection.
+     * <p>
+     * The statement must not be used again until the returned future completes.
+     *
+     * @return a future completing with the update count, or exceptionally with a
+     *     {@link CompletionException} caused by the SQLException the statement failed with
+     */
+    public CompletableFuture<Integer> executeUpdateAsync(String sql) {
+        try {
+            CompilableStatement stmt = parseStatement(sql);
+            if (!stmt.getOperation().isMutation) {
+                throw new ExecuteUpdateNotApplicableException(sql);
+            }
+            if (!batch.isEmpty()) {
+                throw new SQLExceptionInfo.Builder(
+                        SQLExceptionCode.EXECUTE_UPDATE_WITH_NON_EMPTY_BATCH)
+                        .build().buildException();
+            }
+            return executeMutationAsync(stmt, createAuditQueryLogger(stmt, sql), true);
+        } catch (SQLException e) {
+            return failedFuture(e);
+        }
+    }
+
     private void flushIfNecessary() throws SQLException {
         if (connection.getAutoFlush()) {
             connection.flush();
@@ -104,11 +104,28 @@ public class HashCacheClient  {
             ScanRanges keyRanges, byte[] cacheId, ResultIterator iterator, long estimatedSize, List<Expression> onExpressions,
             boolean singleValueOnly, boolean usePersistentCache, PTable cacheUsingTable, Expression keyRangeRhsExpression,
             List<Expression> keyRangeRhsValues) throws SQLException {
+        return addHashCache(keyRanges, cacheId, iterator, estimatedSize, onExpressions,
+                singleValueOnly, usePersistentCache, cacheUsingTable, keyRangeRhsExpression,
+                keyRangeRhsValues, 1, 0);
+    }
+
+    /**
+     * Same as {@link #addHashCache(ScanRanges, byte[], ResultIterator, long, List, boolean,
+     * boolean, PTable, Expression, List)}, but only adds the rows whose hash key falls into
+     * the given partition, as computed by {@link HashJoinInfo#getPartition}.
+     *
+     * @param numPartitions number of hash partitions of the build side
+     * @param partition partition to add, between 0 and numPartitions - 1
+     */
+    public ServerCache addHashCache(
+            ScanRanges keyRanges, byte[] cacheId, ResultIterator iterator, long estimatedSize, List<Expression> onExpressions,
+            boolean singleValueOnly, boolean usePersistentCache, PTable cacheUsingTable, Expression keyRangeRhsExpression,
+            List<Expression> keyRangeRhsValues, int numPartitions, int partition) throws SQLException {
         /**
          * Serialize and compress hashCacheTable
          */
         ImmutableBytesWritable ptr = new ImmutableBytesWritable();
-        serialize(ptr, iterator, estimatedSize, onExpressions, singleValueOnly, keyRangeRhsExpression, keyRangeRhsValues);
+        serialize(ptr, iterator, estimatedSize, onExpressions, singleValueOnly, keyRangeRhsExpression, keyRangeRhsValues, numPartitions, partition);
         ServerCache cache = serverCache.addServerCache(keyRanges, cacheId, ptr, ByteUtil.EMPTY_BYTE_ARRAY, new HashCacheFactory(), cacheUsingTable, usePersistentCache, true);
         return cache;
     }
@@ -127,7 +144,7 @@ public class HashCacheClient  {
         return serverCache.addServerCache(startkeyOfRegion, cache, new HashCacheFactory(), ByteUtil.EMPTY_BYTE_ARRAY, pTable);
     }
     
-    private void serialize(ImmutableBytesWritable ptr, ResultIterator iterator, long estimatedSize, List<Expression> onExpressions, boolean singleValueOnly, Expression keyRangeRhsExpression, List<Expression> keyRangeRhsValues) throws SQLException {
+    private void serialize(ImmutableBytesWritable ptr, ResultIterator iterator, long estimatedSize, List<Expression> onExpressions, boolean singleValueOnly, Expression keyRangeRhsExpression, List<Expression> keyRangeRhsValues, int numPartitions, int partition) throws SQLException {
         long maxSize = serverCache.getConnection().getQueryServices().getProps()
                 .getLongBytes(QueryServices.MAX_SERVER_CACHE_SIZE_ATTRIB,
                         QueryServicesOptions.DEFAULT_MAX_SERVER_CACHE_SIZE);
@@ -150,6 +167,10 @@ public class HashCacheClient  {
             out.writeInt(nRows); // In the end will be replaced with total number of rows            
             ImmutableBytesWritable tempPtr = new ImmutableBytesWritable();
             for (Tuple result = iterator.next(); result != null; result = iterator.next()) {
+                if (numPartitions > 1 && HashJoinInfo.getPartition(TupleUtil.getConcatenatedValue(
+                        result, onExpressions), numPartitions) != partition) {
+                    continue;
+                }
                 TupleUtil.write(result, out);
                 if (baOut.size() > maxSize) {
                     throw new MaxServerCacheSizeExceededException("Size of hash cache (" + baOut.size() + " bytes) exceeds the maximum allowed size (" + maxSize + " bytes)");
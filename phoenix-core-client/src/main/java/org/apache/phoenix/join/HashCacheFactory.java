@@ -24,16 +24,22 @@ import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import net.jcip.annotations.Immutable;
 
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.io.WritableUtils;
@@ -45,6 +51,8 @@ import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.ExpressionType;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.tuple.ResultTuple;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.util.ClientUtil;
@@ -54,11 +62,22 @@ import org.apache.phoenix.util.TupleUtil;
 import org.iq80.snappy.CorruptionException;
 import org.iq80.snappy.Snappy;
 
-public class HashCacheFactory implements ServerCacheFactory {
+public class HashCacheFactory implements ServerCacheFactory, Configurable {
+    private Configuration conf;
 
     public HashCacheFactory() {
     }
 
+    @Override
+    public void setConf(Configuration conf) {
+        this.conf = conf;
+    }
+
+    @Override
+    public Configuration getConf() {
+        return conf;
+    }
+
     @Override
     public void readFields(DataInput input) throws IOException {
     }
@@ -75,12 +94,52 @@ public class HashCacheFactory implements ServerCacheFactory {
             byte[] uncompressed = new byte[uncompressedLen];
             Snappy.uncompress(cachePtr.get(), cachePtr.getOffset(), cachePtr.getLength(),
                 uncompressed, 0);
+            if (conf != null && conf.getBoolean(QueryServices.COMPACT_HASH_CACHE_ENABLED_ATTRIB,
+                    QueryServicesOptions.DEFAULT_COMPACT_HASH_CACHE_ENABLED)) {
+                return new CompactHashCacheImpl(uncompressed, chunk, clientVersion);
+            }
             return new HashCacheImpl(uncompressed, chunk, clientVersion);
         } catch (CorruptionException e) {
             throw ClientUtil.parseServerException(e);
         }
     }
 
+    /**
+     * Join key expressions and row count at the front of a serialized hash cache, as
+     * written by {@link HashCacheClient}.
+     */
+    private static class HashCacheHeader {
+        private final List<Expression> onExpressions;
+        private final boolean singleValueOnly;
+        private final int nRows;
+        // Offset of the first serialized row
+        private final int rowsOffset;
+
+        private HashCacheHeader(byte[] hashCacheBytes) throws IOException {
+            ByteArrayInputStream input = new ByteArrayInputStream(hashCacheBytes, 0, hashCacheBytes.length);
+            DataInputStream dataInput = new DataInputStream(input);
+            int nExprs = dataInput.readInt();
+            List<Expression> onExpressions = new ArrayList<Expression>(nExprs);
+            for (int i = 0; i < nExprs; i++) {
+                int expressionOrdinal = WritableUtils.readVInt(dataInput);
+                Expression expression = ExpressionType.values()[expressionOrdinal].newInstance();
+                expression.readFields(dataInput);
+                onExpressions.add(expression);
+            }
+            boolean singleValueOnly = false;
+            int exprSizeAndSingleValueOnly = dataInput.readInt();
+            int exprSize = exprSizeAndSingleValueOnly;
+            if (exprSize < 0) {
+                exprSize *= -1;
+                singleValueOnly = true;
+            }
+            this.onExpressions = onExpressions;
+            this.singleValueOnly = singleValueOnly;
+            this.nRows = dataInput.readInt();
+            this.rowsOffset = exprSize + Bytes.SIZEOF_INT;
+        }
+    }
+
     @Immutable
     private static class HashCacheImpl implements HashCache {
         private final Map<ImmutableBytesPtr,List<Tuple>> hashCache;
@@ -93,31 +152,14 @@ public class HashCacheFactory implements ServerCacheFactory {
                 this.memoryChunk = memoryChunk;
                 this.clientVersion = clientVersion;
                 byte[] hashCacheByteArray = hashCacheBytes;
-                int offset = 0;
-                ByteArrayInputStream input = new ByteArrayInputStream(hashCacheByteArray, offset, hashCacheBytes.length);
-                DataInputStream dataInput = new DataInputStream(input);
-                int nExprs = dataInput.readInt();
-                List<Expression> onExpressions = new ArrayList<Expression>(nExprs);
-                for (int i = 0; i < nExprs; i++) {
-                    int expressionOrdinal = WritableUtils.readVInt(dataInput);
-                    Expression expression = ExpressionType.values()[expressionOrdinal].newInstance();
-                    expression.readFields(dataInput);
-                    onExpressions.add(expression);                        
-                }
-                boolean singleValueOnly = false;
-                int exprSizeAndSingleValueOnly = dataInput.readInt();
-                int exprSize = exprSizeAndSingleValueOnly;
-                if (exprSize < 0) {
-                    exprSize *= -1;
-                    singleValueOnly = true;
-                }
-                this.singleValueOnly = singleValueOnly;
-                offset += exprSize;
-                int nRows = dataInput.readInt();
+                HashCacheHeader header = new HashCacheHeader(hashCacheBytes);
+                List<Expression> onExpressions = header.onExpressions;
+                this.singleValueOnly = header.singleValueOnly;
+                int offset = header.rowsOffset;
+                int nRows = header.nRows;
                 long estimatedSize = SizedUtil.sizeOfMap(nRows, SizedUtil.IMMUTABLE_BYTES_WRITABLE_SIZE, SizedUtil.RESULT_SIZE) + hashCacheBytes.length;
                 this.memoryChunk.resize(estimatedSize);
                 HashMap<ImmutableBytesPtr,List<Tuple>> hashCacheMap = new HashMap<ImmutableBytesPtr,List<Tuple>>(nRows * 5 / 4);
-                offset += Bytes.SIZEOF_INT;
                 // Build Map with evaluated hash key as key and row as value
                 for (int i = 0; i < nRows; i++) {
                     int resultSize = (int)Bytes.readAsVLong(hashCacheByteArray, offset);
@@ -170,5 +212,222 @@ public class HashCacheFactory implements ServerCacheFactory {
             return clientVersion;
         }
     }
-}
 
+    /**
+     * Hash cache that keeps the rows in the serialized buffer received from the client
+     * instead of deserializing each of them into a {@link Tuple}. Rows are grouped by join
+     * key through an open addressing table of key ordinals. The rows of a key are only
+     * deserialized into {@link Tuple}s the first time a probe finds the key, and are kept for
+     * the later probes of the same key, so only the keys that are hit cost tuples.
+     */
+    @Immutable
+    private static class CompactHashCacheImpl implements HashCache {
+        private static final int MIN_TABLE_SIZE = 16;
+
+        private final byte[] rowBytes;
+        // Offset and length of each row within rowBytes, ordered by join key
+        private final int[] rowOffsets;
+        private final int[] rowLengths;
+        // Concatenated join keys and, for each key, its position in keyBytes, its hash
+        // and the position of its first row in rowOffsets/rowLengths
+        private final byte[] keyBytes;
+        private final int[] keyOffsets;
+        private final int[] keyLengths;
+        private final int[] keyHashes;
+        private final int[] keyRowStarts;
+        // Open addressing table of key ordinal + 1, 0 marking an empty slot
+        private final int[] table;
+        private final int nKeys;
+        // Rows of each key that has been probed, deserialized on the first hit
+        private final AtomicReferenceArray<RowList> keyRowLists;
+        private final MemoryChunk memoryChunk;
+        private final boolean singleValueOnly;
+        private final int clientVersion;
+
+        private CompactHashCacheImpl(byte[] hashCacheBytes, MemoryChunk memoryChunk, int clientVersion) {
+            try {
+                this.memoryChunk = memoryChunk;
+                this.clientVersion = clientVersion;
+                this.rowBytes = hashCacheBytes;
+                HashCacheHeader header = new HashCacheHeader(hashCacheBytes);
+                List<Expression> onExpressions = header.onExpressions;
+                this.singleValueOnly = header.singleValueOnly;
+                int nRows = header.nRows;
+                int tableSize = Integer.highestOneBit(Math.max(MIN_TABLE_SIZE, nRows * 2 - 1)) << 1;
+                // Upper bound of everything but the join keys, which are only known once evaluated
+                this.memoryChunk.resize(hashCacheBytes.length
+                        + (long) nRows * 8 * Bytes.SIZEOF_INT + (long) tableSize * Bytes.SIZEOF_INT);
+                int[] unorderedOffsets = new int[nRows];
+                int[] unorderedLengths = new int[nRows];
+                int[] rowKeys = new int[nRows];
+                int[] keyOffsets = new int[nRows];
+                int[] keyLengths = new int[nRows];
+                int[] keyHashes = new int[nRows];
+                int[] keyRowCounts = new int[nRows];
+                int[] table = new int[tableSize];
+                int mask = tableSize - 1;
+                byte[] keyBytes = new byte[Math.max(MIN_TABLE_SIZE, nRows * Bytes.SIZEOF_LONG)];
+                int keyBytesSize = 0;
+                int nKeys = 0;
+                int offset = header.rowsOffset;
+                for (int i = 0; i < nRows; i++) {
+                    int resultSize = (int)Bytes.readAsVLong(hashCacheBytes, offset);
+                    offset += WritableUtils.decodeVIntSize(hashCacheBytes[offset]);
+                    unorderedOffsets[i] = offset;
+                    unorderedLengths[i] = resultSize;
+                    // Only needed to evaluate the join key, so it does not outlive this iteration
+                    Tuple result = new ResultTuple(ResultUtil.toResult(
+                            new ImmutableBytesWritable(hashCacheBytes, offset, resultSize)));
+                    ImmutableBytesPtr key = TupleUtil.getConcatenatedValue(result, onExpressions);
+                    int hash = key.hashCode();
+                    int slot = spread(hash) & mask;
+                    int keyOrdinal;
+                    while (true) {
+                        int entry = table[slot];
+                        if (entry == 0) {
+                            keyOrdinal = nKeys++;
+                            if (keyBytesSize + key.getLength() > keyBytes.length) {
+                                keyBytes = Arrays.copyOf(keyBytes,
+                                        Math.max(keyBytes.length * 2, keyBytesSize + key.getLength()));
+                            }
+                            System.arraycopy(key.get(), key.getOffset(), keyBytes, keyBytesSize, key.getLength());
+                            keyOffsets[keyOrdinal] = keyBytesSize;
+                            keyLengths[keyOrdinal] = key.getLength();
+                            keyHashes[keyOrdinal] = hash;
+                            keyBytesSize += key.getLength();
+                            table[slot] = keyOrdinal + 1;
+                            break;
+                        }
+                        int candidate = entry - 1;
+                        if (keyHashes[candidate] == hash && Bytes.equals(keyBytes, keyOffsets[candidate],
+                                keyLengths[candidate], key.get(), key.getOffset(), key.getLength())) {
+                            keyOrdinal = candidate;
+                            break;
+                        }
+                        slot = (slot + 1) & mask;
+                    }
+                    rowKeys[i] = keyOrdinal;
+                    keyRowCounts[keyOrdinal]++;
+                    offset += resultSize;
+                }
+                // Lay the rows of each key out next to each other, keeping their original order
+                int[] keyRowStarts = new int[nKeys + 1];
+                for (int k = 0; k < nKeys; k++) {
+                    keyRowStarts[k + 1] = keyRowStarts[k] + keyRowCounts[k];
+                }
+                int[] nextRowPositions = Arrays.copyOf(keyRowStarts, nKeys);
+                this.rowOffsets = new int[nRows];
+                this.rowLengths = new int[nRows];
+                for (int i = 0; i < nRows; i++) {
+                    int position = nextRowPositions[rowKeys[i]]++;
+                    rowOffsets[position] = unorderedOffsets[i];
+                    rowLengths[position] = unorderedLengths[i];
+                }
+                this.nKeys = nKeys;
+                this.table = table;
+                this.keyRowStarts = keyRowStarts;
+                this.keyBytes = Arrays.copyOf(keyBytes, keyBytesSize);
+                this.keyOffsets = Arrays.copyOf(keyOffsets, nKeys);
+                this.keyLengths = Arrays.copyOf(keyLengths, nKeys);
+                this.keyHashes = Arrays.copyOf(keyHashes, nKeys);
+                this.keyRowLists = new AtomicReferenceArray<RowList>(nKeys);
+                this.memoryChunk.resize(hashCacheBytes.length + keyBytesSize
+                        + (long) nRows * 2 * Bytes.SIZEOF_INT + (long) nKeys * 5 * Bytes.SIZEOF_INT
+                        + (long) nKeys * SizedUtil.POINTER_SIZE + (long) tableSize * Bytes.SIZEOF_INT);
+            } catch (IOException e) { // Not possible with ByteArrayInputStream
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (int k = 0; k < nKeys; k++) {
+                ImmutableBytesPtr key = new ImmutableBytesPtr(keyBytes, keyOffsets[k], keyLengths[k]);
+                sb.append("key: " + key + " value: " + new RowList(keyRowStarts[k], keyRowStarts[k + 1]));
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public void close() {
+            memoryChunk.close();
+        }
+
+        @Override
+        public List<Tuple> get(ImmutableBytesPtr hashKey) throws IOException {
+            int hash = hashKey.hashCode();
+            int mask = table.length - 1;
+            int slot = spread(hash) & mask;
+            int entry;
+            while ((entry = table[slot]) != 0) {
+                int k = entry - 1;
+                if (keyHashes[k] == hash && Bytes.equals(keyBytes, keyOffsets[k], keyLengths[k],
+                        hashKey.get(), hashKey.getOffset(), hashKey.getLength())) {
+                    int start = keyRowStarts[k];
+                    int end = keyRowStarts[k + 1];
+                    if (singleValueOnly && end - start > 1) {
+                        SQLException ex = new SQLExceptionInfo.Builder(SQLExceptionCode.SINGLE_ROW_SUBQUERY_RETURNS_MULTIPLE_ROWS).build().buildException();
+                        ClientUtil.throwIOException(ex.getMessage(), ex);
+                    }
+                    RowList rows = keyRowLists.get(k);
+                    if (rows == null) {
+                        rows = new RowList(start, end);
+                        if (keyRowLists.compareAndSet(k, null, rows)) {
+                            resizeForRows(rows.size());
+                        } else {
+                            // Another probe materialized the rows first
+                            rows = keyRowLists.get(k);
+                        }
+                    }
+                    return rows;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        @Override
+        public int getClientVersion() {
+            return clientVersion;
+        }
+
+        private synchronized void resizeForRows(int nRows) {
+            memoryChunk.resize(memoryChunk.getSize() + (long) nRows * SizedUtil.RESULT_SIZE
+                    + SizedUtil.OBJECT_SIZE + SizedUtil.ARRAY_SIZE
+                    + (long) nRows * SizedUtil.POINTER_SIZE);
+        }
+
+        // Byte array hashes are weak in their low bits, which are the ones used for the slot
+        private static int spread(int hash) {
+            int h = hash * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        /**
+         * Rows of one join key. The tuples share the serialized buffer.
+         */
+        private class RowList extends AbstractList<Tuple> implements RandomAccess {
+            private final Tuple[] tuples;
+
+            private RowList(int start, int end) {
+                this.tuples = new Tuple[end - start];
+                for (int i = 0; i < tuples.length; i++) {
+                    int position = start + i;
+                    tuples[i] = new ResultTuple(ResultUtil.toResult(new ImmutableBytesWritable(
+                            rowBytes, rowOffsets[position], rowLengths[position])));
+                }
+            }
+
+            @Override
+            public Tuple get(int index) {
+                return tuples[index];
+            }
+
+            @Override
+            public int size() {
+                return tuples.length;
+            }
+        }
+    }
+}
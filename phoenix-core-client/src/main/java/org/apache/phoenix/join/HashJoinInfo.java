@@ -51,6 +51,11 @@ public class HashJoinInfo {
     private Expression postJoinFilterExpression;
     private Integer limit;
     private boolean forceProjection; // always true now, but for backward compatibility.
+    // Set when the join runs as multiple passes, each over one hash partition of the
+    // join key of joinExpressions[partitionJoinIndex]. -1 means no partitioning.
+    private int partitionJoinIndex = -1;
+    private int numPartitions = 1;
+    private int partition = 0;
     
     public HashJoinInfo(PTable joinedTable, ImmutableBytesPtr[] joinIds, List<Expression>[] joinExpressions, JoinType[] joinTypes, boolean[] earlyEvaluation, PTable[] tables, int[] fieldPositions, Expression postJoinFilterExpression, Integer limit) {
     	this(buildSchema(joinedTable), joinIds, joinExpressions, joinTypes, earlyEvaluation, buildSchemas(tables), fieldPositions, postJoinFilterExpression, limit, true);
@@ -128,6 +133,51 @@ public class HashJoinInfo {
     public boolean forceProjection() {
         return forceProjection;
     }
+
+    public int getPartitionJoinIndex() {
+        return partitionJoinIndex;
+    }
+
+    public int getNumPartitions() {
+        return numPartitions;
+    }
+
+    public int getPartition() {
+        return partition;
+    }
+
+    /**
+     * Restricts the join to the rows whose join key for the given join falls into the
+     * given hash partition. Used to run a hash join whose build side does not fit into
+     * the server cache as a sequence of passes, one partition at a time.
+     */
+    public void setPartition(int partitionJoinIndex, int numPartitions, int partition) {
+        this.partitionJoinIndex = partitionJoinIndex;
+        this.numPartitions = numPartitions;
+        this.partition = partition;
+    }
+
+    public void clearPartition() {
+        setPartition(-1, 1, 0);
+    }
+
+    public boolean isPartitioned() {
+        return partitionJoinIndex >= 0;
+    }
+
+    /**
+     * @return true if the given join key belongs to the current partition, or if the
+     * join is not partitioned at all.
+     */
+    public boolean isInPartition(ImmutableBytesPtr key) {
+        return !isPartitioned() || getPartition(key, numPartitions) == partition;
+    }
+
+    public static int getPartition(ImmutableBytesPtr key, int numPartitions) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return (h & Integer.MAX_VALUE) % numPartitions;
+    }
  
     public static void serializeHashJoinIntoScan(Scan scan, HashJoinInfo joinInfo) {
         ByteArrayOutputStream stream = new ByteArrayOutputStream();
@@ -156,6 +206,9 @@ public class HashJoinInfo {
             }
             WritableUtils.writeVInt(output, joinInfo.limit == null ? -1 : joinInfo.limit);
             output.writeBoolean(joinInfo.forceProjection);
+            WritableUtils.writeVInt(output, joinInfo.partitionJoinIndex);
+            WritableUtils.writeVInt(output, joinInfo.numPartitions);
+            WritableUtils.writeVInt(output, joinInfo.partition);
             scan.setAttribute(HASH_JOIN, stream.toByteArray());
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -169,6 +222,10 @@ public class HashJoinInfo {
 
     }
 
+    public static boolean isHashJoin(Scan scan) {
+        return scan.getAttribute(HASH_JOIN) != null;
+    }
+
     @SuppressWarnings("unchecked")
     public static HashJoinInfo deserializeHashJoinFromScan(Scan scan) {
         byte[] join = scan.getAttribute(HASH_JOIN);
@@ -213,6 +270,9 @@ public class HashJoinInfo {
             }
             int limit = -1;
             boolean forceProjection = false;
+            int partitionJoinIndex = -1;
+            int numPartitions = 1;
+            int partition = 0;
             // Read these and ignore if we don't find them as they were not
             // present in Apache Phoenix 3.0.0 release. This allows a newer
             // 3.1 server to work with an older 3.0 client without force
@@ -220,9 +280,16 @@ public class HashJoinInfo {
             try {
                 limit = WritableUtils.readVInt(input);
                 forceProjection = input.readBoolean();
+                partitionJoinIndex = WritableUtils.readVInt(input);
+                numPartitions = WritableUtils.readVInt(input);
+                partition = WritableUtils.readVInt(input);
             } catch (EOFException ignore) {
             }
-            return new HashJoinInfo(joinedSchema, joinIds, joinExpressions, joinTypes, earlyEvaluation, schemas, fieldPositions, postJoinFilterExpression, limit >= 0 ? limit : null,  forceProjection);
+            HashJoinInfo joinInfo = new HashJoinInfo(joinedSchema, joinIds, joinExpressions, joinTypes, earlyEvaluation, schemas, fieldPositions, postJoinFilterExpression, limit >= 0 ? limit : null,  forceProjection);
+            if (partitionJoinIndex >= 0) {
+                joinInfo.setPartition(partitionJoinIndex, numPartitions, partition);
+            }
+            return joinInfo;
         } catch (IOException e) {
             throw new RuntimeException(e);
         } finally {
@@ -62,7 +62,12 @@ import static org.apache.phoenix.monitoring.MetricType.HA_PARALLEL_TASK_TIMEOUT_
 import static org.apache.phoenix.monitoring.MetricType.HA_PARALLEL_CONNECTION_FALLBACK_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.HA_PARALLEL_CONNECTION_CREATED_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.HA_PARALLEL_CONNECTION_ERROR_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.CLIENT_METADATA_CACHE_ESTIMATED_USED_SIZE;
+import static org.apache.phoenix.monitoring.MetricType.CLIENT_METADATA_CACHE_EVICTION_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.CLIENT_METADATA_CACHE_HIT_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.CLIENT_METADATA_CACHE_LOOKUP_TIME_NS;
+import static org.apache.phoenix.monitoring.MetricType.CLIENT_PARSED_STATEMENT_CACHE_HIT_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.CLIENT_PARSED_STATEMENT_CACHE_MISS_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.CLIENT_METADATA_CACHE_MISS_COUNTER;
 
 import static org.apache.phoenix.monitoring.MetricType.COUNT_RPC_CALLS;
@@ -161,6 +166,11 @@ public enum GlobalClientMetrics {
 
     GLOBAL_CLIENT_METADATA_CACHE_MISS_COUNTER(CLIENT_METADATA_CACHE_MISS_COUNTER),
     GLOBAL_CLIENT_METADATA_CACHE_HIT_COUNTER(CLIENT_METADATA_CACHE_HIT_COUNTER),
+    GLOBAL_CLIENT_METADATA_CACHE_EVICTION_COUNTER(CLIENT_METADATA_CACHE_EVICTION_COUNTER),
+    GLOBAL_CLIENT_METADATA_CACHE_ESTIMATED_USED_SIZE(CLIENT_METADATA_CACHE_ESTIMATED_USED_SIZE),
+    GLOBAL_CLIENT_METADATA_CACHE_LOOKUP_TIME_NS(CLIENT_METADATA_CACHE_LOOKUP_TIME_NS),
+    GLOBAL_CLIENT_PARSED_STATEMENT_CACHE_MISS_COUNTER(CLIENT_PARSED_STATEMENT_CACHE_MISS_COUNTER),
+    GLOBAL_CLIENT_PARSED_STATEMENT_CACHE_HIT_COUNTER(CLIENT_PARSED_STATEMENT_CACHE_HIT_COUNTER),
     GLOBAL_CLIENT_STALE_METADATA_CACHE_EXCEPTION_COUNTER(STALE_METADATA_CACHE_EXCEPTION_COUNTER);
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GlobalClientMetrics.class);
@@ -132,6 +132,8 @@ public enum MetricType {
     // spool metrics
     SPOOL_FILE_SIZE("ss", "Size of spool files created in bytes",LogLevel.DEBUG, PLong.INSTANCE),
     SPOOL_FILE_COUNTER("sn", "Number of spool files created",LogLevel.DEBUG, PLong.INSTANCE),
+    SPOOL_FILE_WRITE_TIME_MS("sw", "Time in milliseconds spent writing spool files",LogLevel.DEBUG, PLong.INSTANCE),
+    SPOOL_FILE_READ_TIME_MS("sr", "Time in milliseconds spent reading spool files",LogLevel.DEBUG, PLong.INSTANCE),
     // misc metrics
     MEMORY_CHUNK_BYTES("mc", "Number of bytes allocated by the memory manager",LogLevel.DEBUG, PLong.INSTANCE),
     MEMORY_WAIT_TIME("mw", "Number of milliseconds threads needed to wait for memory to be allocated through memory manager",LogLevel.DEBUG, PLong.INSTANCE),
@@ -149,6 +151,19 @@ public enum MetricType {
                                                 ", not including throttled connections", LogLevel.OFF, PLong.INSTANCE),
     CLIENT_METADATA_CACHE_MISS_COUNTER("cmcm", "Number of cache misses for the CQSI cache.", LogLevel.DEBUG, PLong.INSTANCE),
     CLIENT_METADATA_CACHE_HIT_COUNTER("cmch", "Number of cache hits for the CQSI cache.", LogLevel.DEBUG, PLong.INSTANCE),
+    CLIENT_METADATA_CACHE_EVICTION_COUNTER("cmce",
+            "Number of tables evicted from the CQSI cache because of its size limit.",
+            LogLevel.DEBUG, PLong.INSTANCE),
+    CLIENT_METADATA_CACHE_ESTIMATED_USED_SIZE("cmcu",
+            "Estimated number of bytes used by the tables in the CQSI cache.",
+            LogLevel.DEBUG, PLong.INSTANCE),
+    CLIENT_METADATA_CACHE_LOOKUP_TIME_NS("cmclt",
+            "Time in nanoseconds spent looking up tables in the CQSI cache.",
+            LogLevel.DEBUG, PLong.INSTANCE),
+    CLIENT_PARSED_STATEMENT_CACHE_MISS_COUNTER("cpscm",
+            "Number of cache misses for the parsed statement cache.", LogLevel.DEBUG, PLong.INSTANCE),
+    CLIENT_PARSED_STATEMENT_CACHE_HIT_COUNTER("cpsch",
+            "Number of cache hits for the parsed statement cache.", LogLevel.DEBUG, PLong.INSTANCE),
     PAGED_ROWS_COUNTER("prc", "Number of dummy rows returned to client due to paging.", LogLevel.DEBUG, PLong.INSTANCE),
     STALE_METADATA_CACHE_EXCEPTION_COUNTER("smce",
             "Number of StaleMetadataCacheException encountered.",
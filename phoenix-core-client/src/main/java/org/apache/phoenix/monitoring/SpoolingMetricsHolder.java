@@ -27,11 +27,15 @@ public class SpoolingMetricsHolder {
 
     private final CombinableMetric spoolFileSizeMetric;
     private final CombinableMetric numSpoolFileMetric;
+    private final CombinableMetric spoolFileWriteTimeMetric;
+    private final CombinableMetric spoolFileReadTimeMetric;
     public static final SpoolingMetricsHolder NO_OP_INSTANCE = new SpoolingMetricsHolder(new ReadMetricQueue(false,LogLevel.OFF), "");
 
     public SpoolingMetricsHolder(ReadMetricQueue readMetrics, String tableName) {
         this.spoolFileSizeMetric = readMetrics.allotMetric(MetricType.SPOOL_FILE_SIZE, tableName);
         this.numSpoolFileMetric = readMetrics.allotMetric(MetricType.SPOOL_FILE_COUNTER, tableName);
+        this.spoolFileWriteTimeMetric = readMetrics.allotMetric(MetricType.SPOOL_FILE_WRITE_TIME_MS, tableName);
+        this.spoolFileReadTimeMetric = readMetrics.allotMetric(MetricType.SPOOL_FILE_READ_TIME_MS, tableName);
     }
 
     public CombinableMetric getSpoolFileSizeMetric() {
@@ -41,4 +45,18 @@ public class SpoolingMetricsHolder {
     public CombinableMetric getNumSpoolFileMetric() {
         return numSpoolFileMetric;
     }
+
+    /**
+     * Together with {@link #getSpoolFileSizeMetric()} gives the write throughput of spool files.
+     */
+    public CombinableMetric getSpoolFileWriteTimeMetric() {
+        return spoolFileWriteTimeMetric;
+    }
+
+    /**
+     * Together with {@link #getSpoolFileSizeMetric()} gives the read throughput of spool files.
+     */
+    public CombinableMetric getSpoolFileReadTimeMetric() {
+        return spoolFileReadTimeMetric;
+    }
 }
@@ -134,6 +134,13 @@ public class HintNode {
          * Override the default CDC include scopes.
          */
         CDC_INCLUDE,
+
+        /**
+         * Write the rows of an UPSERT SELECT, along with the rows of its indexes, into
+         * HFiles and bulk load them instead of issuing mutations. Ignored for transactional
+         * tables and for mutable tables with indexes.
+         */
+        BULK_LOAD,
         ;
     };
 
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.parse;
+
+import org.apache.phoenix.monitoring.GlobalClientMetrics;
+
+import org.apache.phoenix.thirdparty.com.google.common.cache.Cache;
+import org.apache.phoenix.thirdparty.com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded cache of parsed statements keyed by their normalized SQL text, shared by all the
+ * connections of a driver. Parsing does not depend on the schema or on the bind values, and parse
+ * nodes are not modified when a statement is compiled, so a cached statement may be compiled any
+ * number of times, concurrently, by different connections. A cached SELECT statement also keeps
+ * the rewrite of its last compilation, see {@link org.apache.phoenix.util.ParseNodeUtil.CachedRewrite},
+ * so that the bind independent rewrite steps are skipped as well.
+ *
+ * @since 5.3.0
+ */
+public class ParsedStatementCache {
+    private final Cache<String, BindableStatement> cache;
+
+    /**
+     * @param maxSize the maximum number of statements to cache, 0 to disable the cache
+     */
+    public ParsedStatementCache(int maxSize) {
+        cache = maxSize <= 0 ? null : CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Returns the cache key of the given SQL text. Every run of whitespace outside of string
+     * literals, quoted identifiers and comments is replaced with a single space, so that statements
+     * that only differ in their layout share the same entry.
+     */
+    public static String normalize(String sql) {
+        StringBuilder buf = new StringBuilder(sql.length());
+        int length = sql.length();
+        boolean pendingSpace = false;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\u2002' || c == '\r' || c == '\n') {
+                pendingSpace = buf.length() > 0;
+                i++;
+                continue;
+            }
+            if (pendingSpace) {
+                buf.append(' ');
+                pendingSpace = false;
+            }
+            int end = i + 1;
+            if (c == '\'' || c == '"') {
+                while (end < length) {
+                    char next = sql.charAt(end++);
+                    if (next == '\\' && c == '\'' && end < length) {
+                        end++;
+                    } else if (next == c) {
+                        if (end < length && sql.charAt(end) == c) {
+                            end++;
+                        } else {
+                            break;
+                        }
+                    }
+                }
+            } else if (end < length && ((c == '-' && sql.charAt(end) == '-')
+                    || (c == '/' && sql.charAt(end) == '/'))) {
+                // A single line comment ends with the line, which must be kept
+                int eol = end;
+                while (eol < length && sql.charAt(eol) != '\r' && sql.charAt(eol) != '\n') {
+                    eol++;
+                }
+                end = Math.min(eol + 1, length);
+            } else if (c == '/' && end < length && sql.charAt(end) == '*') {
+                int commentEnd = sql.indexOf("*/", end + 1);
+                end = commentEnd < 0 ? length : commentEnd + 2;
+            }
+            buf.append(sql, i, end);
+            i = end;
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Returns the statement previously parsed from SQL text with the given normalized text, or
+     * null if it is not cached.
+     */
+    public BindableStatement get(String sql) {
+        if (cache == null) {
+            return null;
+        }
+        BindableStatement statement = cache.getIfPresent(sql);
+        if (statement == null) {
+            GlobalClientMetrics.GLOBAL_CLIENT_PARSED_STATEMENT_CACHE_MISS_COUNTER.increment();
+        } else {
+            GlobalClientMetrics.GLOBAL_CLIENT_PARSED_STATEMENT_CACHE_HIT_COUNTER.increment();
+        }
+        return statement;
+    }
+
+    public void put(String sql, BindableStatement statement) {
+        if (cache != null) {
+            cache.put(sql, statement);
+        }
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public long size() {
+        return cache == null ? 0 : cache.size();
+    }
+}
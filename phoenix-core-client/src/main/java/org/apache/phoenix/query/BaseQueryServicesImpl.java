@@ -23,6 +23,7 @@ import org.apache.phoenix.job.JobManager;
 import org.apache.phoenix.memory.GlobalMemoryManager;
 import org.apache.phoenix.memory.MemoryManager;
 import org.apache.phoenix.optimize.QueryOptimizer;
+import org.apache.phoenix.parse.ParsedStatementCache;
 import org.apache.phoenix.util.ReadOnlyProps;
 
 
@@ -36,9 +37,11 @@ import org.apache.phoenix.util.ReadOnlyProps;
  */
 public abstract class BaseQueryServicesImpl implements QueryServices {
     private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor asyncExecutor;
     private final MemoryManager memoryManager;
     private final ReadOnlyProps props;
     private final QueryOptimizer queryOptimizer;
+    private final ParsedStatementCache parsedStatementCache;
     
     public BaseQueryServicesImpl(ReadOnlyProps defaultProps, QueryServicesOptions options) {
         this.executor =  JobManager.createThreadPoolExec(
@@ -46,10 +49,18 @@ public abstract class BaseQueryServicesImpl implements QueryServices {
                 options.getThreadPoolSize(), 
                 options.getQueueSize(),
                 options.isGlobalMetricsEnabled());
+        this.asyncExecutor = JobManager.createThreadPoolExec(
+                options.getKeepAliveMs(),
+                options.getAsyncThreadPoolSize(),
+                options.getQueueSize(),
+                false);
         this.memoryManager = new GlobalMemoryManager(
                 Runtime.getRuntime().maxMemory() * options.getMaxMemoryPerc() / 100);
         this.props = options.getProps(defaultProps);
         this.queryOptimizer = new QueryOptimizer(this);
+        this.parsedStatementCache = new ParsedStatementCache(props.getInt(
+                MAX_CLIENT_PARSED_STATEMENT_CACHE_SIZE_ATTRIB,
+                QueryServicesOptions.DEFAULT_MAX_CLIENT_PARSED_STATEMENT_CACHE_SIZE));
     }
     
     @Override
@@ -57,6 +68,11 @@ public abstract class BaseQueryServicesImpl implements QueryServices {
         return executor;
     }
 
+    @Override
+    public ThreadPoolExecutor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
     @Override
     public MemoryManager getMemoryManager() {
         return memoryManager;
@@ -76,5 +92,10 @@ public abstract class BaseQueryServicesImpl implements QueryServices {
     @Override
     public QueryOptimizer getOptimizer() {
         return queryOptimizer;
-    }   
+    }
+
+    @Override
+    public ParsedStatementCache getParsedStatementCache() {
+        return parsedStatementCache;
+    }
 }
@@ -22,12 +22,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HRegionLocation;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.AsyncConnection;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.client.TableDescriptor;
@@ -171,6 +173,15 @@ public interface ConnectionQueryServices extends QueryServices, MetaDataMutated
      */
     public MetaDataMutationResult getTable(PName tenantId, byte[] schemaName, byte[] tableName,
             long tableTimestamp, long clientTimetamp) throws SQLException;
+    /**
+     * Gets the latest version of each of the given cached tables, with one RPC per
+     * SYSTEM.CATALOG region the tables are in
+     * @param tables tables present in the client side cache
+     * @param clientTimestamp if the client connection has an scn, the scn
+     * @return a result for each of the tables, in the same order, as getTable would return it
+     */
+    public List<MetaDataMutationResult> getTables(List<PTable> tables, long clientTimestamp)
+            throws SQLException;
     public MetaDataMutationResult getFunctions(PName tenantId, List<Pair<byte[], Long>> functionNameAndTimeStampPairs, long clientTimestamp) throws SQLException;
 
     public MetaDataMutationResult createTable(List<Mutation> tableMetaData, byte[] tableName, PTableType tableType,
@@ -198,6 +209,19 @@ public interface ConnectionQueryServices extends QueryServices, MetaDataMutated
 
     public int getLowestClusterHBaseVersion();
     public Admin getAdmin() throws SQLException;
+
+    /**
+     * Get (and create if necessary) the HBase async connection shared by all Phoenix
+     * connections of this CQS. The connection is set up without blocking the caller; the
+     * returned future completes exceptionally if async access is not supported.
+     *
+     * @return future of the async connection. Callers must not close it.
+     */
+    default CompletableFuture<AsyncConnection> getAsyncConnection() {
+        CompletableFuture<AsyncConnection> future = new CompletableFuture<>();
+        future.completeExceptionally(new UnsupportedOperationException());
+        return future;
+    }
     void refreshLiveRegionServers() throws SQLException;
     List<ServerName> getLiveRegionServers();
 
@@ -147,6 +147,7 @@ import org.apache.hadoop.hbase.TableExistsException;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.Append;
+import org.apache.hadoop.hbase.client.AsyncConnection;
 import org.apache.hadoop.hbase.client.CheckAndMutate;
 import org.apache.hadoop.hbase.client.ClusterConnection;
 import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
@@ -162,6 +163,7 @@ import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.client.TableDescriptor;
 import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
 import org.apache.hadoop.hbase.client.coprocessor.Batch;
+import org.apache.hadoop.hbase.exceptions.UnknownProtocolException;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.ipc.CoprocessorRpcUtils.BlockingRpcCallback;
 import org.apache.hadoop.hbase.ipc.HBaseRpcController;
@@ -198,6 +200,8 @@ import org.apache.phoenix.coprocessor.generated.MetaDataProtos.DropTableRequest;
 import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetFunctionsRequest;
 import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetSchemaRequest;
 import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetTableRequest;
+import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetTablesRequest;
+import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetTablesResponse;
 import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetVersionRequest;
 import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetVersionResponse;
 import org.apache.phoenix.coprocessor.generated.MetaDataProtos.MetaDataResponse;
@@ -220,6 +224,7 @@ import org.apache.phoenix.exception.UpgradeInProgressException;
 import org.apache.phoenix.exception.UpgradeNotRequiredException;
 import org.apache.phoenix.exception.UpgradeRequiredException;
 import org.apache.phoenix.execute.MutationState;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.hbase.index.util.KeyValueBuilder;
 import org.apache.phoenix.hbase.index.util.VersionUtil;
 import org.apache.phoenix.index.PhoenixIndexCodec;
@@ -300,6 +305,7 @@ import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.SchemaUtil;
 import org.apache.phoenix.util.StringUtil;
 import org.apache.phoenix.util.UpgradeUtil;
+import org.apache.phoenix.util.ValidateLastDDLTimestampUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -343,6 +349,10 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
     // writes guarded by "latestMetaDataLock"
     private volatile PMetaData latestMetaData;
     private final Object latestMetaDataLock = new Object();
+    // Coalesces concurrent getTable RPCs for the same table, null if disabled
+    private final InFlightCallCoalescer<ImmutableBytesPtr, CoalescedGetTableResult> getTableCoalescer;
+    // false once the SYSTEM.CATALOG region servers turn out to be too old for getTables
+    private volatile boolean getTablesSupported = true;
 
     // Lowest HBase version on the cluster.
     private int lowestClusterHBaseVersion = Integer.MAX_VALUE;
@@ -375,6 +385,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
     // List of queues instead of a single queue to provide reduced contention via lock striping
     private final List<LinkedBlockingQueue<WeakReference<PhoenixConnection>>> connectionQueues;
     private ScheduledExecutorService renewLeaseExecutor;
+    private ScheduledExecutorService lastDDLTimestampPollExecutor;
     // Use TransactionFactory.Provider.values() here not TransactionFactory.Provider.available()
     // because the array will be indexed by ordinal.
     private PhoenixTransactionClient[] txClients = new PhoenixTransactionClient[Provider.values().length];
@@ -404,6 +415,9 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
     // Writes guarded by invalidateMetadataCacheConnLock
     private Connection invalidateMetadataCacheConnection = null;
     private final Object invalidateMetadataCacheConnLock = new Object();
+    // Writes guarded by asyncConnectionLock
+    private volatile CompletableFuture<AsyncConnection> asyncConnection = null;
+    private final Object asyncConnectionLock = new Object();
     private MetricsMetadataCachingSource metricsMetadataCachingSource;
     public static final String INVALIDATE_SERVER_METADATA_CACHE_EX_MESSAGE =
             "Cannot invalidate server metadata cache on a non-server connection";
@@ -485,6 +499,10 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
         String hbaseVersion = VersionInfo.getVersion();
         this.kvBuilder = KeyValueBuilder.get(hbaseVersion);
         this.returnSequenceValues = props.getBoolean(QueryServices.RETURN_SEQUENCE_VALUES_ATTRIB, QueryServicesOptions.DEFAULT_RETURN_SEQUENCE_VALUES);
+        this.getTableCoalescer = props.getBoolean(
+                QueryServices.COALESCE_GET_TABLE_RPCS_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_COALESCE_GET_TABLE_RPCS_ENABLED)
+                ? new InFlightCallCoalescer<ImmutableBytesPtr, CoalescedGetTableResult>() : null;
         this.renewLeaseEnabled = config.getBoolean(RENEW_LEASE_ENABLED, DEFAULT_RENEW_LEASE_ENABLED);
         this.renewLeasePoolSize = config.getInt(RENEW_LEASE_THREAD_POOL_SIZE, DEFAULT_RENEW_LEASE_THREAD_POOL_SIZE);
         this.renewLeaseThreshold = config.getInt(RENEW_LEASE_THRESHOLD_MILLISECONDS, DEFAULT_RENEW_LEASE_THRESHOLD_MILLISECONDS);
@@ -583,6 +601,42 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
         return invalidateMetadataCacheConnection;
     }
 
+    @Override
+    public CompletableFuture<AsyncConnection> getAsyncConnection() {
+        CompletableFuture<AsyncConnection> future = asyncConnection;
+        if (future != null && !future.isCompletedExceptionally()) {
+            return future;
+        }
+        synchronized (asyncConnectionLock) {
+            future = asyncConnection;
+            // Retry on the next call if establishing the connection failed
+            if (future == null || future.isCompletedExceptionally()) {
+                future = HBaseFactoryProvider.getHConnectionFactory().createAsyncConnection(config);
+                future.thenAccept(conn -> LOGGER.info("HBase async connection established: {}",
+                        conn));
+                asyncConnection = future;
+            }
+        }
+        return future;
+    }
+
+    private void closeAsyncConnection() {
+        CompletableFuture<AsyncConnection> future;
+        synchronized (asyncConnectionLock) {
+            future = asyncConnection;
+            asyncConnection = null;
+        }
+        if (future != null) {
+            future.thenAccept(conn -> {
+                try {
+                    conn.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to close HBase async connection " + conn, e);
+                }
+            });
+        }
+    }
+
     /**
      * Close the HBase connection and decrement the counter.
      * @throws IOException throws IOException
@@ -698,6 +752,9 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
                 try {
                     childServices.clear();
                     synchronized (latestMetaDataLock) {
+                        if (latestMetaData != null) {
+                            latestMetaData.clear();
+                        }
                         latestMetaData = null;
                         latestMetaDataLock.notifyAll();
                     }
@@ -705,10 +762,14 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
                         // close HBase connections.
                         closeConnection(this.connection);
                         closeConnection(this.invalidateMetadataCacheConnection);
+                        closeAsyncConnection();
                     } finally {
                         if (renewLeaseExecutor != null) {
                             renewLeaseExecutor.shutdownNow();
                         }
+                        if (lastDDLTimestampPollExecutor != null) {
+                            lastDDLTimestampPollExecutor.shutdownNow();
+                        }
                         // shut down the tx client service if we created one to support transactions
                         for (PhoenixTransactionClient client : txClients) {
                             if (client != null) {
@@ -2412,6 +2473,179 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
     @Override
     public MetaDataMutationResult getTable(final PName tenantId, final byte[] schemaBytes,
             final byte[] tableBytes, final long tableTimestamp, final long clientTimestamp) throws SQLException {
+        if (getTableCoalescer == null) {
+            return getTableFromServer(tenantId, schemaBytes, tableBytes, tableTimestamp,
+                    clientTimestamp);
+        }
+        final byte[] tenantIdBytes = tenantId == null ? ByteUtil.EMPTY_BYTE_ARRAY : tenantId.getBytes();
+        // Callers with different cached versions of the table share the call. The client
+        // timestamp has a fixed length, so the key of the call is unambiguous.
+        ImmutableBytesPtr callKey = new ImmutableBytesPtr(ByteUtil.concat(
+                SchemaUtil.getTableKey(tenantIdBytes, schemaBytes, tableBytes),
+                Bytes.toBytes(clientTimestamp)));
+        CoalescedGetTableResult result = getTableCoalescer.execute(callKey,
+                new InFlightCallCoalescer.Call<CoalescedGetTableResult>() {
+                    @Override
+                    public CoalescedGetTableResult call() throws SQLException {
+                        return new CoalescedGetTableResult(tableTimestamp,
+                                getTableFromServer(tenantId, schemaBytes, tableBytes,
+                                        tableTimestamp, clientTimestamp));
+                    }
+                }, r -> r.canBeSharedWith(tableTimestamp));
+        // Callers modify the result they get, so each of them gets its own copy
+        return new MetaDataMutationResult(result.result);
+    }
+
+    /**
+     * The result of a coalesced getTable RPC, along with the table timestamp it was made with.
+     * The server leaves out the table when it has the timestamp the caller already has cached,
+     * so such a result only answers callers that have the same timestamp cached.
+     */
+    private static class CoalescedGetTableResult {
+        private final long tableTimestamp;
+        private final MetaDataMutationResult result;
+
+        CoalescedGetTableResult(long tableTimestamp, MetaDataMutationResult result) {
+            this.tableTimestamp = tableTimestamp;
+            this.result = result;
+        }
+
+        boolean canBeSharedWith(long callerTableTimestamp) {
+            return result.getTable() != null
+                    || result.getMutationCode() != MutationCode.TABLE_ALREADY_EXISTS
+                    || tableTimestamp == callerTableTimestamp;
+        }
+    }
+
+    @Override
+    public List<MetaDataMutationResult> getTables(List<PTable> tables, final long clientTimestamp)
+            throws SQLException {
+        final byte[] systemCatalogName = SchemaUtil.getPhysicalName(
+                PhoenixDatabaseMetaData.SYSTEM_CATALOG_NAME_BYTES, this.getProps()).getName();
+        // Group the tables by the SYSTEM.CATALOG region of their header row
+        Map<String, List<Integer>> tablesByRegion = new HashMap<>();
+        for (int i = 0; i < tables.size(); i++) {
+            HRegionLocation location = getTableRegionLocation(systemCatalogName,
+                    SchemaUtil.getTableKey(tables.get(i)));
+            tablesByRegion.computeIfAbsent(location.getRegion().getEncodedName(),
+                    r -> new ArrayList<>()).add(i);
+        }
+        final int clientVersion = VersionUtil.encodeVersion(PHOENIX_MAJOR_VERSION,
+                PHOENIX_MINOR_VERSION, PHOENIX_PATCH_NUMBER);
+        MetaDataMutationResult[] results = new MetaDataMutationResult[tables.size()];
+        for (List<Integer> regionTables : tablesByRegion.values()) {
+            if (!getTablesSupported) {
+                getTablesOneByOne(tables, regionTables, clientTimestamp, results);
+                continue;
+            }
+            final GetTablesRequest.Builder requestBuilder = GetTablesRequest.newBuilder();
+            for (int i : regionTables) {
+                PTable table = tables.get(i);
+                GetTableRequest.Builder builder = GetTableRequest.newBuilder();
+                builder.setTenantId(ByteStringer.wrap(table.getTenantId() == null
+                        ? ByteUtil.EMPTY_BYTE_ARRAY : table.getTenantId().getBytes()));
+                builder.setSchemaName(ByteStringer.wrap(table.getSchemaName() == null
+                        ? ByteUtil.EMPTY_BYTE_ARRAY : table.getSchemaName().getBytes()));
+                builder.setTableName(ByteStringer.wrap(table.getTableName().getBytes()));
+                builder.setTableTimestamp(table.getTimeStamp());
+                builder.setClientTimestamp(clientTimestamp);
+                builder.setClientVersion(clientVersion);
+                requestBuilder.addTableRequests(builder.build());
+            }
+            byte[] tableKey = SchemaUtil.getTableKey(tables.get(regionTables.get(0)));
+            GetTablesResponse response = getTablesFromServer(systemCatalogName, tableKey,
+                    requestBuilder.build());
+            if (response == null) {
+                getTablesOneByOne(tables, regionTables, clientTimestamp, results);
+                continue;
+            }
+            List<MetaDataResponse> responses = response.getTableResponsesList();
+            // A table whose region split since it was located gets a TABLE_NOT_IN_REGION result
+            for (int j = 0; j < regionTables.size(); j++) {
+                results[regionTables.get(j)] =
+                        MetaDataMutationResult.constructFromProto(responses.get(j));
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private void getTablesOneByOne(List<PTable> tables, List<Integer> regionTables,
+            long clientTimestamp, MetaDataMutationResult[] results) throws SQLException {
+        for (int i : regionTables) {
+            PTable table = tables.get(i);
+            results[i] = getTable(table.getTenantId(), table.getSchemaName() == null
+                    ? ByteUtil.EMPTY_BYTE_ARRAY : table.getSchemaName().getBytes(),
+                    table.getTableName().getBytes(), table.getTimeStamp(), clientTimestamp);
+        }
+    }
+
+    /**
+     * Returns true if the exception is the one a server throws for a coprocessor method it does
+     * not implement, as a server older than the client does for getTables.
+     */
+    @VisibleForTesting
+    static boolean isUnknownMethodException(Throwable t) {
+        for (; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof UnknownProtocolException || (t instanceof RemoteException
+                    && UnknownProtocolException.class.getName().equals(
+                            ((RemoteException) t).getClassName()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns null if the SYSTEM.CATALOG region server does not implement getTables, in which
+     * case the tables have to be fetched one by one.
+     */
+    private GetTablesResponse getTablesFromServer(byte[] systemCatalogName, byte[] tableKey,
+            final GetTablesRequest request) throws SQLException {
+        boolean success = false;
+        long startTime = EnvironmentEdgeManager.currentTimeMillis();
+        Table ht = this.getTable(systemCatalogName);
+        try {
+            Map<byte[], GetTablesResponse> results = ht.coprocessorService(
+                    MetaDataService.class, tableKey, tableKey,
+                    new Batch.Call<MetaDataService, GetTablesResponse>() {
+                        @Override
+                        public GetTablesResponse call(MetaDataService instance) throws IOException {
+                            RpcController controller = getController();
+                            BlockingRpcCallback<GetTablesResponse> rpcCallback =
+                                    new BlockingRpcCallback<GetTablesResponse>();
+                            instance.getTables(controller, request, rpcCallback);
+                            checkForRemoteExceptions(controller);
+                            return rpcCallback.get();
+                        }
+                    });
+            assert(results.size() == 1);
+            success = true;
+            return results.values().iterator().next();
+        } catch (Throwable t) {
+            if (isUnknownMethodException(t)) {
+                // Stop asking until the client is restarted, by then the servers are upgraded
+                LOGGER.warn("The SYSTEM.CATALOG region servers do not support getTables,"
+                        + " getting the tables one by one", t);
+                getTablesSupported = false;
+                return null;
+            }
+            if (t instanceof IOException) {
+                throw ClientUtil.parseServerException(t);
+            }
+            throw new SQLException(t);
+        } finally {
+            long systemCatalogRpcTime = EnvironmentEdgeManager.currentTimeMillis() - startTime;
+            TableMetricsManager.updateMetricsForSystemCatalogTableMethod(null,
+                    TIME_SPENT_IN_SYSTEM_TABLE_RPC_CALLS, systemCatalogRpcTime);
+            TableMetricsManager.updateMetricsForSystemCatalogTableMethod(null,
+                    success ? NUM_SYSTEM_TABLE_RPC_SUCCESS : NUM_SYSTEM_TABLE_RPC_FAILURES, 1);
+            Closeables.closeQuietly(ht);
+        }
+    }
+
+    private MetaDataMutationResult getTableFromServer(final PName tenantId,
+            final byte[] schemaBytes, final byte[] tableBytes, final long tableTimestamp,
+            final long clientTimestamp) throws SQLException {
         final byte[] tenantIdBytes = tenantId == null ? ByteUtil.EMPTY_BYTE_ARRAY : tenantId.getBytes();
         byte[] tableKey = SchemaUtil.getTableKey(tenantIdBytes, schemaBytes, tableBytes);
         return metaDataCoprocessorExec( SchemaUtil.getPhysicalHBaseTableName(schemaBytes, tableBytes,
@@ -3783,6 +4017,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
                         } finally {
                             if (success) {
                                 scheduleRenewLeaseTasks();
+                                scheduleLastDDLTimestampPolling();
                             }
                             try {
                                 if (!success && hConnectionEstablished) {
@@ -5305,6 +5540,32 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
         }
     }
 
+    private void scheduleLastDDLTimestampPolling() {
+        long pollIntervalMs = props.getLong(QueryServices.LAST_DDL_TIMESTAMP_POLL_INTERVAL_MS,
+                QueryServicesOptions.DEFAULT_LAST_DDL_TIMESTAMP_POLL_INTERVAL_MS);
+        if (pollIntervalMs <= 0 || QueryUtil.isServerConnection(props)
+                || !ValidateLastDDLTimestampUtil.getValidateLastDdlTimestampEnabled(config)) {
+            return;
+        }
+        if (!config.getBoolean(PHOENIX_METADATA_INVALIDATE_CACHE_ENABLED,
+                DEFAULT_PHOENIX_METADATA_INVALIDATE_CACHE_ENABLED)) {
+            // No changes are logged unless the DDL operations invalidate the region server
+            // metadata caches, so the poller would only ever validate the tables once
+            LOGGER.warn("Not polling for last ddl timestamp changes since conf property"
+                    + " phoenix.metadata.invalidate.cache.enabled is set to false");
+            return;
+        }
+        int maxTablesPerRequest = props.getInt(
+                QueryServices.LAST_DDL_TIMESTAMP_POLL_MAX_TABLES_PER_REQUEST,
+                QueryServicesOptions.DEFAULT_LAST_DDL_TIMESTAMP_POLL_MAX_TABLES_PER_REQUEST);
+        lastDDLTimestampPollExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("PHOENIX-LAST-DDL-TIMESTAMP-POLLER-%d").build());
+        lastDDLTimestampPollExecutor.scheduleWithFixedDelay(
+                new LastDDLTimestampPoller(this, maxTablesPerRequest),
+                pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
     private static class RenewLeaseThreadFactory implements ThreadFactory {
         private static final AtomicInteger threadNumber = new AtomicInteger(1);
         private static final String NAME_PREFIX = "PHOENIX-SCANNER-RENEW-LEASE-thread-";
@@ -5347,6 +5608,10 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
     @Override
     public long clearCache() throws SQLException {
         synchronized (latestMetaDataLock) {
+            // Clear the previous cache so that its size is no longer accounted for
+            if (latestMetaData != null) {
+                latestMetaData.clear();
+            }
             latestMetaData = newEmptyMetaData();
         }
         tableStatsCache.invalidateAll();
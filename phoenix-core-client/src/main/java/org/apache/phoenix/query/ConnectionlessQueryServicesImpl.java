@@ -318,6 +318,17 @@ public class ConnectionlessQueryServicesImpl extends DelegateQueryServices imple
         }
     }
 
+    @Override
+    public List<MetaDataMutationResult> getTables(List<PTable> tables, long clientTimestamp)
+            throws SQLException {
+        List<MetaDataMutationResult> results = Lists.newArrayListWithExpectedSize(tables.size());
+        for (PTable table : tables) {
+            results.add(getTable(table.getTenantId(), table.getSchemaName().getBytes(),
+                    table.getTableName().getBytes(), table.getTimeStamp(), clientTimestamp));
+        }
+        return results;
+    }
+
     private static byte[] getTableName(List<Mutation> tableMetaData, byte[] physicalTableName) {
         if (physicalTableName != null) {
             return physicalTableName;
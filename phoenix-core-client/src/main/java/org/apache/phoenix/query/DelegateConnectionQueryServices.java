@@ -22,12 +22,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HRegionLocation;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.AsyncConnection;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.client.TableDescriptor;
@@ -152,6 +154,12 @@ public class DelegateConnectionQueryServices extends DelegateQueryServices imple
         return getDelegate().getTable(tenantId, schemaBytes, tableBytes, tableTimestamp, clientTimestamp);
     }
 
+    @Override
+    public List<MetaDataMutationResult> getTables(List<PTable> tables, long clientTimestamp)
+            throws SQLException {
+        return getDelegate().getTables(tables, clientTimestamp);
+    }
+
     @Override
     public MetaDataMutationResult createTable(List<Mutation> tableMetaData, byte[] physicalName, PTableType tableType,
                                               Map<String, Object> tableProps,
@@ -228,6 +236,11 @@ public class DelegateConnectionQueryServices extends DelegateQueryServices imple
         return getDelegate().getAdmin();
     }
 
+    @Override
+    public CompletableFuture<AsyncConnection> getAsyncConnection() {
+        return getDelegate().getAsyncConnection();
+    }
+
     @Override
     public TableDescriptor getTableDescriptor(byte[] tableName) throws SQLException {
         return getDelegate().getTableDescriptor(tableName);
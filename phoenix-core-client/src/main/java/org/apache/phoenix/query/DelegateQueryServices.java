@@ -22,6 +22,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.phoenix.memory.MemoryManager;
 import org.apache.phoenix.optimize.QueryOptimizer;
+import org.apache.phoenix.parse.ParsedStatementCache;
 import org.apache.phoenix.util.ReadOnlyProps;
 
 
@@ -50,6 +51,11 @@ public class DelegateQueryServices implements QueryServices {
         return parent.getExecutor();
     }
 
+    @Override
+    public ThreadPoolExecutor getAsyncExecutor() {
+        return parent.getAsyncExecutor();
+    }
+
     @Override
     public MemoryManager getMemoryManager() {
         return parent.getMemoryManager();
@@ -69,4 +75,9 @@ public class DelegateQueryServices implements QueryServices {
     public QueryOptimizer getOptimizer() {
         return parent.getOptimizer();
     }
+
+    @Override
+    public ParsedStatementCache getParsedStatementCache() {
+        return parent.getParsedStatementCache();
+    }
 }
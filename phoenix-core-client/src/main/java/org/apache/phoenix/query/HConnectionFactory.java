@@ -18,8 +18,10 @@
 package org.apache.phoenix.query;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.AsyncConnection;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
 
@@ -38,6 +40,16 @@ public interface HConnectionFactory {
      */
     Connection createConnection(Configuration conf) throws IOException;
 
+    /**
+     * Creates an async connection to access HBase clusters without blocking.
+     *
+     * @param conf object
+     * @return future of the AsyncConnection
+     */
+    default CompletableFuture<AsyncConnection> createAsyncConnection(Configuration conf) {
+        return ConnectionFactory.createAsyncConnection(conf);
+    }
+
     /**
      * Default implementation.  Uses standard HBase HConnections.
      */
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.query;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.exception.SQLExceptionInfo;
+
+/**
+ * Coalesces concurrent calls made with the same key into a single call. The first caller for a
+ * key runs the call, and the callers that arrive while it is in flight wait for it and get the
+ * same result, or the same exception. A call made after the in flight call completes runs again,
+ * so results are never cached beyond the duration of a call.
+ *
+ * @since 5.3.0
+ */
+public class InFlightCallCoalescer<K, V> {
+
+    public interface Call<V> {
+        V call() throws SQLException;
+    }
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlightCalls =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Runs the given call, or waits for the in flight call with the same key if there is one.
+     * The returned value may be shared by several callers, and so must not be modified.
+     */
+    public V execute(K key, Call<V> call) throws SQLException {
+        return execute(key, call, null);
+    }
+
+    /**
+     * Runs the given call, or waits for the in flight call with the same key if there is one.
+     * A caller that waited only uses the result of the in flight call if it is accepted by
+     * canShare, and otherwise runs its own call. The returned value may be shared by several
+     * callers, and so must not be modified.
+     */
+    public V execute(K key, Call<V> call, Predicate<V> canShare) throws SQLException {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlightCall = inFlightCalls.putIfAbsent(key, future);
+        if (inFlightCall != null) {
+            V result = waitFor(inFlightCall);
+            return canShare == null || canShare.test(result) ? result : call.call();
+        }
+        try {
+            V result = call.call();
+            future.complete(result);
+            return result;
+        } catch (SQLException | RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightCalls.remove(key, future);
+        }
+    }
+
+    private V waitFor(CompletableFuture<V> inFlightCall) throws SQLException {
+        try {
+            return inFlightCall.get();
+        } catch (InterruptedException e) {
+            // restore the interrupt status
+            Thread.currentThread().interrupt();
+            throw new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION)
+                    .setRootCause(e).build().buildException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    /**
+     * @return the number of calls currently in flight
+     */
+    public int getInFlightCallCount() {
+        return inFlightCalls.size();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.query;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.coprocessor.generated.RegionServerEndpointProtos;
+import org.apache.phoenix.schema.PMetaData;
+import org.apache.phoenix.schema.PName;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTableType;
+import org.apache.phoenix.util.ClientUtil;
+import org.apache.phoenix.util.SchemaUtil;
+import org.apache.phoenix.util.ValidateLastDDLTimestampUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Task that follows the metadata changes logged by a region server, and removes the changed
+ * tables, views and indexes from the client metadata cache so that they are fetched again the
+ * next time they are used. Every DDL operation invalidates the metadata cache of every region
+ * server, and each region server logs these invalidations, so the task follows a single region
+ * server. Each run gets the changes logged since the previous run without waiting for one, so
+ * clients can use long UPDATE_CACHE_FREQUENCY values and still see schema changes within the
+ * polling interval, at the cost of one short RPC to a region server per interval instead of one
+ * SYSTEM.CATALOG RPC per table.
+ * <p>
+ * The changes are only logged when the DDL operations invalidate the region server metadata
+ * caches, that is when phoenix.metadata.invalidate.cache.enabled is true.
+ * <p>
+ * When the task starts following a region server, or when the region server no longer has all
+ * the changes since the last run, the task cannot tell which tables changed. It then validates
+ * the last DDL timestamps of all the cached tables against that region server instead.
+ *
+ * @since 5.3.0
+ */
+public class LastDDLTimestampPoller implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LastDDLTimestampPoller.class);
+
+    private final ConnectionQueryServices services;
+    private final int maxTablesPerRequest;
+    // region server whose changes are followed, null until the first run and after a failure
+    private ServerName regionServer;
+    private long changeLogId;
+    private long sequenceNumber;
+    // The region servers are invalidated before a DDL operation is committed, so a changed
+    // table may be fetched again before the change is visible. The tables changed in the
+    // previous run are removed once more to cover this.
+    private List<RegionServerEndpointProtos.LastDDLTimestampChange> previousChanges =
+            Collections.emptyList();
+
+    public LastDDLTimestampPoller(ConnectionQueryServices services, int maxTablesPerRequest) {
+        this.services = services;
+        this.maxTablesPerRequest = maxTablesPerRequest;
+    }
+
+    @Override
+    public void run() {
+        try {
+            int staleTableCount = removeStaleTables();
+            if (staleTableCount > 0) {
+                LOGGER.info("Removed {} stale tables from the client metadata cache",
+                        staleTableCount);
+            }
+        } catch (Throwable t) {
+            // Follow another region server in the next interval, until then stale tables are
+            // handled as usual
+            regionServer = null;
+            LOGGER.warn("Unable to get the metadata changes of the cached tables", t);
+        }
+    }
+
+    @VisibleForTesting
+    int removeStaleTables() throws SQLException {
+        PMetaData metaData = services.getMetaDataCache();
+        if (metaData == null) {
+            // The services have been closed
+            return 0;
+        }
+        try (Admin admin = services.getAdmin()) {
+            boolean following = regionServer != null;
+            if (!following) {
+                List<ServerName> regionServers = services.getLiveRegionServers();
+                regionServer = regionServers.get(
+                        ThreadLocalRandom.current().nextInt(regionServers.size()));
+            }
+            RegionServerEndpointProtos.RegionServerEndpointService.BlockingInterface service =
+                    RegionServerEndpointProtos.RegionServerEndpointService
+                            .newBlockingStub(admin.coprocessorService(regionServer));
+            RegionServerEndpointProtos.GetLastDDLTimestampChangesRequest.Builder builder =
+                    RegionServerEndpointProtos.GetLastDDLTimestampChangesRequest.newBuilder();
+            if (following) {
+                builder.setChangeLogId(changeLogId);
+                builder.setSequenceNumber(sequenceNumber);
+            }
+            RegionServerEndpointProtos.GetLastDDLTimestampChangesResponse response =
+                    service.getLastDDLTimestampChanges(null, builder.build());
+            // Changes made from now on are returned by the next run
+            changeLogId = response.getChangeLogId();
+            sequenceNumber = response.getSequenceNumber();
+            if (!response.getComplete()) {
+                if (following) {
+                    LOGGER.info("Missed metadata changes on {}, validating all cached tables",
+                            regionServer);
+                }
+                previousChanges = Collections.emptyList();
+                return removeTables(ValidateLastDDLTimestampUtil.getStaleTables(service,
+                        getCachedTables(metaData), maxTablesPerRequest));
+            }
+            List<RegionServerEndpointProtos.LastDDLTimestampChange> changes =
+                    new ArrayList<>(previousChanges);
+            changes.addAll(response.getChangesList());
+            previousChanges = response.getChangesList();
+            return changes.isEmpty() ? 0 : removeTables(getChangedTables(metaData, changes));
+        } catch (Exception e) {
+            throw ClientUtil.parseServerException(e);
+        }
+    }
+
+    private static List<PTable> getCachedTables(PMetaData metaData) {
+        List<PTable> tables = new ArrayList<>(metaData.size());
+        for (PTable table : metaData) {
+            PTableType type = table.getType();
+            if ((type == PTableType.TABLE || type == PTableType.VIEW || type == PTableType.INDEX)
+                    && table.getLastDDLTimestamp() != null) {
+                tables.add(table);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Returns the cached tables that changed, or that embed a table that changed: the views of
+     * a changed table or view, and the tables and views of a changed index.
+     */
+    @VisibleForTesting
+    static List<PTable> getChangedTables(Iterable<PTable> cachedTables,
+            List<RegionServerEndpointProtos.LastDDLTimestampChange> changes) {
+        // tenants of each changed table name, with an empty tenant for a global table
+        Map<String, Set<String>> changedTables = new HashMap<>();
+        for (RegionServerEndpointProtos.LastDDLTimestampChange change : changes) {
+            String tableName = SchemaUtil.getTableName(change.getSchemaName().toByteArray(),
+                    change.getTableName().toByteArray());
+            changedTables.computeIfAbsent(tableName, t -> new HashSet<>())
+                    .add(Bytes.toString(change.getTenantId().toByteArray()));
+        }
+        List<PTable> tables = new ArrayList<>();
+        for (PTable table : cachedTables) {
+            String tenantId = table.getTenantId() == null ? "" : table.getTenantId().getString();
+            boolean changed = isChanged(changedTables, tenantId, table.getName())
+                    || isChanged(changedTables, tenantId, table.getParentName())
+                    || isChanged(changedTables, tenantId, table.getBaseTableLogicalName());
+            for (PTable index : table.getIndexes()) {
+                changed = changed || isChanged(changedTables, tenantId, index.getName());
+            }
+            if (changed) {
+                tables.add(table);
+            }
+        }
+        return tables;
+    }
+
+    private static boolean isChanged(Map<String, Set<String>> changedTables, String tenantId,
+            PName tableName) {
+        if (tableName == null) {
+            return false;
+        }
+        Set<String> tenantIds = changedTables.get(tableName.getString());
+        return tenantIds != null && (tenantIds.contains("") || tenantIds.contains(tenantId));
+    }
+
+    private int removeTables(List<PTable> staleTables) throws SQLException {
+        for (PTable table : staleTables) {
+            services.removeTable(table.getTenantId(), table.getName().getString(), null,
+                    HConstants.LATEST_TIMESTAMP);
+            // The parent of an index embeds the index, so it is stale as well
+            if (table.getType() == PTableType.INDEX && table.getParentName() != null) {
+                services.removeTable(table.getTenantId(), table.getParentName().getString(),
+                        null, HConstants.LATEST_TIMESTAMP);
+            }
+        }
+        return staleTables.size();
+    }
+}
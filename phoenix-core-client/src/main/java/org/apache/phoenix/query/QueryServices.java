@@ -22,6 +22,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 import org.apache.phoenix.iterate.SpoolTooBigToDiskException;
 import org.apache.phoenix.memory.MemoryManager;
 import org.apache.phoenix.optimize.QueryOptimizer;
+import org.apache.phoenix.parse.ParsedStatementCache;
 import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.SQLCloseable;
 
@@ -44,6 +45,17 @@ public interface QueryServices extends SQLCloseable {
     public static final String THREAD_POOL_SIZE_ATTRIB = "phoenix.query.threadPoolSize";
     public static final String QUEUE_SIZE_ATTRIB = "phoenix.query.queueSize";
     public static final String THREAD_TIMEOUT_MS_ATTRIB = "phoenix.query.timeoutMs";
+    // Threads for the blocking parts of asynchronous statement execution
+    public static final String ASYNC_THREAD_POOL_SIZE_ATTRIB = "phoenix.query.async.threadPoolSize";
+    // Run eligible point lookups of asynchronous queries through the HBase async client
+    public static final String ASYNC_POINT_LOOKUP_ENABLED_ATTRIB =
+            "phoenix.query.async.pointLookup.enabled";
+    // Minimum number of keys of a point lookup for it to be run as batched gets. Disabled by
+    // default (0), as gets skip the scanner coprocessors and change the plan of the query
+    public static final String MULTI_GET_POINT_LOOKUP_THRESHOLD_ATTRIB =
+            "phoenix.query.multiGet.pointLookupThreshold";
+    // Maximum number of gets sent at once by a batched point lookup
+    public static final String MULTI_GET_BATCH_SIZE_ATTRIB = "phoenix.query.multiGet.batchSize";
     public static final String SERVER_SPOOL_THRESHOLD_BYTES_ATTRIB =
             "phoenix.query.server.spoolThresholdBytes";
     public static final String CLIENT_SPOOL_THRESHOLD_BYTES_ATTRIB =
@@ -54,6 +66,29 @@ public interface QueryServices extends SQLCloseable {
             "phoenix.query.client.join.spooling.enabled";
     public static final String SERVER_ORDERBY_SPOOLING_ENABLED_ATTRIB =
             "phoenix.query.server.orderBy.spooling.enabled";
+    // Use an external merge sort of spilled runs for ORDER BY without LIMIT when spooling
+    public static final String CLIENT_ORDERBY_EXTERNAL_SORT_ENABLED_ATTRIB =
+            "phoenix.query.client.orderBy.externalSort.enabled";
+    public static final String SERVER_ORDERBY_EXTERNAL_SORT_ENABLED_ATTRIB =
+            "phoenix.query.server.orderBy.externalSort.enabled";
+    public static final String ORDERBY_EXTERNAL_SORT_RUN_BYTES_ATTRIB =
+            "phoenix.query.orderBy.externalSort.runBytes";
+    // Evaluate client side filters over batches of rows with vectorized expressions
+    public static final String CLIENT_VECTORIZED_FILTER_ENABLED_ATTRIB =
+            "phoenix.query.client.vectorizedFilter.enabled";
+    public static final String CLIENT_VECTORIZED_FILTER_BATCH_SIZE_ATTRIB =
+            "phoenix.query.client.vectorizedFilter.batchSize";
+    // Evaluate the post join filter of server side hash joins over batches of joined rows
+    public static final String SERVER_VECTORIZED_FILTER_ENABLED_ATTRIB =
+            "phoenix.query.server.vectorizedFilter.enabled";
+    public static final String SERVER_VECTORIZED_FILTER_BATCH_SIZE_ATTRIB =
+            "phoenix.query.server.vectorizedFilter.batchSize";
+    // Write client spool files through a buffer and read them back in batches from a
+    // memory mapped file instead of row by row through a stream
+    public static final String CLIENT_SPOOL_MAPPED_ENABLED_ATTRIB =
+            "phoenix.query.client.spool.mapped.enabled";
+    public static final String CLIENT_SPOOL_MAPPED_BATCH_BYTES_ATTRIB =
+            "phoenix.query.client.spool.mapped.batchBytes";
     public static final String HBASE_CLIENT_KEYTAB = "hbase.myclient.keytab";
     public static final String HBASE_CLIENT_PRINCIPAL = "hbase.myclient.principal";
     String QUERY_SERVICES_NAME = "phoenix.query.services.name";
@@ -103,8 +138,24 @@ public interface QueryServices extends SQLCloseable {
 
     public static final String MUTATE_BATCH_SIZE_ATTRIB = "phoenix.mutate.batchSize";
     public static final String MUTATE_BATCH_SIZE_BYTES_ATTRIB = "phoenix.mutate.batchSizeBytes";
+    // Keep several mutation batches of a table in flight at commit through the HBase async client
+    public static final String MUTATE_PIPELINE_ENABLED_ATTRIB = "phoenix.mutate.pipeline.enabled";
+    public static final String MUTATE_PIPELINE_MAX_IN_FLIGHT_BATCHES_ATTRIB =
+            "phoenix.mutate.pipeline.maxInFlightBatches";
     public static final String MAX_SERVER_CACHE_TIME_TO_LIVE_MS_ATTRIB = "phoenix.coprocessor.maxServerCacheTimeToLiveMs";
     public static final String MAX_SERVER_CACHE_PERSISTENCE_TIME_TO_LIVE_MS_ATTRIB = "phoenix.coprocessor.maxServerCachePersistenceTimeToLiveMs";
+    // Region server side: keep hash join caches in their serialized form behind an open
+    // addressing table of offsets instead of a map of deserialized tuples
+    public static final String COMPACT_HASH_CACHE_ENABLED_ATTRIB = "phoenix.coprocessor.compactHashCache.enabled";
+    // Replace the dynamic IN list filter derived from a hash join build side by a key range
+    // and a Bloom filter once the build side has at least HASH_JOIN_BLOOM_FILTER_MIN_KEYS keys
+    public static final String HASH_JOIN_BLOOM_FILTER_ENABLED_ATTRIB = "phoenix.query.hashJoin.bloomFilter.enabled";
+    public static final String HASH_JOIN_BLOOM_FILTER_MIN_KEYS_ATTRIB = "phoenix.query.hashJoin.bloomFilter.minKeys";
+    // Run a hash join whose build side is estimated to exceed the max server cache size as
+    // a sequence of passes over hash partitions of the join key, instead of failing. All
+    // region servers must be upgraded before enabling this.
+    public static final String HASH_JOIN_PARTITIONED_ENABLED_ATTRIB = "phoenix.query.hashJoin.partitioned.enabled";
+    public static final String HASH_JOIN_MAX_PARTITIONS_ATTRIB = "phoenix.query.hashJoin.maxPartitions";
     
     @Deprecated // Use FORCE_ROW_KEY_ORDER instead.
     public static final String ROW_KEY_ORDER_SALTED_TABLE_ATTRIB  = "phoenix.query.rowKeyOrderSaltedTable";
@@ -118,6 +169,9 @@ public interface QueryServices extends SQLCloseable {
     public static final String GROUPBY_SPILL_FILES_ATTRIB = "phoenix.groupby.spillFiles";
     public static final String GROUPBY_MAX_CACHE_SIZE_ATTRIB = "phoenix.groupby.maxCacheSize";
     public static final String GROUPBY_ESTIMATED_DISTINCT_VALUES_ATTRIB = "phoenix.groupby.estimatedDistinctValues";
+    // Use the compact, open addressing group by cache which keeps group keys and fixed width
+    // aggregator state in byte slabs. Takes precedence over GROUPBY_SPILLABLE_ATTRIB when set.
+    public static final String GROUPBY_COMPACT_CACHE_ENABLED_ATTRIB = "phoenix.groupby.compactCache.enabled";
     public static final String AGGREGATE_CHUNK_SIZE_INCREASE_ATTRIB = "phoenix.aggregate.chunk_size_increase";
 
     public static final String CALL_QUEUE_PRODUCER_ATTRIB_NAME = "CALL_QUEUE_PRODUCER";
@@ -137,7 +191,16 @@ public interface QueryServices extends SQLCloseable {
     public static final String SEQUENCE_CACHE_SIZE_ATTRIB = "phoenix.sequence.cacheSize";
     public static final String MAX_SERVER_METADATA_CACHE_TIME_TO_LIVE_MS_ATTRIB = "phoenix.coprocessor.maxMetaDataCacheTimeToLiveMs";
     public static final String MAX_SERVER_METADATA_CACHE_SIZE_ATTRIB = "phoenix.coprocessor.maxMetaDataCacheSize";
+    // Whether the server metadata cache keeps tables in their compact serialized form
+    public static final String COMPACT_SERVER_METADATA_CACHE_ENABLED_ATTRIB = "phoenix.coprocessor.compactMetaDataCache.enabled";
     public static final String MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB = "phoenix.client.maxMetaDataCacheSize";
+    // Whether concurrent getTable RPCs for the same table are coalesced into a single RPC
+    public static final String COALESCE_GET_TABLE_RPCS_ENABLED_ATTRIB = "phoenix.client.coalesceGetTableRpcs.enabled";
+    // Maximum number of parsed statements cached by the client, 0 to disable the cache
+    public static final String MAX_CLIENT_PARSED_STATEMENT_CACHE_SIZE_ATTRIB = "phoenix.client.maxParsedStatementCacheSize";
+    // Region server wide cache of data rows fetched by uncovered global index scans
+    public static final String INDEX_DATA_ROW_CACHE_ENABLED_ATTRIB = "phoenix.index.uncovered.dataRowCache.enabled";
+    public static final String INDEX_DATA_ROW_CACHE_SIZE_ATTRIB = "phoenix.index.uncovered.dataRowCache.maxSize";
     public static final String HA_GROUP_NAME_ATTRIB = "phoenix.ha.group";
     public static final String AUTO_UPGRADE_WHITELIST_ATTRIB = "phoenix.client.autoUpgradeWhiteList";
     // Mainly for testing to force spilling
@@ -154,6 +217,10 @@ public interface QueryServices extends SQLCloseable {
     public static final String INDEX_REBUILD_CLIENT_SCANNER_TIMEOUT_ATTRIB = "phoenix.index.rebuild.client.scanner.timeout";
     public static final String INDEX_REBUILD_RPC_RETRIES_COUNTER = "phoenix.index.rebuild.rpc.retries.counter";
     public static final String INDEX_REBUILD_RPC_RETRY_PAUSE_TIME = "phoenix.index.rebuild.rpc.retry.pause";
+    // How far before the checkpoint of the last incremental IndexTool rebuild the next one starts,
+    // to cover rows written with timestamps behind the clock of the client that ran the last one
+    public static final String INDEX_TOOL_INCREMENTAL_OVERLAP_TIME_ATTRIB =
+            "phoenix.index.tool.incremental.overlap.time";
 
     // Time interval to check if there is an index needs to be rebuild
     public static final String INDEX_FAILURE_HANDLING_REBUILD_INTERVAL_ATTRIB =
@@ -317,6 +384,16 @@ public interface QueryServices extends SQLCloseable {
     // whether to enable server side RS -> RS calls for upsert select statements
     public static final String ENABLE_SERVER_UPSERT_SELECT ="phoenix.client.enable.server.upsert.select";
 
+    // sink used by UPSERT SELECT statements with the BULK_LOAD hint to write and load HFiles
+    public static final String UPSERT_SELECT_BULK_LOAD_SINK_CLASS_ATTRIB =
+            "phoenix.upsert.select.bulkLoad.sinkClass";
+    // max bytes of cells buffered on the client before they're sorted and written to HFiles
+    public static final String UPSERT_SELECT_BULK_LOAD_BUFFER_BYTES_ATTRIB =
+            "phoenix.upsert.select.bulkLoad.bufferBytes";
+    // directory on the HBase file system where HFiles are staged before being loaded
+    public static final String UPSERT_SELECT_BULK_LOAD_STAGING_DIR_ATTRIB =
+            "phoenix.upsert.select.bulkLoad.stagingDir";
+
     public static final String PROPERTY_POLICY_PROVIDER_ENABLED = "phoenix.property.policy.provider.enabled";
 
     // whether to trigger mutations on the server at all (UPSERT/DELETE or DELETE FROM)
@@ -332,6 +409,10 @@ public interface QueryServices extends SQLCloseable {
 
     // whether to validate last ddl timestamps during client operations
     public static final String LAST_DDL_TIMESTAMP_VALIDATION_ENABLED = "phoenix.ddl.timestamp.validation.enabled";
+    // maximum time for clients to see the metadata changes of their cached tables, 0 to
+    // disable. Only used when last ddl timestamp validation is enabled
+    public static final String LAST_DDL_TIMESTAMP_POLL_INTERVAL_MS = "phoenix.ddl.timestamp.poll.interval.ms";
+    public static final String LAST_DDL_TIMESTAMP_POLL_MAX_TABLES_PER_REQUEST = "phoenix.ddl.timestamp.poll.max.tables.per.request";
 
     // Whether to enable cost-based-decision in the query optimizer
     public static final String COST_BASED_OPTIMIZER_ENABLED = "phoenix.costbased.optimizer.enabled";
@@ -510,6 +591,12 @@ public interface QueryServices extends SQLCloseable {
      * Get executor service used for parallel scans
      */
     public ThreadPoolExecutor getExecutor();
+    /**
+     * Get executor service used for the blocking parts of asynchronous statement execution.
+     * It is separate from {@link #getExecutor()} so that such tasks can never starve the
+     * parallel scans they wait on.
+     */
+    public ThreadPoolExecutor getAsyncExecutor();
     /**
      * Get the memory manager used to track memory usage
      */
@@ -525,4 +612,10 @@ public interface QueryServices extends SQLCloseable {
      * Get query optimizer used to choose the best query plan
      */
     public QueryOptimizer getOptimizer();
+
+    /**
+     * Get the cache of parsed statements shared by all connections
+     * @return ParsedStatementCache
+     */
+    public ParsedStatementCache getParsedStatementCache();
 }
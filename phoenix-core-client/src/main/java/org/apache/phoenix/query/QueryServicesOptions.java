@@ -21,6 +21,7 @@ import static org.apache.hadoop.hbase.HConstants.DEFAULT_HBASE_CLIENT_SCANNER_TI
 import static org.apache.phoenix.query.QueryServices.ALLOWED_LIST_FOR_TABLE_LEVEL_METRICS;
 import static org.apache.phoenix.query.QueryServices.ALLOW_ONLINE_TABLE_SCHEMA_UPDATE;
 import static org.apache.phoenix.query.QueryServices.ALLOW_VIEWS_ADD_NEW_CF_BASE_TABLE;
+import static org.apache.phoenix.query.QueryServices.ASYNC_THREAD_POOL_SIZE_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.AUTO_UPGRADE_ENABLED;
 import static org.apache.phoenix.query.QueryServices.CALL_QUEUE_PRODUCER_ATTRIB_NAME;
 import static org.apache.phoenix.query.QueryServices.CALL_QUEUE_ROUND_ROBIN_ATTRIB;
@@ -147,12 +148,25 @@ public class QueryServicesOptions {
     public static final int DEFAULT_QUEUE_SIZE = 5000;
     public static final int UNLIMITED_QUEUE_SIZE = -1;
     public static final int DEFAULT_THREAD_TIMEOUT_MS = 600000; // 10min
+    public static final int DEFAULT_ASYNC_THREAD_POOL_SIZE = 16;
+    public static final boolean DEFAULT_ASYNC_POINT_LOOKUP_ENABLED = true;
+    public static final int DEFAULT_MULTI_GET_POINT_LOOKUP_THRESHOLD = 0;
+    public static final int DEFAULT_MULTI_GET_BATCH_SIZE = 1000;
     public static final int DEFAULT_SPOOL_THRESHOLD_BYTES = 1024 * 1024 * 20; // 20m
     public static final int DEFAULT_SERVER_SPOOL_THRESHOLD_BYTES = 1024 * 1024 * 20; // 20m
     public static final int DEFAULT_CLIENT_SPOOL_THRESHOLD_BYTES = 1024 * 1024 * 20; // 20m
     public static final boolean DEFAULT_CLIENT_ORDERBY_SPOOLING_ENABLED = true;
     public static final boolean DEFAULT_CLIENT_JOIN_SPOOLING_ENABLED = true;
+    public static final boolean DEFAULT_CLIENT_SPOOL_MAPPED_ENABLED = false;
+    public static final int DEFAULT_CLIENT_SPOOL_MAPPED_BATCH_BYTES = 64 * 1024; // 64k
+    public static final boolean DEFAULT_CLIENT_VECTORIZED_FILTER_ENABLED = false;
+    public static final int DEFAULT_CLIENT_VECTORIZED_FILTER_BATCH_SIZE = 1024;
+    public static final boolean DEFAULT_SERVER_VECTORIZED_FILTER_ENABLED = false;
+    public static final int DEFAULT_SERVER_VECTORIZED_FILTER_BATCH_SIZE = 1024;
     public static final boolean DEFAULT_SERVER_ORDERBY_SPOOLING_ENABLED = true;
+    public static final boolean DEFAULT_CLIENT_ORDERBY_EXTERNAL_SORT_ENABLED = false;
+    public static final boolean DEFAULT_SERVER_ORDERBY_EXTERNAL_SORT_ENABLED = false;
+    public static final long DEFAULT_ORDERBY_EXTERNAL_SORT_RUN_BYTES = 1024 * 1024 * 20; // 20m
     public static final String DEFAULT_SPOOL_DIRECTORY = System.getProperty("java.io.tmpdir");
     public static final int DEFAULT_MAX_MEMORY_PERC = 15; // 15% of heap
     public static final int DEFAULT_MAX_TENANT_MEMORY_PERC = 100;
@@ -180,9 +194,17 @@ public class QueryServicesOptions {
     public final static int DEFAULT_MUTATE_BATCH_SIZE = 100; // Batch size for UPSERT SELECT and DELETE
     //Batch size in bytes for UPSERT, SELECT and DELETE. By default, 2MB
     public final static long DEFAULT_MUTATE_BATCH_SIZE_BYTES = 2097152;
+    public static final boolean DEFAULT_MUTATE_PIPELINE_ENABLED = false;
+    public static final int DEFAULT_MUTATE_PIPELINE_MAX_IN_FLIGHT_BATCHES = 4;
     // The only downside of it being out-of-sync is that the parallelization of the scan won't be as balanced as it could be.
     public static final int DEFAULT_MAX_SERVER_CACHE_TIME_TO_LIVE_MS = 30000; // 30 sec (with no activity)
     public static final int DEFAULT_MAX_SERVER_CACHE_PERSISTENCE_TIME_TO_LIVE_MS = 30 * 60000; // 30 minutes
+    public static final boolean DEFAULT_COMPACT_HASH_CACHE_ENABLED = false;
+    public static final boolean DEFAULT_HASH_JOIN_BLOOM_FILTER_ENABLED = false;
+    public static final int DEFAULT_HASH_JOIN_BLOOM_FILTER_MIN_KEYS = 10000;
+    public static final double DEFAULT_HASH_JOIN_BLOOM_FILTER_FALSE_POSITIVE_RATE = 0.01;
+    public static final boolean DEFAULT_HASH_JOIN_PARTITIONED_ENABLED = false;
+    public static final int DEFAULT_HASH_JOIN_MAX_PARTITIONS = 16;
     public static final int DEFAULT_SCAN_CACHE_SIZE = 1000;
     public static final int DEFAULT_MAX_INTRA_REGION_PARALLELIZATION = DEFAULT_MAX_QUERY_CONCURRENCY;
     public static final int DEFAULT_DISTINCT_VALUE_COMPRESS_THRESHOLD = 1024 * 1024 * 1; // 1 Mb
@@ -208,12 +230,19 @@ public class QueryServicesOptions {
     public static final int DEFAULT_GROUPBY_SPILL_FILES = 2;
     // Max size of 1st level main memory cache in bytes --> upper bound
     public static final long DEFAULT_GROUPBY_MAX_CACHE_MAX = 1024L*1024L*100L;  // 100 Mb
+    // Enable / disable the compact (byte slab backed) in memory group by cache
+    public static final boolean DEFAULT_GROUPBY_COMPACT_CACHE_ENABLED = false;
 
     public static final long DEFAULT_SEQUENCE_CACHE_SIZE = 100;  // reserve 100 sequences at a time
     public static final int GLOBAL_INDEX_CHECKER_ENABLED_MAP_EXPIRATION_MIN = 10;
     public static final long DEFAULT_MAX_SERVER_METADATA_CACHE_TIME_TO_LIVE_MS =  60000 * 30; // 30 mins
     public static final long DEFAULT_MAX_SERVER_METADATA_CACHE_SIZE =  1024L*1024L*20L; // 20 Mb
+    public static final boolean DEFAULT_COMPACT_SERVER_METADATA_CACHE_ENABLED = false;
+    public static final boolean DEFAULT_INDEX_DATA_ROW_CACHE_ENABLED = false;
+    public static final long DEFAULT_INDEX_DATA_ROW_CACHE_SIZE = 1024L*1024L*64L; // 64 Mb
     public static final long DEFAULT_MAX_CLIENT_METADATA_CACHE_SIZE =  1024L*1024L*10L; // 10 Mb
+    public static final int DEFAULT_MAX_CLIENT_PARSED_STATEMENT_CACHE_SIZE = 1000;
+    public static final boolean DEFAULT_COALESCE_GET_TABLE_RPCS_ENABLED = true;
     public static final int DEFAULT_GROUPBY_ESTIMATED_DISTINCT_VALUES = 1000;
     public static final int DEFAULT_CLOCK_SKEW_INTERVAL = 2000;
     public static final boolean DEFAULT_INDEX_FAILURE_HANDLING_REBUILD = true; // auto rebuild on
@@ -230,6 +259,7 @@ public class QueryServicesOptions {
     public static final long DEFAULT_INDEX_REBUILD_RPC_TIMEOUT = 30000 * 60; // 30 mins
     public static final long DEFAULT_INDEX_REBUILD_CLIENT_SCANNER_TIMEOUT = 30000 * 60; // 30 mins
     public static final int DEFAULT_INDEX_REBUILD_RPC_RETRIES_COUNTER = 5; // 5 total tries at rpc level
+    public static final long DEFAULT_INDEX_TOOL_INCREMENTAL_OVERLAP_TIME = 60000; // 1 min
     public static final int DEFAULT_INDEX_REBUILD_DISABLE_TIMESTAMP_THRESHOLD = 60000 * 60 * 24; // 24 hrs
     public static final long DEFAULT_INDEX_PENDING_DISABLE_THRESHOLD = 30000; // 30 secs
 
@@ -387,6 +417,8 @@ public class QueryServicesOptions {
     public static final long DEFAULT_UPDATE_CACHE_FREQUENCY
                 = (long) ConnectionProperty.UPDATE_CACHE_FREQUENCY.getValue("ALWAYS");
     public static final boolean DEFAULT_LAST_DDL_TIMESTAMP_VALIDATION_ENABLED = false;
+    public static final long DEFAULT_LAST_DDL_TIMESTAMP_POLL_INTERVAL_MS = 0; // disabled
+    public static final int DEFAULT_LAST_DDL_TIMESTAMP_POLL_MAX_TABLES_PER_REQUEST = 1000;
     public static final boolean DEFAULT_PHOENIX_METADATA_INVALIDATE_CACHE_ENABLED = false;
     public static final String DEFAULT_UPDATE_CACHE_FREQUENCY_FOR_PENDING_DISABLED_INDEX
                                                                             = Long.toString(0L);
@@ -416,6 +448,9 @@ public class QueryServicesOptions {
                                                                                     // encoded
     // RS -> RS calls for upsert select statements are disabled by default
     public static final boolean DEFAULT_ENABLE_SERVER_UPSERT_SELECT = false;
+    public static final String DEFAULT_UPSERT_SELECT_BULK_LOAD_SINK_CLASS =
+            "org.apache.phoenix.mapreduce.bulkload.HFileBulkUpsertSink";
+    public static final long DEFAULT_UPSERT_SELECT_BULK_LOAD_BUFFER_BYTES = 256 * 1024 * 1024L; // 256MB
 
     // By default generally allow server trigger mutations
     public static final boolean DEFAULT_ENABLE_SERVER_SIDE_DELETE_MUTATIONS = true;
@@ -702,6 +737,10 @@ public class QueryServicesOptions {
         return config.getInt(THREAD_POOL_SIZE_ATTRIB, DEFAULT_THREAD_POOL_SIZE);
     }
 
+    public int getAsyncThreadPoolSize() {
+        return config.getInt(ASYNC_THREAD_POOL_SIZE_ATTRIB, DEFAULT_ASYNC_THREAD_POOL_SIZE);
+    }
+
     public int getQueueSize() {
         return config.getInt(QUEUE_SIZE_ATTRIB, DEFAULT_QUEUE_SIZE);
     }
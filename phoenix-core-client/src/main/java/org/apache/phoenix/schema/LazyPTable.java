@@ -0,0 +1,561 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.coprocessor.generated.PTableProtos;
+import org.apache.phoenix.hbase.index.util.KeyValueBuilder;
+import org.apache.phoenix.index.IndexMaintainer;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.transform.TransformMaintainer;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.util.EncodedColumnsUtil;
+import org.apache.phoenix.util.SizedUtil;
+
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
+import org.apache.phoenix.thirdparty.com.google.common.base.Preconditions;
+import org.apache.phoenix.thirdparty.com.google.common.collect.ImmutableList;
+import org.apache.phoenix.thirdparty.com.google.common.collect.Lists;
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+
+/**
+ * {@link PTable} backed by the compact serialized form of a table,
+ * {@link PTableProtos.CompactPTable}. Only the table properties and the PK columns are
+ * materialized up front. Each other column is materialized on first access by name, each column
+ * family on first access by name or by the position of one of its columns, and the indexes when
+ * they are first requested. Operations that need the whole table, such as building rows or index
+ * maintainers, materialize it once from the compact form.
+ * <p>
+ * Metadata caches hold one instance per table, charged for {@link #getEstimatedSize()}, and hand
+ * out a {@link #copy()} of it to each caller, so that what a caller materializes is released
+ * with its copy rather than retained by the cache.
+ *
+ * @since 5.3.0
+ */
+public class LazyPTable extends DelegateTable {
+
+    private final PTableProtos.CompactPTable compactTable;
+    private final PTable header;
+    // Column family of each column in position order, 0 for a PK column or i + 1 for family i
+    private final int[] columnFamilyIndexes;
+    // Position of each column among the PK columns or the columns of its family
+    private final int[] columnRanks;
+    // Positions of the columns of each column family
+    private final int[][] familyColumnPositions;
+    private final List<LazyPTable> indexes;
+    private final int estimatedSize;
+
+    private final AtomicReferenceArray<PColumn> columns;
+    private final AtomicReferenceArray<PColumnFamily> families;
+    private final List<PColumn> columnList = new ColumnList();
+    private volatile List<PTable> indexList;
+    private volatile PTable table;
+
+    private LazyPTable(PTableProtos.CompactPTable compactTable) {
+        this(compactTable, PTableImpl.createFromProto(compactTable.getHeader()));
+    }
+
+    private LazyPTable(PTableProtos.CompactPTable compactTable, PTable header) {
+        super(header);
+        this.compactTable = compactTable;
+        this.header = header;
+        int columnCount = compactTable.getColumnFamilyIndexesCount();
+        int familyCount = compactTable.getFamiliesCount();
+        this.columnFamilyIndexes = new int[columnCount];
+        this.columnRanks = new int[columnCount];
+        int[] familySizes = new int[familyCount + 1];
+        for (int i = 0; i < columnCount; i++) {
+            int familyIndex = compactTable.getColumnFamilyIndexes(i);
+            columnFamilyIndexes[i] = familyIndex;
+            columnRanks[i] = familySizes[familyIndex]++;
+        }
+        this.familyColumnPositions = new int[familyCount][];
+        for (int i = 0; i < familyCount; i++) {
+            familyColumnPositions[i] = new int[familySizes[i + 1]];
+        }
+        for (int i = 0; i < columnCount; i++) {
+            if (columnFamilyIndexes[i] > 0) {
+                familyColumnPositions[columnFamilyIndexes[i] - 1][columnRanks[i]] = i;
+            }
+        }
+        List<LazyPTable> indexes = Lists.newArrayListWithExpectedSize(compactTable.getIndexesCount());
+        for (PTableProtos.CompactPTable index : compactTable.getIndexesList()) {
+            indexes.add(new LazyPTable(index));
+        }
+        this.indexes = ImmutableList.copyOf(indexes);
+        this.columns = new AtomicReferenceArray<>(columnCount);
+        this.families = new AtomicReferenceArray<>(familyCount);
+
+        long estimatedSize = SizedUtil.OBJECT_SIZE + 12 * SizedUtil.POINTER_SIZE
+                + header.getEstimatedSize() + compactTable.getSerializedSize()
+                + 5 * SizedUtil.ARRAY_SIZE + 3L * columnCount * SizedUtil.INT_SIZE
+                + 2L * (columnCount + familyCount) * SizedUtil.POINTER_SIZE
+                + SizedUtil.sizeOfArrayList(indexes.size());
+        for (PTableProtos.CompactPColumnFamily family : compactTable.getFamiliesList()) {
+            // Each column name is held as its own ByteString
+            estimatedSize += 2 * SizedUtil.OBJECT_SIZE + SizedUtil.ARRAY_SIZE
+                    + (long) family.getColumnNamesCount()
+                    * (SizedUtil.OBJECT_SIZE + SizedUtil.ARRAY_SIZE + SizedUtil.POINTER_SIZE);
+        }
+        for (LazyPTable index : indexes) {
+            // The compact form of an index is part of the one of its data table
+            estimatedSize += index.getEstimatedSize() - index.compactTable.getSerializedSize();
+        }
+        this.estimatedSize = (int) estimatedSize;
+    }
+
+    private LazyPTable(LazyPTable table) {
+        super(table.header);
+        this.compactTable = table.compactTable;
+        this.header = table.header;
+        this.columnFamilyIndexes = table.columnFamilyIndexes;
+        this.columnRanks = table.columnRanks;
+        this.familyColumnPositions = table.familyColumnPositions;
+        this.indexes = table.indexes;
+        this.estimatedSize = table.estimatedSize;
+        this.columns = new AtomicReferenceArray<>(columnFamilyIndexes.length);
+        this.families = new AtomicReferenceArray<>(familyColumnPositions.length);
+    }
+
+    /**
+     * Returns a lazily materialized form of the given table, which is only serialized if it is
+     * not already a {@link LazyPTable}.
+     */
+    public static LazyPTable of(PTable table) {
+        if (table instanceof LazyPTable) {
+            return ((LazyPTable) table).copy();
+        }
+        return new LazyPTable(toCompactProto(PTableImpl.toProto(table)));
+    }
+
+    /**
+     * Returns a table sharing the compact form of this one, without any of the columns, column
+     * families or indexes materialized so far.
+     */
+    public LazyPTable copy() {
+        return new LazyPTable(this);
+    }
+
+    /**
+     * Returns the serialized form of this table, built from its compact form without
+     * materializing it.
+     */
+    public PTableProtos.PTable toProto() {
+        return toProto(compactTable);
+    }
+
+    @VisibleForTesting
+    static PTableProtos.CompactPTable toCompactProto(PTableProtos.PTable table) {
+        PTableProtos.CompactPTable.Builder builder = PTableProtos.CompactPTable.newBuilder();
+        PTableProtos.PTable.Builder header = table.toBuilder().clearColumns().clearIndexes();
+        // Order the columns by position, as PTableImpl does
+        List<PTableProtos.PColumn> columns = Lists.newArrayList(table.getColumnsList());
+        Collections.sort(columns, (column1, column2) ->
+                Integer.compare(column1.getPosition(), column2.getPosition()));
+        if (table.getBucketNum() != PTableImpl.NO_SALTING) {
+            // The salt column is not serialized, but comes first
+            builder.addColumnFamilyIndexes(0);
+        }
+        Map<ByteString, Integer> familyIndexes = Maps.newHashMap();
+        List<PTableProtos.CompactPColumnFamily.Builder> families = Lists.newArrayList();
+        List<ByteString.Output> familyColumns = Lists.newArrayList();
+        try {
+            for (PTableProtos.PColumn column : columns) {
+                if (!column.hasFamilyNameBytes()) {
+                    header.addColumns(column);
+                    builder.addColumnFamilyIndexes(0);
+                    continue;
+                }
+                Integer familyIndex = familyIndexes.get(column.getFamilyNameBytes());
+                if (familyIndex == null) {
+                    familyIndex = families.size();
+                    familyIndexes.put(column.getFamilyNameBytes(), familyIndex);
+                    families.add(PTableProtos.CompactPColumnFamily.newBuilder()
+                            .setName(column.getFamilyNameBytes()));
+                    familyColumns.add(ByteString.newOutput());
+                }
+                families.get(familyIndex).addColumnNames(column.getColumnNameBytes());
+                column.toBuilder().setColumnNameBytes(ByteString.EMPTY).clearFamilyNameBytes()
+                        .build().writeDelimitedTo(familyColumns.get(familyIndex));
+                builder.addColumnFamilyIndexes(familyIndex + 1);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e); // Impossible
+        }
+        builder.setHeader(header);
+        for (int i = 0; i < families.size(); i++) {
+            builder.addFamilies(families.get(i).setColumns(familyColumns.get(i).toByteString()));
+        }
+        for (PTableProtos.PTable index : table.getIndexesList()) {
+            builder.addIndexes(toCompactProto(index));
+        }
+        return builder.build();
+    }
+
+    private static PTableProtos.PTable toProto(PTableProtos.CompactPTable compactTable) {
+        PTableProtos.PTable header = compactTable.getHeader();
+        PTableProtos.PTable.Builder builder = header.toBuilder().clearColumns();
+        int familyCount = compactTable.getFamiliesCount();
+        CodedInputStream[] familyColumns = new CodedInputStream[familyCount];
+        for (int i = 0; i < familyCount; i++) {
+            familyColumns[i] = compactTable.getFamilies(i).getColumns().newCodedInput();
+        }
+        int[] ranks = new int[familyCount + 1];
+        // The salt column is not serialized
+        int start = header.getBucketNum() == PTableImpl.NO_SALTING ? 0 : 1;
+        try {
+            for (int i = start; i < compactTable.getColumnFamilyIndexesCount(); i++) {
+                int familyIndex = compactTable.getColumnFamilyIndexes(i);
+                int rank = ranks[familyIndex]++;
+                if (familyIndex == 0) {
+                    builder.addColumns(header.getColumns(rank));
+                } else {
+                    builder.addColumns(toColumnProto(compactTable.getFamilies(familyIndex - 1),
+                            rank, familyColumns[familyIndex - 1].readBytes()));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        for (PTableProtos.CompactPTable index : compactTable.getIndexesList()) {
+            builder.addIndexes(toProto(index));
+        }
+        return builder.build();
+    }
+
+    private static PTableProtos.PColumn toColumnProto(PTableProtos.CompactPColumnFamily family,
+            int rank, ByteString column) throws IOException {
+        return PTableProtos.PColumn.newBuilder().mergeFrom(column)
+                .setColumnNameBytes(family.getColumnNames(rank))
+                .setFamilyNameBytes(family.getName())
+                .build();
+    }
+
+    private PTable getTable() {
+        PTable table = this.table;
+        if (table == null) {
+            table = PTableImpl.createFromProto(toProto());
+            this.table = table;
+        }
+        return table;
+    }
+
+    private PColumn getColumn(int position) {
+        PColumn column = columns.get(position);
+        if (column == null) {
+            int familyIndex = columnFamilyIndexes[position];
+            if (familyIndex == 0) {
+                column = setColumn(position, header.getPKColumns().get(columnRanks[position]));
+            } else {
+                // Materialize the whole family, so that iterating over the columns is linear
+                column = getFamily(familyIndex - 1).getColumns().get(columnRanks[position]);
+            }
+        }
+        return column;
+    }
+
+    private PColumn getFamilyColumn(int familyIndex, int rank) {
+        int position = familyColumnPositions[familyIndex][rank];
+        PColumn column = columns.get(position);
+        if (column == null) {
+            try {
+                CodedInputStream in =
+                        compactTable.getFamilies(familyIndex).getColumns().newCodedInput();
+                for (int i = 0; i < rank; i++) {
+                    in.skipRawBytes(in.readRawVarint32());
+                }
+                column = setColumn(position, newColumn(familyIndex, rank, in.readBytes()));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return column;
+    }
+
+    private PColumn newColumn(int familyIndex, int rank, ByteString column) throws IOException {
+        return PColumnImpl.createFromProto(
+                toColumnProto(compactTable.getFamilies(familyIndex), rank, column));
+    }
+
+    // Keeps the first instance materialized for a column, so that it is the only one handed out
+    private PColumn setColumn(int position, PColumn column) {
+        return columns.compareAndSet(position, null, column) ? column : columns.get(position);
+    }
+
+    private PColumnFamily getFamily(int familyIndex) {
+        PColumnFamily family = families.get(familyIndex);
+        if (family == null) {
+            int[] positions = familyColumnPositions[familyIndex];
+            List<PColumn> familyColumns = Lists.newArrayListWithExpectedSize(positions.length);
+            try {
+                CodedInputStream in =
+                        compactTable.getFamilies(familyIndex).getColumns().newCodedInput();
+                for (int rank = 0; rank < positions.length; rank++) {
+                    PColumn column = columns.get(positions[rank]);
+                    if (column == null) {
+                        column = setColumn(positions[rank],
+                                newColumn(familyIndex, rank, in.readBytes()));
+                    } else {
+                        in.skipRawBytes(in.readRawVarint32());
+                    }
+                    familyColumns.add(column);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            family = new PColumnFamilyImpl(familyColumns.get(0).getFamilyName(), familyColumns);
+            if (!families.compareAndSet(familyIndex, null, family)) {
+                family = families.get(familyIndex);
+            }
+        }
+        return family;
+    }
+
+    private int getFamilyIndex(ByteString familyName) {
+        for (int i = 0; i < compactTable.getFamiliesCount(); i++) {
+            if (compactTable.getFamilies(i).getName().equals(familyName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Returns the columns with the given name in position order, materializing only those
+    private List<PColumn> getColumnsForColumnName(String name) {
+        ByteString nameBytes = ByteString.copyFromUtf8(name);
+        List<PColumn> matches = Collections.emptyList();
+        for (int position = 0; position < columnFamilyIndexes.length; position++) {
+            int familyIndex = columnFamilyIndexes[position];
+            int rank = columnRanks[position];
+            PColumn column = null;
+            if (familyIndex == 0) {
+                PColumn pkColumn = header.getPKColumns().get(rank);
+                // The salt column cannot be referenced by name
+                if (pkColumn != SaltingUtil.SALTING_COLUMN
+                        && pkColumn.getName().getString().equals(name)) {
+                    column = getColumn(position);
+                }
+            } else if (compactTable.getFamilies(familyIndex - 1).getColumnNames(rank)
+                    .equals(nameBytes)) {
+                column = getFamilyColumn(familyIndex - 1, rank);
+            }
+            if (column != null) {
+                if (matches.isEmpty()) {
+                    matches = Lists.newArrayListWithExpectedSize(1);
+                }
+                matches.add(column);
+            }
+        }
+        return matches;
+    }
+
+    private String getSchemaNameString() {
+        return getSchemaName() == null ? null : getSchemaName().getString();
+    }
+
+    private String getTableNameString() {
+        return getTableName() == null ? null : getTableName().getString();
+    }
+
+    @Override
+    public List<PColumn> getColumns() {
+        return columnList;
+    }
+
+    @Override
+    public List<PColumnFamily> getColumnFamilies() {
+        List<PColumnFamily> families = Lists.newArrayListWithExpectedSize(
+                familyColumnPositions.length);
+        for (int i = 0; i < familyColumnPositions.length; i++) {
+            families.add(getFamily(i));
+        }
+        return Collections.unmodifiableList(families);
+    }
+
+    @Override
+    public boolean hasOnlyPkColumns() {
+        return familyColumnPositions.length == 0;
+    }
+
+    @Override
+    public PColumnFamily getColumnFamily(byte[] family) throws ColumnFamilyNotFoundException {
+        int familyIndex = getFamilyIndex(ByteString.copyFrom(family));
+        if (familyIndex < 0) {
+            throw new ColumnFamilyNotFoundException(getSchemaNameString(), getTableNameString(),
+                    Bytes.toString(family));
+        }
+        return getFamily(familyIndex);
+    }
+
+    @Override
+    public PColumnFamily getColumnFamily(String family) throws ColumnFamilyNotFoundException {
+        int familyIndex = getFamilyIndex(ByteString.copyFromUtf8(family));
+        if (familyIndex < 0) {
+            throw new ColumnFamilyNotFoundException(getSchemaNameString(), getTableNameString(),
+                    family);
+        }
+        return getFamily(familyIndex);
+    }
+
+    @Override
+    public PColumn getColumnForColumnName(String name)
+            throws ColumnNotFoundException, AmbiguousColumnException {
+        List<PColumn> columns = getColumnsForColumnName(name);
+        if (columns.isEmpty()) {
+            throw new ColumnNotFoundException(getSchemaNameString(), getTableNameString(), null,
+                    name);
+        }
+        if (columns.size() > 1) {
+            for (PColumn column : columns) {
+                // Allow ambiguity with a PK column or a column in the default column family,
+                // as PTableImpl does
+                if (column.getFamilyName() == null || QueryConstants.DEFAULT_COLUMN_FAMILY
+                        .equals(column.getFamilyName().getString())) {
+                    return column;
+                }
+            }
+            throw new AmbiguousColumnException(name);
+        }
+        return columns.get(0);
+    }
+
+    @Override
+    public PColumn getColumnForColumnQualifier(byte[] cf, byte[] cq)
+            throws ColumnNotFoundException, AmbiguousColumnException {
+        Preconditions.checkNotNull(cq);
+        if (!EncodedColumnsUtil.usesEncodedColumnNames(this) || cf == null) {
+            return getColumnForColumnName((String) PVarchar.INSTANCE.toObject(cq));
+        }
+        int familyIndex = getFamilyIndex(ByteString.copyFrom(cf));
+        if (familyIndex >= 0) {
+            for (PColumn column : getFamily(familyIndex).getColumns()) {
+                if (Bytes.equals(column.getColumnQualifierBytes(), cq)) {
+                    return column;
+                }
+            }
+        }
+        throw new ColumnNotFoundException(getSchemaNameString(), getTableNameString(), null,
+                "No column found for column qualifier " + getEncodingScheme().decode(cq));
+    }
+
+    @Override
+    public PColumn getPKColumn(String name) throws ColumnNotFoundException {
+        try {
+            return header.getPKColumn(name);
+        } catch (ColumnNotFoundException e) {
+            // PTableImpl returns a non PK column if it is the only column with that name
+            List<PColumn> columns = getColumnsForColumnName(name);
+            if (columns.size() == 1) {
+                return columns.get(0);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public List<PTable> getIndexes() {
+        List<PTable> indexList = this.indexList;
+        if (indexList == null) {
+            List<PTable> copies = Lists.newArrayListWithExpectedSize(indexes.size());
+            for (LazyPTable index : indexes) {
+                copies.add(index.copy());
+            }
+            indexList = ImmutableList.copyOf(copies);
+            this.indexList = indexList;
+        }
+        return indexList;
+    }
+
+    @Override
+    public PRow newRow(KeyValueBuilder builder, long ts, ImmutableBytesWritable key,
+            boolean hasOnDupKey, byte[]... values) {
+        return getTable().newRow(builder, ts, key, hasOnDupKey, values);
+    }
+
+    @Override
+    public PRow newRow(KeyValueBuilder builder, ImmutableBytesWritable key, boolean hasOnDupKey,
+            byte[]... values) {
+        return getTable().newRow(builder, key, hasOnDupKey, values);
+    }
+
+    @Override
+    public boolean getIndexMaintainers(ImmutableBytesWritable ptr, PhoenixConnection connection)
+            throws SQLException {
+        return getTable().getIndexMaintainers(ptr, connection);
+    }
+
+    @Override
+    public IndexMaintainer getIndexMaintainer(PTable dataTable, PhoenixConnection connection)
+            throws SQLException {
+        return getTable().getIndexMaintainer(dataTable, connection);
+    }
+
+    @Override
+    public IndexMaintainer getIndexMaintainer(PTable dataTable, PTable cdcTable,
+            PhoenixConnection connection) throws SQLException {
+        return getTable().getIndexMaintainer(dataTable, cdcTable, connection);
+    }
+
+    @Override
+    public TransformMaintainer getTransformMaintainer(PTable oldTable,
+            PhoenixConnection connection) {
+        return getTable().getTransformMaintainer(oldTable, connection);
+    }
+
+    @Override
+    public int getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    @VisibleForTesting
+    int getMaterializedColumnCount() {
+        int count = 0;
+        for (int i = 0; i < columns.length(); i++) {
+            if (columns.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private class ColumnList extends AbstractList<PColumn> implements RandomAccess {
+        @Override
+        public PColumn get(int index) {
+            return getColumn(index);
+        }
+
+        @Override
+        public int size() {
+            return columnFamilyIndexes.length;
+        }
+    }
+}
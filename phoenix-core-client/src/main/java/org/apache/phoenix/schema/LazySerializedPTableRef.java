@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema;
+
+/**
+ * {@link PTableRef} that keeps the table as a {@link LazyPTable}, in its compact serialized form.
+ * The cache is charged for that form only. Each lookup gets its own copy of the table, which
+ * materializes columns, column families and indexes as they are accessed and releases them when
+ * the caller is done with it.
+ *
+ * @since 5.3.0
+ */
+public class LazySerializedPTableRef extends PTableRef {
+
+    private final LazyPTable table;
+
+    public LazySerializedPTableRef(LazyPTable table, long lastAccessTime, long resolvedTime) {
+        super(lastAccessTime, resolvedTime, table.getEstimatedSize());
+        this.table = table;
+    }
+
+    public LazySerializedPTableRef(LazySerializedPTableRef tableRef) {
+        super(tableRef.getCreateTime(), tableRef.getResolvedTimeStamp(),
+                tableRef.getEstimatedSize());
+        this.table = tableRef.table;
+    }
+
+    @Override
+    public PTable getTable() {
+        return table.copy();
+    }
+}
@@ -774,49 +774,122 @@ public class MetaDataClient {
                 return true;
             }
 
-            final long effectiveUpdateCacheFreq;
-            final String ucfInfoForLogging; // Only used for logging purposes
-
-            // What if the table is created with UPDATE_CACHE_FREQUENCY explicitly set to ALWAYS?
-            // i.e. explicitly set to 0. We should ideally be checking for something like
-            // hasUpdateCacheFrequency().
-
-            //always fetch an Index in PENDING_DISABLE state to retrieve server timestamp
-            //QueryOptimizer needs that to decide whether the index can be used
-            if (PIndexState.PENDING_DISABLE.equals(table.getIndexState())) {
-                effectiveUpdateCacheFreq =
-                        (Long) ConnectionProperty.UPDATE_CACHE_FREQUENCY.getValue(
-                            connection.getQueryServices().getProps().get(
-                  QueryServices.UPDATE_CACHE_FREQUENCY_FOR_PENDING_DISABLED_INDEX,
-                  QueryServicesOptions.DEFAULT_UPDATE_CACHE_FREQUENCY_FOR_PENDING_DISABLED_INDEX));
-                ucfInfoForLogging = "pending-disable-index-level";
-            } else if (table.getUpdateCacheFrequency()
-                    != QueryServicesOptions.DEFAULT_UPDATE_CACHE_FREQUENCY) {
-                effectiveUpdateCacheFreq = table.getUpdateCacheFrequency();
-                ucfInfoForLogging = "table-level";
-            } else {
-                effectiveUpdateCacheFreq =
-                        (Long) ConnectionProperty.UPDATE_CACHE_FREQUENCY.getValue(
-                                connection.getQueryServices().getProps().get(
-                                        QueryServices.DEFAULT_UPDATE_CACHE_FREQUENCY_ATRRIB));
-                ucfInfoForLogging = connection.getQueryServices().getProps().get(
-                        QueryServices.DEFAULT_UPDATE_CACHE_FREQUENCY_ATRRIB) != null ?
-                        "connection-level" : "default";
-            }
-
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Using " + ucfInfoForLogging + " Update Cache Frequency (value = " +
-                        effectiveUpdateCacheFreq + "ms) for " + table.getName() +
-                        (table.getTenantId() != null ? ", Tenant ID: " + table.getTenantId() : ""));
-            }
-
             return (table.getRowTimestampColPos() == -1 &&
                     connection.getMetaDataCache().getAge(tableRef) <
-                            effectiveUpdateCacheFreq);
+                            getEffectiveUpdateCacheFrequency(table));
         }
         return false;
     }
 
+    private long getEffectiveUpdateCacheFrequency(PTable table) {
+        final long effectiveUpdateCacheFreq;
+        final String ucfInfoForLogging; // Only used for logging purposes
+
+        // What if the table is created with UPDATE_CACHE_FREQUENCY explicitly set to ALWAYS?
+        // i.e. explicitly set to 0. We should ideally be checking for something like
+        // hasUpdateCacheFrequency().
+
+        //always fetch an Index in PENDING_DISABLE state to retrieve server timestamp
+        //QueryOptimizer needs that to decide whether the index can be used
+        if (PIndexState.PENDING_DISABLE.equals(table.getIndexState())) {
+            effectiveUpdateCacheFreq =
+                    (Long) ConnectionProperty.UPDATE_CACHE_FREQUENCY.getValue(
+                        connection.getQueryServices().getProps().get(
+              QueryServices.UPDATE_CACHE_FREQUENCY_FOR_PENDING_DISABLED_INDEX,
+              QueryServicesOptions.DEFAULT_UPDATE_CACHE_FREQUENCY_FOR_PENDING_DISABLED_INDEX));
+            ucfInfoForLogging = "pending-disable-index-level";
+        } else if (table.getUpdateCacheFrequency()
+                != QueryServicesOptions.DEFAULT_UPDATE_CACHE_FREQUENCY) {
+            effectiveUpdateCacheFreq = table.getUpdateCacheFrequency();
+            ucfInfoForLogging = "table-level";
+        } else {
+            effectiveUpdateCacheFreq =
+                    (Long) ConnectionProperty.UPDATE_CACHE_FREQUENCY.getValue(
+                            connection.getQueryServices().getProps().get(
+                                    QueryServices.DEFAULT_UPDATE_CACHE_FREQUENCY_ATRRIB));
+            ucfInfoForLogging = connection.getQueryServices().getProps().get(
+                    QueryServices.DEFAULT_UPDATE_CACHE_FREQUENCY_ATRRIB) != null ?
+                    "connection-level" : "default";
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Using " + ucfInfoForLogging + " Update Cache Frequency (value = " +
+                    effectiveUpdateCacheFreq + "ms) for " + table.getName() +
+                    (table.getTenantId() != null ? ", Tenant ID: " + table.getTenantId() : ""));
+        }
+        return effectiveUpdateCacheFreq;
+    }
+
+    /**
+     * Refreshes the cached tables among the given ones whose cache entries are older than their
+     * UPDATE_CACHE_FREQUENCY, with one getTables RPC per SYSTEM.CATALOG region instead of one
+     * getTable RPC per table. Later calls to updateCache for these tables then use the cache.
+     * Tables that are not cached, or that updateCache always gets from the server, are left to
+     * updateCache.
+     * @param tableNames tables that are about to be resolved with updateCache
+     */
+    public void updateCacheOfExpiredTables(List<TableName> tableNames) throws SQLException {
+        PName tenantId = connection.getTenantId();
+        long resolvedTimestamp = TransactionUtil.getResolvedTimestamp(connection, false,
+                HConstants.LATEST_TIMESTAMP);
+        List<PTable> expiredTables = Lists.newArrayListWithExpectedSize(tableNames.size());
+        for (TableName tableName : tableNames) {
+            if (SYSTEM_CATALOG_SCHEMA.equals(tableName.getSchemaName()) || tableName.getTableName()
+                    .contains(QueryConstants.CHILD_VIEW_INDEX_NAME_SEPARATOR)) {
+                continue;
+            }
+            String fullTableName = SchemaUtil.getTableName(tableName.getSchemaName(),
+                    tableName.getTableName());
+            PTableRef tableRef;
+            try {
+                tableRef = connection.getTableRef(new PTableKey(tenantId, fullTableName));
+            } catch (TableNotFoundException e) {
+                if (tenantId == null) {
+                    continue;
+                }
+                try {
+                    // updateCache looks up the global table for a tenant specific connection
+                    tableRef = connection.getTableRef(new PTableKey(null, fullTableName));
+                } catch (TableNotFoundException e1) {
+                    continue;
+                }
+            }
+            PTable table = tableRef.getTable();
+            if (!table.isTransactional() && table.getRowTimestampColPos() == -1
+                    && getEffectiveUpdateCacheFrequency(table) > 0
+                    && !avoidRpcToGetTable(false, resolvedTimestamp, false, table, tableRef,
+                            table.getTimeStamp())
+                    && !expiredTables.contains(table)) {
+                expiredTables.add(table);
+            }
+        }
+        // A single table costs a single getTable RPC anyway
+        if (expiredTables.size() < 2) {
+            return;
+        }
+        List<MetaDataMutationResult> results =
+                connection.getQueryServices().getTables(expiredTables, resolvedTimestamp);
+        for (int i = 0; i < expiredTables.size(); i++) {
+            MetaDataMutationResult result = results.get(i);
+            PTable table = expiredTables.get(i);
+            if (result.getTable() != null) {
+                addTableToCache(result, false);
+            } else if (result.getMutationCode() == MutationCode.TABLE_ALREADY_EXISTS) {
+                // The cached table is up to date, as in updateCache
+                result.setTable(table);
+                long resolvedTime = TransactionUtil.getResolvedTime(connection, result);
+                if (addColumnsIndexesAndLastDDLTimestampsFromAncestors(result,
+                        resolvedTimestamp, true, false)) {
+                    updateIndexesWithAncestorMap(result);
+                    connection.addTable(result.getTable(), resolvedTime);
+                } else {
+                    connection.updateResolvedTimestamp(table, resolvedTime);
+                }
+            }
+            // Any other result is handled when updateCache gets the table on its own
+        }
+    }
+
     public MetaDataMutationResult updateCache(String schemaName) throws SQLException {
         return updateCache(schemaName, false);
     }
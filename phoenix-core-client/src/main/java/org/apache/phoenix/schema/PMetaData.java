@@ -34,4 +34,8 @@ public interface PMetaData extends MetaDataMutated, Iterable<PTable> {
     public void pruneFunctions(Pruner pruner);
     public long getAge(PTableRef ref);
     public PSchema getSchema(PTableKey key) throws SchemaNotFoundException;
+    /**
+     * Removes all the cached tables, functions and schemas
+     */
+    public void clear();
 }
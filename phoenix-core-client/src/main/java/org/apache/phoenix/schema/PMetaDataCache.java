@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.phoenix.jdbc.PhoenixDatabaseMetaData;
+import org.apache.phoenix.monitoring.GlobalClientMetrics;
 import org.apache.phoenix.parse.PFunction;
 import org.apache.phoenix.parse.PSchema;
 import org.apache.phoenix.thirdparty.com.google.common.cache.CacheBuilder;
@@ -52,18 +53,20 @@ class PMetaDataCache {
                         String key = notification.getKey().toString();
                         LOGGER.debug("Expiring " + key + " because of "
                                 + notification.getCause().name());
+                        if (notification.wasEvicted()) {
+                            GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_EVICTION_COUNTER
+                                    .increment();
+                        }
+                        GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_ESTIMATED_USED_SIZE
+                                .update(-getWeight(notification.getKey(),
+                                        notification.getValue()));
                     }
                 })
                 .maximumWeight(maxByteSize)
                 .weigher(new Weigher<PTableKey, PTableRef>() {
                     @Override
                     public int weigh(PTableKey tableKey, PTableRef tableRef) {
-                        if (PhoenixDatabaseMetaData.SYSTEM_CATALOG_SCHEMA.equals(
-                                SchemaUtil.getSchemaNameFromFullName(tableKey.getName()))) {
-                            // Ensure there is always room for system tables
-                            return 0;
-                        }
-                        return tableRef.getEstimatedSize();
+                        return getWeight(tableKey, tableRef);
                     }
                 })
                 .build();
@@ -72,12 +75,24 @@ class PMetaDataCache {
         this.timeKeeper = timeKeeper;
     }
     
+    private static int getWeight(PTableKey tableKey, PTableRef tableRef) {
+        if (PhoenixDatabaseMetaData.SYSTEM_CATALOG_SCHEMA.equals(
+                SchemaUtil.getSchemaNameFromFullName(tableKey.getName()))) {
+            // Ensure there is always room for system tables
+            return 0;
+        }
+        return tableRef.getEstimatedSize();
+    }
+
     public PTableRef get(PTableKey key) {
         PTableRef tableAccess = this.tables.getIfPresent(key);
         return tableAccess;
     }
 
     PTable put(PTableKey key, PTableRef ref) {
+        // The weight of the replaced entry, if any, is subtracted by the removal listener
+        GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_ESTIMATED_USED_SIZE
+                .update(getWeight(key, ref));
         PTableRef oldTableRef = tables.asMap().put(key, ref);
         if (oldTableRef == null) {
             return null;
@@ -123,4 +138,13 @@ class PMetaDataCache {
     public long size() {
         return this.tables.size();
     }
+
+    /**
+     * Removes all the tables, functions and schemas from the cache.
+     */
+    public void clear() {
+        tables.invalidateAll();
+        functions.clear();
+        schemas.clear();
+    }
 }
\ No newline at end of file
@@ -20,10 +20,10 @@ package org.apache.phoenix.schema;
 import static org.apache.phoenix.schema.PTableImpl.getColumnsToClone;
 
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.phoenix.monitoring.GlobalClientMetrics;
 import org.apache.phoenix.thirdparty.com.google.common.base.Strings;
@@ -40,8 +40,10 @@ import org.apache.phoenix.util.TimeKeeper;
 import org.apache.phoenix.thirdparty.com.google.common.collect.Lists;
 
 /**
- * Client-side cache of MetaData, not thread safe. Internally uses a LinkedHashMap that evicts the
- * oldest entries when size grows beyond the maxSize specified at create time.
+ * Client-side cache of MetaData. Lookups do not lock and may run concurrently with updates, but
+ * updates must be serialized by the caller. Internally uses a Guava cache that evicts the least
+ * recently used entries when their estimated size grows beyond the maxSize specified at create
+ * time.
  */
 public class PMetaDataImpl implements PMetaData {
     
@@ -49,7 +51,8 @@ public class PMetaDataImpl implements PMetaData {
     private final TimeKeeper timeKeeper;
     private final PTableRefFactory tableRefFactory;
     private final long updateCacheFrequency;
-    private HashMap<String, PTableKey> physicalNameToLogicalTableMap = new HashMap<>();
+    private final ConcurrentMap<String, PTableKey> physicalNameToLogicalTableMap =
+            new ConcurrentHashMap<>();
     
     public PMetaDataImpl(int initialCapacity, long updateCacheFrequency, ReadOnlyProps props) {
         this(initialCapacity, updateCacheFrequency, TimeKeeper.SYSTEM, props);
@@ -83,12 +86,16 @@ public class PMetaDataImpl implements PMetaData {
 
     @Override
     public PTableRef getTableRef(PTableKey key) throws TableNotFoundException {
-        if (physicalNameToLogicalTableMap.containsKey(key.getName())) {
-            key = physicalNameToLogicalTableMap.get(key.getName());
+        long startTime = System.nanoTime();
+        PTableKey logicalKey = physicalNameToLogicalTableMap.get(key.getName());
+        if (logicalKey != null) {
+            key = logicalKey;
         }
         PTableRef ref = metaData.get(key);
         if (!key.getName().contains(QueryConstants.SYSTEM_SCHEMA_NAME)) {
             updateGlobalMetric(ref);
+            GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_LOOKUP_TIME_NS.update(
+                    System.nanoTime() - startTime);
         }
         if (ref == null) {
             throw new TableNotFoundException(key.getName());
@@ -328,4 +335,10 @@ public class PMetaDataImpl implements PMetaData {
         this.metaData.schemas.remove(schema.getSchemaKey());
     }
 
+    @Override
+    public void clear() {
+        metaData.clear();
+        physicalNameToLogicalTableMap.clear();
+    }
+
 }
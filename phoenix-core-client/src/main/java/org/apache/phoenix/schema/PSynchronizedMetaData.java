@@ -218,4 +218,15 @@ public class PSynchronizedMetaData implements PMetaData {
         }
     }
 
+    @Override
+    public void clear() {
+        readWriteLock.writeLock().lock();
+        try {
+            delegate.clear();
+        }
+        finally {
+            readWriteLock.writeLock().unlock();
+        }
+    }
+
 }
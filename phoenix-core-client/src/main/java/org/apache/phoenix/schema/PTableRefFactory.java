@@ -33,7 +33,7 @@ public class PTableRefFactory {
     private static final PTableRefFactory INSTANCE = new PTableRefFactory();
 
     public static enum Encoding {
-        OBJECT, PROTOBUF
+        OBJECT, PROTOBUF, LAZY_PROTOBUF
     };
 
     public static PTableRefFactory getFactory(ReadOnlyProps props) {
@@ -44,6 +44,8 @@ public class PTableRefFactory {
         switch (encoding) {
         case PROTOBUF:
             return SerializedPTableRefFactory.getFactory();
+        case LAZY_PROTOBUF:
+            return LazySerializedPTableRefFactory.getFactory();
         case OBJECT:
         default:
             return INSTANCE;
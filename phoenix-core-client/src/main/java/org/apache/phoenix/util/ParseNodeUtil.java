@@ -19,6 +19,8 @@ package org.apache.phoenix.util;
 
 import java.sql.SQLException;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 import org.apache.phoenix.parse.ColumnParseNode;
@@ -38,6 +40,10 @@ import org.apache.phoenix.parse.StatelessTraverseAllParseNodeVisitor;
 import org.apache.phoenix.parse.TableWildcardParseNode;
 import org.apache.phoenix.parse.WildcardParseNode;
 import org.apache.phoenix.compile.QueryCompiler;
+import org.apache.phoenix.schema.PName;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTableType;
+import org.apache.phoenix.schema.TableRef;
 
 public class ParseNodeUtil {
 
@@ -162,6 +168,64 @@ public class ParseNodeUtil {
         }
     }
 
+    /**
+     * A {@link RewriteResult} kept for later compilations of the same statement. The rewrite only
+     * depends on the statement and on the tables it resolves to, not on the bind values, so it is
+     * reused as long as the rewritten statement resolves to the same versions of the same tables,
+     * for the same tenant. A change to any of those tables changes its timestamp. A rewrite that
+     * resolves to derived tables is not reused, as those have no timestamp of their own.
+     */
+    public static class CachedRewrite {
+        private final SelectStatement rewrittenSelectStatement;
+        private final PName tenantId;
+        private final String[] tableNames;
+        private final long[] tableTimestamps;
+        private final boolean reusable;
+
+        public CachedRewrite(RewriteResult rewriteResult, PhoenixConnection phoenixConnection) {
+            this.rewrittenSelectStatement = rewriteResult.getRewrittenSelectStatement();
+            this.tenantId = phoenixConnection.getTenantId();
+            List<TableRef> tableRefs = rewriteResult.getColumnResolver().getTables();
+            this.tableNames = new String[tableRefs.size()];
+            this.tableTimestamps = new long[tableRefs.size()];
+            boolean reusable = true;
+            for (int i = 0; i < tableRefs.size(); i++) {
+                PTable table = tableRefs.get(i).getTable();
+                if (table.getName() == null || table.getType() == PTableType.PROJECTED
+                        || table.getType() == PTableType.SUBQUERY) {
+                    reusable = false;
+                    break;
+                }
+                tableNames[i] = table.getName().getString();
+                tableTimestamps[i] = table.getTimeStamp();
+            }
+            this.reusable = reusable;
+        }
+
+        /**
+         * Returns the rewrite resolved with the given connection, or null if it must be redone
+         */
+        public RewriteResult get(PhoenixConnection phoenixConnection) throws SQLException {
+            if (!reusable || !Objects.equals(tenantId, phoenixConnection.getTenantId())) {
+                return null;
+            }
+            ColumnResolver columnResolver =
+                    FromCompiler.getResolverForQuery(rewrittenSelectStatement, phoenixConnection);
+            List<TableRef> tableRefs = columnResolver.getTables();
+            if (tableRefs.size() != tableNames.length) {
+                return null;
+            }
+            for (int i = 0; i < tableNames.length; i++) {
+                PTable table = tableRefs.get(i).getTable();
+                if (table.getTimeStamp() != tableTimestamps[i]
+                        || !tableNames[i].equals(table.getName().getString())) {
+                    return null;
+                }
+            }
+            return new RewriteResult(rewrittenSelectStatement, columnResolver);
+        }
+    }
+
     /**
      * Optimize rewriting {@link SelectStatement} by {@link SubselectRewriter} and {@link SubqueryRewriter} before
      * {@link QueryCompiler#compile}.
@@ -18,6 +18,7 @@
 package org.apache.phoenix.util;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -39,10 +40,13 @@ import org.apache.phoenix.schema.PName;
 import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.PTableKey;
 import org.apache.phoenix.schema.PTableType;
+import org.apache.phoenix.schema.TableNotFoundException;
 import org.apache.phoenix.schema.TableRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
+
 /**
  * Utility class for last ddl timestamp validation from the client.
  */
@@ -134,6 +138,56 @@ public class ValidateLastDDLTimestampUtil {
         }
     }
 
+    /**
+     * Returns the given tables whose metadata is stale in the client cache. The tables are
+     * validated with as few validateLastDDLTimestamp RPCs as possible: a batch of tables is
+     * validated with a single RPC, and only a batch found to contain stale tables is split in
+     * halves that are validated in turn. A table that no longer exists is considered stale.
+     *
+     * @param service the region server endpoint the tables are validated on
+     * @param tables the tables to validate
+     * @param maxTablesPerRequest the maximum number of tables validated by a single RPC
+     * @return the stale tables
+     * @throws SQLException if the validation failed for another reason than a stale table
+     */
+    public static List<PTable> getStaleTables(
+            RegionServerEndpointProtos.RegionServerEndpointService.BlockingInterface service,
+            List<PTable> tables, int maxTablesPerRequest) throws SQLException {
+        List<PTable> staleTables = new ArrayList<>();
+        for (int i = 0; i < tables.size(); i += maxTablesPerRequest) {
+            findStaleTables(service, tables.subList(i,
+                    Math.min(i + maxTablesPerRequest, tables.size())), staleTables);
+        }
+        return staleTables;
+    }
+
+    @VisibleForTesting
+    static void findStaleTables(
+            RegionServerEndpointProtos.RegionServerEndpointService.BlockingInterface service,
+            List<PTable> tables, List<PTable> staleTables) throws SQLException {
+        List<TableRef> tableRefs = new ArrayList<>(tables.size());
+        for (PTable table : tables) {
+            tableRefs.add(new TableRef(table));
+        }
+        try {
+            service.validateLastDDLTimestamp(null, getValidateDDLTimestampRequest(tableRefs));
+            return;
+        } catch (Exception e) {
+            SQLException parsedException = ClientUtil.parseServerException(e);
+            if (!(parsedException instanceof StaleMetadataCacheException)
+                    && !(parsedException instanceof TableNotFoundException)) {
+                throw parsedException;
+            }
+        }
+        if (tables.size() == 1) {
+            staleTables.add(tables.get(0));
+            return;
+        }
+        int mid = tables.size() / 2;
+        findStaleTables(service, tables.subList(0, mid), staleTables);
+        findStaleTables(service, tables.subList(mid, tables.size()), staleTables);
+    }
+
     /**
      * Build a request for the validateLastDDLTimestamp RPC for the given tables.
      * 1. For a view, we need to add all its ancestors to the request
@@ -62,6 +62,8 @@ public class GlobalCache extends TenantCacheImpl {
     private final ConcurrentMap<ImmutableBytesWritable,TenantCache> perTenantCacheMap = new ConcurrentHashMap<ImmutableBytesWritable,TenantCache>();
     // Cache for lastest PTable for a given Phoenix table
     private volatile Cache<ImmutableBytesPtr,PMetaDataEntity> metaDataCache;
+    // Cache for data table rows fetched by uncovered global index scans
+    private volatile IndexDataRowCache indexDataRowCache;
     
     public long clearTenantCache() {
         long unfreedBytes = getMemoryManager().getMaxMemory() - getMemoryManager().getAvailableMemory();
@@ -118,6 +120,30 @@ public class GlobalCache extends TenantCacheImpl {
         return result;
     }
 
+    /**
+     * Returns the cache of data table rows fetched by uncovered global index scans, or null if
+     * the cache is disabled.
+     */
+    public IndexDataRowCache getIndexDataRowCache() {
+        if (!config.getBoolean(QueryServices.INDEX_DATA_ROW_CACHE_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_INDEX_DATA_ROW_CACHE_ENABLED)) {
+            return null;
+        }
+        IndexDataRowCache result = indexDataRowCache;
+        if (result == null) {
+            synchronized(this) {
+                result = indexDataRowCache;
+                if (result == null) {
+                    long maxSize = config.getLongBytes(
+                            QueryServices.INDEX_DATA_ROW_CACHE_SIZE_ATTRIB,
+                            QueryServicesOptions.DEFAULT_INDEX_DATA_ROW_CACHE_SIZE);
+                    indexDataRowCache = result = new IndexDataRowCache(maxSize);
+                }
+            }
+        }
+        return result;
+    }
+
     public static GlobalCache getInstance(RegionCoprocessorEnvironment env) {
         GlobalCache result = INSTANCE;
         if (result == null) {
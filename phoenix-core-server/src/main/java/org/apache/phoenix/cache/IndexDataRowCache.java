@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.filter.RowDigestFilter;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.SizedUtil;
+
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
+import org.apache.phoenix.thirdparty.com.google.common.cache.Cache;
+import org.apache.phoenix.thirdparty.com.google.common.cache.CacheBuilder;
+import org.apache.phoenix.thirdparty.com.google.common.cache.Weigher;
+import org.apache.phoenix.thirdparty.com.google.common.hash.Hasher;
+import org.apache.phoenix.thirdparty.com.google.common.hash.Hashing;
+
+/**
+ * Region server wide cache of data table rows fetched by uncovered global index scans.
+ * Entries are keyed by a prefix identifying the data table, the projected columns and the
+ * lower bound of the time range of the scan, followed by the data row key. Each entry
+ * records the {@link RowDigestFilter} digest of the cells of the row when it was fetched. The
+ * digest covers the timestamps and values of the cells, so it changes with every write to the
+ * row, even one at the timestamp of the cached cells as written by a CurrentSCN connection or
+ * to a ROW_TIMESTAMP table. A cached row is valid as long as the current digest of the row,
+ * which the caller retrieves with a {@link RowDigestFilter} scan and passes to
+ * {@link #get(ImmutableBytesPtr, byte[])}, is the same.
+ *
+ * @since 5.3.0
+ */
+public class IndexDataRowCache {
+    private static final int ENTRY_SIZE = SizedUtil.OBJECT_SIZE + 2 * SizedUtil.POINTER_SIZE
+            + SizedUtil.ARRAY_SIZE + SizedUtil.RESULT_SIZE;
+
+    private final Cache<ImmutableBytesPtr, CachedDataRow> cache;
+    private final AtomicLong hitCount = new AtomicLong();
+
+    public IndexDataRowCache(long maxSize) {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher(new Weigher<ImmutableBytesPtr, CachedDataRow>() {
+                    @Override
+                    public int weigh(ImmutableBytesPtr key, CachedDataRow row) {
+                        return SizedUtil.IMMUTABLE_BYTES_PTR_SIZE + key.getLength()
+                                + row.getEstimatedSize();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Returns the key prefix shared by all rows fetched with the given data table scan. The
+     * prefix is made of the physical data table name, a digest of the columns of the scan and
+     * the lower bound of its time range, so that rows fetched by scans with a different
+     * projection or a different time range lower bound never match each other.
+     * @param dataTableName the physical data table name
+     * @param dataTableScan the scan used to fetch the data rows
+     * @param minTimestamp the lower bound of the time range of the scan
+     * @return the key prefix
+     */
+    public static byte[] getKeyPrefix(byte[] dataTableName, Scan dataTableScan,
+            long minTimestamp) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (Map.Entry<byte[], NavigableSet<byte[]>> entry
+                : dataTableScan.getFamilyMap().entrySet()) {
+            hasher.putInt(entry.getKey().length);
+            hasher.putBytes(entry.getKey());
+            if (entry.getValue() == null) {
+                hasher.putInt(-1);
+                continue;
+            }
+            hasher.putInt(entry.getValue().size());
+            for (byte[] qualifier : entry.getValue()) {
+                hasher.putInt(qualifier.length);
+                hasher.putBytes(qualifier);
+            }
+        }
+        // Table names never contain the separator byte, so the prefix can not be ambiguous
+        return ByteUtil.concat(dataTableName, QueryConstants.SEPARATOR_BYTE_ARRAY,
+                hasher.hash().asBytes(),
+                Bytes.toBytes(minTimestamp));
+    }
+
+    public static ImmutableBytesPtr getKey(byte[] keyPrefix, byte[] dataRowKey) {
+        return new ImmutableBytesPtr(ByteUtil.concat(keyPrefix, dataRowKey));
+    }
+
+    /**
+     * Returns true if a row is cached for the given key, so that it is worth retrieving the
+     * digest of the row to validate it.
+     */
+    public boolean contains(ImmutableBytesPtr key) {
+        return cache.getIfPresent(key) != null;
+    }
+
+    /**
+     * Returns the cached row for the given key if the row was cached with the given digest,
+     * null otherwise. A stale entry is invalidated.
+     */
+    public Result get(ImmutableBytesPtr key, byte[] digest) {
+        CachedDataRow row = cache.getIfPresent(key);
+        if (row == null) {
+            return null;
+        }
+        if (!Bytes.equals(row.getDigest(), digest)) {
+            cache.invalidate(key);
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return row.getRow();
+    }
+
+    /**
+     * Caches a data row along with its digest. The cells of the row are copied so that the
+     * cached row does not hold on to the buffers of the RPC response.
+     */
+    public void put(ImmutableBytesPtr key, Result row) {
+        Cell[] cells = row.rawCells();
+        Cell[] copiedCells = new Cell[cells.length];
+        byte[] digest = RowDigestFilter.getDigest(Arrays.asList(cells));
+        long estimatedSize = ENTRY_SIZE + digest.length + SizedUtil.ARRAY_SIZE
+                + (long) cells.length * SizedUtil.POINTER_SIZE;
+        for (int i = 0; i < cells.length; i++) {
+            KeyValue keyValue = KeyValueUtil.copyToNewKeyValue(cells[i]);
+            estimatedSize += keyValue.heapSize();
+            copiedCells[i] = keyValue;
+        }
+        cache.put(key, new CachedDataRow(digest, Result.create(copiedCells),
+                (int) Math.min(estimatedSize, Integer.MAX_VALUE)));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @VisibleForTesting
+    public long size() {
+        return cache.size();
+    }
+
+    @VisibleForTesting
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    private static class CachedDataRow {
+        private final byte[] digest;
+        private final Result row;
+        private final int estimatedSize;
+
+        CachedDataRow(byte[] digest, Result row, int estimatedSize) {
+            this.digest = digest;
+            this.row = row;
+            this.estimatedSize = estimatedSize;
+        }
+
+        byte[] getDigest() {
+            return digest;
+        }
+
+        Result getRow() {
+            return row;
+        }
+
+        int getEstimatedSize() {
+            return estimatedSize;
+        }
+    }
+}
@@ -0,0 +1,526 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache.aggcache;
+
+import static org.apache.phoenix.query.QueryConstants.AGG_TIMESTAMP;
+import static org.apache.phoenix.query.QueryConstants.GROUPED_AGGREGATOR_VALUE_BYTES;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.cache.GlobalCache;
+import org.apache.phoenix.coprocessor.BaseRegionScanner;
+import org.apache.phoenix.coprocessor.GroupByCache;
+import org.apache.phoenix.expression.aggregator.Aggregator;
+import org.apache.phoenix.expression.aggregator.BaseAggregator;
+import org.apache.phoenix.expression.aggregator.FixedWidthStateAggregator;
+import org.apache.phoenix.expression.aggregator.ServerAggregators;
+import org.apache.phoenix.expression.function.SingleAggregateFunction;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.MemoryManager;
+import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.util.LogUtil;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.apache.phoenix.util.SizedUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * In memory cache for distinct group by keys and their aggregations which avoids
+ * allocating objects per group. The group keys, the last scanned row key of each
+ * group and the state of every aggregator implementing {@link FixedWidthStateAggregator}
+ * are copied into large byte pages, and groups are found through an open addressing
+ * (linear probing) table of group ordinals. Only aggregators whose state is not of a
+ * fixed width (for example DISTINCT_COUNT or PERCENTILE) are kept as Aggregator objects.
+ *
+ * Like the in memory cache of GroupedAggregateRegionObserver, this cache does not spill:
+ * its memory usage is reported to the tenant MemoryManager and an
+ * InsufficientMemoryException is thrown if it can no longer grow.
+ *
+ * @since 5.3.0
+ */
+public class CompactGroupByCache implements GroupByCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactGroupByCache.class);
+
+    private static final int MIN_PAGE_SIZE = 4 * 1024; // 4K
+    private static final int MAX_PAGE_SIZE = 1024 * 1024; // 1M
+    private static final int MIN_TABLE_SIZE = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+    // Estimated size of a single key and state when sizing the first page
+    private static final int EST_KEY_SIZE = 32;
+    // Size of the per group entries of the arrays below
+    private static final int GROUP_ENTRY_SIZE = 2 * SizedUtil.LONG_SIZE + 4 * SizedUtil.INT_SIZE;
+
+    private final Configuration conf;
+    private final byte[] customAnnotations;
+    private final ServerAggregators aggregators;
+    private final boolean isIncompatibleClient;
+    private final MemoryChunk chunk;
+    private final PageAllocator pages;
+
+    // Aggregators returned by cache(), rebound to the state of a group on every call
+    private final Aggregator[] rowAggregators;
+    private final BoundAggregator[] boundAggregators;
+    private final int stateWidth;
+    // Positions of the aggregators whose state is kept in Aggregator objects
+    private final int[] objectPositions;
+    private final long objectAggregatorsSize;
+
+    // Open addressing table holding group ordinal + 1, or 0 for an empty slot
+    private int[] table;
+    private int numGroups;
+    // Address of the group key, which is directly followed by the fixed width state
+    private long[] groupAddresses;
+    private int[] keyLengths;
+    private int[] keyHashes;
+    private long[] rowKeyAddresses;
+    private int[] rowKeyLengths;
+    private int[] rowKeyCapacities;
+    private Aggregator[][] objectAggregators;
+
+    private ImmutableBytesPtr lastKey;
+    private int lastGroup = -1;
+
+    public CompactGroupByCache(RegionCoprocessorEnvironment env, ImmutableBytesPtr tenantId,
+                               byte[] customAnnotations, ServerAggregators aggregators,
+                               int estDistVals, boolean isIncompatibleClient) {
+        this(env.getConfiguration(), GlobalCache.getTenantCache(env, tenantId).getMemoryManager(),
+                customAnnotations, aggregators, estDistVals, isIncompatibleClient);
+    }
+
+    @VisibleForTesting
+    CompactGroupByCache(Configuration conf, MemoryManager memoryManager, byte[] customAnnotations,
+                        ServerAggregators aggregators, int estDistVals,
+                        boolean isIncompatibleClient) {
+        this.conf = conf;
+        this.customAnnotations = customAnnotations;
+        this.aggregators = aggregators;
+        this.isIncompatibleClient = isIncompatibleClient;
+
+        Aggregator[] prototypes = aggregators.newAggregators(conf);
+        this.rowAggregators = new Aggregator[prototypes.length];
+        List<BoundAggregator> bound = new ArrayList<>(prototypes.length);
+        List<Integer> objects = new ArrayList<>();
+        long objectSize = 0;
+        int width = 0;
+        for (int i = 0; i < prototypes.length; i++) {
+            Aggregator prototype = prototypes[i];
+            int aggStateWidth = prototype instanceof FixedWidthStateAggregator
+                    ? ((FixedWidthStateAggregator) prototype).getStateWidth() : -1;
+            if (aggStateWidth >= 0) {
+                BoundAggregator boundAggregator =
+                        new BoundAggregator((FixedWidthStateAggregator) prototype, width);
+                bound.add(boundAggregator);
+                rowAggregators[i] = boundAggregator;
+                width += aggStateWidth;
+            } else {
+                objects.add(i);
+                objectSize += prototype.getSize();
+            }
+        }
+        this.boundAggregators = bound.toArray(new BoundAggregator[bound.size()]);
+        this.stateWidth = width;
+        this.objectPositions = new int[objects.size()];
+        for (int i = 0; i < objectPositions.length; i++) {
+            objectPositions[i] = objects.get(i);
+        }
+        this.objectAggregatorsSize = objectPositions.length == 0 ? 0 :
+                SizedUtil.ARRAY_SIZE + SizedUtil.POINTER_SIZE * objectPositions.length + objectSize;
+
+        int capacity = Math.max(1, estDistVals);
+        this.table = new int[tableSizeFor(capacity)];
+        this.groupAddresses = new long[capacity];
+        this.keyLengths = new int[capacity];
+        this.keyHashes = new int[capacity];
+        this.rowKeyAddresses = new long[capacity];
+        this.rowKeyLengths = new int[capacity];
+        this.rowKeyCapacities = new int[capacity];
+        this.objectAggregators = objectPositions.length == 0 ? null : new Aggregator[capacity][];
+        long estPageSize = (long) capacity * (EST_KEY_SIZE + stateWidth);
+        this.pages = new PageAllocator((int) Math.max(MIN_PAGE_SIZE, Math.min(MAX_PAGE_SIZE, estPageSize)));
+        this.chunk = memoryManager.allocate(estimateSize() + estPageSize);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int size = MIN_TABLE_SIZE;
+        while (size * LOAD_FACTOR < capacity) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the number of bytes currently used by the cache
+     */
+    private long estimateSize() {
+        return pages.getAllocatedBytes()
+                + (long) table.length * SizedUtil.INT_SIZE
+                + (long) groupAddresses.length * GROUP_ENTRY_SIZE
+                + (objectAggregators == null ? 0 :
+                        (long) objectAggregators.length * SizedUtil.POINTER_SIZE
+                        + (long) numGroups * objectAggregatorsSize);
+    }
+
+    private void ensureMemory() {
+        long estSize = estimateSize();
+        if (estSize > chunk.getSize()) { // increase allocation
+            chunk.resize((long) (estSize * 1.5f));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.chunk.close();
+    }
+
+    @Override
+    public long size() {
+        return numGroups;
+    }
+
+    @Override
+    public Aggregator[] cache(ImmutableBytesPtr cacheKey) {
+        int group = getOrAddGroup(cacheKey);
+        bind(group);
+        return rowAggregators;
+    }
+
+    @Override
+    public void cacheAggregateRowKey(ImmutableBytesPtr value, ImmutableBytesPtr rowKey) {
+        if (isIncompatibleClient) {
+            // Old clients expect the group key as the row key
+            return;
+        }
+        // The row key is cached right after the aggregators for the same key are
+        // retrieved, so avoid a second lookup in that case.
+        int group = value == lastKey ? lastGroup : getOrAddGroup(value);
+        int length = rowKey.getLength();
+        long address = rowKeyAddresses[group];
+        if (rowKeyCapacities[group] < length) {
+            address = pages.allocate(length);
+            rowKeyAddresses[group] = address;
+            rowKeyCapacities[group] = length;
+            ensureMemory();
+        }
+        System.arraycopy(rowKey.get(), rowKey.getOffset(), pages.getPage(address),
+                PageAllocator.getOffset(address), length);
+        rowKeyLengths[group] = length;
+    }
+
+    private int getOrAddGroup(ImmutableBytesPtr key) {
+        int hash = mix(key.hashCode());
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        int group;
+        while ((group = table[slot] - 1) >= 0) {
+            if (keyHashes[group] == hash && keyEquals(group, key)) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (group < 0) {
+            group = addGroup(key, hash);
+            table[slot] = group + 1;
+            if (numGroups > table.length * LOAD_FACTOR) {
+                rehash();
+            }
+            ensureMemory();
+        }
+        lastKey = key;
+        lastGroup = group;
+        return group;
+    }
+
+    private boolean keyEquals(int group, ImmutableBytesPtr key) {
+        long address = groupAddresses[group];
+        return Bytes.equals(pages.getPage(address), PageAllocator.getOffset(address),
+                keyLengths[group], key.get(), key.getOffset(), key.getLength());
+    }
+
+    private int addGroup(ImmutableBytesPtr key, int hash) {
+        if (numGroups == groupAddresses.length) {
+            growGroups();
+        }
+        int group = numGroups++;
+        int keyLength = key.getLength();
+        long address = pages.allocate(keyLength + stateWidth);
+        byte[] page = pages.getPage(address);
+        int offset = PageAllocator.getOffset(address);
+        System.arraycopy(key.get(), key.getOffset(), page, offset, keyLength);
+        for (BoundAggregator boundAggregator : boundAggregators) {
+            boundAggregator.initState(page, offset + keyLength);
+        }
+        groupAddresses[group] = address;
+        keyLengths[group] = keyLength;
+        keyHashes[group] = hash;
+        if (objectAggregators != null) {
+            // If Aggregators not found for this distinct value, create new
+            // ones for the aggregators that can't be kept in the pages
+            SingleAggregateFunction[] functions = aggregators.getFunctions();
+            Aggregator[] groupAggregators = new Aggregator[objectPositions.length];
+            for (int i = 0; i < objectPositions.length; i++) {
+                groupAggregators[i] = functions[objectPositions[i]].newServerAggregator(conf);
+            }
+            objectAggregators[group] = groupAggregators;
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(LogUtil.addCustomAnnotations("Adding new aggregate bucket for row key "
+                    + Bytes.toStringBinary(key.get(), key.getOffset(), key.getLength()),
+                    customAnnotations));
+        }
+        return group;
+    }
+
+    private void growGroups() {
+        int capacity = groupAddresses.length + Math.max(1, groupAddresses.length >> 1);
+        groupAddresses = Arrays.copyOf(groupAddresses, capacity);
+        keyLengths = Arrays.copyOf(keyLengths, capacity);
+        keyHashes = Arrays.copyOf(keyHashes, capacity);
+        rowKeyAddresses = Arrays.copyOf(rowKeyAddresses, capacity);
+        rowKeyLengths = Arrays.copyOf(rowKeyLengths, capacity);
+        rowKeyCapacities = Arrays.copyOf(rowKeyCapacities, capacity);
+        if (objectAggregators != null) {
+            objectAggregators = Arrays.copyOf(objectAggregators, capacity);
+        }
+    }
+
+    private void rehash() {
+        int[] newTable = new int[table.length << 1];
+        int mask = newTable.length - 1;
+        for (int group = 0; group < numGroups; group++) {
+            int slot = keyHashes[group] & mask;
+            while (newTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = group + 1;
+        }
+        table = newTable;
+    }
+
+    /**
+     * Point the aggregators returned by {@link #cache(ImmutableBytesPtr)} at the state of
+     * the given group.
+     */
+    private void bind(int group) {
+        long address = groupAddresses[group];
+        byte[] page = pages.getPage(address);
+        int stateOffset = PageAllocator.getOffset(address) + keyLengths[group];
+        for (BoundAggregator boundAggregator : boundAggregators) {
+            boundAggregator.bind(page, stateOffset);
+        }
+        if (objectAggregators != null) {
+            Aggregator[] groupAggregators = objectAggregators[group];
+            for (int i = 0; i < objectPositions.length; i++) {
+                rowAggregators[objectPositions[i]] = groupAggregators[i];
+            }
+        }
+    }
+
+    private Cell getGroupCell(int group) {
+        bind(group);
+        // Generate byte array of Aggregators and set as value of row
+        byte[] aggregateArrayBytes = aggregators.toBytes(rowAggregators);
+        long keyAddress = groupAddresses[group];
+        byte[] keyPage = pages.getPage(keyAddress);
+        int keyOffset = PageAllocator.getOffset(keyAddress);
+        int keyLength = keyLengths[group];
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(LogUtil.addCustomAnnotations("Adding new distinct group: "
+                    + Bytes.toStringBinary(keyPage, keyOffset, keyLength)
+                    + " with aggregators " + Arrays.asList(rowAggregators) + " value = "
+                    + Bytes.toStringBinary(aggregateArrayBytes), customAnnotations));
+        }
+        if (isIncompatibleClient) {
+            return PhoenixKeyValueUtil.newKeyValue(keyPage, keyOffset, keyLength,
+                    SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, AGG_TIMESTAMP, aggregateArrayBytes, 0,
+                    aggregateArrayBytes.length);
+        }
+        byte[] finalValue = new byte[Bytes.SIZEOF_INT + keyLength + aggregateArrayBytes.length];
+        PInteger.INSTANCE.getCodec().encodeInt(keyLength, finalValue, 0);
+        System.arraycopy(keyPage, keyOffset, finalValue, Bytes.SIZEOF_INT, keyLength);
+        System.arraycopy(aggregateArrayBytes, 0, finalValue, Bytes.SIZEOF_INT + keyLength,
+                aggregateArrayBytes.length);
+        long rowKeyAddress = rowKeyAddresses[group];
+        return PhoenixKeyValueUtil.newKeyValue(pages.getPage(rowKeyAddress),
+                PageAllocator.getOffset(rowKeyAddress), rowKeyLengths[group],
+                GROUPED_AGGREGATOR_VALUE_BYTES, GROUPED_AGGREGATOR_VALUE_BYTES, AGG_TIMESTAMP,
+                finalValue, 0, finalValue.length);
+    }
+
+    @Override
+    public RegionScanner getScanner(final RegionScanner s) {
+        // Compute final allocation
+        chunk.resize(estimateSize());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(LogUtil.addCustomAnnotations("Compact groupby cache with " + numGroups
+                    + " groups using " + chunk.getSize() + " bytes", customAnnotations));
+        }
+        // Cells are built one group at a time rather than materialized up front
+        return new BaseRegionScanner(s) {
+            private int index = 0;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    s.close();
+                } finally {
+                    CompactGroupByCache.this.close();
+                }
+            }
+
+            @Override
+            public boolean next(List<Cell> results) throws IOException {
+                if (index >= numGroups) {
+                    return false;
+                }
+                results.add(getGroupCell(index));
+                index++;
+                return index < numGroups;
+            }
+        };
+    }
+
+    /**
+     * Append only allocator of byte ranges out of a list of pages. Page sizes double up
+     * to MAX_PAGE_SIZE. An address holds the page index in its upper 32 bits and the
+     * offset within the page in its lower 32 bits.
+     */
+    private static final class PageAllocator {
+        private final List<byte[]> pages = new ArrayList<>();
+        private int nextPageSize;
+        private byte[] currentPage;
+        private int position;
+        private long allocatedBytes;
+
+        PageAllocator(int initialPageSize) {
+            this.nextPageSize = initialPageSize;
+        }
+
+        long allocate(int length) {
+            if (currentPage == null || currentPage.length - position < length) {
+                currentPage = new byte[Math.max(nextPageSize, length)];
+                pages.add(currentPage);
+                allocatedBytes += currentPage.length;
+                position = 0;
+                nextPageSize = Math.min(MAX_PAGE_SIZE, nextPageSize << 1);
+            }
+            long address = ((long) (pages.size() - 1) << 32) | position;
+            position += length;
+            return address;
+        }
+
+        byte[] getPage(long address) {
+            return pages.get((int) (address >>> 32));
+        }
+
+        static int getOffset(long address) {
+            return (int) address;
+        }
+
+        long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    /**
+     * Aggregator operating on the state of the group it is currently bound to.
+     */
+    private static final class BoundAggregator extends BaseAggregator {
+        private final FixedWidthStateAggregator delegate;
+        // Offset of the state of this aggregator within the state of a group
+        private final int stateOffset;
+        private byte[] page;
+        private int offset;
+
+        BoundAggregator(FixedWidthStateAggregator delegate, int stateOffset) {
+            super(SortOrder.getDefault());
+            this.delegate = delegate;
+            this.stateOffset = stateOffset;
+        }
+
+        void initState(byte[] page, int groupStateOffset) {
+            delegate.initState(page, groupStateOffset + stateOffset);
+        }
+
+        void bind(byte[] page, int groupStateOffset) {
+            this.page = page;
+            this.offset = groupStateOffset + stateOffset;
+        }
+
+        @Override
+        public void aggregate(Tuple tuple, ImmutableBytesWritable ptr) {
+            delegate.aggregate(page, offset, ptr);
+        }
+
+        @Override
+        public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+            return delegate.evaluate(page, offset, ptr);
+        }
+
+        @Override
+        public void reset() {
+            delegate.initState(page, offset);
+            super.reset();
+        }
+
+        @Override
+        public PDataType getDataType() {
+            return delegate.getDataType();
+        }
+
+        @Override
+        public Integer getMaxLength() {
+            return delegate.getMaxLength();
+        }
+
+        @Override
+        public boolean isNullable() {
+            return delegate.isNullable();
+        }
+
+        @Override
+        public String toString() {
+            ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+            return "STATE [value="
+                    + (evaluate(null, ptr)
+                    ? Bytes.toStringBinary(ptr.get(), ptr.getOffset(), ptr.getLength())
+                    : "null") + "]";
+        }
+    }
+}
@@ -44,7 +44,6 @@ import org.apache.phoenix.schema.ColumnNotFoundException;
 import org.apache.phoenix.schema.ColumnRef;
 import org.apache.phoenix.schema.PColumn;
 import org.apache.phoenix.schema.PTable;
-import org.apache.phoenix.schema.PTableImpl;
 import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.schema.TableRef;
 import org.apache.phoenix.schema.types.PInteger;
@@ -200,7 +199,7 @@ public class DropColumnMutator implements ColumnMutator {
                     column = MetaDataUtil.getColumn(pkCount, rowKeyMetaData, table);
                 } else {
                     for (int i = 0; i < table.getIndexes().size(); i++) {
-                        PTableImpl indexTable = (PTableImpl) table.getIndexes().get(i);
+                        PTable indexTable = table.getIndexes().get(i);
                         byte[] indexTableName = indexTable.getTableName().getBytes();
                         byte[] indexSchema = indexTable.getSchemaName().getBytes();
                         if (Bytes.compareTo(indexSchema, rowKeyMetaData[SCHEMA_NAME_INDEX]) == 0
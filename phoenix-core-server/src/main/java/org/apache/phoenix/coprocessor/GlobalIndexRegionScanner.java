@@ -122,12 +122,20 @@ public abstract class GlobalIndexRegionScanner extends BaseRegionScanner {
     public static final String PHOENIX_INDEX_MR_LOG_BEYOND_MAX_LOOKBACK_ERRORS =
             "phoenix.index.mr.log.beyond.max.lookback.errors";
     public static final boolean DEFAULT_PHOENIX_INDEX_MR_LOG_BEYOND_MAX_LOOKBACK_ERRORS = false;
+    public static final String PHOENIX_INDEX_MR_VERIFY_WITH_DIGESTS =
+            "phoenix.index.mr.verify.with.digests";
+    public static final boolean DEFAULT_PHOENIX_INDEX_MR_VERIFY_WITH_DIGESTS = false;
+    public static final String INDEX_VERIFY_DIGEST_ROWS_PER_BUCKET_CONF_KEY =
+            "phoenix.index.verify.digest.rows.per.bucket";
+    public static final int DEFAULT_INDEX_VERIFY_DIGEST_ROWS_PER_BUCKET = 32;
 
     protected final UngroupedAggregateRegionObserver ungroupedAggregateRegionObserver;
 
     protected IndexTool.IndexDisableLoggingType disableLoggingVerifyType = IndexTool.IndexDisableLoggingType.NONE;
     protected byte[][] viewConstants;
     protected IndexVerificationOutputRepository verificationOutputRepository = null;
+    protected boolean verifyWithDigests = false;
+    protected int digestRowsPerBucket;
     protected boolean skipped = false;
     protected boolean shouldRetry = false;
     protected boolean shouldVerifyCheckDone = false;
@@ -258,6 +266,16 @@ public abstract class GlobalIndexRegionScanner extends BaseRegionScanner {
                         env.getConfiguration().getBoolean(PHOENIX_INDEX_MR_LOG_BEYOND_MAX_LOOKBACK_ERRORS,
                                 DEFAULT_PHOENIX_INDEX_MR_LOG_BEYOND_MAX_LOOKBACK_ERRORS);
             }
+            byte[] scanParamVerifyWithDigests =
+                    scan.getAttribute(BaseScannerRegionObserverConstants.INDEX_REBUILD_VERIFY_WITH_DIGESTS);
+            if (scanParamVerifyWithDigests != null) {
+                verifyWithDigests = Boolean.parseBoolean(Bytes.toString(scanParamVerifyWithDigests));
+            } else {
+                verifyWithDigests = config.getBoolean(PHOENIX_INDEX_MR_VERIFY_WITH_DIGESTS,
+                        DEFAULT_PHOENIX_INDEX_MR_VERIFY_WITH_DIGESTS);
+            }
+            digestRowsPerBucket = Math.max(1, config.getInt(INDEX_VERIFY_DIGEST_ROWS_PER_BUCKET_CONF_KEY,
+                    DEFAULT_INDEX_VERIFY_DIGEST_ROWS_PER_BUCKET));
             viewConstants = IndexUtil.deserializeViewConstantsFromScan(scan);
             byte[] disableLoggingValueBytes =
                     scan.getAttribute(BaseScannerRegionObserverConstants.INDEX_REBUILD_DISABLE_LOGGING_VERIFY_TYPE);
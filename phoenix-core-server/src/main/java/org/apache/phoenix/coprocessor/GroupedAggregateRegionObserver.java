@@ -21,8 +21,10 @@ import static org.apache.phoenix.query.QueryConstants.AGG_TIMESTAMP;
 import static org.apache.phoenix.query.QueryConstants.GROUPED_AGGREGATOR_VALUE_BYTES;
 import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
 import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static org.apache.phoenix.query.QueryServices.GROUPBY_COMPACT_CACHE_ENABLED_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.GROUPBY_ESTIMATED_DISTINCT_VALUES_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.GROUPBY_SPILLABLE_ATTRIB;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_COMPACT_CACHE_ENABLED;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_ESTIMATED_DISTINCT_VALUES;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_SPILLABLE;
 import static org.apache.phoenix.util.ScanUtil.getDummyResult;
@@ -58,6 +60,7 @@ import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.io.WritableUtils;
 import org.apache.phoenix.cache.GlobalCache;
 import org.apache.phoenix.cache.TenantCache;
+import org.apache.phoenix.cache.aggcache.CompactGroupByCache;
 import org.apache.phoenix.cache.aggcache.SpillableGroupByCache;
 import org.apache.phoenix.coprocessorclient.BaseScannerRegionObserverConstants;
 import org.apache.phoenix.execute.TupleProjector;
@@ -398,6 +401,12 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver im
                               int estDistVals,
                               boolean isIncompatibleClient) {
             Configuration conf = env.getConfiguration();
+            boolean compactEnabled = conf.getBoolean(GROUPBY_COMPACT_CACHE_ENABLED_ATTRIB,
+                    DEFAULT_GROUPBY_COMPACT_CACHE_ENABLED);
+            if (compactEnabled) {
+                return new CompactGroupByCache(env, tenantId, customAnnotations, aggregators,
+                        estDistVals, isIncompatibleClient);
+            }
             boolean spillableEnabled =
                     conf.getBoolean(GROUPBY_SPILLABLE_ATTRIB, DEFAULT_GROUPBY_SPILLABLE);
             if (spillableEnabled) {
@@ -43,10 +43,17 @@ import org.apache.phoenix.execute.TupleProjector;
 import org.apache.phoenix.execute.TupleProjector.ProjectedValueTuple;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.expression.vector.ColumnVector;
+import org.apache.phoenix.expression.vector.Selection;
+import org.apache.phoenix.expression.vector.TupleBatch;
+import org.apache.phoenix.expression.vector.VectorExpression;
+import org.apache.phoenix.expression.vector.VectorExpressionCompiler;
 import org.apache.phoenix.iterate.RegionScannerFactory;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.join.HashJoinInfo;
 import org.apache.phoenix.parse.JoinTableNode.JoinType;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.IllegalDataException;
 import org.apache.phoenix.schema.KeyValueSchema;
 import org.apache.phoenix.schema.ValueBitSet;
@@ -81,6 +88,12 @@ public class HashJoinRegionScanner implements RegionScanner {
     private final boolean useNewValueColumnQualifier;
     private final boolean addArrayCell;
     private final long pageSizeMs;
+    // Vectorized form of the post join filter. When set, joined rows are collected into
+    // postFilterBatch across probe rows and filtered a batch at a time.
+    private final VectorExpression vectorPostFilter;
+    private final TupleBatch postFilterBatch;
+    private final Selection postFilterSelection;
+    private final List<Tuple> postFilteredTuples;
 
     @SuppressWarnings("unchecked")
     public HashJoinRegionScanner(RegionScanner scanner, Scan scan, TupleProjector projector,
@@ -147,6 +160,25 @@ public class HashJoinRegionScanner implements RegionScanner {
         this.addArrayCell = (arrayFuncRefs != null && arrayFuncRefs.length > 0 &&
                              arrayKVRefs != null && arrayKVRefs.size() > 0);
         this.pageSizeMs = getPageSizeMsForRegionScanner(scan);
+        Expression postFilter = joinInfo.getPostJoinFilterExpression();
+        int batchSize = env.getConfiguration().getBoolean(
+                QueryServices.SERVER_VECTORIZED_FILTER_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_SERVER_VECTORIZED_FILTER_ENABLED)
+                ? env.getConfiguration().getInt(
+                        QueryServices.SERVER_VECTORIZED_FILTER_BATCH_SIZE_ATTRIB,
+                        QueryServicesOptions.DEFAULT_SERVER_VECTORIZED_FILTER_BATCH_SIZE)
+                : 0;
+        this.vectorPostFilter = postFilter != null && batchSize > 1
+                ? VectorExpressionCompiler.compile(postFilter) : null;
+        if (vectorPostFilter != null) {
+            this.postFilterBatch = new TupleBatch(batchSize);
+            this.postFilterSelection = new Selection(batchSize);
+            this.postFilteredTuples = new ArrayList<Tuple>();
+        } else {
+            this.postFilterBatch = null;
+            this.postFilterSelection = null;
+            this.postFilteredTuples = null;
+        }
     }
 
     private void processResults(List<Cell> result, boolean hasBatchLimit) throws IOException {
@@ -167,6 +199,12 @@ public class HashJoinRegionScanner implements RegionScanner {
             throw new UnsupportedOperationException("Cannot support join operations in scans with limit");
 
         int count = joinInfo.getJoinIds().length;
+        // In a partitioned (multi-pass) join, rows of the other partitions are joined
+        // in their own passes.
+        if (joinInfo.isPartitioned() && !joinInfo.isInPartition(TupleUtil.getConcatenatedValue(
+                tuple, joinInfo.getJoinExpressions()[joinInfo.getPartitionJoinIndex()]))) {
+            return;
+        }
         boolean cont = true;
         for (int i = 0; i < count; i++) {
             if (!(joinInfo.earlyEvaluation()[i]) || hashCaches[i] == null)
@@ -238,22 +276,21 @@ public class HashJoinRegionScanner implements RegionScanner {
             }
             // apply post-join filter
             Expression postFilter = joinInfo.getPostJoinFilterExpression();
-            if (postFilter != null) {
-                for (Iterator<Tuple> iter = resultQueue.iterator(); iter.hasNext();) {
-                    Tuple t = iter.next();
-                    postFilter.reset();
-                    ImmutableBytesPtr tempPtr = new ImmutableBytesPtr();
-                    try {
-                        if (!postFilter.evaluate(t, tempPtr) || tempPtr.getLength() == 0) {
-                            iter.remove();
-                            continue;
-                        }
-                    } catch (IllegalDataException e) {
-                        iter.remove();
-                        continue;
+            if (vectorPostFilter != null) {
+                // Joined rows wait in the batch, possibly across probe rows, until it is
+                // full or nextRaw returns (see flushPostFilterBatch)
+                Tuple t;
+                while ((t = resultQueue.poll()) != null) {
+                    postFilterBatch.add(t);
+                    if (postFilterBatch.isFull()) {
+                        filterPostFilterBatch();
                     }
-                    Boolean b = (Boolean)postFilter.getDataType().toObject(tempPtr);
-                    if (!Boolean.TRUE.equals(b)) {
+                }
+                resultQueue.addAll(postFilteredTuples);
+                postFilteredTuples.clear();
+            } else if (postFilter != null) {
+                for (Iterator<Tuple> iter = resultQueue.iterator(); iter.hasNext();) {
+                    if (!isAcceptedByPostFilter(postFilter, iter.next())) {
                         iter.remove();
                     }
                 }
@@ -261,6 +298,59 @@ public class HashJoinRegionScanner implements RegionScanner {
         }
     }
 
+    private static boolean isAcceptedByPostFilter(Expression postFilter, Tuple t) {
+        postFilter.reset();
+        ImmutableBytesPtr tempPtr = new ImmutableBytesPtr();
+        try {
+            if (!postFilter.evaluate(t, tempPtr) || tempPtr.getLength() == 0) {
+                return false;
+            }
+        } catch (IllegalDataException e) {
+            return false;
+        }
+        Boolean b = (Boolean)postFilter.getDataType().toObject(tempPtr);
+        return Boolean.TRUE.equals(b);
+    }
+
+    /**
+     * Evaluates the vectorized post join filter over the pending batch of joined rows and
+     * adds the rows it accepts to postFilteredTuples.
+     */
+    private void filterPostFilterBatch() {
+        if (postFilterBatch.size() == 0) {
+            return;
+        }
+        ColumnVector accepted = null;
+        postFilterSelection.selectAll(postFilterBatch.size());
+        try {
+            accepted = vectorPostFilter.evaluate(postFilterBatch, postFilterSelection);
+        } catch (IllegalDataException e) {
+            // Rows with illegal data are filtered out one by one, as on the row at a time path
+        }
+        for (int row = 0; row < postFilterBatch.size(); row++) {
+            Tuple t = postFilterBatch.get(row);
+            if (accepted == null
+                    ? isAcceptedByPostFilter(joinInfo.getPostJoinFilterExpression(), t)
+                    : accepted.isTrue(row)) {
+                postFilteredTuples.add(t);
+            }
+        }
+        postFilterBatch.clear();
+    }
+
+    /**
+     * Filters the joined rows still waiting in the post filter batch into the result queue.
+     * Called before nextRaw returns so that no pending row lies behind a returned row key.
+     */
+    private void flushPostFilterBatch() {
+        if (vectorPostFilter == null) {
+            return;
+        }
+        filterPostFilterBatch();
+        resultQueue.addAll(postFilteredTuples);
+        postFilteredTuples.clear();
+    }
+
     private boolean shouldAdvance() {
         if (!resultQueue.isEmpty())
             return false;
@@ -292,7 +382,8 @@ public class HashJoinRegionScanner implements RegionScanner {
 
     @Override
     public boolean isFilterDone() throws IOException {
-        return scanner.isFilterDone() && resultQueue.isEmpty();
+        return scanner.isFilterDone() && resultQueue.isEmpty()
+                && (postFilterBatch == null || postFilterBatch.size() == 0);
     }
 
     @Override
@@ -302,14 +393,30 @@ public class HashJoinRegionScanner implements RegionScanner {
             while (shouldAdvance()) {
                 hasMore = scanner.nextRaw(result);
                 if (isDummy(result)) {
-                    return true;
+                    flushPostFilterBatch();
+                    if (resultQueue.isEmpty()) {
+                        return true;
+                    }
+                    // The dummy row key is past the flushed rows, so they are returned first
+                    result.clear();
+                    break;
                 }
                 if (result.isEmpty()) {
-                    return hasMore;
+                    flushPostFilterBatch();
+                    if (resultQueue.isEmpty()) {
+                        return hasMore;
+                    }
+                    break;
                 }
                 Cell cell = result.get(0);
                 processResults(result, false);
                 if (EnvironmentEdgeManager.currentTimeMillis() - startTime >= pageSizeMs) {
+                    flushPostFilterBatch();
+                    if (!resultQueue.isEmpty()) {
+                        // Return the joined rows rather than a dummy row that would pass them
+                        result.clear();
+                        break;
+                    }
                     byte[] rowKey = CellUtil.cloneRow(cell);
                     result.clear();
                     getDummyResult(rowKey, result);
@@ -317,6 +424,9 @@ public class HashJoinRegionScanner implements RegionScanner {
                 }
                 result.clear();
             }
+            if (!hasMore) {
+                flushPostFilterBatch();
+            }
 
             return nextInQueue(result);
         } catch (Throwable t) {
@@ -25,7 +25,9 @@ import static org.apache.phoenix.util.ScanUtil.isDummy;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 
 import java.util.List;
 import java.util.Map;
@@ -54,6 +56,7 @@ import org.apache.phoenix.hbase.index.parallel.Task;
 import org.apache.phoenix.hbase.index.parallel.TaskBatch;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.index.GlobalIndexChecker;
+import org.apache.phoenix.index.IndexDigestRegionScanner;
 import org.apache.phoenix.mapreduce.index.IndexTool;
 import org.apache.phoenix.schema.types.PLong;
 import org.apache.phoenix.util.ClientUtil;
@@ -146,8 +149,59 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
     }
 
 
-    private Map<byte[], List<Mutation>> populateActualIndexMutationMap(Map<byte[], List<Mutation>> expectedIndexMutationMap) throws IOException {
+    /**
+     * Compares the digests of the buckets of the expected index rows with the digests of the actual
+     * index rows computed on the index table region servers. The expected index rows of the buckets
+     * with matching digests are counted as valid and removed, so that only the rows of the other
+     * buckets are fetched and verified row by row.
+     */
+    private void removeIndexRowsWithMatchingDigests(Map<byte[], List<Mutation>> expectedIndexMutationMap,
+                                                    IndexToolVerificationResult.PhaseResult verificationPhaseResult)
+            throws IOException {
+        int bucketCount = (expectedIndexMutationMap.size() + digestRowsPerBucket - 1) / digestRowsPerBucket;
+        long[][] expectedDigests = IndexDigestRegionScanner.getDigests(expectedIndexMutationMap, bucketCount);
+        long[][] actualDigests = new long[bucketCount][];
+        Scan indexScan = prepareIndexScan(expectedIndexMutationMap);
+        indexScan.setAttribute(BaseScannerRegionObserverConstants.INDEX_VERIFY_DIGEST_BUCKETS,
+                Bytes.toBytes(bucketCount));
+        indexScan.setAttribute(BaseScannerRegionObserverConstants.SKIP_REGION_BOUNDARY_CHECK,
+                Bytes.toBytes(true));
+        try (ResultScanner resultScanner = indexHTable.getScanner(indexScan)) {
+            for (Result result = resultScanner.next(); (result != null); result = resultScanner.next()) {
+                ungroupedAggregateRegionObserver.checkForRegionClosingOrSplitting();
+                if (!IndexDigestRegionScanner.addDigests(actualDigests, result)) {
+                    // The index table region server does not support digest scans
+                    LOGGER.debug("Digests are not available for " + indexHTable.getName()
+                            + ", verifying all index rows row by row");
+                    return;
+                }
+            }
+        } catch (Throwable t) {
+            ClientUtil.throwIOException(indexHTable.getName().toString(), t);
+        }
+        long validIndexRowCount = 0;
+        Iterator<byte[]> iterator = expectedIndexMutationMap.keySet().iterator();
+        while (iterator.hasNext()) {
+            int bucket = IndexDigestRegionScanner.getBucket(iterator.next(), bucketCount);
+            if (Arrays.equals(expectedDigests[bucket], actualDigests[bucket])) {
+                iterator.remove();
+                validIndexRowCount++;
+            }
+        }
+        verificationPhaseResult.setValidIndexRowCount(
+                verificationPhaseResult.getValidIndexRowCount() + validIndexRowCount);
+    }
+
+    private Map<byte[], List<Mutation>> populateActualIndexMutationMap(Map<byte[], List<Mutation>> expectedIndexMutationMap,
+                                                                       IndexToolVerificationResult.PhaseResult verificationPhaseResult)
+            throws IOException {
+        if (verifyWithDigests) {
+            removeIndexRowsWithMatchingDigests(expectedIndexMutationMap, verificationPhaseResult);
+        }
         Map<byte[], List<Mutation>> actualIndexMutationMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        if (expectedIndexMutationMap.isEmpty()) {
+            return actualIndexMutationMap;
+        }
         Scan indexScan = prepareIndexScan(expectedIndexMutationMap);
         try (ResultScanner resultScanner = indexHTable.getScanner(indexScan)) {
             for (Result result = resultScanner.next(); (result != null); result = resultScanner.next()) {
@@ -171,12 +225,14 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
             return;
         }
         if (verifyType == IndexTool.IndexVerifyType.ONLY) {
-            Map<byte[], List<Mutation>> actualIndexMutationMap = populateActualIndexMutationMap(expectedIndexMutationMap);
+            Map<byte[], List<Mutation>> actualIndexMutationMap = populateActualIndexMutationMap(expectedIndexMutationMap,
+                    verificationResult.getBefore());
             verifyIndexRows(actualIndexMutationMap, expectedIndexMutationMap, mostRecentIndexRowKeys, Collections.EMPTY_LIST, verificationResult.getBefore(), true);
             return;
         }
         if (verifyType == IndexTool.IndexVerifyType.BEFORE) {
-            Map<byte[], List<Mutation>> actualIndexMutationMap = populateActualIndexMutationMap(expectedIndexMutationMap);
+            Map<byte[], List<Mutation>> actualIndexMutationMap = populateActualIndexMutationMap(expectedIndexMutationMap,
+                    verificationResult.getBefore());
             verifyIndexRows(actualIndexMutationMap, expectedIndexMutationMap, mostRecentIndexRowKeys, indexRowsToBeDeleted, verificationResult.getBefore(), true);
             if (!expectedIndexMutationMap.isEmpty() || !indexRowsToBeDeleted.isEmpty()) {
                 rebuildIndexRows(expectedIndexMutationMap, indexRowsToBeDeleted, verificationResult);
@@ -185,18 +241,21 @@ public class IndexRebuildRegionScanner extends GlobalIndexRegionScanner {
         }
         if (verifyType == IndexTool.IndexVerifyType.AFTER) {
             rebuildIndexRows(expectedIndexMutationMap, Collections.EMPTY_LIST, verificationResult);
-            Map<byte[], List<Mutation>> actualIndexMutationMap = populateActualIndexMutationMap(expectedIndexMutationMap);
+            Map<byte[], List<Mutation>> actualIndexMutationMap = populateActualIndexMutationMap(expectedIndexMutationMap,
+                    verificationResult.getAfter());
             verifyIndexRows(actualIndexMutationMap, expectedIndexMutationMap, mostRecentIndexRowKeys, Collections.EMPTY_LIST, verificationResult.getAfter(), false);
             return;
         }
         if (verifyType == IndexTool.IndexVerifyType.BOTH) {
-            Map<byte[], List<Mutation>> actualIndexMutationMap = populateActualIndexMutationMap(expectedIndexMutationMap);
+            Map<byte[], List<Mutation>> actualIndexMutationMap = populateActualIndexMutationMap(expectedIndexMutationMap,
+                    verificationResult.getBefore());
             verifyIndexRows(actualIndexMutationMap,expectedIndexMutationMap, mostRecentIndexRowKeys, indexRowsToBeDeleted, verificationResult.getBefore(), true);
             if (!expectedIndexMutationMap.isEmpty() || !indexRowsToBeDeleted.isEmpty()) {
                 rebuildIndexRows(expectedIndexMutationMap, indexRowsToBeDeleted, verificationResult);
             }
             if (!expectedIndexMutationMap.isEmpty()) {
-                actualIndexMutationMap = populateActualIndexMutationMap(expectedIndexMutationMap);
+                actualIndexMutationMap = populateActualIndexMutationMap(expectedIndexMutationMap,
+                        verificationResult.getAfter());
                 verifyIndexRows(actualIndexMutationMap, expectedIndexMutationMap, mostRecentIndexRowKeys, Collections.EMPTY_LIST, verificationResult.getAfter(), false);
             }
         }
@@ -176,6 +176,8 @@ import org.apache.phoenix.coprocessor.generated.MetaDataProtos.DropTableRequest;
 import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetFunctionsRequest;
 import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetSchemaRequest;
 import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetTableRequest;
+import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetTablesRequest;
+import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetTablesResponse;
 import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetVersionRequest;
 import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetVersionResponse;
 import org.apache.phoenix.coprocessor.generated.MetaDataProtos.MetaDataResponse;
@@ -214,6 +216,7 @@ import org.apache.phoenix.query.KeyRange;
 import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.schema.LazyPTable;
 import org.apache.phoenix.schema.MetaDataSplitPolicy;
 import org.apache.phoenix.schema.PColumn;
 import org.apache.phoenix.schema.PColumnFamily;
@@ -601,6 +604,7 @@ TABLE_FAMILY_BYTES, TABLE_SEQ_NUM_BYTES);
     private int maxIndexesPerTable;
     private boolean isTablesMappingEnabled;
     private boolean invalidateServerCacheEnabled;
+    private boolean compactMetaDataCacheEnabled;
 
     // this flag denotes that we will continue to write parent table column metadata while creating
     // a child view and also block metadata changes that were previously propagated to children
@@ -652,6 +656,9 @@ TABLE_FAMILY_BYTES, TABLE_SEQ_NUM_BYTES);
         this.getMetadataReadLockEnabled
                 = config.getBoolean(QueryServices.PHOENIX_GET_METADATA_READ_LOCK_ENABLED,
                             QueryServicesOptions.DEFAULT_PHOENIX_GET_METADATA_READ_LOCK_ENABLED);
+        this.compactMetaDataCacheEnabled
+                = config.getBoolean(QueryServices.COMPACT_SERVER_METADATA_CACHE_ENABLED_ATTRIB,
+                        QueryServicesOptions.DEFAULT_COMPACT_SERVER_METADATA_CACHE_ENABLED);
 
         LOGGER.info("Starting Tracing-Metrics Systems");
         // Start the phoenix trace collection
@@ -746,6 +753,30 @@ TABLE_FAMILY_BYTES, TABLE_SEQ_NUM_BYTES);
         }
     }
 
+    /**
+     * Resolves each of the requested tables the way getTable does, in a single RPC. A table whose
+     * key is not in this region gets a response with a TABLE_NOT_IN_REGION code.
+     */
+    @Override
+    public void getTables(RpcController controller, GetTablesRequest request,
+                          RpcCallback<GetTablesResponse> done) {
+        final GetTablesResponse.Builder builder = GetTablesResponse.newBuilder();
+        RpcCallback<MetaDataResponse> tableDone = new RpcCallback<MetaDataResponse>() {
+            @Override
+            public void run(MetaDataResponse response) {
+                builder.addTableResponses(response);
+            }
+        };
+        for (GetTableRequest tableRequest : request.getTableRequestsList()) {
+            getTable(controller, tableRequest, tableDone);
+            if (controller.failed()) {
+                // getTable set the exception of the table on the controller
+                return;
+            }
+        }
+        done.run(builder.build());
+    }
+
     private PhoenixMetaDataCoprocessorHost getCoprocessorHost() {
         return phoenixAccessCoprocessorHost;
     }
@@ -771,7 +802,8 @@ TABLE_FAMILY_BYTES, TABLE_SEQ_NUM_BYTES);
                             + " with newer timestamp " + newTable.getTimeStamp() + " versus "
                             + tableTimeStamp);
                 }
-                metaDataCache.put(cacheKey, newTable);
+                metaDataCache.put(cacheKey,
+                        compactMetaDataCacheEnabled ? LazyPTable.of(newTable) : newTable);
             }
         }
         return newTable;
@@ -2042,6 +2074,10 @@ TABLE_FAMILY_BYTES, TABLE_SEQ_NUM_BYTES);
     private PTable getTableFromCache(ImmutableBytesPtr cacheKey, long clientTimeStamp, int clientVersion) {
         Cache<ImmutableBytesPtr, PMetaDataEntity> metaDataCache = GlobalCache.getInstance(this.env).getMetaDataCache();
         PTable table = (PTable) metaDataCache.getIfPresent(cacheKey);
+        if (table instanceof LazyPTable) {
+            // Keep what the caller materializes out of the cache
+            return ((LazyPTable) table).copy();
+        }
         return table;
     }
 
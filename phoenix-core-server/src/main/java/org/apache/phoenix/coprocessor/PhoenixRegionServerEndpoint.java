@@ -27,7 +27,9 @@ import java.util.Collections;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.CoprocessorEnvironment;
 import org.apache.hadoop.hbase.coprocessor.RegionServerCoprocessor;
+import org.apache.hadoop.hbase.util.ByteStringer;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.cache.LastDDLTimestampChangeLog;
 import org.apache.phoenix.cache.ServerMetadataCache;
 import org.apache.phoenix.cache.ServerMetadataCacheImpl;
 import org.apache.phoenix.coprocessor.generated.RegionServerEndpointProtos;
@@ -106,6 +108,31 @@ public class PhoenixRegionServerEndpoint
         }
     }
 
+    @Override
+    public void getLastDDLTimestampChanges(RpcController controller,
+            RegionServerEndpointProtos.GetLastDDLTimestampChangesRequest request,
+            RpcCallback<RegionServerEndpointProtos.GetLastDDLTimestampChangesResponse> done) {
+        // Returns at once, never parking the RPC handler until a change is logged
+        LastDDLTimestampChangeLog changeLog = getServerMetadataCache().getChangeLog();
+        LastDDLTimestampChangeLog.Changes changes = request.hasChangeLogId()
+                ? changeLog.getChanges(request.getChangeLogId(), request.getSequenceNumber())
+                : changeLog.subscribe();
+        RegionServerEndpointProtos.GetLastDDLTimestampChangesResponse.Builder builder =
+                RegionServerEndpointProtos.GetLastDDLTimestampChangesResponse.newBuilder();
+        builder.setChangeLogId(changes.getLogId());
+        builder.setSequenceNumber(changes.getSequenceNumber());
+        builder.setComplete(changes.isComplete());
+        for (byte[][] table : changes.getTables()) {
+            RegionServerEndpointProtos.LastDDLTimestampChange.Builder changeBuilder =
+                    RegionServerEndpointProtos.LastDDLTimestampChange.newBuilder();
+            changeBuilder.setTenantId(ByteStringer.wrap(table[0]));
+            changeBuilder.setSchemaName(ByteStringer.wrap(table[1]));
+            changeBuilder.setTableName(ByteStringer.wrap(table[2]));
+            builder.addChanges(changeBuilder.build());
+        }
+        done.run(builder.build());
+    }
+
     @Override
     public Iterable<Service> getServices() {
         return Collections.singletonList(this);
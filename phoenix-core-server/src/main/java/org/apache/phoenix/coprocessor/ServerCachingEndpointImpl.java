@@ -20,6 +20,7 @@ package org.apache.phoenix.coprocessor;
 import java.io.IOException;
 import java.util.Collections;
 
+import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.hbase.CoprocessorEnvironment;
 import org.apache.hadoop.hbase.coprocessor.CoprocessorException;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessor;
@@ -78,6 +79,9 @@ public class ServerCachingEndpointImpl extends ServerCachingService implements R
           Class<ServerCacheFactory> serverCacheFactoryClass =
           (Class<ServerCacheFactory>) Class.forName(request.getCacheFactory().getClassName());
           ServerCacheFactory cacheFactory = serverCacheFactoryClass.newInstance();
+          if (cacheFactory instanceof Configurable) {
+              ((Configurable) cacheFactory).setConf(this.env.getConfiguration());
+          }
           tenantCache.addServerCache(new ImmutableBytesPtr(request.getCacheId().toByteArray()),
               cachePtr, txState, cacheFactory, request.hasHasProtoBufIndexMaintainer() && request.getHasProtoBufIndexMaintainer(),
               request.getUsePersistentCache(), request.hasClientVersion() ? request.getClientVersion() : ScanUtil.UNKNOWN_CLIENT_VERSION);
@@ -17,10 +17,12 @@
  */
 package org.apache.phoenix.coprocessor;
 
+import static org.apache.phoenix.coprocessorclient.BaseScannerRegionObserverConstants.CDC_DATA_TABLE_DEF;
 import static org.apache.phoenix.coprocessorclient.BaseScannerRegionObserverConstants.PHYSICAL_DATA_TABLE_NAME;
 import static org.apache.phoenix.hbase.index.write.AbstractParallelWriterIndexCommitter.INDEX_WRITER_KEEP_ALIVE_TIME_CONF_KEY;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -29,12 +31,18 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.util.Pair;
+import org.apache.phoenix.cache.GlobalCache;
+import org.apache.phoenix.cache.IndexDataRowCache;
 import org.apache.phoenix.execute.TupleProjector;
+import org.apache.phoenix.filter.RowDigestFilter;
 import org.apache.phoenix.hbase.index.parallel.EarlyExitFailure;
 import org.apache.phoenix.hbase.index.parallel.Task;
 import org.apache.phoenix.hbase.index.parallel.TaskBatch;
@@ -77,6 +85,9 @@ public class UncoveredGlobalIndexRegionScanner extends UncoveredIndexRegionScann
     protected final TaskRunner pool;
     protected String exceptionMessage;
     protected final HTableFactory hTableFactory;
+    // Region server wide cache of data rows, null if the cache is disabled or not applicable
+    private final IndexDataRowCache dataRowCache;
+    private final byte[] dataRowCacheKeyPrefix;
 
     // This relies on Hadoop Configuration to handle warning about deprecated configs and
     // to set the correct non-deprecated configs when an old one shows up.
@@ -118,6 +129,15 @@ public class UncoveredGlobalIndexRegionScanner extends UncoveredIndexRegionScann
             ScanUtil.addEmptyColumnToScan(dataTableScan, indexMaintainer.getDataEmptyKeyValueCF(),
                     indexMaintainer.getEmptyKeyValueQualifierForDataTable());
         }
+        // CDC scans need all the versions of the rows and so they cannot be served from the cache
+        if (scan.getAttribute(CDC_DATA_TABLE_DEF) == null) {
+            dataRowCache = GlobalCache.getInstance(env).getIndexDataRowCache();
+        } else {
+            dataRowCache = null;
+        }
+        dataRowCacheKeyPrefix = dataRowCache == null ? null
+                : IndexDataRowCache.getKeyPrefix(dataTableName, dataTableScan,
+                        scan.getTimeRange().getMin());
     }
 
     @Override
@@ -130,7 +150,65 @@ public class UncoveredGlobalIndexRegionScanner extends UncoveredIndexRegionScann
         this.pool.stop("UncoveredGlobalIndexRegionScanner is closing");
     }
 
+    /**
+     * Looks up the given data rows in the data row cache. Only the digest of the cached rows is
+     * retrieved from the data table, and a cached row is used if it was cached with the same
+     * digest. The rows found in the cache are added to dataRows so that they are skipped by the
+     * data table scan. No digest is retrieved if none of the rows is cached.
+     */
+    private void getDataRowsFromCache(Collection<byte[]> dataRowKeys) throws IOException {
+        List<byte[]> cachedRowKeys = new ArrayList<>();
+        for (byte[] dataRowKey : dataRowKeys) {
+            if (dataRowCache.contains(IndexDataRowCache.getKey(dataRowCacheKeyPrefix,
+                    dataRowKey))) {
+                cachedRowKeys.add(dataRowKey);
+            }
+        }
+        if (cachedRowKeys.isEmpty()) {
+            return;
+        }
+        Scan probeScan = prepareDataTableScan(cachedRowKeys);
+        if (probeScan == null) {
+            return;
+        }
+        byte[] emptyCF = indexMaintainer.getDataEmptyKeyValueCF();
+        byte[] emptyCQ = indexMaintainer.getEmptyKeyValueQualifierForDataTable();
+        probeScan.setFilter(new FilterList(probeScan.getFilter(),
+                new RowDigestFilter(emptyCF, emptyCQ)));
+        int hitCount = 0;
+        try (ResultScanner resultScanner = dataHTable.getScanner(probeScan)) {
+            for (Result result = resultScanner.next(); (result != null);
+                 result = resultScanner.next()) {
+                if (ScanUtil.isDummy(result)) {
+                    // The remaining rows will be retrieved by the data table scan
+                    break;
+                }
+                Cell digestCell = result.getColumnLatestCell(emptyCF, emptyCQ);
+                if (digestCell == null) {
+                    continue;
+                }
+                Result dataRow = dataRowCache.get(IndexDataRowCache.getKey(
+                        dataRowCacheKeyPrefix, result.getRow()), CellUtil.cloneValue(digestCell));
+                if (dataRow != null) {
+                    dataRows.put(new ImmutableBytesPtr(result.getRow()), dataRow);
+                    hitCount++;
+                }
+            }
+        } catch (Throwable t) {
+            exceptionMessage = "getDataRowsFromCache fails for at least one task";
+            ClientUtil.throwIOException(dataHTable.getName().toString(), t);
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Found " + hitCount + " of " + cachedRowKeys.size()
+                    + " data rows in the data row cache for region "
+                    + region.getRegionInfo().getRegionNameAsString());
+        }
+    }
+
     protected void scanDataRows(Collection<byte[]> dataRowKeys, long startTime) throws IOException {
+        if (dataRowCache != null) {
+            getDataRowsFromCache(dataRowKeys);
+        }
         Scan dataScan = prepareDataTableScan(dataRowKeys);
         if (dataScan == null) {
             return;
@@ -143,6 +221,10 @@ public class UncoveredGlobalIndexRegionScanner extends UncoveredIndexRegionScann
                     break;
                 }
                 dataRows.put(new ImmutableBytesPtr(result.getRow()), result);
+                if (dataRowCache != null) {
+                    dataRowCache.put(IndexDataRowCache.getKey(dataRowCacheKeyPrefix,
+                            result.getRow()), result);
+                }
                 if ((EnvironmentEdgeManager.currentTimeMillis() - startTime) >= pageSizeMs) {
                     state = State.SCANNING_DATA_INTERRUPTED;
                     break;
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.InsufficientMemoryException;
+import org.apache.phoenix.memory.MemoryManager;
+import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Bounded LRU cache of the latest committed state of the data rows of a region, used by
+ * {@link IndexRegionObserver} to skip the read of the current data row state before generating
+ * the index updates of a mutation. An entry is the row state computed by a successful batch while
+ * the row was locked, so it is exactly what a scan of the row would return until the row is
+ * mutated again. The caller is responsible for invalidating the cache whenever the region changes
+ * outside of the batch mutate path (flushes, compactions, bulk loads, region close).
+ *
+ * The memory held by the entries is accounted against the given {@link MemoryManager}. The
+ * allocation grows on demand up to the configured maximum and least recently used entries are
+ * evicted when the pool cannot provide more memory.
+ *
+ * @since 5.3.0
+ */
+public class DataRowStateCache {
+    // LinkedHashMap entry, key and Put object overheads
+    private static final long ENTRY_OVERHEAD = ClassSize.align(ClassSize.OBJECT
+            + 5 * ClassSize.REFERENCE + 2 * ClassSize.OBJECT + ClassSize.ARRAY);
+    // Minimum step by which the memory allocation of the cache is grown
+    private static final long MIN_ALLOCATION_INCREMENT = 64 * 1024;
+
+    private final MemoryManager memoryManager;
+    private final long maxBytes;
+    private final LinkedHashMap<ImmutableBytesPtr, CachedRowState> rowStates =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private MemoryChunk chunk;
+    private long usedBytes;
+    private boolean closed;
+
+    private static class CachedRowState {
+        private final Put rowState;
+        private final long size;
+
+        private CachedRowState(Put rowState, long size) {
+            this.rowState = rowState;
+            this.size = size;
+        }
+    }
+
+    public DataRowStateCache(MemoryManager memoryManager, long maxBytes) {
+        this.memoryManager = memoryManager;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns a copy of the cached state of the given row, or null if the row state is not cached.
+     * The returned Put can be modified by the caller without affecting the cache.
+     */
+    public Put get(ImmutableBytesPtr rowKey) {
+        CachedRowState cached;
+        synchronized (this) {
+            cached = rowStates.get(rowKey);
+        }
+        return cached == null ? null : new Put(cached.rowState);
+    }
+
+    /**
+     * Caches the given row state. The cells are copied on heap so that the cache neither retains
+     * the buffers of the RPC that carried the mutation nor the blocks that the row was read from.
+     * If the row state cannot fit in the cache, any previous state of the row is invalidated.
+     */
+    public void put(ImmutableBytesPtr rowKey, Put rowState) {
+        ImmutableBytesPtr key = new ImmutableBytesPtr(rowKey.copyBytesIfNecessary());
+        Put copy = new Put(key.get());
+        for (List<Cell> cells : rowState.getFamilyCellMap().values()) {
+            for (Cell cell : cells) {
+                copy.add(KeyValueUtil.copyToNewKeyValue(cell));
+            }
+        }
+        long size = ENTRY_OVERHEAD + key.getLength() + copy.heapSize();
+        synchronized (this) {
+            remove(key);
+            if (closed || size > maxBytes) {
+                return;
+            }
+            evict(maxBytes - size);
+            if (!reserve(usedBytes + size)) {
+                return;
+            }
+            rowStates.put(key, new CachedRowState(copy, size));
+            usedBytes += size;
+        }
+    }
+
+    public synchronized void invalidate(ImmutableBytesPtr rowKey) {
+        remove(rowKey);
+    }
+
+    /**
+     * Drops all the cached row states and releases the memory held by them
+     */
+    public synchronized void invalidateAll() {
+        rowStates.clear();
+        usedBytes = 0;
+        if (chunk != null) {
+            chunk.resize(0);
+        }
+    }
+
+    public synchronized void close() {
+        closed = true;
+        rowStates.clear();
+        usedBytes = 0;
+        if (chunk != null) {
+            chunk.close();
+            chunk = null;
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getRowCount() {
+        return rowStates.size();
+    }
+
+    @VisibleForTesting
+    synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    private void remove(ImmutableBytesPtr rowKey) {
+        CachedRowState removed = rowStates.remove(rowKey);
+        if (removed != null) {
+            usedBytes -= removed.size;
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries until at most the given number of bytes is used
+     */
+    private void evict(long targetBytes) {
+        Iterator<Map.Entry<ImmutableBytesPtr, CachedRowState>> iterator =
+                rowStates.entrySet().iterator();
+        while (usedBytes > targetBytes && iterator.hasNext()) {
+            usedBytes -= iterator.next().getValue().size;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Makes sure the memory allocated for the cache covers the given number of bytes, growing the
+     * allocation if needed. When the memory pool is exhausted, entries are evicted to fit the
+     * current allocation instead.
+     * @return true if the given number of bytes fit in the allocation
+     */
+    private boolean reserve(long requiredBytes) {
+        if (chunk == null) {
+            chunk = memoryManager.allocate(0, 0);
+        }
+        if (requiredBytes <= chunk.getSize()) {
+            return true;
+        }
+        long newSize = Math.min(maxBytes, Math.max(requiredBytes,
+                chunk.getSize() + Math.max(MIN_ALLOCATION_INCREMENT, chunk.getSize() / 2)));
+        try {
+            chunk.resize(newSize);
+            return true;
+        } catch (InsufficientMemoryException e) {
+            try {
+                chunk.resize(requiredBytes);
+                return true;
+            } catch (InsufficientMemoryException e1) {
+                long delta = requiredBytes - usedBytes;
+                evict(chunk.getSize() - delta);
+                return usedBytes + delta <= chunk.getSize();
+            }
+        }
+    }
+}
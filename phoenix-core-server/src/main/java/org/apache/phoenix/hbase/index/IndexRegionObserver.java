@@ -37,10 +37,18 @@ import java.util.Optional;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
 import org.apache.hadoop.hbase.client.TableDescriptor;
 import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.hadoop.hbase.regionserver.FlushLifeCycleTracker;
+import org.apache.hadoop.hbase.regionserver.Store;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionLifeCycleTracker;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
 import org.apache.phoenix.execute.MutationState;
 import org.apache.phoenix.index.PhoenixIndexBuilderHelper;
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
 import org.apache.phoenix.thirdparty.com.google.common.base.Preconditions;
 import org.apache.phoenix.thirdparty.com.google.common.collect.ArrayListMultimap;
 import org.apache.phoenix.thirdparty.com.google.common.collect.ListMultimap;
@@ -66,6 +74,7 @@ import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessor;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.coprocessor.RegionObserver;
+import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.regionserver.MiniBatchOperationInProgress;
 import org.apache.hadoop.hbase.regionserver.OperationStatus;
@@ -79,6 +88,7 @@ import org.apache.hadoop.io.WritableUtils;
 import org.apache.htrace.Span;
 import org.apache.htrace.Trace;
 import org.apache.htrace.TraceScope;
+import org.apache.phoenix.cache.GlobalCache;
 import org.apache.phoenix.compile.ScanRanges;
 import org.apache.phoenix.coprocessor.DelegateRegionCoprocessorEnvironment;
 import org.apache.phoenix.coprocessor.generated.PTableProtos;
@@ -100,6 +110,7 @@ import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSourceFactory;
 import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
 import org.apache.phoenix.hbase.index.util.GenericKeyValueBuilder;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.hbase.index.write.IndexWriteCoalescer;
 import org.apache.phoenix.hbase.index.write.IndexWriter;
 import org.apache.phoenix.hbase.index.write.LazyParallelWriterIndexCommitter;
 import org.apache.phoenix.index.IndexMaintainer;
@@ -261,6 +272,8 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
       private boolean hasGlobalIndex;
       private boolean hasLocalIndex;
       private boolean hasTransform;
+      // True if the current data row states were retrieved for all the rows of this batch
+      private boolean currentRowStatesRetrieved;
       public BatchMutateContext() {
           this.clientVersion = 0;
       }
@@ -336,9 +349,44 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
   private static final String INDEXER_PRE_INCREMENT_SLOW_THRESHOLD_KEY = "phoenix.indexer.slow.pre.increment";
   private static final long INDEXER_PRE_INCREMENT_SLOW_THRESHOLD_DEFAULT = 3_000;
 
+  /**
+   * Configuration key for coalescing the index writes of concurrent batches into group commits.
+   * See {@link IndexWriteCoalescer}.
+   */
+  public static final String INDEX_WRITE_COALESCING_ENABLED = "phoenix.index.write.coalescing.enabled";
+  private static final boolean INDEX_WRITE_COALESCING_ENABLED_DEFAULT = false;
+  public static final String INDEX_WRITE_COALESCING_MAX_BATCHES = "phoenix.index.write.coalescing.max.batches";
+  private static final int INDEX_WRITE_COALESCING_MAX_BATCHES_DEFAULT = 64;
+  public static final String INDEX_WRITE_COALESCING_MAX_IN_FLIGHT = "phoenix.index.write.coalescing.max.in.flight";
+  private static final int INDEX_WRITE_COALESCING_MAX_IN_FLIGHT_DEFAULT = 1;
+
+  /**
+   * Configuration key for locking the data rows with pooled lock objects instead of creating a
+   * lock per row. See {@link PooledLockManager}.
+   */
+  public static final String INDEX_ROW_LOCK_POOLED_ENABLED = "phoenix.index.row.lock.pooled.enabled";
+  private static final boolean INDEX_ROW_LOCK_POOLED_ENABLED_DEFAULT = false;
+  public static final String INDEX_ROW_LOCK_POOL_SIZE = "phoenix.index.row.lock.pool.size";
+  private static final int INDEX_ROW_LOCK_POOL_SIZE_DEFAULT = 1024;
+
+  /**
+   * Configuration key for caching the data row states computed by successful batches so that
+   * subsequent mutations on the same rows do not have to read them from the region.
+   * See {@link DataRowStateCache}.
+   */
+  public static final String INDEX_ROW_STATE_CACHE_ENABLED = "phoenix.index.row.state.cache.enabled";
+  private static final boolean INDEX_ROW_STATE_CACHE_ENABLED_DEFAULT = false;
+  public static final String INDEX_ROW_STATE_CACHE_MAX_BYTES = "phoenix.index.row.state.cache.max.bytes";
+  private static final long INDEX_ROW_STATE_CACHE_MAX_BYTES_DEFAULT = 8 * 1024 * 1024;
+
   // Index writers get invoked before and after data table updates
   protected IndexWriter preWriter;
   protected IndexWriter postWriter;
+  // Group committers of the index writers, null unless index write coalescing is enabled
+  private IndexWriteCoalescer preWriteCoalescer;
+  private IndexWriteCoalescer postWriteCoalescer;
+  // The latest committed data row states of this region, null unless the row state cache is enabled
+  private DataRowStateCache rowStateCache;
 
   protected IndexBuildManager builder;
   private LockManager lockManager;
@@ -394,13 +442,37 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
 
         this.rowLockWaitDuration = env.getConfiguration().getInt("hbase.rowlock.wait.duration",
                 DEFAULT_ROWLOCK_WAIT_DURATION);
-          this.lockManager = new LockManager();
+          if (env.getConfiguration().getBoolean(INDEX_ROW_LOCK_POOLED_ENABLED,
+                  INDEX_ROW_LOCK_POOLED_ENABLED_DEFAULT)) {
+              this.lockManager = new PooledLockManager(env.getConfiguration().getInt(
+                      INDEX_ROW_LOCK_POOL_SIZE, INDEX_ROW_LOCK_POOL_SIZE_DEFAULT));
+          } else {
+              this.lockManager = new LockManager();
+          }
           this.concurrentMutationWaitDuration = env.getConfiguration().getInt("phoenix.index.concurrent.wait.duration.ms",
                   DEFAULT_CONCURRENT_MUTATION_WAIT_DURATION_IN_MS);
           // Metrics impl for the Indexer -- avoiding unnecessary indirection for hadoop-1/2 compat
           this.metricSource = MetricsIndexerSourceFactory.getInstance().getIndexerSource();
           setSlowThresholds(e.getConfiguration());
           this.dataTableName = env.getRegionInfo().getTable().getNameAsString();
+          if (env.getConfiguration().getBoolean(INDEX_WRITE_COALESCING_ENABLED,
+                  INDEX_WRITE_COALESCING_ENABLED_DEFAULT)) {
+              int maxBatches = env.getConfiguration().getInt(INDEX_WRITE_COALESCING_MAX_BATCHES,
+                      INDEX_WRITE_COALESCING_MAX_BATCHES_DEFAULT);
+              int maxInFlight = env.getConfiguration().getInt(INDEX_WRITE_COALESCING_MAX_IN_FLIGHT,
+                      INDEX_WRITE_COALESCING_MAX_IN_FLIGHT_DEFAULT);
+              this.preWriteCoalescer = new IndexWriteCoalescer(preWriter, maxBatches, maxInFlight,
+                      metricSource, dataTableName);
+              this.postWriteCoalescer = new IndexWriteCoalescer(postWriter, maxBatches,
+                      maxInFlight, metricSource, dataTableName);
+          }
+          if (env.getConfiguration().getBoolean(INDEX_ROW_STATE_CACHE_ENABLED,
+                  INDEX_ROW_STATE_CACHE_ENABLED_DEFAULT) && !hasTTL(env.getRegion().getTableDescriptor())) {
+              this.rowStateCache = new DataRowStateCache(
+                      GlobalCache.getInstance(env).getMemoryManager(),
+                      env.getConfiguration().getLong(INDEX_ROW_STATE_CACHE_MAX_BYTES,
+                              INDEX_ROW_STATE_CACHE_MAX_BYTES_DEFAULT));
+          }
           this.shouldWALAppend = env.getConfiguration().getBoolean(PHOENIX_APPEND_METADATA_TO_WAL,
               DEFAULT_PHOENIX_APPEND_METADATA_TO_WAL);
           this.isNamespaceEnabled = SchemaUtil.isNamespaceMappingEnabled(PTableType.INDEX,
@@ -415,6 +487,19 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
       }
   }
 
+  /**
+   * Cells expire from a column family with a TTL without any mutation going through this
+   * coprocessor, so the row states of such tables cannot be cached.
+   */
+  private static boolean hasTTL(TableDescriptor tableDescriptor) {
+      for (ColumnFamilyDescriptor family : tableDescriptor.getColumnFamilies()) {
+          if (family.getTimeToLive() != HConstants.FOREVER) {
+              return true;
+          }
+      }
+      return false;
+  }
+
   /**
    * Extracts the slow call threshold values from the configuration.
    */
@@ -445,6 +530,47 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
     this.builder.stop(msg);
     this.preWriter.stop(msg);
     this.postWriter.stop(msg);
+    if (this.rowStateCache != null) {
+        this.rowStateCache.close();
+    }
+  }
+
+  /**
+   * The row state cache only tracks the changes made through batch mutations, so it is dropped
+   * whenever the region files change by other means.
+   */
+  @Override
+  public void preFlush(ObserverContext<RegionCoprocessorEnvironment> c,
+          FlushLifeCycleTracker tracker) throws IOException {
+      if (rowStateCache != null) {
+          rowStateCache.invalidateAll();
+      }
+  }
+
+  @Override
+  public void postCompact(ObserverContext<RegionCoprocessorEnvironment> c, Store store,
+          StoreFile resultFile, CompactionLifeCycleTracker tracker, CompactionRequest request)
+          throws IOException {
+      if (rowStateCache != null) {
+          rowStateCache.invalidateAll();
+      }
+  }
+
+  @Override
+  public void postBulkLoadHFile(ObserverContext<RegionCoprocessorEnvironment> c,
+          List<Pair<byte[], String>> stagingFamilyPaths, Map<byte[], List<Path>> finalPaths)
+          throws IOException {
+      if (rowStateCache != null) {
+          rowStateCache.invalidateAll();
+      }
+  }
+
+  @Override
+  public void preClose(ObserverContext<RegionCoprocessorEnvironment> c, boolean abortRequested)
+          throws IOException {
+      if (rowStateCache != null) {
+          rowStateCache.invalidateAll();
+      }
   }
 
   /**
@@ -581,8 +707,15 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
   }
 
   private void lockRows(BatchMutateContext context) throws IOException {
-      for (ImmutableBytesPtr rowKey : context.rowsToLock) {
-          context.rowLocks.add(lockManager.lockRow(rowKey, rowLockWaitDuration));
+      long start = EnvironmentEdgeManager.currentTimeMillis();
+      try {
+          context.rowLocks.addAll(lockManager.lockRows(context.rowsToLock, rowLockWaitDuration));
+      } catch (TimeoutIOException e) {
+          metricSource.incrementRowLockTimeouts(dataTableName);
+          throw e;
+      } finally {
+          metricSource.updateRowLockWaitTime(dataTableName,
+                  EnvironmentEdgeManager.currentTimeMillis() - start);
       }
   }
 
@@ -854,8 +987,14 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
             // rows. This will be used to detect concurrent updates
             PendingRow existingPendingRow = pendingRows.putIfAbsent(rowKeyPtr, pendingRow);
             if (existingPendingRow == null) {
-                // There was no pending row for this row key. We need to retrieve this row from disk
-                keys.add(PVarbinary.INSTANCE.getKeyRange(rowKeyPtr.get(), SortOrder.ASC));
+                // There was no pending row for this row key. We need to retrieve this row from
+                // the row state cache or disk
+                Put put = rowStateCache != null ? rowStateCache.get(rowKeyPtr) : null;
+                if (put != null) {
+                    context.dataRowStates.put(rowKeyPtr, new Pair<>(put, new Put(put)));
+                } else {
+                    keys.add(PVarbinary.INSTANCE.getKeyRange(rowKeyPtr.get(), SortOrder.ASC));
+                }
             } else {
                 // There is a pending row for this row key. We need to retrieve the row from memory
                 BatchMutateContext lastContext = existingPendingRow.getLastContext();
@@ -1232,6 +1371,7 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
                     context.hasDelete ||  (context.hasUncoveredIndex &&
                     isPartialUncoveredIndexMutation(indexMetaData, miniBatchOp))) {
                 getCurrentRowStates(c, context);
+                context.currentRowStatesRetrieved = true;
             }
             onDupCheckTime += (EnvironmentEdgeManager.currentTimeMillis() - start);
         }
@@ -1378,11 +1518,12 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
   @Override
   public void postBatchMutateIndispensably(ObserverContext<RegionCoprocessorEnvironment> c,
       MiniBatchOperationInProgress<Mutation> miniBatchOp, final boolean success) throws IOException {
-      if (this.disabled) {
-          return;
-      }
-      BatchMutateContext context = getBatchMutateContext(c);
+      BatchMutateContext context = this.disabled ? null : getBatchMutateContext(c);
       if (context == null) {
+          // The batch skipped index maintenance, so the cached states of its rows may be stale
+          if (rowStateCache != null) {
+              invalidateRowStateCache(miniBatchOp);
+          }
           return;
       }
       try {
@@ -1392,6 +1533,9 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
               context.currentPhase = BatchMutatePhase.FAILED;
           }
           context.countDownAllLatches();
+          if (rowStateCache != null) {
+              updateRowStateCache(miniBatchOp, context, success);
+          }
           removePendingRows(context);
           if (context.indexUpdates != null) {
               context.indexUpdates.clear();
@@ -1442,9 +1586,57 @@ public class IndexRegionObserver implements RegionCoprocessor, RegionObserver {
           }
           current.addTimelineAnnotation("Actually doing " + (post ? "post" : "pre") + " index update for first time");
           if (post) {
-              postWriter.write(indexUpdates, false, context.clientVersion);
+              if (postWriteCoalescer != null) {
+                  postWriteCoalescer.write(indexUpdates, context.clientVersion);
+              } else {
+                  postWriter.write(indexUpdates, false, context.clientVersion);
+              }
+          } else {
+              if (preWriteCoalescer != null) {
+                  preWriteCoalescer.write(indexUpdates, context.clientVersion);
+              } else {
+                  preWriter.write(indexUpdates, false, context.clientVersion);
+              }
+          }
+      }
+  }
+
+  /**
+   * Caches the next row states of a successful batch. This is done while the rows are still
+   * locked so that the cache is updated in the same order as the pending row states. The rows
+   * whose next state is not known (e.g., the rows mutated without index maintenance) and the rows
+   * of a failed batch are invalidated.
+   */
+  private void invalidateRowStateCache(MiniBatchOperationInProgress<Mutation> miniBatchOp) {
+      for (int i = 0; i < miniBatchOp.size(); i++) {
+          rowStateCache.invalidate(new ImmutableBytesPtr(miniBatchOp.getOperation(i).getRow()));
+      }
+  }
+
+  @VisibleForTesting
+  void setRowStateCache(DataRowStateCache rowStateCache) {
+      this.rowStateCache = rowStateCache;
+  }
+
+  private void updateRowStateCache(MiniBatchOperationInProgress<Mutation> miniBatchOp,
+          BatchMutateContext context, boolean success) {
+      boolean cacheable = success && context.currentRowStatesRetrieved
+              && (context.hasGlobalIndex || context.hasUncoveredIndex || context.hasTransform);
+      for (int i = 0; i < miniBatchOp.size(); i++) {
+          ImmutableBytesPtr rowKeyPtr = new ImmutableBytesPtr(miniBatchOp.getOperation(i).getRow());
+          if (!cacheable || !context.rowsToLock.contains(rowKeyPtr)) {
+              rowStateCache.invalidate(rowKeyPtr);
+          }
+      }
+      if (!cacheable) {
+          return;
+      }
+      for (ImmutableBytesPtr rowKeyPtr : context.rowsToLock) {
+          Put nextDataRowState = context.getNextDataRowState(rowKeyPtr);
+          if (nextDataRowState != null) {
+              rowStateCache.put(rowKeyPtr, nextDataRowState);
           } else {
-              preWriter.write(indexUpdates, false, context.clientVersion);
+              rowStateCache.invalidate(rowKeyPtr);
           }
       }
   }
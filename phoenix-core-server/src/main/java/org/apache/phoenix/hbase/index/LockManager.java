@@ -19,6 +19,9 @@ package org.apache.phoenix.hbase.index;
 
 import java.io.IOException;
 import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
@@ -112,6 +115,34 @@ public class LockManager {
         return lockRow(rowKey, waitDurationMs);
     }
 
+    /**
+     * Lock all the given rows or none of them. The rows are locked in the iteration order of
+     * the given collection, which should be sorted to avoid deadlocks between batches.
+     * @param rowKeys
+     * @param waitDurationMs the allowed wait duration for each row
+     * @return RowLocks used to eventually release the locks
+     * @throws TimeoutIOException if one of the locks could not be acquired in time, in which
+     * case the locks acquired so far are released
+     */
+    public List<RowLock> lockRows(Collection<ImmutableBytesPtr> rowKeys, long waitDurationMs)
+            throws IOException {
+        List<RowLock> rowLocks = new ArrayList<>(rowKeys.size());
+        boolean success = false;
+        try {
+            for (ImmutableBytesPtr rowKey : rowKeys) {
+                rowLocks.add(lockRow(rowKey, waitDurationMs));
+            }
+            success = true;
+            return rowLocks;
+        } finally {
+            if (!success) {
+                for (RowLock rowLock : rowLocks) {
+                    rowLock.release();
+                }
+            }
+        }
+    }
+
     /**
      * Class used to represent a lock on a row.
      */
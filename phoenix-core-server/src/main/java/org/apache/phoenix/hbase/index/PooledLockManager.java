@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link LockManager} that, like its parent, locks each row exactly, so batches of disjoint
+ * rows never wait for each other, but takes the lock objects from a pool instead of creating
+ * a fair lock for every row of every batch. A lock goes back to the pool once no thread holds
+ * or waits for it anymore. The locks of a batch are acquired in the iteration order of the
+ * rows, and either all of them are acquired within the allowed wait duration or none of them.
+ *
+ * @since 5.3.0
+ */
+public class PooledLockManager extends LockManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledLockManager.class);
+
+    private final ConcurrentHashMap<ImmutableBytesPtr, PooledRowLock> lockedRows =
+            new ConcurrentHashMap<>();
+    private final ArrayBlockingQueue<PooledRowLock> pool;
+
+    /**
+     * @param poolSize maximum number of idle locks kept for reuse
+     */
+    public PooledLockManager(int poolSize) {
+        this.pool = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+
+    @Override
+    public RowLock lockRow(ImmutableBytesPtr rowKey, long waitDurationMs) throws IOException {
+        return lockRowUntil(rowKey, EnvironmentEdgeManager.currentTimeMillis() + waitDurationMs);
+    }
+
+    /**
+     * Locks the given rows in their iteration order. The wait duration applies to the whole
+     * batch of rows.
+     */
+    @Override
+    public List<RowLock> lockRows(Collection<ImmutableBytesPtr> rowKeys, long waitDurationMs)
+            throws IOException {
+        long deadline = EnvironmentEdgeManager.currentTimeMillis() + waitDurationMs;
+        List<RowLock> rowLocks = new ArrayList<>(rowKeys.size());
+        boolean success = false;
+        try {
+            for (ImmutableBytesPtr rowKey : rowKeys) {
+                rowLocks.add(lockRowUntil(rowKey, deadline));
+            }
+            success = true;
+            return rowLocks;
+        } finally {
+            if (!success) {
+                for (RowLock rowLock : rowLocks) {
+                    rowLock.release();
+                }
+            }
+        }
+    }
+
+    private RowLock lockRowUntil(ImmutableBytesPtr rowKey, long deadline) throws IOException {
+        try {
+            while (true) {
+                PooledRowLock rowLock = lockedRows.get(rowKey);
+                if (rowLock == null) {
+                    PooledRowLock newRowLock = borrow(rowKey);
+                    rowLock = lockedRows.putIfAbsent(rowKey, newRowLock);
+                    if (rowLock == null) {
+                        return newRowLock;
+                    }
+                    newRowLock.lock.unlock();
+                    recycle(newRowLock);
+                }
+                // The row is locked, or being locked, by another thread
+                if (rowLock.retain(rowKey)) {
+                    boolean success = false;
+                    try {
+                        long remaining = deadline - EnvironmentEdgeManager.currentTimeMillis();
+                        if (!rowLock.lock.tryLock() && (remaining <= 0
+                                || !rowLock.lock.tryLock(remaining, TimeUnit.MILLISECONDS))) {
+                            throw new TimeoutIOException(
+                                    "Timed out waiting for lock for row: " + rowKey);
+                        }
+                        success = true;
+                        return rowLock;
+                    } finally {
+                        if (!success) {
+                            rowLock.cleanUp();
+                        }
+                    }
+                }
+                // The lock was released and removed before this thread could wait for it
+                if (EnvironmentEdgeManager.currentTimeMillis() > deadline) {
+                    throw new TimeoutIOException("Timed out waiting for lock for row: " + rowKey);
+                }
+            }
+        } catch (InterruptedException ie) {
+            LOGGER.warn("Thread interrupted waiting for lock on row: " + rowKey);
+            InterruptedIOException iie = new InterruptedIOException();
+            iie.initCause(ie);
+            Thread.currentThread().interrupt();
+            throw iie;
+        }
+    }
+
+    /**
+     * @return a lock for the row, already held by the current thread and not yet visible to
+     * other threads
+     */
+    private PooledRowLock borrow(ImmutableBytesPtr rowKey) {
+        PooledRowLock rowLock = pool.poll();
+        if (rowLock == null) {
+            rowLock = new PooledRowLock();
+        }
+        synchronized (rowLock) {
+            rowLock.rowKey = rowKey;
+            rowLock.count = 1;
+        }
+        rowLock.lock.lock();
+        return rowLock;
+    }
+
+    private void recycle(PooledRowLock rowLock) {
+        synchronized (rowLock) {
+            rowLock.rowKey = null;
+        }
+        pool.offer(rowLock);
+    }
+
+    /**
+     * @return the number of idle locks kept for reuse
+     */
+    int getPoolSize() {
+        return pool.size();
+    }
+
+    /**
+     * Lock on a single row. The same object is shared by all the threads holding or waiting
+     * for the row and is reused for another row once all of them are done.
+     */
+    private class PooledRowLock implements RowLock {
+        private final ReentrantLock lock = new ReentrantLock();
+        // Guarded by this
+        private ImmutableBytesPtr rowKey;
+        // Number of threads holding or waiting for the lock, guarded by this
+        private int count;
+
+        /**
+         * Registers the current thread as a waiter, unless this is not the lock of the row
+         * anymore. A lock is only removed from lockedRows, and then reused, with its monitor
+         * held and its count at zero.
+         */
+        private synchronized boolean retain(ImmutableBytesPtr rowKey) {
+            if (lockedRows.get(rowKey) != this) {
+                return false;
+            }
+            count++;
+            return true;
+        }
+
+        private void cleanUp() {
+            boolean removed = false;
+            synchronized (this) {
+                count--;
+                if (count == 0) {
+                    removed = lockedRows.remove(rowKey, this);
+                    assert removed : "We should never remove a different lock";
+                } else {
+                    assert count > 0 : "Reference count should never be less than zero";
+                }
+            }
+            if (removed) {
+                recycle(this);
+            }
+        }
+
+        @Override
+        public void release() {
+            lock.unlock();
+            cleanUp();
+        }
+
+        @Override
+        public synchronized ImmutableBytesPtr getRowKey() {
+            return rowKey;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "PooledRowLock{" +
+                    "row=" + rowKey +
+                    ", count=" + count +
+                    ", lock=" + lock +
+                    "}";
+        }
+    }
+}
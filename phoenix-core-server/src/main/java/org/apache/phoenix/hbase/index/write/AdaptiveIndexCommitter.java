@@ -0,0 +1,545 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index.write;
+
+import static org.apache.phoenix.util.ServerUtil.wrapInDoNotRetryIOException;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.Stoppable;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.util.Pair;
+import org.apache.phoenix.coprocessorclient.MetaDataProtocol;
+import org.apache.phoenix.hbase.index.exception.MultiIndexWriteFailureException;
+import org.apache.phoenix.hbase.index.exception.SingleIndexWriteFailureException;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSource;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSourceFactory;
+import org.apache.phoenix.hbase.index.parallel.ThreadPoolBuilder;
+import org.apache.phoenix.hbase.index.parallel.ThreadPoolManager;
+import org.apache.phoenix.hbase.index.table.HTableFactory;
+import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
+import org.apache.phoenix.hbase.index.util.KeyValueBuilder;
+import org.apache.phoenix.index.PhoenixIndexFailurePolicy;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.ServerIndexUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
+import org.apache.phoenix.thirdparty.com.google.common.collect.Multimap;
+
+/**
+ * Writes the index updates through a queue per destination region server instead of a task per
+ * index table on the shared writer pool. With the other committers, a single slow index region
+ * ties up the writer threads and stalls the index writes of every data table batch on the server.
+ * Here, the number of concurrent writes to a region server is bounded, so the writes to a hot
+ * server queue up behind each other while the writes to the other servers proceed.
+ * <p>
+ * The queues are shared by the committers of all the regions of the region server, see
+ * {@link ServerQueues}, so the bound holds for the whole server rather than for each region.
+ * The index updates of concurrent batches that are queued for the same server are written with
+ * one {@link Table#batch(List, Object[])} call per index table and region. The bound on the
+ * in-flight writes of a server adapts to its latency: it is halved when a write takes longer than
+ * the target latency and grows back by one with every faster write. The latency of the writes is
+ * tracked per index table, and the depth of the queues per destination server, and both are
+ * reported via {@link MetricsIndexerSource}.
+ * <p>
+ * Like the {@link TrackingParallelWriterIndexCommitter}, all the writes are attempted and a
+ * {@link MultiIndexWriteFailureException} lists the index tables that could not be updated.
+ *
+ * @since 5.3.0
+ */
+public class AdaptiveIndexCommitter implements IndexCommitter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveIndexCommitter.class);
+
+    private static final int DEFAULT_CONCURRENT_INDEX_WRITER_THREADS = 10;
+    public static final String MAX_IN_FLIGHT_PER_SERVER_CONF_KEY =
+            "phoenix.index.writer.adaptive.max.in.flight.per.server";
+    private static final int DEFAULT_MAX_IN_FLIGHT_PER_SERVER = 4;
+    public static final String TARGET_LATENCY_MS_CONF_KEY =
+            "phoenix.index.writer.adaptive.target.latency.ms";
+    private static final long DEFAULT_TARGET_LATENCY_MS = 1000;
+    public static final String MAX_BATCH_SIZE_CONF_KEY =
+            "phoenix.index.writer.adaptive.max.batch.size";
+    private static final int DEFAULT_MAX_BATCH_SIZE = 5000;
+
+    // The queue of the index updates whose destination region could not be located
+    private static final String UNKNOWN_SERVER = "unknown";
+
+    private ExecutorService pool;
+    private HTableFactory retryingFactory;
+    private HTableFactory noRetriesFactory;
+    private Stoppable stopped;
+    private RegionCoprocessorEnvironment env;
+    private KeyValueBuilder kvBuilder;
+    private MetricsIndexerSource metricSource;
+    private boolean disableIndexOnFailure = false;
+    private int maxInFlightPerServer = DEFAULT_MAX_IN_FLIGHT_PER_SERVER;
+    private long targetLatencyMs = DEFAULT_TARGET_LATENCY_MS;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private ServerQueues serverQueues;
+
+    // for testing
+    public AdaptiveIndexCommitter(String hbaseVersion) {
+        kvBuilder = KeyValueBuilder.get(hbaseVersion);
+    }
+
+    public AdaptiveIndexCommitter() {
+    }
+
+    @Override
+    public void setup(IndexWriter parent, RegionCoprocessorEnvironment env, String name,
+            boolean disableIndexOnFailure) {
+        this.disableIndexOnFailure = disableIndexOnFailure;
+        Configuration conf = env.getConfiguration();
+        setup(IndexWriterUtils.getDefaultDelegateHTableFactory(env),
+                ThreadPoolManager.getExecutor(new ThreadPoolBuilder(name, conf).setMaxThread(
+                        AbstractParallelWriterIndexCommitter.NUM_CONCURRENT_INDEX_WRITER_THREADS_CONF_KEY,
+                        DEFAULT_CONCURRENT_INDEX_WRITER_THREADS).setCoreTimeout(
+                        AbstractParallelWriterIndexCommitter.INDEX_WRITER_KEEP_ALIVE_TIME_CONF_KEY), env),
+                parent, env, MetricsIndexerSourceFactory.getInstance().getIndexerSource(),
+                ServerQueues.getInstance(),
+                conf.getInt(MAX_IN_FLIGHT_PER_SERVER_CONF_KEY, DEFAULT_MAX_IN_FLIGHT_PER_SERVER),
+                conf.getLong(TARGET_LATENCY_MS_CONF_KEY, DEFAULT_TARGET_LATENCY_MS),
+                conf.getInt(MAX_BATCH_SIZE_CONF_KEY, DEFAULT_MAX_BATCH_SIZE));
+        this.kvBuilder = KeyValueBuilder.get(env.getHBaseVersion());
+    }
+
+    /**
+     * Setup <tt>this</tt>.
+     * <p>
+     * Exposed for TESTING
+     */
+    void setup(HTableFactory factory, ExecutorService pool, Stoppable stop,
+            RegionCoprocessorEnvironment env, MetricsIndexerSource metricSource,
+            ServerQueues serverQueues, int maxInFlightPerServer, long targetLatencyMs,
+            int maxBatchSize) {
+        this.pool = pool;
+        this.retryingFactory = factory;
+        this.noRetriesFactory = IndexWriterUtils.getNoRetriesHTableFactory(env);
+        this.stopped = stop;
+        this.env = env;
+        this.metricSource = metricSource;
+        this.maxInFlightPerServer = Math.max(1, maxInFlightPerServer);
+        this.targetLatencyMs = targetLatencyMs;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.serverQueues = serverQueues;
+    }
+
+    @Override
+    public void write(Multimap<HTableInterfaceReference, Mutation> toWrite,
+            final boolean allowLocalUpdates, final int clientVersion) throws IOException {
+        List<WriteRequest> requests = new ArrayList<>();
+        for (Entry<HTableInterfaceReference, Collection<Mutation>> entry : toWrite.asMap().entrySet()) {
+            // get the mutations for each table. We leak the implementation here a little bit to save
+            // doing a complete copy over of all the index update for each table.
+            List<Mutation> mutations = kvBuilder.cloneIfNecessary((List<Mutation>) entry.getValue());
+            HTableInterfaceReference tableReference = entry.getKey();
+            if (env != null && tableReference.getTableName().equals(
+                    env.getRegion().getTableDescriptor().getTableName().getNameAsString())) {
+                if (!allowLocalUpdates) {
+                    continue;
+                }
+                try {
+                    ServerIndexUtil.writeLocalUpdates(env.getRegion(), mutations, true);
+                    continue;
+                } catch (IOException ignored) {
+                    // when it's failed we fall back to the standard & slow way
+                    if (LOGGER.isTraceEnabled()) {
+                        LOGGER.trace("indexRegion.batchMutate failed and fall " +
+                                "back to HTable.batch(). Got error=" + ignored);
+                    }
+                }
+            }
+            // if the client can retry index writes, then we don't need to retry here
+            HTableFactory factory = disableIndexOnFailure
+                    && clientVersion >= MetaDataProtocol.MIN_CLIENT_RETRY_INDEX_WRITES
+                    ? noRetriesFactory : retryingFactory;
+            for (Entry<String, List<Mutation>> serverMutations :
+                    groupByServer(factory, tableReference, mutations).entrySet()) {
+                WriteRequest request = new WriteRequest(this, tableReference, factory,
+                        serverMutations.getValue());
+                requests.add(request);
+                serverQueues.getQueue(serverMutations.getKey(), this).enqueue(request);
+            }
+        }
+
+        List<HTableInterfaceReference> failedTables = new ArrayList<>();
+        Throwable cause = null;
+        boolean interrupted = false;
+        for (WriteRequest request : requests) {
+            while (true) {
+                try {
+                    request.future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    // Keep waiting since the queued writes cannot be taken back
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    LOGGER.warn("Index Write failed for table " + request.tableReference, e);
+                    if (!failedTables.contains(request.tableReference)) {
+                        failedTables.add(request.tableReference);
+                    }
+                    if (cause == null) {
+                        cause = e;
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        // if any of the writes failed, then we need to propagate the failure
+        if (!failedTables.isEmpty()) {
+            // DisableIndexOnFailure flag is used by the old design. Setting the cause in MIWFE
+            // does not work for old design, so only do this for new design
+            if (disableIndexOnFailure) {
+                throw new MultiIndexWriteFailureException(
+                        Collections.unmodifiableList(failedTables),
+                        PhoenixIndexFailurePolicy.getDisableIndexOnFailure(env));
+            }
+            throw wrapInDoNotRetryIOException("At least one index write failed after retries",
+                    new MultiIndexWriteFailureException(Collections.unmodifiableList(failedTables),
+                            false, cause), EnvironmentEdgeManager.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Groups the mutations by the region server hosting their destination region. The region
+     * locations come from the location cache of the connection.
+     */
+    private Map<String, List<Mutation>> groupByServer(HTableFactory factory,
+            HTableInterfaceReference tableReference, List<Mutation> mutations) {
+        Map<String, List<Mutation>> serverMutations = new HashMap<>();
+        RegionLocator locator = null;
+        try {
+            Connection connection = factory.getConnection();
+            if (connection != null) {
+                locator = connection.getRegionLocator(
+                        TableName.valueOf(tableReference.get().copyBytesIfNecessary()));
+            }
+            for (Mutation mutation : mutations) {
+                String server = UNKNOWN_SERVER;
+                if (locator != null) {
+                    HRegionLocation location = locator.getRegionLocation(mutation.getRow());
+                    if (location != null && location.getServerName() != null) {
+                        server = location.getServerName().getAddress().toString();
+                    }
+                }
+                serverMutations.computeIfAbsent(server, k -> new ArrayList<>()).add(mutation);
+            }
+            return serverMutations;
+        } catch (IOException e) {
+            LOGGER.debug("Could not locate the regions of " + tableReference, e);
+            return Collections.singletonMap(UNKNOWN_SERVER, mutations);
+        } finally {
+            if (locator != null) {
+                try {
+                    locator.close();
+                } catch (IOException e) {
+                    LOGGER.debug("Failed to close the region locator of " + tableReference, e);
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int getInFlightLimit(String server) {
+        ServerQueue queue = serverQueues.queues.get(server);
+        synchronized (queue) {
+            return queue.inFlightLimit;
+        }
+    }
+
+    /**
+     * The queues of the index updates, one per destination region server, shared by the
+     * committers of all the regions of the region server. A queue is set up with the settings of
+     * the committer that first writes to its server, which are the same for all the committers
+     * since they come from the configuration of the region server.
+     */
+    @VisibleForTesting
+    static class ServerQueues {
+        private static final ServerQueues INSTANCE = new ServerQueues();
+
+        // Keyed by host and port so that the queue of a server survives its restarts
+        private final Map<String, ServerQueue> queues = new ConcurrentHashMap<>();
+
+        static ServerQueues getInstance() {
+            return INSTANCE;
+        }
+
+        private ServerQueue getQueue(String server, AdaptiveIndexCommitter committer) {
+            return queues.computeIfAbsent(server, k -> new ServerQueue(k,
+                    committer.metricSource, committer.maxInFlightPerServer,
+                    committer.targetLatencyMs, committer.maxBatchSize));
+        }
+
+        /**
+         * Fails the queued requests of a committer that is stopped, leaving the requests of the
+         * other committers queued
+         */
+        private void failPending(AdaptiveIndexCommitter committer) {
+            for (ServerQueue queue : queues.values()) {
+                List<WriteRequest> failed = new ArrayList<>();
+                synchronized (queue) {
+                    Iterator<WriteRequest> iterator = queue.pending.iterator();
+                    while (iterator.hasNext()) {
+                        WriteRequest request = iterator.next();
+                        if (request.committer == committer) {
+                            iterator.remove();
+                            queue.pendingMutations -= request.mutations.size();
+                            failed.add(request);
+                        }
+                    }
+                }
+                fail(failed, null);
+            }
+        }
+    }
+
+    /**
+     * Index updates of a single data table batch for one index table and one region server
+     */
+    private static class WriteRequest {
+        private final AdaptiveIndexCommitter committer;
+        private final HTableInterfaceReference tableReference;
+        private final HTableFactory factory;
+        private final List<Mutation> mutations;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private WriteRequest(AdaptiveIndexCommitter committer,
+                HTableInterfaceReference tableReference, HTableFactory factory,
+                List<Mutation> mutations) {
+            this.committer = committer;
+            this.tableReference = tableReference;
+            this.factory = factory;
+            this.mutations = mutations;
+        }
+    }
+
+    private static void fail(List<WriteRequest> requests, Throwable cause) {
+        for (WriteRequest request : requests) {
+            request.future.completeExceptionally(new SingleIndexWriteFailureException(
+                    "Pool closed, not attempting to write to the index!", cause));
+        }
+    }
+
+    /**
+     * Task writing a group of requests dequeued together
+     */
+    private static class GroupWrite implements Runnable {
+        private final ServerQueue queue;
+        private final List<WriteRequest> group;
+
+        private GroupWrite(ServerQueue queue, List<WriteRequest> group) {
+            this.queue = queue;
+            this.group = group;
+        }
+
+        @Override
+        public void run() {
+            queue.write(group);
+        }
+    }
+
+    /**
+     * The queue of the index updates destined for one region server
+     */
+    private static class ServerQueue {
+        private final String server;
+        private final MetricsIndexerSource metricSource;
+        private final int maxInFlightPerServer;
+        private final long targetLatencyMs;
+        private final int maxBatchSize;
+        @GuardedBy("this")
+        private final Deque<WriteRequest> pending = new ArrayDeque<>();
+        @GuardedBy("this")
+        private int pendingMutations;
+        @GuardedBy("this")
+        private int inFlight;
+        @GuardedBy("this")
+        private int inFlightLimit;
+
+        private ServerQueue(String server, MetricsIndexerSource metricSource,
+                int maxInFlightPerServer, long targetLatencyMs, int maxBatchSize) {
+            this.server = server;
+            this.metricSource = metricSource;
+            this.maxInFlightPerServer = maxInFlightPerServer;
+            this.targetLatencyMs = targetLatencyMs;
+            this.maxBatchSize = maxBatchSize;
+            this.inFlightLimit = maxInFlightPerServer;
+        }
+
+        synchronized void enqueue(WriteRequest request) {
+            pending.add(request);
+            pendingMutations += request.mutations.size();
+            metricSource.updateIndexWriteQueueDepth(server, pendingMutations);
+            dispatch();
+        }
+
+        /**
+         * Hands the queued requests to the writer pool while the in-flight limit allows, taking
+         * as many requests as fit in one batch each time. The writer pools are shared by name
+         * across the regions of the server, so a group only holds requests of the same pool
+         * and can be handed to it.
+         */
+        @GuardedBy("this")
+        private void dispatch() {
+            while (inFlight < inFlightLimit && !pending.isEmpty()) {
+                List<WriteRequest> group = new ArrayList<>();
+                ExecutorService pool = pending.peek().committer.pool;
+                int size = 0;
+                while (!pending.isEmpty() && (group.isEmpty()
+                        || (pending.peek().committer.pool == pool
+                                && size + pending.peek().mutations.size() <= maxBatchSize))) {
+                    WriteRequest request = pending.poll();
+                    size += request.mutations.size();
+                    group.add(request);
+                }
+                pendingMutations -= size;
+                inFlight++;
+                try {
+                    pool.execute(new GroupWrite(this, group));
+                } catch (RejectedExecutionException e) {
+                    inFlight--;
+                    fail(group, e);
+                }
+            }
+        }
+
+        private void write(List<WriteRequest> group) {
+            long start = EnvironmentEdgeManager.currentTimeMillis();
+            try {
+                Map<Pair<HTableFactory, HTableInterfaceReference>, List<WriteRequest>> tableRequests =
+                        new LinkedHashMap<>();
+                for (WriteRequest request : group) {
+                    tableRequests.computeIfAbsent(
+                            new Pair<>(request.factory, request.tableReference),
+                            k -> new ArrayList<>()).add(request);
+                }
+                for (Entry<Pair<HTableFactory, HTableInterfaceReference>, List<WriteRequest>> entry :
+                        tableRequests.entrySet()) {
+                    write(entry.getKey().getFirst(), entry.getKey().getSecond(), entry.getValue());
+                }
+            } finally {
+                long latency = EnvironmentEdgeManager.currentTimeMillis() - start;
+                synchronized (this) {
+                    inFlight--;
+                    if (latency > targetLatencyMs) {
+                        inFlightLimit = Math.max(1, inFlightLimit / 2);
+                        LOGGER.debug("Index writes to " + server + " took " + latency
+                                + " ms, limiting in-flight writes to " + inFlightLimit);
+                    } else if (inFlightLimit < maxInFlightPerServer) {
+                        inFlightLimit++;
+                    }
+                    dispatch();
+                }
+            }
+        }
+
+        private void write(HTableFactory factory, HTableInterfaceReference tableReference,
+                List<WriteRequest> requests) {
+            long start = EnvironmentEdgeManager.currentTimeMillis();
+            List<Mutation> mutations;
+            if (requests.size() == 1) {
+                mutations = requests.get(0).mutations;
+            } else {
+                mutations = new ArrayList<>();
+                for (WriteRequest request : requests) {
+                    mutations.addAll(request.mutations);
+                }
+            }
+            try {
+                // Requests with the same table factory come from the same committer
+                if (requests.get(0).committer.stopped.isStopped()
+                        || Thread.currentThread().isInterrupted()) {
+                    throw new SingleIndexWriteFailureException(
+                            "Pool closed, not attempting to write to the index!", null);
+                }
+                if (LOGGER.isTraceEnabled()) {
+                    LOGGER.trace("Writing index update:" + mutations + " to table: "
+                            + tableReference);
+                }
+                try (Table table = factory.getTable(tableReference.get())) {
+                    table.batch(mutations, null);
+                }
+                for (WriteRequest request : requests) {
+                    request.future.complete(null);
+                }
+            } catch (Throwable t) {
+                if (t instanceof InterruptedException) {
+                    // reset the interrupt status on the thread
+                    Thread.currentThread().interrupt();
+                }
+                for (WriteRequest request : requests) {
+                    request.future.completeExceptionally(t);
+                }
+            } finally {
+                requests.get(0).committer.metricSource.updateIndexWriteLatency(
+                        tableReference.getTableName(),
+                        EnvironmentEdgeManager.currentTimeMillis() - start);
+            }
+        }
+    }
+
+    @Override
+    public void stop(String why) {
+        LOGGER.info("Shutting down " + this.getClass().getSimpleName() + " because " + why);
+        // Fail the requests that will never be written so that the writers waiting on them return
+        for (Runnable task : this.pool.shutdownNow()) {
+            if (task instanceof GroupWrite) {
+                fail(((GroupWrite) task).group, null);
+            }
+        }
+        serverQueues.failPending(this);
+        this.retryingFactory.shutdown();
+        this.noRetriesFactory.shutdown();
+    }
+
+    @Override
+    public boolean isStopped() {
+        return this.stopped.isStopped();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index.write;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSource;
+import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
+
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
+import org.apache.phoenix.thirdparty.com.google.common.collect.ArrayListMultimap;
+import org.apache.phoenix.thirdparty.com.google.common.collect.Multimap;
+
+/**
+ * Group commit of the index updates of concurrent batches on a region. While the maximum number
+ * of index commits are in flight, the updates of the batches that arrive are accumulated into
+ * the next group, and the first batch of that group writes all of them with a single call to
+ * the {@link IndexWriter} as soon as a commit completes. The other batches of the group wait for
+ * that commit and fail along with it. On hot rows this turns the index writes of a chain of
+ * dependent batches into one commit instead of one commit per batch.
+ * <p>
+ * Batches are only grouped with batches of the same client version, since the version decides
+ * how failures are handled.
+ *
+ * @since 5.3.0
+ */
+public class IndexWriteCoalescer {
+
+    private static final class Group {
+        private final int clientVersion;
+        private final Multimap<HTableInterfaceReference, Mutation> indexUpdates =
+                ArrayListMultimap.create();
+        private final CountDownLatch committed = new CountDownLatch(1);
+        private int batchCount;
+        private volatile Throwable failure;
+
+        private Group(int clientVersion) {
+            this.clientVersion = clientVersion;
+        }
+    }
+
+    private final IndexWriter writer;
+    private final int maxBatchesPerGroup;
+    private final int maxInFlightCommits;
+    private final MetricsIndexerSource metricSource;
+    private final String dataTableName;
+    // The group that arriving batches join, guarded by this
+    private Group nextGroup;
+    private int inFlightCommits;
+
+    public IndexWriteCoalescer(IndexWriter writer, int maxBatchesPerGroup,
+            int maxInFlightCommits, MetricsIndexerSource metricSource, String dataTableName) {
+        this.writer = writer;
+        this.maxBatchesPerGroup = maxBatchesPerGroup;
+        this.maxInFlightCommits = maxInFlightCommits;
+        this.metricSource = metricSource;
+        this.dataTableName = dataTableName;
+    }
+
+    /**
+     * Writes the given index updates, possibly together with those of concurrent batches.
+     * Returns once the commit holding the updates has completed.
+     * @throws IOException if the commit holding the updates failed
+     */
+    public void write(Multimap<HTableInterfaceReference, Mutation> indexUpdates,
+            int clientVersion) throws IOException {
+        Group group;
+        boolean leader;
+        synchronized (this) {
+            if (nextGroup == null || nextGroup.clientVersion != clientVersion
+                    || nextGroup.batchCount >= maxBatchesPerGroup) {
+                nextGroup = new Group(clientVersion);
+            }
+            group = nextGroup;
+            group.indexUpdates.putAll(indexUpdates);
+            leader = ++group.batchCount == 1;
+        }
+        if (leader) {
+            commit(group);
+        } else {
+            try {
+                group.committed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for a coalesced index write");
+            }
+        }
+        Throwable failure = group.failure;
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new IOException(failure);
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getWaitingBatchCount() {
+        return nextGroup == null ? 0 : nextGroup.batchCount;
+    }
+
+    private void commit(Group group) {
+        try {
+            try {
+                synchronized (this) {
+                    while (inFlightCommits >= maxInFlightCommits) {
+                        wait();
+                    }
+                    inFlightCommits++;
+                    // No batch may join the group once its updates are being written
+                    if (nextGroup == group) {
+                        nextGroup = null;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                synchronized (this) {
+                    if (nextGroup == group) {
+                        nextGroup = null;
+                    }
+                }
+                group.failure = new InterruptedIOException(
+                        "Interrupted waiting to write coalesced index updates");
+                return;
+            }
+            try {
+                writer.write(group.indexUpdates, false, group.clientVersion);
+            } catch (Throwable t) {
+                group.failure = t;
+            } finally {
+                synchronized (this) {
+                    inFlightCommits--;
+                    notifyAll();
+                }
+            }
+            metricSource.updateIndexWriteCoalescedBatches(dataTableName, group.batchCount);
+            if (group.batchCount > 1) {
+                metricSource.incrementCoalescedIndexWrites(dataTableName, group.batchCount - 1);
+            }
+        } finally {
+            group.committed.countDown();
+        }
+    }
+}
@@ -656,12 +656,17 @@ public class GlobalIndexChecker extends BaseScannerRegionObserver implements Reg
 
     @Override
     protected boolean isRegionObserverFor(Scan scan) {
-        return scan.getAttribute(BaseScannerRegionObserverConstants.CHECK_VERIFY_COLUMN) != null;
+        return scan.getAttribute(BaseScannerRegionObserverConstants.CHECK_VERIFY_COLUMN) != null
+                || scan.getAttribute(BaseScannerRegionObserverConstants.INDEX_VERIFY_DIGEST_BUCKETS) != null;
     }
 
     @Override
     protected RegionScanner doPostScannerOpen(final ObserverContext<RegionCoprocessorEnvironment> c, final Scan scan,
                                               final RegionScanner s) throws IOException, SQLException {
+        byte[] digestBuckets = scan.getAttribute(BaseScannerRegionObserverConstants.INDEX_VERIFY_DIGEST_BUCKETS);
+        if (digestBuckets != null) {
+            return new IndexDigestRegionScanner(s, Bytes.toInt(digestBuckets));
+        }
         return new GlobalIndexScanner(c.getEnvironment(), scan, s, metricsSource);
     }
 
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.index;
+
+import static org.apache.phoenix.query.QueryConstants.AGG_TIMESTAMP;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.coprocessor.BaseRegionScanner;
+import org.apache.phoenix.thirdparty.com.google.common.hash.HashFunction;
+import org.apache.phoenix.thirdparty.com.google.common.hash.Hasher;
+import org.apache.phoenix.thirdparty.com.google.common.hash.Hashing;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.apache.phoenix.util.ScanUtil;
+
+/**
+ * Index table region scanner used for digest based index verification. Instead of the scanned
+ * index rows, it returns a single row with one digest per bucket of index rows, where the bucket
+ * of an index row is given by the hash of its row key. The digest of a bucket is the sum of the
+ * 128 bit hashes of all the cells of its rows, which does not depend on the order of the cells
+ * and thus can be computed the same way from the expected index mutations on the data table
+ * region server. Only the rows of the buckets whose digests differ need to be fetched and
+ * verified row by row.
+ *
+ * @since 5.3.0
+ */
+public class IndexDigestRegionScanner extends BaseRegionScanner {
+    public static final byte[] DIGEST_FAMILY = Bytes.toBytes("_DIGEST");
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final int bucketCount;
+    private boolean done = false;
+
+    public IndexDigestRegionScanner(RegionScanner delegate, int bucketCount) {
+        super(delegate);
+        this.bucketCount = bucketCount;
+    }
+
+    public static int getBucket(byte[] rowKey, int bucketCount) {
+        return Math.floorMod(Bytes.hashCode(rowKey), bucketCount);
+    }
+
+    /**
+     * Adds the hash of the given cell to the digest of a bucket. Every part of the cell that index
+     * verification compares is hashed, including the timestamp and the type of delete markers.
+     */
+    public static void addCell(long[] digest, Cell cell) {
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        hasher.putInt(cell.getRowLength());
+        hasher.putBytes(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
+        hasher.putInt(cell.getFamilyLength());
+        hasher.putBytes(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength());
+        hasher.putInt(cell.getQualifierLength());
+        hasher.putBytes(cell.getQualifierArray(), cell.getQualifierOffset(),
+                cell.getQualifierLength());
+        hasher.putLong(cell.getTimestamp());
+        hasher.putByte(cell.getType().getCode());
+        hasher.putInt(cell.getValueLength());
+        hasher.putBytes(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+        byte[] hash = hasher.hash().asBytes();
+        digest[0] += Bytes.toLong(hash, 0);
+        digest[1] += Bytes.toLong(hash, Bytes.SIZEOF_LONG);
+    }
+
+    /**
+     * Computes the bucket digests of the given expected index mutations keyed by index row key.
+     * The digest of a bucket without any index row is null.
+     */
+    public static long[][] getDigests(Map<byte[], List<Mutation>> indexMutationMap,
+            int bucketCount) {
+        long[][] digests = new long[bucketCount][];
+        for (Map.Entry<byte[], List<Mutation>> entry : indexMutationMap.entrySet()) {
+            int bucket = getBucket(entry.getKey(), bucketCount);
+            if (digests[bucket] == null) {
+                digests[bucket] = new long[2];
+            }
+            for (Mutation mutation : entry.getValue()) {
+                for (List<Cell> cells : mutation.getFamilyCellMap().values()) {
+                    for (Cell cell : cells) {
+                        addCell(digests[bucket], cell);
+                    }
+                }
+            }
+        }
+        return digests;
+    }
+
+    /**
+     * Adds the bucket digests returned by this scanner for a region to the given digests. Returns
+     * false if the result does not hold digests, which happens when the index table region server
+     * does not support digest scans and returns the index rows instead.
+     */
+    public static boolean addDigests(long[][] digests, Result result) {
+        for (Cell cell : result.rawCells()) {
+            if (!CellUtil.matchingFamily(cell, DIGEST_FAMILY)
+                    || cell.getQualifierLength() != Bytes.SIZEOF_INT
+                    || cell.getValueLength() != 2 * Bytes.SIZEOF_LONG) {
+                return false;
+            }
+            int bucket = Bytes.toInt(cell.getQualifierArray(), cell.getQualifierOffset());
+            if (bucket < 0 || bucket >= digests.length) {
+                return false;
+            }
+            if (digests[bucket] == null) {
+                digests[bucket] = new long[2];
+            }
+            digests[bucket][0] += Bytes.toLong(cell.getValueArray(), cell.getValueOffset());
+            digests[bucket][1] += Bytes.toLong(cell.getValueArray(),
+                    cell.getValueOffset() + Bytes.SIZEOF_LONG);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean next(List<Cell> results) throws IOException {
+        if (done) {
+            return false;
+        }
+        done = true;
+        long[][] digests = new long[bucketCount][];
+        List<Cell> row = new ArrayList<>();
+        byte[] lastRowKey = null;
+        boolean hasMore;
+        do {
+            row.clear();
+            hasMore = delegate.nextRaw(row);
+            if (row.isEmpty() || ScanUtil.isDummy(row)) {
+                continue;
+            }
+            lastRowKey = CellUtil.cloneRow(row.get(0));
+            int bucket = getBucket(lastRowKey, bucketCount);
+            if (digests[bucket] == null) {
+                digests[bucket] = new long[2];
+            }
+            for (Cell cell : row) {
+                addCell(digests[bucket], cell);
+            }
+        } while (hasMore);
+        if (lastRowKey == null) {
+            return false;
+        }
+        // The digests are returned under the last scanned row key so that a client retry resumes
+        // the scan after the rows they cover
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            if (digests[bucket] != null) {
+                byte[] value = Bytes.add(Bytes.toBytes(digests[bucket][0]),
+                        Bytes.toBytes(digests[bucket][1]));
+                results.add(PhoenixKeyValueUtil.newKeyValue(lastRowKey, DIGEST_FAMILY,
+                        Bytes.toBytes(bucket), AGG_TIMESTAMP, value));
+            }
+        }
+        return false;
+    }
+}
@@ -209,6 +209,14 @@ public class NonAggregateRegionScannerFactory extends RegionScannerFactory {
         if (iterator == null) {
             return innerScanner;
         }
+        if (env.getConfiguration().getBoolean(
+                QueryServices.SERVER_ORDERBY_EXTERNAL_SORT_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_SERVER_ORDERBY_EXTERNAL_SORT_ENABLED)) {
+            // Runs are sorted on the handler thread, there is no executor to share here
+            iterator.setExternalSort(env.getConfiguration().getLongBytes(
+                    QueryServices.ORDERBY_EXTERNAL_SORT_RUN_BYTES_ATTRIB,
+                    QueryServicesOptions.DEFAULT_ORDERBY_EXTERNAL_SORT_RUN_BYTES), null);
+        }
         // TODO:the above wrapped scanner should be used here also
         return getTopNScanner(env, innerScanner, iterator, tenantId);
     }
@@ -129,7 +129,24 @@ public class MultiHfileOutputFormat extends FileOutputFormat<TableRowkeyPair, Ce
             throws IOException {
         // Get the path of the temporary output file
         final Path outputdir = ((PathOutputCommitter) committer).getWorkPath();
-        final Configuration conf = context.getConfiguration();
+        return createRecordWriter(context.getConfiguration(), outputdir,
+            context.getTaskAttemptID().toString());
+    }
+
+    /**
+     * Creates a writer of HFiles for multiple tables outside of a MapReduce task. The tables
+     * being written must have been configured through {@link #configureTable}. Cells must be
+     * written in sorted order per table and family, and a null row and cell rolls all the
+     * open writers.
+     * @param conf configuration holding the table definitions
+     * @param outputdir directory under which a directory per table and family is created
+     * @param bulkLoadTaskId identifier recorded in the file info of the written HFiles
+     * @return the record writer, which must be closed to finish the HFiles
+     * @throws IOException
+     */
+    public static <V extends Cell> RecordWriter<TableRowkeyPair, V> createRecordWriter(
+        final Configuration conf, final Path outputdir, final String bulkLoadTaskId)
+            throws IOException {
         final FileSystem fs = outputdir.getFileSystem(conf);
      
         final long maxsize = conf.getLongBytes(HConstants.HREGION_MAX_FILESIZE,
@@ -289,7 +306,7 @@ public class MultiHfileOutputFormat extends FileOutputFormat<TableRowkeyPair, Ce
                   w.appendFileInfo(BULKLOAD_TIME_KEY,
                           Bytes.toBytes(EnvironmentEdgeManager.currentTimeMillis()));
                   w.appendFileInfo(BULKLOAD_TASK_KEY,
-                          Bytes.toBytes(context.getTaskAttemptID().toString()));
+                          Bytes.toBytes(bulkLoadTaskId));
                   w.appendFileInfo(MAJOR_COMPACTION_KEY,
                           Bytes.toBytes(true));
                   w.appendFileInfo(EXCLUDE_FROM_MINOR_COMPACTION_KEY,
@@ -686,30 +703,7 @@ public class MultiHfileOutputFormat extends FileOutputFormat<TableRowkeyPair, Ce
                             hbaseConn.getRegionLocator(TableName.valueOf(tableName)));
                tablesStartKeys.addAll(startKeys);
                TableDescriptor tableDescriptor = hbaseConn.getTable(TableName.valueOf(tableName)).getDescriptor();
-               String compressionConfig = configureCompression(tableDescriptor);
-               String bloomTypeConfig = configureBloomType(tableDescriptor);
-               String blockSizeConfig = configureBlockSize(tableDescriptor);
-               String blockEncodingConfig = configureDataBlockEncoding(tableDescriptor);
-               Map<String,String> tableConfigs = Maps.newHashMap();
-               if(StringUtils.isNotBlank(compressionConfig)) {
-                   tableConfigs.put(COMPRESSION_FAMILIES_CONF_KEY, compressionConfig);
-               }
-               if(StringUtils.isNotBlank(bloomTypeConfig)) {
-                   tableConfigs.put(BLOOM_TYPE_FAMILIES_CONF_KEY,bloomTypeConfig);
-               }
-               if(StringUtils.isNotBlank(blockSizeConfig)) {
-                   tableConfigs.put(BLOCK_SIZE_FAMILIES_CONF_KEY,blockSizeConfig);
-               }
-               if(StringUtils.isNotBlank(blockEncodingConfig)) {
-                   tableConfigs.put(DATABLOCK_ENCODING_FAMILIES_CONF_KEY,blockEncodingConfig);
-               }
-               table.setConfiguration(tableConfigs);
-               final String tableDefns = TargetTableRefFunctions.TO_JSON.apply(table);
-               // set the table definition in the config to be used during the RecordWriter..
-               conf.set(tableName, tableDefns);
-               
-               TargetTableRef tbl = TargetTableRefFunctions.FROM_JSON.apply(tableDefns);
-               LOGGER.info(" the table logical name is "+ tbl.getLogicalName());
+               configureTable(conf, tableDescriptor, table);
            }
        }
     
@@ -722,6 +716,42 @@ public class MultiHfileOutputFormat extends FileOutputFormat<TableRowkeyPair, Ce
         
     }
     
+    /**
+     * Sets the compression, bloom type, block size and data block encoding of the families of
+     * the given table in the configuration to be used by the RecordWriter.
+     * @param conf configuration to set the table definition in
+     * @param tableDescriptor descriptor of the physical table
+     * @param table the table to be loaded
+     * @throws IOException
+     */
+    public static void configureTable(Configuration conf, TableDescriptor tableDescriptor,
+            TargetTableRef table) throws IOException {
+        String compressionConfig = configureCompression(tableDescriptor);
+        String bloomTypeConfig = configureBloomType(tableDescriptor);
+        String blockSizeConfig = configureBlockSize(tableDescriptor);
+        String blockEncodingConfig = configureDataBlockEncoding(tableDescriptor);
+        Map<String,String> tableConfigs = Maps.newHashMap();
+        if(StringUtils.isNotBlank(compressionConfig)) {
+            tableConfigs.put(COMPRESSION_FAMILIES_CONF_KEY, compressionConfig);
+        }
+        if(StringUtils.isNotBlank(bloomTypeConfig)) {
+            tableConfigs.put(BLOOM_TYPE_FAMILIES_CONF_KEY,bloomTypeConfig);
+        }
+        if(StringUtils.isNotBlank(blockSizeConfig)) {
+            tableConfigs.put(BLOCK_SIZE_FAMILIES_CONF_KEY,blockSizeConfig);
+        }
+        if(StringUtils.isNotBlank(blockEncodingConfig)) {
+            tableConfigs.put(DATABLOCK_ENCODING_FAMILIES_CONF_KEY,blockEncodingConfig);
+        }
+        table.setConfiguration(tableConfigs);
+        final String tableDefns = TargetTableRefFunctions.TO_JSON.apply(table);
+        // set the table definition in the config to be used during the RecordWriter..
+        conf.set(table.getPhysicalName(), tableDefns);
+
+        TargetTableRef tbl = TargetTableRefFunctions.FROM_JSON.apply(tableDefns);
+        LOGGER.info(" the table logical name is "+ tbl.getLogicalName());
+    }
+
     /**
      * Return the start keys of all of the regions in this table,
      * as a list of ImmutableBytesWritable.
@@ -202,6 +202,12 @@ public class PhoenixServerBuildIndexInputFormat<T extends DBWritable> extends Ph
                     scan.setAttribute(BaseScannerRegionObserverConstants.INDEX_REBUILD_DISABLE_LOGGING_BEYOND_MAXLOOKBACK_AGE,
                         Bytes.toBytes(shouldLogMaxLookbackOutput));
                 }
+                String shouldVerifyWithDigests =
+                    configuration.get(IndexRebuildRegionScanner.PHOENIX_INDEX_MR_VERIFY_WITH_DIGESTS);
+                if (shouldVerifyWithDigests != null) {
+                    scan.setAttribute(BaseScannerRegionObserverConstants.INDEX_REBUILD_VERIFY_WITH_DIGESTS,
+                        Bytes.toBytes(shouldVerifyWithDigests));
+                }
             } catch (IOException e) {
                 throw new SQLException(e);
             }
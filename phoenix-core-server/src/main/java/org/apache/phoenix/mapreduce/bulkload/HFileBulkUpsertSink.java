@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.mapreduce.bulkload;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparatorImpl;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.tool.BulkLoadHFiles;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.phoenix.execute.BulkUpsertSink;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.mapreduce.CsvBulkImportUtil;
+import org.apache.phoenix.mapreduce.MultiHfileOutputFormat;
+import org.apache.phoenix.query.ConnectionQueryServices;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link BulkUpsertSink} that writes HFiles through the {@link MultiHfileOutputFormat} record
+ * writer from within the client and loads them with {@link BulkLoadHFiles}, so no MapReduce
+ * job is needed. Cells are buffered per table up to
+ * {@link QueryServices#UPSERT_SELECT_BULK_LOAD_BUFFER_BYTES_ATTRIB} bytes, then sorted and
+ * appended to new HFiles, which are rolled at region boundaries so that they don't have to be
+ * split when loaded.
+ *
+ * @since 5.3.0
+ */
+public class HFileBulkUpsertSink implements BulkUpsertSink {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HFileBulkUpsertSink.class);
+
+    private final PhoenixConnection connection;
+    private final Configuration conf;
+    private final Path outputPath;
+    private final long maxBufferBytes;
+    private final RecordWriter<TableRowkeyPair, Cell> writer;
+    // Cells buffered until the next flush, keyed by physical table name in the order the
+    // tables were first written to, which is also the order they are loaded in
+    private final Map<String, List<Cell>> bufferedCells = new LinkedHashMap<>();
+    // Sorted region start keys of each physical table being written
+    private final Map<String, byte[][]> regionStartKeys = new HashMap<>();
+    private long bufferedBytes;
+    private boolean writerClosed;
+
+    public HFileBulkUpsertSink(PhoenixConnection connection) throws IOException {
+        this.connection = connection;
+        ConnectionQueryServices services = connection.getQueryServices();
+        this.conf = new Configuration(services.getConfiguration());
+        this.maxBufferBytes = services.getProps().getLongBytes(
+                QueryServices.UPSERT_SELECT_BULK_LOAD_BUFFER_BYTES_ATTRIB,
+                QueryServicesOptions.DEFAULT_UPSERT_SELECT_BULK_LOAD_BUFFER_BYTES);
+        String stagingDir = services.getProps().get(
+                QueryServices.UPSERT_SELECT_BULK_LOAD_STAGING_DIR_ATTRIB,
+                conf.get(HConstants.TEMPORARY_FS_DIRECTORY_KEY,
+                        HConstants.DEFAULT_TEMPORARY_HDFS_DIRECTORY));
+        this.outputPath = new Path(stagingDir, "phoenix-bulk-upsert-" + UUID.randomUUID());
+        this.writer = MultiHfileOutputFormat.createRecordWriter(conf, outputPath,
+                outputPath.getName());
+    }
+
+    @Override
+    public void write(byte[] physicalTableName, List<Mutation> mutations) throws IOException {
+        String tableName = Bytes.toString(physicalTableName);
+        List<Cell> cells = bufferedCells.get(tableName);
+        if (cells == null) {
+            configureTable(tableName, physicalTableName);
+            cells = new ArrayList<>();
+            bufferedCells.put(tableName, cells);
+        }
+        for (Mutation mutation : mutations) {
+            for (List<Cell> familyCells : mutation.getFamilyCellMap().values()) {
+                for (Cell cell : familyCells) {
+                    cells.add(cell);
+                    bufferedBytes += PrivateCellUtil.estimatedSerializedSizeOf(cell);
+                }
+            }
+        }
+        if (bufferedBytes >= maxBufferBytes) {
+            flush();
+        }
+    }
+
+    @Override
+    public void load() throws IOException {
+        flush();
+        closeWriter();
+        FileSystem fs = outputPath.getFileSystem(conf);
+        BulkLoadHFiles loader = BulkLoadHFiles.create(conf);
+        for (String tableName : bufferedCells.keySet()) {
+            Path tableOutputPath = CsvBulkImportUtil.getOutputPath(outputPath, tableName);
+            if (!fs.exists(tableOutputPath)) {
+                continue;
+            }
+            LOGGER.info("Loading HFiles for {} from {}", tableName, tableOutputPath);
+            loader.bulkLoad(TableName.valueOf(tableName), tableOutputPath);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            closeWriter();
+        } finally {
+            bufferedCells.clear();
+            FileSystem fs = outputPath.getFileSystem(conf);
+            if (fs.exists(outputPath) && !fs.delete(outputPath, true)) {
+                LOGGER.error("Failed to delete the output directory {}", outputPath);
+            }
+        }
+    }
+
+    private void configureTable(String tableName, byte[] physicalTableName) throws IOException {
+        ConnectionQueryServices services = connection.getQueryServices();
+        try {
+            MultiHfileOutputFormat.configureTable(conf,
+                    services.getTableDescriptor(physicalTableName), new TargetTableRef(tableName));
+            int queryTimeout = services.getProps().getInt(QueryServices.THREAD_TIMEOUT_MS_ATTRIB,
+                    QueryServicesOptions.DEFAULT_THREAD_TIMEOUT_MS);
+            List<HRegionLocation> locations =
+                    services.getAllTableRegions(physicalTableName, queryTimeout);
+            byte[][] startKeys = new byte[locations.size()][];
+            for (int i = 0; i < startKeys.length; i++) {
+                startKeys[i] = locations.get(i).getRegion().getStartKey();
+            }
+            Arrays.sort(startKeys, Bytes.BYTES_COMPARATOR);
+            regionStartKeys.put(tableName, startKeys);
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Sorts the buffered cells of each table and appends them to HFiles. The writers are rolled
+     * whenever the next cell belongs to another region, and after the flush since the cells of
+     * the next one start over in row key order.
+     */
+    private void flush() throws IOException {
+        for (Map.Entry<String, List<Cell>> entry : bufferedCells.entrySet()) {
+            String tableName = entry.getKey();
+            List<Cell> cells = entry.getValue();
+            byte[][] startKeys = regionStartKeys.get(tableName);
+            cells.sort(CellComparatorImpl.COMPARATOR);
+            int region = 0;
+            for (Cell cell : cells) {
+                if (region + 1 < startKeys.length && compareRow(cell, startKeys[region + 1]) >= 0) {
+                    do {
+                        region++;
+                    } while (region + 1 < startKeys.length
+                            && compareRow(cell, startKeys[region + 1]) >= 0);
+                    append(null, null);
+                }
+                append(new TableRowkeyPair(tableName,
+                        new ImmutableBytesWritable(CellUtil.cloneRow(cell))), cell);
+            }
+            cells.clear();
+        }
+        append(null, null);
+        bufferedBytes = 0;
+    }
+
+    private static int compareRow(Cell cell, byte[] key) {
+        return Bytes.compareTo(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength(),
+                key, 0, key.length);
+    }
+
+    private void append(TableRowkeyPair row, Cell cell) throws IOException {
+        try {
+            writer.write(row, cell);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        }
+    }
+
+    private void closeWriter() throws IOException {
+        if (writerClosed) {
+            return;
+        }
+        writerClosed = true;
+        try {
+            writer.close(null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        }
+    }
+}
@@ -215,6 +215,7 @@ public class IndexTool extends Configured implements Tool {
     private boolean useSnapshot;
     private boolean isLocalIndexBuild = false;
     private boolean shouldDeleteBeforeRebuild;
+    private boolean isIncremental;
     private PTable pIndexTable = null;
     private PTable pDataTable;
     private String tenantId = null;
@@ -290,6 +291,12 @@ public class IndexTool extends Configured implements Tool {
     private static final Option RETRY_VERIFY_OPTION = new Option("rv", "retry-verify",
             true, "Max scan ts of the last rebuild/verify that needs to be retried incrementally");
 
+    private static final Option INCREMENTAL_OPTION = new Option("inc", "incremental", false,
+            "Only rebuild the data rows changed since the checkpoint of the last incremental rebuild, "
+                    + "which is kept in PHOENIX_INDEX_TOOL_RESULT table. The first incremental rebuild "
+                    + "of an index rebuilds all rows. A failed incremental rebuild is retried over the same "
+                    + "time range by the next one, skipping the regions it logged as done when used with -v");
+
     private static final Option DISABLE_LOGGING_OPTION = new Option("dl",
         "disable-logging", true
         , "Disable logging of failed verification rows for BEFORE, " +
@@ -313,6 +320,10 @@ public class IndexTool extends Configured implements Tool {
     public static final String RETRY_VERIFY_NOT_APPLICABLE = "retry verify feature accepts "
             + "non-zero ts set in the past and ts must be present in PHOENIX_INDEX_TOOL_RESULT table";
 
+    public static final String INCREMENTAL_NOT_APPLICABLE = "incremental rebuild is only applicable "
+            + "for an index of a data table, without start-time, retry verify, partial rebuild, "
+            + "snapshot or verify only";
+
     private Options getOptions() {
         final Options options = new Options();
         options.addOption(SCHEMA_NAME_OPTION);
@@ -337,6 +348,7 @@ public class IndexTool extends Configured implements Tool {
         options.addOption(START_TIME_OPTION);
         options.addOption(END_TIME_OPTION);
         options.addOption(RETRY_VERIFY_OPTION);
+        options.addOption(INCREMENTAL_OPTION);
         options.addOption(DISABLE_LOGGING_OPTION);
         options.addOption(USE_INDEX_TABLE_AS_SOURCE_OPTION);
         return options;
@@ -460,6 +472,8 @@ public class IndexTool extends Configured implements Tool {
 
     public Long getLastVerifyTime() { return lastVerifyTime; }
 
+    public boolean isIncremental() { return isIncremental; }
+
     public IndexTool.IndexDisableLoggingType getDisableLoggingType() {
         return disableLoggingType;
     }
@@ -738,6 +752,7 @@ public class IndexTool extends Configured implements Tool {
             if (startTime != null) {
                 PhoenixConfigurationUtil.setIndexToolStartTime(configuration, startTime);
             }
+            PhoenixConfigurationUtil.setIndexToolIncremental(configuration, isIncremental);
             PhoenixConfigurationUtil.setIndexVerifyType(configuration, indexVerifyType);
             PhoenixConfigurationUtil.setDisableLoggingVerifyType(configuration, disableLoggingType);
             String physicalIndexTable = pIndexTable.getPhysicalName().getString();
@@ -827,6 +842,9 @@ public class IndexTool extends Configured implements Tool {
             createIndexToolTables(conn);
             if (dataTable != null && indexTable != null) {
                 setupIndexAndDataTable(conn);
+                if (isIncremental) {
+                    setupIncrementalRebuild(conn);
+                }
                 checkIfFeatureApplicable(startTime, endTime, lastVerifyTime, pDataTable, isLocalIndexBuild);
                 if (shouldDeleteBeforeRebuild) {
                     deleteBeforeRebuild(conn);
@@ -837,6 +855,9 @@ public class IndexTool extends Configured implements Tool {
             boolean result = submitIndexToolJob(conn, configuration);
 
             if (result) {
+                if (isIncremental && isForeground) {
+                    logIncrementalRebuildStats();
+                }
                 return 0;
             } else {
                 LOGGER.error("IndexTool job failed! Check logs for errors..");
@@ -893,6 +914,7 @@ public class IndexTool extends Configured implements Tool {
         boolean verify = cmdLine.hasOption(VERIFY_OPTION.getOpt());
         boolean disableLogging = cmdLine.hasOption(DISABLE_LOGGING_OPTION.getOpt());
         boolean useIndexTableAsSource = cmdLine.hasOption(USE_INDEX_TABLE_AS_SOURCE_OPTION.getOpt());
+        isIncremental = cmdLine.hasOption(INCREMENTAL_OPTION.getOpt());
 
         if (useTenantId) {
             tenantId = cmdLine.getOptionValue(TENANT_ID_OPTION.getOpt());
@@ -935,9 +957,65 @@ public class IndexTool extends Configured implements Tool {
         isForeground = cmdLine.hasOption(RUN_FOREGROUND_OPTION.getOpt());
         useSnapshot = cmdLine.hasOption(SNAPSHOT_OPTION.getOpt());
         shouldDeleteBeforeRebuild = cmdLine.hasOption(DELETE_ALL_AND_REBUILD_OPTION.getOpt());
+        if (isIncremental && (useStartTime || retryVerify || isPartialBuild || useSnapshot
+                || indexTable == null || indexVerifyType == IndexVerifyType.ONLY)) {
+            throw new RuntimeException(INCREMENTAL_NOT_APPLICABLE);
+        }
         return 0;
     }
 
+    /**
+     * Derives the time range of an incremental rebuild from the checkpoint of the index. A pending
+     * time range left by a failed rebuild is retried as is, with the end time of that range as the
+     * last verify time so that the regions already logged for it are skipped. Otherwise the rebuild
+     * covers the changes from the checkpoint to the given end time, or to now. The checkpoint is
+     * taken from the clock of this client, so the rebuild starts
+     * {@link QueryServices#INDEX_TOOL_INCREMENTAL_OVERLAP_TIME_ATTRIB} before it, which rebuilds
+     * the rows that were written with older timestamps after the last rebuild scanned them.
+     */
+    private void setupIncrementalRebuild(Connection conn) throws Exception {
+        if (!isFeatureApplicable(pDataTable, isLocalIndexBuild)) {
+            throw new RuntimeException(FEATURE_NOT_APPLICABLE);
+        }
+        byte[] physicalIndexName = pIndexTable.getPhysicalName().getBytes();
+        try (IndexVerificationResultRepository resultRepo = new IndexVerificationResultRepository()) {
+            IndexVerificationResultRepository.Checkpoint checkpoint =
+                    resultRepo.getCheckpoint(conn, physicalIndexName);
+            if (checkpoint.isPending()) {
+                startTime = checkpoint.getPendingStartTime();
+                endTime = checkpoint.getPendingEndTime();
+                lastVerifyTime = endTime;
+                LOGGER.info(String.format("Resuming the incremental rebuild of %s over [%d, %d)",
+                        qIndexTable, startTime, endTime));
+                return;
+            }
+            if (checkpoint.getCheckpointTime() == null) {
+                startTime = 0L;
+            } else {
+                long overlap = configuration.getLong(
+                        QueryServices.INDEX_TOOL_INCREMENTAL_OVERLAP_TIME_ATTRIB,
+                        QueryServicesOptions.DEFAULT_INDEX_TOOL_INCREMENTAL_OVERLAP_TIME);
+                startTime = Math.max(0L, checkpoint.getCheckpointTime() - overlap);
+            }
+            if (endTime == null) {
+                endTime = EnvironmentEdgeManager.currentTimeMillis();
+            }
+            validateTimeRange(startTime, endTime);
+            resultRepo.setPendingCheckpoint(conn, physicalIndexName, startTime, endTime);
+            LOGGER.info(String.format("Incremental rebuild of %s over [%d, %d)", qIndexTable,
+                    startTime, endTime));
+        }
+    }
+
+    private void logIncrementalRebuildStats() throws IOException, InterruptedException {
+        long elapsed = job.getStatus().getFinishTime() - job.getStatus().getStartTime();
+        long scannedRows = job.getCounters()
+                .findCounter(PhoenixIndexToolJobCounters.SCANNED_DATA_ROW_COUNT).getValue();
+        LOGGER.info(String.format("Incremental rebuild of %s caught up %d ms of changes in %d ms, "
+                        + "scanned %d data rows (%.1f rows/s)", qIndexTable, endTime - startTime,
+                elapsed, scannedRows, elapsed > 0 ? scannedRows * 1000.0 / elapsed : 0.0));
+    }
+
     public int validateLastVerifyTime() throws Exception {
         Long currentTime = EnvironmentEdgeManager.currentTimeMillis();
         if (lastVerifyTime.compareTo(currentTime) > 0 || lastVerifyTime == 0L || !isValidLastVerifyTime(lastVerifyTime)) {
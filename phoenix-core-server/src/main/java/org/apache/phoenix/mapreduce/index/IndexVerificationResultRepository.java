@@ -24,9 +24,11 @@ import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
 import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.RowMutations;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
@@ -41,6 +43,7 @@ import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.query.ConnectionQueryServices;
 import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.thirdparty.com.google.common.annotations.VisibleForTesting;
 import org.apache.phoenix.util.ByteUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -143,6 +146,15 @@ public class IndexVerificationResultRepository implements AutoCloseable {
     public final static String AFTER_REPAIR_EXTRA_UNVERIFIED_INDEX_ROW_COUNT = "AfterRepairExtraUnverifiedIndexRowCount";
     public final static byte[] AFTER_REPAIR_EXTRA_UNVERIFIED_INDEX_ROW_COUNT_BYTES =
         Bytes.toBytes(AFTER_REPAIR_EXTRA_UNVERIFIED_INDEX_ROW_COUNT);
+    // Incremental rebuild checkpoints are kept in the result table under their own key prefix, which
+    // never collides with the timestamp prefixed verification result rows
+    public static final String CHECKPOINT_ROW_KEY_PREFIX = "CHECKPOINT";
+    public final static String CHECKPOINT_TIME = "CheckpointTime";
+    public final static byte[] CHECKPOINT_TIME_BYTES = Bytes.toBytes(CHECKPOINT_TIME);
+    public final static String PENDING_START_TIME = "PendingStartTime";
+    public final static byte[] PENDING_START_TIME_BYTES = Bytes.toBytes(PENDING_START_TIME);
+    public final static String PENDING_END_TIME = "PendingEndTime";
+    public final static byte[] PENDING_END_TIME_BYTES = Bytes.toBytes(PENDING_END_TIME);
 
     /***
      * Only usable for read / create methods. To write use setResultTable and setIndexTable first
@@ -371,6 +383,103 @@ public class IndexVerificationResultRepository implements AutoCloseable {
         }
     }
 
+    /**
+     * Checkpoint of the incremental rebuilds of an index. The checkpoint time is the end time of the
+     * last incremental rebuild that completed; every data row change before it is reflected in the
+     * index. A pending time range is recorded when a rebuild starts and cleared when it completes, so
+     * that a failed rebuild can be resumed over the same time range.
+     */
+    public static class Checkpoint {
+        private final Long checkpointTime;
+        private final Long pendingStartTime;
+        private final Long pendingEndTime;
+
+        public Checkpoint(Long checkpointTime, Long pendingStartTime, Long pendingEndTime) {
+            this.checkpointTime = checkpointTime;
+            this.pendingStartTime = pendingStartTime;
+            this.pendingEndTime = pendingEndTime;
+        }
+
+        public Long getCheckpointTime() {
+            return checkpointTime;
+        }
+
+        public Long getPendingStartTime() {
+            return pendingStartTime;
+        }
+
+        public Long getPendingEndTime() {
+            return pendingEndTime;
+        }
+
+        public boolean isPending() {
+            return pendingEndTime != null;
+        }
+    }
+
+    @VisibleForTesting
+    public static byte[] generateCheckpointRowKey(byte[] indexTableName) {
+        return ByteUtil.concat(Bytes.toBytes(CHECKPOINT_ROW_KEY_PREFIX), ROW_KEY_SEPARATOR_BYTE,
+            indexTableName);
+    }
+
+    private static Long getLongValue(Result result, byte[] qualifier) {
+        byte[] value = result.getValue(RESULT_TABLE_COLUMN_FAMILY, qualifier);
+        return value == null ? null : Long.parseLong(Bytes.toString(value));
+    }
+
+    /**
+     * Get the incremental rebuild checkpoint of the given physical index table. All the fields of the
+     * returned checkpoint are null if no incremental rebuild has been run within the TTL of the result
+     * table.
+     */
+    public Checkpoint getCheckpoint(Connection conn, byte[] indexTableName)
+            throws IOException, SQLException {
+        try (Table hTable = getTable(conn, RESULT_TABLE_NAME_BYTES)) {
+            Result result = hTable.get(new Get(generateCheckpointRowKey(indexTableName)));
+            return new Checkpoint(getLongValue(result, CHECKPOINT_TIME_BYTES),
+                getLongValue(result, PENDING_START_TIME_BYTES),
+                getLongValue(result, PENDING_END_TIME_BYTES));
+        }
+    }
+
+    /**
+     * Record the time range of an incremental rebuild that is about to start
+     */
+    public void setPendingCheckpoint(Connection conn, byte[] indexTableName, long startTime,
+            long endTime) throws IOException, SQLException {
+        try (Table hTable = getTable(conn, RESULT_TABLE_NAME_BYTES)) {
+            Put put = new Put(generateCheckpointRowKey(indexTableName));
+            put.addColumn(RESULT_TABLE_COLUMN_FAMILY, PENDING_START_TIME_BYTES,
+                Bytes.toBytes(Long.toString(startTime)));
+            put.addColumn(RESULT_TABLE_COLUMN_FAMILY, PENDING_END_TIME_BYTES,
+                Bytes.toBytes(Long.toString(endTime)));
+            hTable.put(put);
+        }
+    }
+
+    /**
+     * Advance the checkpoint to the end time of a completed incremental rebuild and clear its
+     * pending time range
+     */
+    public void completeCheckpoint(Connection conn, byte[] indexTableName, long endTime)
+            throws IOException, SQLException {
+        byte[] rowKey = generateCheckpointRowKey(indexTableName);
+        try (Table hTable = getTable(conn, RESULT_TABLE_NAME_BYTES)) {
+            Put put = new Put(rowKey);
+            put.addColumn(RESULT_TABLE_COLUMN_FAMILY, CHECKPOINT_TIME_BYTES,
+                Bytes.toBytes(Long.toString(endTime)));
+            Delete delete = new Delete(rowKey);
+            delete.addColumns(RESULT_TABLE_COLUMN_FAMILY, PENDING_START_TIME_BYTES);
+            delete.addColumns(RESULT_TABLE_COLUMN_FAMILY, PENDING_END_TIME_BYTES);
+            // Atomically, so that a failure in between can't leave a completed range pending
+            RowMutations rowMutations = new RowMutations(rowKey);
+            rowMutations.add(put);
+            rowMutations.add(delete);
+            hTable.mutateRow(rowMutations);
+        }
+    }
+
     private IndexToolVerificationResult getVerificationResult(Table htable, byte [] oldRowKey, Scan scan )
             throws IOException {
         IndexToolVerificationResult verificationResult = null;
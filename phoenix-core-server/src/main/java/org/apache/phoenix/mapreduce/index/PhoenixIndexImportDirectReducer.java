@@ -39,6 +39,7 @@ import org.apache.phoenix.schema.PIndexState;
 import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.task.Task;
 import org.apache.phoenix.schema.transform.Transform;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.SchemaUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -130,6 +131,32 @@ public class PhoenixIndexImportDirectReducer extends
         }
     }
 
+    /**
+     * Advances the incremental rebuild checkpoint to the end time of this job, which is only
+     * reached once every mapper has rebuilt its region for the job's time range
+     */
+    private void updateCheckpoint(
+            Reducer<ImmutableBytesWritable, IntWritable, NullWritable, NullWritable>.Context context)
+            throws IOException {
+        Configuration configuration = context.getConfiguration();
+        long endTime = Long.parseLong(configuration.get(PhoenixConfigurationUtil.CURRENT_SCN_VALUE));
+        String startTimeValue = PhoenixConfigurationUtil.getIndexToolStartTime(configuration);
+        long startTime = startTimeValue == null ? 0L : Long.parseLong(startTimeValue);
+        try (final Connection connection = ConnectionUtil.getInputConnection(configuration)) {
+            resultRepository.completeCheckpoint(connection, indexTableNameBytes, endTime);
+        } catch (SQLException e) {
+            throw new IOException("Fail to update the incremental rebuild checkpoint", e);
+        }
+        long lag = EnvironmentEdgeManager.currentTimeMillis() - endTime;
+        if (startTime > 0) {
+            context.getCounter(PhoenixIndexToolJobCounters.INCREMENTAL_REBUILD_WINDOW_MS).
+                    setValue(endTime - startTime);
+        }
+        context.getCounter(PhoenixIndexToolJobCounters.INCREMENTAL_REBUILD_LAG_MS).setValue(lag);
+        LOGGER.info("Advanced the incremental rebuild checkpoint of " + indexTableName + " to "
+                + endTime + ", lag " + lag + " ms");
+    }
+
     @Override
     protected void setup(Context context) throws IOException {
         resultRepository = new IndexVerificationResultRepository();
@@ -161,6 +188,11 @@ public class PhoenixIndexImportDirectReducer extends
             }
         }
 
+        if (verifyType != IndexTool.IndexVerifyType.ONLY
+                && PhoenixConfigurationUtil.getIndexToolIncremental(context.getConfiguration())) {
+            updateCheckpoint(context);
+        }
+
         if (verifyType != IndexTool.IndexVerifyType.ONLY) {
             if (PhoenixConfigurationUtil.getIsTransforming(context.getConfiguration())) {
                 try {
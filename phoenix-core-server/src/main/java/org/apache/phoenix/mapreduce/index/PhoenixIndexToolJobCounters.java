@@ -46,5 +46,7 @@ public enum PhoenixIndexToolJobCounters {
     AFTER_REBUILD_INVALID_INDEX_ROW_COUNT_COZ_EXTRA_CELLS,
     AFTER_REBUILD_INVALID_INDEX_ROW_COUNT_COZ_MISSING_CELLS,
     AFTER_REPAIR_EXTRA_VERIFIED_INDEX_ROW_COUNT,
-    AFTER_REPAIR_EXTRA_UNVERIFIED_INDEX_ROW_COUNT
+    AFTER_REPAIR_EXTRA_UNVERIFIED_INDEX_ROW_COUNT,
+    INCREMENTAL_REBUILD_WINDOW_MS,
+    INCREMENTAL_REBUILD_LAG_MS
 }
@@ -169,6 +169,7 @@ public final class PhoenixConfigurationUtil {
     private static final String INDEX_TOOL_END_TIME = "phoenix.mr.index.endtime";
     private static final String INDEX_TOOL_START_TIME = "phoenix.mr.index.starttime";
     private static final String INDEX_TOOL_LAST_VERIFY_TIME = "phoenix.mr.index.last.verify.time";
+    private static final String INDEX_TOOL_INCREMENTAL = "phoenix.mr.index.incremental";
 
     public static final String MAPREDUCE_JOB_TYPE = "phoenix.mapreduce.jobtype";
 
@@ -363,6 +364,16 @@ public final class PhoenixConfigurationUtil {
         Preconditions.checkNotNull(configuration);
         return configuration.get(INDEX_TOOL_LAST_VERIFY_TIME);
     }
+
+    public static void setIndexToolIncremental(Configuration configuration, boolean incremental) {
+        Preconditions.checkNotNull(configuration);
+        configuration.setBoolean(INDEX_TOOL_INCREMENTAL, incremental);
+    }
+
+    public static boolean getIndexToolIncremental(Configuration configuration) {
+        Preconditions.checkNotNull(configuration);
+        return configuration.getBoolean(INDEX_TOOL_INCREMENTAL, false);
+    }
     
     public static List<String> getUpsertColumnNames(final Configuration configuration) {
         return getValues(configuration, MAPREDUCE_UPSERT_COLUMN_COUNT, MAPREDUCE_UPSERT_COLUMN_VALUE_PREFIX);
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache;
+
+import static org.apache.hadoop.hbase.coprocessor.CoprocessorHost.REGIONSERVER_COPROCESSOR_CONF_KEY;
+import static org.apache.phoenix.query.QueryServices.PHOENIX_METADATA_INVALIDATE_CACHE_ENABLED;
+import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.coprocessor.RegionServerCoprocessor;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.end2end.NeedsOwnMiniClusterTest;
+import org.apache.phoenix.end2end.ParallelStatsDisabledIT;
+import org.apache.phoenix.end2end.PhoenixRegionServerEndpointTestImpl;
+import org.apache.phoenix.monitoring.GlobalClientMetrics;
+import org.apache.phoenix.query.ConnectionQueryServices;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.PTableKey;
+import org.apache.phoenix.schema.TableNotFoundException;
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.PropertiesUtil;
+import org.apache.phoenix.util.QueryUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests that the metadata changes logged by the region server metadata cache reach the clients
+ * that have the changed tables cached.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class LastDDLTimestampChangesIT extends ParallelStatsDisabledIT {
+
+    private static final long POLL_INTERVAL_MS = 1000;
+
+    @BeforeClass
+    public static synchronized void doSetup() throws Exception {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(4);
+        props.put(QueryServices.DEFAULT_UPDATE_CACHE_FREQUENCY_ATRRIB, "NEVER");
+        props.put(QueryServices.LAST_DDL_TIMESTAMP_VALIDATION_ENABLED, Boolean.toString(true));
+        props.put(PHOENIX_METADATA_INVALIDATE_CACHE_ENABLED, Boolean.toString(true));
+        props.put(QueryServices.LAST_DDL_TIMESTAMP_POLL_INTERVAL_MS,
+                Long.toString(POLL_INTERVAL_MS));
+        setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+    }
+
+    private ServerMetadataCache getServerMetadataCache() {
+        String phoenixRegionServerEndpoint = config.get(REGIONSERVER_COPROCESSOR_CONF_KEY);
+        assertNotNull(phoenixRegionServerEndpoint);
+        RegionServerCoprocessor coproc = getUtility().getHBaseCluster()
+                .getRegionServer(0)
+                .getRegionServerCoprocessorHost()
+                .findCoprocessor(phoenixRegionServerEndpoint);
+        assertNotNull(coproc);
+        return ((PhoenixRegionServerEndpointTestImpl) coproc).getServerMetadataCache();
+    }
+
+    private static boolean isCached(ConnectionQueryServices cqs, String tableName)
+            throws SQLException {
+        try {
+            cqs.getMetaDataCache().getTableRef(new PTableKey(null, tableName));
+            return true;
+        } catch (TableNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testDDLIsLoggedByServerMetadataCache() throws Exception {
+        String tableName = generateUniqueName();
+        LastDDLTimestampChangeLog changeLog = getServerMetadataCache().getChangeLog();
+        try (Connection conn = driver.connect(getUrl(), PropertiesUtil.deepCopy(TEST_PROPERTIES))) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (k INTEGER NOT NULL PRIMARY KEY, v1 INTEGER)");
+            LastDDLTimestampChangeLog.Changes subscription = changeLog.subscribe();
+            conn.createStatement().execute("ALTER TABLE " + tableName + " ADD v2 INTEGER");
+            LastDDLTimestampChangeLog.Changes changes = changeLog.getChanges(
+                    subscription.getLogId(), subscription.getSequenceNumber());
+            assertTrue(changes.isComplete());
+            boolean found = false;
+            for (byte[][] table : changes.getTables()) {
+                found = found || tableName.equals(Bytes.toString(table[2]));
+            }
+            assertTrue(found);
+        }
+    }
+
+    @Test
+    public void testChangedTableIsRemovedFromClientCache() throws Exception {
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        String url1 = QueryUtil.getConnectionUrl(props, config, "client1");
+        String url2 = QueryUtil.getConnectionUrl(props, config, "client2");
+        String tableName = generateUniqueName();
+        ConnectionQueryServices cqs2 = driver.getConnectionQueryServices(url2, props);
+        GlobalClientMetrics.GLOBAL_CLIENT_STALE_METADATA_CACHE_EXCEPTION_COUNTER.getMetric()
+                .reset();
+        try (Connection conn1 = driver.connect(url1, props);
+             Connection conn2 = driver.connect(url2, props)) {
+            conn1.createStatement().execute("CREATE TABLE " + tableName
+                    + " (k INTEGER NOT NULL PRIMARY KEY, v1 INTEGER)");
+            conn1.createStatement().execute("UPSERT INTO " + tableName + " VALUES (1, 1)");
+            conn1.commit();
+            conn2.createStatement().executeQuery("SELECT * FROM " + tableName).next();
+            assertTrue(isCached(cqs2, tableName));
+            // Let the second client start following the changes
+            Thread.sleep(3 * POLL_INTERVAL_MS);
+            assertTrue(isCached(cqs2, tableName));
+
+            conn1.createStatement().execute("ALTER TABLE " + tableName + " ADD v2 INTEGER");
+            long deadline = EnvironmentEdgeManager.currentTimeMillis() + 10 * POLL_INTERVAL_MS;
+            while (isCached(cqs2, tableName)) {
+                if (EnvironmentEdgeManager.currentTimeMillis() > deadline) {
+                    fail("The changed table was not removed from the client cache");
+                }
+                Thread.sleep(100);
+            }
+
+            // The second client sees the new column without hitting stale metadata
+            ResultSet rs = conn2.createStatement().executeQuery(
+                    "SELECT k, v2 FROM " + tableName);
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+            assertFalse(rs.next());
+            assertEquals(0, GlobalClientMetrics.GLOBAL_CLIENT_STALE_METADATA_CACHE_EXCEPTION_COUNTER
+                    .getMetric().getValue());
+        }
+    }
+}
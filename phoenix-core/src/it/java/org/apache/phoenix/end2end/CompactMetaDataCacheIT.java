@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.apache.phoenix.jdbc.PhoenixDatabaseMetaData.SYSTEM_CATALOG_HBASE_TABLE_NAME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.phoenix.cache.GlobalCache;
+import org.apache.phoenix.coprocessor.MetaDataEndpointImpl;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.LazyPTable;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTableKey;
+import org.apache.phoenix.schema.PTableRefFactory;
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.SchemaUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests that tables work end to end when both the server and the client metadata caches keep
+ * them in their compact serialized form.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class CompactMetaDataCacheIT extends ParallelStatsDisabledIT {
+
+    @BeforeClass
+    public static synchronized void doSetup() throws Exception {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
+        props.put(QueryServices.COMPACT_SERVER_METADATA_CACHE_ENABLED_ATTRIB,
+                Boolean.toString(true));
+        props.put(QueryServices.CLIENT_CACHE_ENCODING,
+                PTableRefFactory.Encoding.LAZY_PROTOBUF.toString());
+        setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+    }
+
+    private static PTable getServerCachedTable(String tableName) {
+        RegionCoprocessorEnvironment env = getUtility()
+                .getRSForFirstRegionInTable(SYSTEM_CATALOG_HBASE_TABLE_NAME)
+                .getRegions(SYSTEM_CATALOG_HBASE_TABLE_NAME).get(0).getCoprocessorHost()
+                .findCoprocessorEnvironment(MetaDataEndpointImpl.class.getName());
+        byte[] key = SchemaUtil.getTableKey(null, null, tableName);
+        return (PTable) GlobalCache.getInstance(env).getMetaDataCache()
+                .getIfPresent(new ImmutableBytesPtr(key));
+    }
+
+    @Test
+    public void testTablesAreServedFromCompactCaches() throws Exception {
+        String tableName = generateUniqueName();
+        String indexName = generateUniqueName();
+        String viewName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (K VARCHAR PRIMARY KEY, A.V1 VARCHAR, B.V2 INTEGER)");
+            conn.createStatement().execute("CREATE INDEX " + indexName + " ON " + tableName
+                    + " (A.V1) INCLUDE (B.V2)");
+            conn.createStatement().execute("UPSERT INTO " + tableName + " VALUES ('k1', 'a', 1)");
+            conn.commit();
+            ResultSet rs = conn.createStatement().executeQuery(
+                    "SELECT V2 FROM " + tableName + " WHERE V1 = 'a'");
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+            assertFalse(rs.next());
+
+            assertTrue(getServerCachedTable(tableName) instanceof LazyPTable);
+            PTable table = conn.unwrap(PhoenixConnection.class)
+                    .getTable(new PTableKey(null, tableName));
+            assertTrue(table instanceof LazyPTable);
+            assertEquals(1, table.getIndexes().size());
+            assertEquals(indexName, table.getIndexes().get(0).getTableName().getString());
+
+            conn.createStatement().execute("ALTER TABLE " + tableName + " ADD B.V3 VARCHAR");
+            conn.createStatement().execute(
+                    "UPSERT INTO " + tableName + " VALUES ('k2', 'b', 2, 'c')");
+            conn.commit();
+            rs = conn.createStatement().executeQuery(
+                    "SELECT K, V3 FROM " + tableName + " WHERE V2 = 2");
+            assertTrue(rs.next());
+            assertEquals("k2", rs.getString(1));
+            assertEquals("c", rs.getString(2));
+            assertFalse(rs.next());
+            assertTrue(getServerCachedTable(tableName) instanceof LazyPTable);
+
+            conn.createStatement().execute("CREATE VIEW " + viewName
+                    + " (B.V4 VARCHAR) AS SELECT * FROM " + tableName + " WHERE V1 = 'b'");
+            conn.createStatement().execute(
+                    "UPSERT INTO " + viewName + " (K, V2, V4) VALUES ('k3', 3, 'd')");
+            conn.commit();
+            rs = conn.createStatement().executeQuery(
+                    "SELECT K, V2, V3, V4 FROM " + viewName + " ORDER BY K");
+            assertTrue(rs.next());
+            assertEquals("k2", rs.getString(1));
+            assertEquals("c", rs.getString(3));
+            assertTrue(rs.next());
+            assertEquals("k3", rs.getString(1));
+            assertEquals(3, rs.getInt(2));
+            assertEquals("d", rs.getString(4));
+            assertFalse(rs.next());
+        }
+    }
+}
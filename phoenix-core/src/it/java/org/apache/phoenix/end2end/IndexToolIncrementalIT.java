@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.mapreduce.index.IndexTool;
+import org.apache.phoenix.mapreduce.index.IndexVerificationResultRepository;
+import org.apache.phoenix.query.BaseTest;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
+import org.apache.phoenix.util.EnvironmentEdge;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.IndexScrutiny;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.SchemaUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Tests the incremental rebuild of IndexTool, which rebuilds the index over the changes made
+ * since the checkpoint of the last rebuild. The index is disabled while rows are written so that
+ * only the rebuild can bring it up to date.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class IndexToolIncrementalIT extends BaseTest {
+    private static final String CREATE_TABLE_DDL = "CREATE TABLE %s (ID INTEGER NOT NULL "
+            + "PRIMARY KEY, VAL1 INTEGER, VAL2 INTEGER)";
+    private static final String CREATE_INDEX_DDL = "CREATE INDEX %s ON %s (VAL1) INCLUDE (VAL2) "
+            + "ASYNC";
+    private static final String UPSERT_TABLE_DML = "UPSERT INTO %s VALUES(?,?,?)";
+
+    private String schemaName;
+    private String dataTableName;
+    private String dataTableFullName;
+    private String indexTableName;
+    private String indexTableFullName;
+
+    @BeforeClass
+    public static synchronized void setup() throws Exception {
+        Map<String, String> serverProps = Maps.newHashMapWithExpectedSize(2);
+        serverProps.put(QueryServices.EXTRA_JDBC_ARGUMENTS_ATTRIB,
+                QueryServicesOptions.DEFAULT_EXTRA_JDBC_ARGUMENTS);
+        serverProps.put(QueryServices.INDEX_REBUILD_PAGE_SIZE_IN_ROWS, Long.toString(8));
+        Map<String, String> clientProps = Maps.newHashMapWithExpectedSize(1);
+        clientProps.put(QueryServices.TRANSACTIONS_ENABLED, Boolean.TRUE.toString());
+        setUpTestDriver(new ReadOnlyProps(serverProps.entrySet().iterator()),
+                new ReadOnlyProps(clientProps.entrySet().iterator()));
+    }
+
+    private static Connection getConnection() throws SQLException {
+        return DriverManager.getConnection(getUrl());
+    }
+
+    private void createTableAndIndex(Connection conn, int rows) throws SQLException {
+        schemaName = generateUniqueName();
+        dataTableName = "D_" + generateUniqueName();
+        dataTableFullName = SchemaUtil.getTableName(schemaName, dataTableName);
+        indexTableName = "I_" + generateUniqueName();
+        indexTableFullName = SchemaUtil.getTableName(schemaName, indexTableName);
+        conn.createStatement().execute(String.format(CREATE_TABLE_DDL, dataTableFullName));
+        upsertRows(conn, 1, rows);
+        conn.createStatement().execute(String.format(CREATE_INDEX_DDL, indexTableName,
+                dataTableFullName));
+    }
+
+    private void upsertRows(Connection conn, int firstId, int lastId) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(
+                String.format(UPSERT_TABLE_DML, dataTableFullName));
+        for (int id = firstId; id <= lastId; id++) {
+            ps.setInt(1, id);
+            ps.setInt(2, id * 10);
+            ps.setInt(3, id * 100);
+            ps.execute();
+        }
+        conn.commit();
+    }
+
+    private void disableIndex(Connection conn) throws SQLException {
+        conn.createStatement().execute(String.format("ALTER INDEX %s ON %s DISABLE",
+                indexTableName, dataTableFullName));
+    }
+
+    private int countRowsInIndex(Connection conn) throws SQLException {
+        ResultSet rs = conn.createStatement().executeQuery(
+                "SELECT COUNT(*) FROM " + indexTableFullName);
+        assertTrue(rs.next());
+        return rs.getInt(1);
+    }
+
+    private IndexVerificationResultRepository.Checkpoint getCheckpoint(Connection conn)
+            throws Exception {
+        return new IndexVerificationResultRepository().getCheckpoint(conn,
+                Bytes.toBytes(indexTableFullName));
+    }
+
+    private IndexTool runIncrementalRebuild(Long overlap) throws Exception {
+        Configuration conf = new Configuration(getUtility().getConfiguration());
+        if (overlap != null) {
+            conf.setLong(QueryServices.INDEX_TOOL_INCREMENTAL_OVERLAP_TIME_ATTRIB, overlap);
+        }
+        return IndexToolIT.runIndexTool(conf, false, schemaName, dataTableName, indexTableName,
+                null, 0, IndexTool.IndexVerifyType.NONE, IndexTool.IndexDisableLoggingType.NONE,
+                "-inc");
+    }
+
+    @Test
+    public void testFirstRunRebuildsAllRows() throws Exception {
+        try (Connection conn = getConnection()) {
+            createTableAndIndex(conn, 5);
+            assertNull(getCheckpoint(conn).getCheckpointTime());
+
+            IndexTool indexTool = runIncrementalRebuild(null);
+            assertEquals(Long.valueOf(0L), indexTool.getStartTime());
+            assertEquals(5, IndexScrutiny.scrutinizeIndex(conn, dataTableFullName,
+                    indexTableFullName));
+            IndexVerificationResultRepository.Checkpoint checkpoint = getCheckpoint(conn);
+            assertEquals(indexTool.getEndTime(), checkpoint.getCheckpointTime());
+            assertFalse(checkpoint.isPending());
+        }
+    }
+
+    @Test
+    public void testIncrementalRunStartsBeforeTheCheckpoint() throws Exception {
+        try (Connection conn = getConnection()) {
+            createTableAndIndex(conn, 5);
+            runIncrementalRebuild(null);
+            long firstCheckpoint = getCheckpoint(conn).getCheckpointTime();
+
+            disableIndex(conn);
+            upsertRows(conn, 6, 8);
+            assertEquals(5, countRowsInIndex(conn));
+            IndexTool indexTool = runIncrementalRebuild(null);
+            assertEquals(Long.valueOf(firstCheckpoint
+                            - QueryServicesOptions.DEFAULT_INDEX_TOOL_INCREMENTAL_OVERLAP_TIME),
+                    indexTool.getStartTime());
+            assertEquals(8, IndexScrutiny.scrutinizeIndex(conn, dataTableFullName,
+                    indexTableFullName));
+            IndexVerificationResultRepository.Checkpoint checkpoint = getCheckpoint(conn);
+            assertEquals(indexTool.getEndTime(), checkpoint.getCheckpointTime());
+            assertTrue(checkpoint.getCheckpointTime() > firstCheckpoint);
+            assertFalse(checkpoint.isPending());
+        }
+    }
+
+    @Test
+    public void testOverlapRebuildsRowsWrittenBehindTheCheckpoint() throws Exception {
+        try (Connection conn = getConnection()) {
+            createTableAndIndex(conn, 5);
+            runIncrementalRebuild(null);
+            long checkpoint = getCheckpoint(conn).getCheckpointTime();
+
+            // Write a row with a timestamp behind the checkpoint, as a region server with a
+            // lagging clock would
+            disableIndex(conn);
+            LaggingClock clock = new LaggingClock(
+                    EnvironmentEdgeManager.currentTimeMillis() - checkpoint + 1000);
+            EnvironmentEdgeManager.injectEdge(clock);
+            try {
+                upsertRows(conn, 6, 6);
+            } finally {
+                EnvironmentEdgeManager.reset();
+            }
+
+            // Without an overlap the row is missed
+            IndexTool indexTool = runIncrementalRebuild(0L);
+            assertEquals(Long.valueOf(checkpoint), indexTool.getStartTime());
+            assertEquals(5, countRowsInIndex(conn));
+
+            indexTool = runIncrementalRebuild(null);
+            assertTrue(indexTool.getStartTime() < checkpoint);
+            assertEquals(6, IndexScrutiny.scrutinizeIndex(conn, dataTableFullName,
+                    indexTableFullName));
+        }
+    }
+
+    @Test
+    public void testFailedRunIsResumed() throws Exception {
+        try (Connection conn = getConnection()) {
+            createTableAndIndex(conn, 5);
+            runIncrementalRebuild(null);
+            long checkpoint = getCheckpoint(conn).getCheckpointTime();
+
+            disableIndex(conn);
+            upsertRows(conn, 6, 8);
+            // Leave the time range of a rebuild pending, as a failed run would
+            long pendingEndTime = EnvironmentEdgeManager.currentTimeMillis();
+            new IndexVerificationResultRepository().setPendingCheckpoint(conn,
+                    Bytes.toBytes(indexTableFullName), checkpoint, pendingEndTime);
+            assertTrue(getCheckpoint(conn).isPending());
+
+            IndexTool indexTool = runIncrementalRebuild(null);
+            assertEquals(Long.valueOf(checkpoint), indexTool.getStartTime());
+            assertEquals(Long.valueOf(pendingEndTime), indexTool.getEndTime());
+            assertEquals(8, IndexScrutiny.scrutinizeIndex(conn, dataTableFullName,
+                    indexTableFullName));
+            IndexVerificationResultRepository.Checkpoint resumed = getCheckpoint(conn);
+            assertEquals(Long.valueOf(pendingEndTime), resumed.getCheckpointTime());
+            assertFalse(resumed.isPending());
+            assertNull(resumed.getPendingStartTime());
+            assertNull(resumed.getPendingEndTime());
+        }
+    }
+
+    private static class LaggingClock extends EnvironmentEdge {
+        private final long lag;
+
+        LaggingClock(long lag) {
+            this.lag = lag;
+        }
+
+        @Override
+        public long currentTime() {
+            return System.currentTimeMillis() - lag;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.apache.phoenix.monitoring.MetricType.COUNT_RPC_CALLS;
+import static org.apache.phoenix.monitoring.MetricType.SCAN_BYTES;
+import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.phoenix.monitoring.MetricType;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.PhoenixRuntime;
+import org.apache.phoenix.util.PropertiesUtil;
+import org.apache.phoenix.util.QueryUtil;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Compares the results of point lookups run as batched gets with the results of the same
+ * point lookups run as skip scans.
+ */
+@Category(ParallelStatsDisabledTest.class)
+public class MultiGetPointLookupIT extends ParallelStatsDisabledIT {
+    private static final int NUM_ROWS = 50;
+
+    private static Connection getConnection(int threshold) throws SQLException {
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        props.setProperty(QueryServices.MULTI_GET_POINT_LOOKUP_THRESHOLD_ATTRIB,
+                Integer.toString(threshold));
+        props.setProperty(QueryServices.MULTI_GET_BATCH_SIZE_ATTRIB, "4");
+        props.setProperty(PhoenixRuntime.REQUEST_METRIC_ATTRIB, "true");
+        return DriverManager.getConnection(getUrl(), props);
+    }
+
+    private static String createTable(String options) throws SQLException {
+        String tableName = generateUniqueName();
+        try (Connection conn = getConnection(0)) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (K1 VARCHAR NOT NULL, K2 INTEGER NOT NULL, V1 VARCHAR, V2 INTEGER,"
+                    + " B.V3 VARCHAR CONSTRAINT PK PRIMARY KEY (K1, K2)) " + options);
+            PreparedStatement stmt = conn.prepareStatement(
+                    "UPSERT INTO " + tableName + " VALUES (?, ?, ?, ?, ?)");
+            for (int i = 0; i < NUM_ROWS; i++) {
+                stmt.setString(1, "k" + (i % 5));
+                stmt.setInt(2, i);
+                stmt.setString(3, i % 3 == 0 ? null : "v" + i);
+                stmt.setInt(4, i);
+                stmt.setString(5, i % 4 == 0 ? null : "b" + i);
+                stmt.execute();
+            }
+            conn.commit();
+        }
+        return tableName;
+    }
+
+    private static String pointLookup(String select, String tableName, String where) {
+        StringBuilder buf = new StringBuilder("SELECT " + select + " FROM " + tableName
+                + " WHERE (K1, K2) IN (");
+        // Every other key exists, and a few keys are looked up twice
+        for (int i = 0; i < NUM_ROWS * 2; i += 2) {
+            buf.append(i == 0 ? "" : ",").append("('k").append(i % 5).append("',")
+                    .append(i).append(")");
+        }
+        buf.append(",('k0',0),('k2',2))");
+        return where == null ? buf.toString() : buf.append(" AND ").append(where).toString();
+    }
+
+    private static List<String> getRows(Connection conn, String query, boolean sort)
+            throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (ResultSet rs = conn.createStatement().executeQuery(query)) {
+            int columnCount = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 1; i <= columnCount; i++) {
+                    row.append(rs.getObject(i)).append('|');
+                }
+                rows.add(row.toString());
+            }
+        }
+        if (sort) {
+            Collections.sort(rows);
+        }
+        return rows;
+    }
+
+    private static String explain(Connection conn, String query) throws SQLException {
+        return QueryUtil.getExplainPlan(conn.createStatement().executeQuery("EXPLAIN " + query));
+    }
+
+    private static void assertSameResults(String query, boolean sort) throws SQLException {
+        try (Connection scanConn = getConnection(0);
+                Connection multiGetConn = getConnection(2)) {
+            assertFalse(explain(scanConn, query).contains("CLIENT MULTI-GET"));
+            assertTrue(explain(multiGetConn, query).contains("CLIENT MULTI-GET"));
+            List<String> expected = getRows(scanConn, query, sort);
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, getRows(multiGetConn, query, sort));
+        }
+    }
+
+    @Test
+    public void testSameResultsAsScan() throws Exception {
+        String tableName = createTable("");
+        assertSameResults(pointLookup("*", tableName, null), false);
+        assertSameResults(pointLookup("K2, V1", tableName, null), false);
+        assertSameResults(pointLookup("K1, B.V3", tableName, null), false);
+        assertSameResults(pointLookup("*", tableName, "V2 > 20 AND V1 IS NOT NULL"), false);
+        assertSameResults(pointLookup("K2, V2", tableName, "V3 LIKE 'b1%'"), false);
+    }
+
+    @Test
+    public void testSameResultsAsScanWithLimit() throws Exception {
+        String tableName = createTable("");
+        assertSameResults(pointLookup("*", tableName, null) + " LIMIT 7", false);
+        assertSameResults(pointLookup("K2", tableName, "V2 > 10") + " LIMIT 3", false);
+    }
+
+    @Test
+    public void testSameResultsAsScanOnSaltedTable() throws Exception {
+        String tableName = createTable("SALT_BUCKETS=4");
+        assertSameResults(pointLookup("*", tableName, null), true);
+        assertSameResults(pointLookup("K2, V1", tableName, "V2 < 40"), true);
+    }
+
+    @Test
+    public void testSameResultsAsScanAfterDeletesAndUpdates() throws Exception {
+        String tableName = createTable("");
+        try (Connection conn = getConnection(0)) {
+            conn.createStatement().execute("DELETE FROM " + tableName + " WHERE K2 < 10");
+            conn.createStatement().execute("UPSERT INTO " + tableName
+                    + " (K1, K2, V1) SELECT K1, K2, 'updated' FROM " + tableName
+                    + " WHERE K2 > 40");
+            conn.commit();
+        }
+        assertSameResults(pointLookup("*", tableName, null), false);
+    }
+
+    @Test
+    public void testScanMetricsAreCollected() throws Exception {
+        String tableName = createTable("");
+        String query = pointLookup("*", tableName, null);
+        try (Connection conn = getConnection(2);
+                ResultSet rs = conn.createStatement().executeQuery(query)) {
+            int rowCount = 0;
+            while (rs.next()) {
+                rowCount++;
+            }
+            assertTrue(rowCount > 0);
+            Map<MetricType, Long> metrics =
+                    PhoenixRuntime.getRequestReadMetricInfo(rs).get(tableName);
+            // The 50 distinct keys are looked up in batches of 4 keys
+            assertEquals(13L, (long) metrics.get(COUNT_RPC_CALLS));
+            assertTrue(metrics.get(SCAN_BYTES) > 0);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_CLIENT_PARSED_STATEMENT_CACHE_HIT_COUNTER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.apache.phoenix.jdbc.PhoenixPreparedStatement;
+import org.apache.phoenix.parse.FilterableStatement;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests the client side reuse of parsed statements, and of their rewrite, across executions
+ */
+@Category(ParallelStatsDisabledTest.class)
+public class ParsedStatementCacheIT extends ParallelStatsDisabledIT {
+
+    @Test
+    public void testStatementsDifferingInLayoutShareTheCache() throws Exception {
+        String tableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (K INTEGER PRIMARY KEY, V VARCHAR)");
+            conn.createStatement().execute("UPSERT INTO " + tableName + " VALUES (1, 'a')");
+            conn.commit();
+            ResultSet rs = conn.createStatement().executeQuery("SELECT V FROM " + tableName
+                    + " WHERE K = 1");
+            assertTrue(rs.next());
+            assertEquals("a", rs.getString(1));
+            long hitCount = GLOBAL_CLIENT_PARSED_STATEMENT_CACHE_HIT_COUNTER.getMetric().getValue();
+            rs = conn.createStatement().executeQuery("SELECT  V\n  FROM " + tableName
+                    + "\tWHERE K = 1");
+            assertTrue(rs.next());
+            assertEquals("a", rs.getString(1));
+            assertEquals(hitCount + 1,
+                    GLOBAL_CLIENT_PARSED_STATEMENT_CACHE_HIT_COUNTER.getMetric().getValue());
+        }
+    }
+
+    @Test
+    public void testRewriteIsRedoneWhenTheTableChanges() throws Exception {
+        String tableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (K INTEGER PRIMARY KEY, V VARCHAR)");
+            conn.createStatement().execute("UPSERT INTO " + tableName + " VALUES (1, 'a')");
+            conn.commit();
+            PreparedStatement statement = conn.prepareStatement("SELECT * FROM " + tableName
+                    + " WHERE K = ?");
+            statement.setInt(1, 1);
+            ResultSet rs = statement.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(2, rs.getMetaData().getColumnCount());
+            FilterableStatement rewritten = statement.unwrap(PhoenixPreparedStatement.class)
+                    .compileQuery().getStatement();
+            assertSame(rewritten, statement.unwrap(PhoenixPreparedStatement.class)
+                    .compileQuery().getStatement());
+
+            conn.createStatement().execute("ALTER TABLE " + tableName + " ADD V2 VARCHAR");
+            conn.createStatement().execute("UPSERT INTO " + tableName + " VALUES (1, 'a', 'b')");
+            conn.commit();
+            assertNotSame(rewritten, statement.unwrap(PhoenixPreparedStatement.class)
+                    .compileQuery().getStatement());
+            rs = statement.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(3, rs.getMetaData().getColumnCount());
+            assertEquals("b", rs.getString(3));
+            assertFalse(rs.next());
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.util.EncodedColumnsUtil;
+import org.apache.phoenix.util.IndexScrutiny;
+import org.apache.phoenix.util.PhoenixRuntime;
+import org.apache.phoenix.util.PropertiesUtil;
+import org.apache.phoenix.util.QueryUtil;
+import org.apache.phoenix.util.SchemaUtil;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests UPSERT SELECT with the BULK_LOAD hint, which writes the rows to HFiles on the client
+ * and bulk loads them.
+ */
+@Category(ParallelStatsDisabledTest.class)
+public class UpsertSelectBulkLoadIT extends ParallelStatsDisabledIT {
+    private static final int NUM_ROWS = 100;
+
+    private static Connection getConnection() throws SQLException {
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        // Flush the buffered cells every few rows, so that every load is made of many HFiles
+        props.setProperty(QueryServices.UPSERT_SELECT_BULK_LOAD_BUFFER_BYTES_ATTRIB, "1024");
+        return DriverManager.getConnection(getUrl(), props);
+    }
+
+    private static String createSourceTable(Connection conn) throws SQLException {
+        String source = generateUniqueName();
+        conn.createStatement().execute("CREATE TABLE " + source
+                + " (K INTEGER PRIMARY KEY, V VARCHAR, W INTEGER)");
+        PreparedStatement stmt = conn.prepareStatement(
+                "UPSERT INTO " + source + " VALUES (?, ?, ?)");
+        for (int i = 0; i < NUM_ROWS; i++) {
+            stmt.setInt(1, i);
+            stmt.setString(2, "new" + i);
+            stmt.setInt(3, i);
+            stmt.execute();
+        }
+        conn.commit();
+        return source;
+    }
+
+    private static void upsertExistingRows(Connection conn, String target, int numRows)
+            throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(
+                "UPSERT INTO " + target + " VALUES (?, ?, ?)");
+        for (int i = 0; i < numRows; i++) {
+            stmt.setInt(1, i);
+            stmt.setString(2, "old" + i);
+            stmt.setInt(3, -i);
+            stmt.execute();
+        }
+        conn.commit();
+    }
+
+    private static void bulkUpsertSelect(Connection conn, String target, String source,
+            boolean expectBulkLoad) throws SQLException {
+        String upsert = "UPSERT /*+ BULK_LOAD */ INTO " + target + " SELECT * FROM " + source;
+        String plan = QueryUtil.getExplainPlan(
+                conn.createStatement().executeQuery("EXPLAIN " + upsert));
+        assertEquals(expectBulkLoad, plan.startsWith("UPSERT SELECT VIA HFILE BULK LOAD"));
+        assertEquals(NUM_ROWS, conn.createStatement().executeUpdate(upsert));
+        conn.commit();
+    }
+
+    private static void assertRows(Connection conn, String target) throws SQLException {
+        ResultSet rs = conn.createStatement().executeQuery(
+                "SELECT K, V, W FROM " + target + " ORDER BY K");
+        for (int i = 0; i < NUM_ROWS; i++) {
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+            assertEquals("new" + i, rs.getString(2));
+            assertEquals(i, rs.getInt(3));
+        }
+        assertFalse(rs.next());
+    }
+
+    private static void assertIndexLookups(Connection conn, String target, String index)
+            throws SQLException {
+        for (int i = 0; i < NUM_ROWS; i += 7) {
+            String query = "SELECT K, W FROM " + target + " WHERE V = 'new" + i + "'";
+            assertTrue(QueryUtil.getExplainPlan(conn.createStatement()
+                    .executeQuery("EXPLAIN " + query)).contains(index));
+            ResultSet rs = conn.createStatement().executeQuery(query);
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+            assertEquals(i, rs.getInt(2));
+            assertFalse(rs.next());
+            rs = conn.createStatement().executeQuery(
+                    "SELECT K FROM " + target + " WHERE V = 'old" + i + "'");
+            assertFalse(rs.next());
+        }
+        assertEquals(NUM_ROWS, IndexScrutiny.scrutinizeIndex(conn, target, index));
+    }
+
+    @Test
+    public void testBulkLoadOverExistingRows() throws Exception {
+        try (Connection conn = getConnection()) {
+            String source = createSourceTable(conn);
+            String target = generateUniqueName();
+            conn.createStatement().execute("CREATE TABLE " + target
+                    + " (K INTEGER PRIMARY KEY, V VARCHAR, W INTEGER) SPLIT ON (25, 50, 75)");
+            upsertExistingRows(conn, target, NUM_ROWS / 2);
+
+            bulkUpsertSelect(conn, target, source, true);
+
+            assertRows(conn, target);
+            // The HFiles were rolled at region boundaries, so none had to be split on load
+            try (Admin admin = conn.unwrap(PhoenixConnection.class).getQueryServices()
+                    .getAdmin()) {
+                assertEquals(4, admin.getRegions(TableName.valueOf(target)).size());
+            }
+        }
+    }
+
+    @Test
+    public void testBulkLoadWritesUnverifiedRowsOfImmutableIndex() throws Exception {
+        try (Connection conn = getConnection()) {
+            String source = createSourceTable(conn);
+            String target = generateUniqueName();
+            String index = generateUniqueName();
+            conn.createStatement().execute("CREATE TABLE " + target
+                    + " (K INTEGER PRIMARY KEY, V VARCHAR, W INTEGER) IMMUTABLE_ROWS=true");
+            conn.createStatement().execute("CREATE INDEX " + index + " ON " + target
+                    + " (V) INCLUDE (W)");
+
+            bulkUpsertSelect(conn, target, source, true);
+
+            // The index rows skipped the three phase write, so none of them is verified
+            PTable indexTable = PhoenixRuntime.getTableNoCache(conn, index);
+            byte[] emptyCF = SchemaUtil.getEmptyColumnFamily(indexTable);
+            byte[] emptyCQ = EncodedColumnsUtil.getEmptyKeyValueInfo(indexTable).getFirst();
+            int indexRows = 0;
+            try (Table hTable = conn.unwrap(PhoenixConnection.class).getQueryServices()
+                    .getTable(Bytes.toBytes(index));
+                    ResultScanner scanner = hTable.getScanner(new Scan())) {
+                for (Result result : scanner) {
+                    Cell emptyCell = result.getColumnLatestCell(emptyCF, emptyCQ);
+                    assertArrayEquals(QueryConstants.UNVERIFIED_BYTES,
+                            CellUtil.cloneValue(emptyCell));
+                    indexRows++;
+                }
+            }
+            assertEquals(NUM_ROWS, indexRows);
+
+            // Read repair verifies them against the bulk loaded data rows
+            assertRows(conn, target);
+            assertIndexLookups(conn, target, index);
+        }
+    }
+
+    @Test
+    public void testBulkLoadFallsBackForMutableTableWithIndex() throws Exception {
+        try (Connection conn = getConnection()) {
+            String source = createSourceTable(conn);
+            String target = generateUniqueName();
+            String index = generateUniqueName();
+            conn.createStatement().execute("CREATE TABLE " + target
+                    + " (K INTEGER PRIMARY KEY, V VARCHAR, W INTEGER)");
+            conn.createStatement().execute("CREATE INDEX " + index + " ON " + target
+                    + " (V) INCLUDE (W)");
+            upsertExistingRows(conn, target, NUM_ROWS / 2);
+
+            // Bulk loading would leave the index rows of the old values behind
+            bulkUpsertSelect(conn, target, source, false);
+
+            assertRows(conn, target);
+            assertIndexLookups(conn, target, index);
+            ResultSet rs = conn.createStatement().executeQuery(
+                    "SELECT /*+ NO_INDEX */ COUNT(*) FROM " + index);
+            assertTrue(rs.next());
+            assertEquals(NUM_ROWS, rs.getInt(1));
+        }
+    }
+}
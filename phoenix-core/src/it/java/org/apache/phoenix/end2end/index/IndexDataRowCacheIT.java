@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.cache.GlobalCache;
+import org.apache.phoenix.cache.IndexDataRowCache;
+import org.apache.phoenix.end2end.NeedsOwnMiniClusterTest;
+import org.apache.phoenix.index.GlobalIndexChecker;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.BaseTest;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.PhoenixRuntime;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.SchemaUtil;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Tests the cache of data rows fetched by uncovered global index scans through queries, which
+ * must see every change to the data rows served from the cache.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class IndexDataRowCacheIT extends BaseTest {
+    private String dataTableFullName;
+    private String indexTableFullName;
+
+    @BeforeClass
+    public static synchronized void doSetup() throws Exception {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(1);
+        props.put(QueryServices.INDEX_DATA_ROW_CACHE_ENABLED_ATTRIB, Boolean.TRUE.toString());
+        setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+    }
+
+    @Before
+    public void createTableAndIndex() throws Exception {
+        String schemaName = generateUniqueName();
+        dataTableFullName = SchemaUtil.getTableName(schemaName, generateUniqueName());
+        String indexTableName = generateUniqueName();
+        indexTableFullName = SchemaUtil.getTableName(schemaName, indexTableName);
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + dataTableFullName
+                    + " (ID INTEGER NOT NULL PRIMARY KEY, VAL1 INTEGER, VAL2 VARCHAR)");
+            conn.createStatement().execute("CREATE UNCOVERED INDEX " + indexTableName + " ON "
+                    + dataTableFullName + " (VAL1)");
+            for (int id = 1; id <= 3; id++) {
+                conn.createStatement().execute("UPSERT INTO " + dataTableFullName
+                        + " VALUES (" + id + ", 10, 'v" + id + "')");
+            }
+            conn.commit();
+        }
+    }
+
+    private IndexDataRowCache getDataRowCache() throws Exception {
+        RegionCoprocessorEnvironment env = getUtility().getMiniHBaseCluster()
+                .getRegions(TableName.valueOf(indexTableFullName)).get(0).getCoprocessorHost()
+                .findCoprocessorEnvironment(GlobalIndexChecker.class.getName());
+        return GlobalCache.getInstance(env).getIndexDataRowCache();
+    }
+
+    private void assertQueryResult(Connection conn, String... expectedVal2)
+            throws SQLException {
+        ResultSet rs = conn.createStatement().executeQuery("SELECT /*+ INDEX("
+                + dataTableFullName + " " + SchemaUtil.getTableNameFromFullName(
+                        indexTableFullName) + ") */ VAL2 FROM " + dataTableFullName
+                + " WHERE VAL1 = 10 ORDER BY ID");
+        for (String val2 : expectedVal2) {
+            assertTrue(rs.next());
+            assertEquals(val2, rs.getString(1));
+        }
+        assertFalse(rs.next());
+    }
+
+    @Test
+    public void testRowsAreServedFromTheCache() throws Exception {
+        IndexDataRowCache cache = getDataRowCache();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            long hitCount = cache.getHitCount();
+            assertQueryResult(conn, "v1", "v2", "v3");
+            assertEquals(hitCount, cache.getHitCount());
+            assertQueryResult(conn, "v1", "v2", "v3");
+            assertEquals(hitCount + 3, cache.getHitCount());
+        }
+    }
+
+    @Test
+    public void testRowWrittenAtTheSameTimestampIsNotServedFromTheCache() throws Exception {
+        IndexDataRowCache cache = getDataRowCache();
+        long ts = EnvironmentEdgeManager.currentTimeMillis();
+        Properties props = new Properties();
+        props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB, Long.toString(ts));
+        try (Connection conn = DriverManager.getConnection(getUrl());
+                Connection scnConn = DriverManager.getConnection(getUrl(), props)) {
+            scnConn.createStatement().execute("UPSERT INTO " + dataTableFullName
+                    + " VALUES (1, 10, 'a')");
+            scnConn.commit();
+            assertQueryResult(conn, "a", "v2", "v3");
+            assertQueryResult(conn, "a", "v2", "v3");
+            // Rewrite the row at the timestamp of the cached cells
+            scnConn.createStatement().execute("UPSERT INTO " + dataTableFullName
+                    + " VALUES (1, 10, 'b')");
+            scnConn.commit();
+            long hitCount = cache.getHitCount();
+            assertQueryResult(conn, "b", "v2", "v3");
+            assertEquals(hitCount + 2, cache.getHitCount());
+        }
+    }
+
+    @Test
+    public void testDeletedRowIsNotServedFromTheCache() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            assertQueryResult(conn, "v1", "v2", "v3");
+            assertQueryResult(conn, "v1", "v2", "v3");
+            // Delete the data row only, so that the index row still leads the scan to it
+            try (Table table = conn.unwrap(PhoenixConnection.class).getQueryServices()
+                    .getTable(Bytes.toBytes(dataTableFullName))) {
+                table.delete(new Delete(PInteger.INSTANCE.toBytes(2)));
+            }
+            assertQueryResult(conn, "v1", "v3");
+        }
+    }
+}
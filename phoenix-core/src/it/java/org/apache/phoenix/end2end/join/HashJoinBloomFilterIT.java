@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+
+import org.apache.phoenix.end2end.NeedsOwnMiniClusterTest;
+import org.apache.phoenix.end2end.ParallelStatsDisabledIT;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.QueryUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Tests hash joins that push a Bloom filter over the build side keys into the probe scan,
+ * with join keys that are not in the row key of the probe table.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class HashJoinBloomFilterIT extends ParallelStatsDisabledIT {
+
+    @BeforeClass
+    public static synchronized void doSetup() throws Exception {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
+        props.put(QueryServices.HASH_JOIN_BLOOM_FILTER_ENABLED_ATTRIB, Boolean.toString(true));
+        props.put(QueryServices.HASH_JOIN_BLOOM_FILTER_MIN_KEYS_ATTRIB, Integer.toString(1));
+        setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+    }
+
+    private static void createTables(Connection conn, String lhs, String rhs) throws Exception {
+        conn.createStatement().execute("CREATE TABLE " + lhs
+                + " (ID INTEGER NOT NULL PRIMARY KEY, RID BIGINT, NAME VARCHAR)");
+        conn.createStatement().execute("CREATE TABLE " + rhs
+                + " (ID INTEGER NOT NULL PRIMARY KEY, NAME VARCHAR)");
+        PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + lhs + " VALUES(?, ?, ?)");
+        for (int i = 0; i < 100; i++) {
+            stmt.setInt(1, i);
+            stmt.setLong(2, i % 20);
+            stmt.setString(3, "N" + (i % 20));
+            stmt.execute();
+        }
+        stmt = conn.prepareStatement("UPSERT INTO " + rhs + " VALUES(?, ?)");
+        for (int i = 0; i < 10; i++) {
+            stmt.setInt(1, i);
+            stmt.setString(2, "N" + i);
+            stmt.execute();
+        }
+        conn.commit();
+    }
+
+    private static void assertJoin(Connection conn, String query, int expectedRows)
+            throws Exception {
+        String plan = QueryUtil.getExplainPlan(
+            conn.createStatement().executeQuery("EXPLAIN " + query));
+        assertTrue(plan, plan.contains("IN BLOOM FILTER"));
+        ResultSet rs = conn.createStatement().executeQuery(query);
+        for (int i = 0; i < expectedRows; i++) {
+            assertTrue(rs.next());
+            // Rows 0..9 of every block of 20 have a match
+            assertEquals(i / 10 * 20 + i % 10, rs.getInt(1));
+        }
+        assertFalse(rs.next());
+    }
+
+    @Test
+    public void testNonRowKeyJoinKey() throws Exception {
+        String lhs = generateUniqueName();
+        String rhs = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            createTables(conn, lhs, rhs);
+            // Build side keys are coerced to the type of the probe side
+            assertJoin(conn, "SELECT L.ID, R.NAME FROM " + lhs + " L JOIN " + rhs
+                    + " R ON L.RID = R.ID ORDER BY L.ID", 50);
+            // Non row key columns on both sides
+            assertJoin(conn, "SELECT L.ID, R.ID FROM " + lhs + " L JOIN " + rhs
+                    + " R ON L.NAME = R.NAME ORDER BY L.ID", 50);
+            // Semi join
+            assertJoin(conn, "SELECT ID FROM " + lhs + " WHERE RID IN (SELECT ID FROM " + rhs
+                    + ") ORDER BY ID", 50);
+        }
+    }
+
+    @Test
+    public void testNoMatchingBuildSideKeys() throws Exception {
+        String lhs = generateUniqueName();
+        String rhs = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            createTables(conn, lhs, rhs);
+            assertJoin(conn, "SELECT L.ID, R.NAME FROM " + lhs + " L JOIN " + rhs
+                    + " R ON L.RID = R.ID WHERE R.ID > 100 ORDER BY L.ID", 0);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.phoenix.end2end.NeedsOwnMiniClusterTest;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runners.Parameterized.Parameters;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+
+/**
+ * Runs the hash join tests with the post join filters of the region servers evaluated over
+ * batches of joined rows. The batch size is kept small so that batches span probe rows and
+ * are flushed partially full. The server page size is 0, so every probe row ends a page and the
+ * pending rows have to be flushed ahead of each dummy row.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class HashJoinVectorizedPostFilterIT extends HashJoinNoIndexIT {
+
+    public HashJoinVectorizedPostFilterIT(String[] indexDDL, String[] plans) {
+        super(indexDDL, plans);
+    }
+
+    @Parameters(name = "HashJoinVectorizedPostFilterIT_{index}") // name is used by failsafe as
+                                                                 // file name in reports
+    public static synchronized Collection<Object> data() {
+        return HashJoinNoIndexIT.data();
+    }
+
+    @BeforeClass
+    public static synchronized void doSetup() throws Exception {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(3);
+        props.put(QueryServices.SERVER_VECTORIZED_FILTER_ENABLED_ATTRIB,
+            Boolean.toString(Boolean.TRUE));
+        props.put(QueryServices.SERVER_VECTORIZED_FILTER_BATCH_SIZE_ATTRIB, Integer.toString(3));
+        props.put(QueryServices.PHOENIX_SERVER_PAGE_SIZE_MS, Long.toString(0));
+        setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+    }
+
+    @Test
+    public void testVectorizedPostFilterWithPaging() throws Exception {
+        String probeTable = generateUniqueName();
+        String buildTable = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + probeTable
+                    + " (k BIGINT NOT NULL PRIMARY KEY, fk BIGINT, v BIGINT)");
+            conn.createStatement().execute("CREATE TABLE " + buildTable
+                    + " (k BIGINT NOT NULL PRIMARY KEY, v BIGINT)");
+            PreparedStatement stmt = conn.prepareStatement(
+                    "UPSERT INTO " + probeTable + " VALUES (?, ?, ?)");
+            for (int i = 0; i < 200; i++) {
+                stmt.setLong(1, i);
+                stmt.setLong(2, i % 10);
+                stmt.setLong(3, i);
+                stmt.execute();
+            }
+            stmt = conn.prepareStatement("UPSERT INTO " + buildTable + " VALUES (?, ?)");
+            for (int i = 0; i < 10; i++) {
+                stmt.setLong(1, i);
+                stmt.setLong(2, i * 10);
+                stmt.execute();
+            }
+            conn.commit();
+
+            // The filter on both sides of the join is a post join filter, and it accepts
+            // every other probe row so that rows are pending in the batch at page ends
+            ResultSet rs = conn.createStatement().executeQuery("SELECT p.k FROM " + probeTable
+                    + " p JOIN " + buildTable + " b ON p.fk = b.k WHERE p.v + b.v > 100"
+                    + " AND p.v - 2 * (p.v / 2) = 0 ORDER BY p.k");
+            int expectedCount = 0;
+            for (long i = 0; i < 200; i++) {
+                if (i + (i % 10) * 10 > 100 && i % 2 == 0) {
+                    assertTrue(rs.next());
+                    assertEquals(i, rs.getLong(1));
+                    expectedCount++;
+                }
+            }
+            assertFalse(rs.next());
+            assertTrue(expectedCount > 0);
+        }
+    }
+}
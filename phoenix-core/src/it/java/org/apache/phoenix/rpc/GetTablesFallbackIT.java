@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.rpc;
+
+import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.hbase.exceptions.UnknownProtocolException;
+import org.apache.phoenix.coprocessor.MetaDataEndpointImpl;
+import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetTablesRequest;
+import org.apache.phoenix.coprocessor.generated.MetaDataProtos.GetTablesResponse;
+import org.apache.phoenix.end2end.NeedsOwnMiniClusterTest;
+import org.apache.phoenix.end2end.ParallelStatsDisabledIT;
+import org.apache.phoenix.protobuf.ProtobufUtil;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+import org.apache.phoenix.util.PropertiesUtil;
+import org.apache.phoenix.util.QueryUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.SchemaUtil;
+import org.apache.phoenix.util.TestUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.protobuf.RpcCallback;
+import com.google.protobuf.RpcController;
+
+/**
+ * Tests that a client refreshes the expired tables of a join one by one when the SYSTEM.CATALOG
+ * region servers do not implement the batched getTables RPC.
+ */
+@Category(NeedsOwnMiniClusterTest.class)
+public class GetTablesFallbackIT extends ParallelStatsDisabledIT {
+
+    @BeforeClass
+    public static synchronized void doSetup() throws Exception {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(1);
+        // Disable system task handling
+        props.put(QueryServices.TASK_HANDLING_INITIAL_DELAY_MS_ATTRIB,
+                Long.toString(Long.MAX_VALUE));
+        setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+    }
+
+    @AfterClass
+    public static synchronized void cleanup() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            TestUtil.removeCoprocessor(conn, "SYSTEM.CATALOG",
+                    GetTablesUnknownMetaDataEndpointImpl.class);
+            TestUtil.addCoprocessor(conn, "SYSTEM.CATALOG", MetaDataEndpointImpl.class);
+        }
+    }
+
+    @Test
+    public void testExpiredTablesOfJoinAreRefreshedWithoutGetTables() throws Exception {
+        String schemaName = generateUniqueName();
+        String fullTableName1 = SchemaUtil.getTableName(schemaName, generateUniqueName());
+        String fullTableName2 = SchemaUtil.getTableName(schemaName, generateUniqueName());
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        // The other client changes the second table without updating the cache of this one
+        String otherUrl = QueryUtil.getConnectionUrl(props, config, "otherClient");
+        String join = "SELECT t1.v1, t2.v2 FROM " + fullTableName1 + " t1 JOIN "
+                + fullTableName2 + " t2 ON t1.k = t2.k";
+        try (Connection conn = DriverManager.getConnection(getUrl(), props)) {
+            conn.createStatement().execute("CREATE TABLE " + fullTableName1
+                    + " (k VARCHAR PRIMARY KEY, v1 VARCHAR) UPDATE_CACHE_FREQUENCY=2000");
+            conn.createStatement().execute("CREATE TABLE " + fullTableName2
+                    + " (k VARCHAR PRIMARY KEY, v2 VARCHAR) UPDATE_CACHE_FREQUENCY=2000");
+            conn.createStatement().execute(
+                    "UPSERT INTO " + fullTableName1 + " VALUES ('a', 'b')");
+            conn.createStatement().execute(
+                    "UPSERT INTO " + fullTableName2 + " VALUES ('a', 'c')");
+            conn.commit();
+            ResultSet rs = conn.createStatement().executeQuery(join);
+            assertTrue(rs.next());
+            assertEquals("c", rs.getString(2));
+
+            // Act as a region server that predates getTables
+            TestUtil.removeCoprocessor(conn, "SYSTEM.CATALOG", MetaDataEndpointImpl.class);
+            TestUtil.addCoprocessor(conn, "SYSTEM.CATALOG",
+                    GetTablesUnknownMetaDataEndpointImpl.class);
+            try (Connection otherConn = DriverManager.getConnection(otherUrl, props)) {
+                otherConn.createStatement().execute(
+                        "ALTER TABLE " + fullTableName2 + " ADD v3 VARCHAR");
+                otherConn.createStatement().execute(
+                        "UPSERT INTO " + fullTableName2 + " VALUES ('a', 'c', 'd')");
+                otherConn.commit();
+            }
+            Thread.sleep(2500);
+
+            String changedJoin = "SELECT t1.v1, t2.v3 FROM " + fullTableName1 + " t1 JOIN "
+                    + fullTableName2 + " t2 ON t1.k = t2.k";
+            rs = conn.createStatement().executeQuery(changedJoin);
+            assertTrue(rs.next());
+            assertEquals("b", rs.getString(1));
+            assertEquals("d", rs.getString(2));
+            assertFalse(rs.next());
+            assertEquals(1, GetTablesUnknownMetaDataEndpointImpl.GET_TABLES_CALLS.get());
+
+            // Once the server turned out not to implement getTables, it is not asked again
+            Thread.sleep(2500);
+            rs = conn.createStatement().executeQuery(changedJoin);
+            assertTrue(rs.next());
+            assertEquals("d", rs.getString(2));
+            assertEquals(1, GetTablesUnknownMetaDataEndpointImpl.GET_TABLES_CALLS.get());
+        }
+    }
+
+    /**
+     * Fails getTables the way a region server without the method does.
+     */
+    public static class GetTablesUnknownMetaDataEndpointImpl extends MetaDataEndpointImpl {
+
+        static final AtomicInteger GET_TABLES_CALLS = new AtomicInteger();
+
+        @Override
+        public void getTables(RpcController controller, GetTablesRequest request,
+                RpcCallback<GetTablesResponse> done) {
+            GET_TABLES_CALLS.incrementAndGet();
+            ProtobufUtil.setControllerException(controller, new UnknownProtocolException(
+                    "Unknown method getTables called on service MetaDataService"));
+        }
+    }
+}
@@ -19,9 +19,11 @@ package org.apache.phoenix.rpc;
 
 import static org.apache.phoenix.util.TestUtil.INDEX_DATA_SCHEMA;
 import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
@@ -261,6 +263,61 @@ public class UpdateCacheIT extends ParallelStatsDisabledIT {
                 new int[] {3}, true);
     }
     
+    @Test
+    public void testExpiredTablesOfJoinAreRefreshedInOneRpc() throws Exception {
+        String schemaName = generateUniqueName();
+        String tableName1 = generateUniqueName();
+        String tableName2 = generateUniqueName();
+        String fullTableName1 = SchemaUtil.getTableName(schemaName, tableName1);
+        String fullTableName2 = SchemaUtil.getTableName(schemaName, tableName2);
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        try (Connection conn = DriverManager.getConnection(getUrl(), props)) {
+            conn.createStatement().execute("CREATE TABLE " + fullTableName1
+                    + " (k VARCHAR PRIMARY KEY, v1 VARCHAR) UPDATE_CACHE_FREQUENCY=2000");
+            conn.createStatement().execute("CREATE TABLE " + fullTableName2
+                    + " (k VARCHAR PRIMARY KEY, v2 VARCHAR) UPDATE_CACHE_FREQUENCY=2000");
+            conn.createStatement().execute(
+                    "UPSERT INTO " + fullTableName1 + " VALUES ('a', 'b')");
+            conn.createStatement().execute(
+                    "UPSERT INTO " + fullTableName2 + " VALUES ('a', 'c')");
+            conn.commit();
+        }
+        ConnectionQueryServices connectionQueryServices = Mockito.spy(
+                driver.getConnectionQueryServices(getUrl(), PropertiesUtil.deepCopy(TEST_PROPERTIES)));
+        Properties connProps = new Properties();
+        connProps.putAll(PhoenixEmbeddedDriver.DEFAULT_PROPS.asMap());
+        try (Connection conn = connectionQueryServices.connect(getUrl(), connProps)) {
+            String join = "SELECT t1.v1, t2.v2 FROM " + fullTableName1 + " t1 JOIN "
+                    + fullTableName2 + " t2 ON t1.k = t2.k";
+            ResultSet rs = conn.createStatement().executeQuery(join);
+            assertTrue(rs.next());
+            assertEquals("c", rs.getString(2));
+
+            // Change the second table while the cache entries of both tables expire
+            try (Connection otherConn = DriverManager.getConnection(getUrl(), props)) {
+                otherConn.createStatement().execute(
+                        "ALTER TABLE " + fullTableName2 + " ADD v3 VARCHAR");
+                otherConn.createStatement().execute(
+                        "UPSERT INTO " + fullTableName2 + " VALUES ('a', 'c', 'd')");
+                otherConn.commit();
+            }
+            Thread.sleep(2500);
+            reset(connectionQueryServices);
+
+            rs = conn.createStatement().executeQuery("SELECT t1.v1, t2.v3 FROM "
+                    + fullTableName1 + " t1 JOIN " + fullTableName2 + " t2 ON t1.k = t2.k");
+            assertTrue(rs.next());
+            assertEquals("d", rs.getString(2));
+            // Both tables were refreshed by a single getTables RPC
+            verify(connectionQueryServices, times(1)).getTables(anyList(), anyLong());
+            for (String tableName : new String[] { tableName1, tableName2 }) {
+                verify(connectionQueryServices, times(0)).getTable((PName) isNull(),
+                        eq(PVarchar.INSTANCE.toBytes(schemaName)),
+                        eq(PVarchar.INSTANCE.toBytes(tableName)), anyLong(), anyLong());
+            }
+        }
+    }
+
 	private static void helpTestUpdateCache(String fullTableName, int[] expectedRPCs,
             boolean skipUpsertForIndexes) throws Exception {
 	    String tableName = SchemaUtil.getTableNameFromFullName(fullTableName);
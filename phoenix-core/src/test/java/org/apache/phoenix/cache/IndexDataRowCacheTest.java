@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.filter.RowDigestFilter;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.junit.Test;
+
+public class IndexDataRowCacheTest {
+    private static final byte[] TABLE = Bytes.toBytes("T");
+    private static final byte[] FAMILY = Bytes.toBytes("0");
+    private static final byte[] ROW = Bytes.toBytes("row");
+
+    private static Result getRow(long ts) {
+        return getRow(ts, "v");
+    }
+
+    private static Result getRow(long ts, String value) {
+        return Result.create(new Cell[] {
+                new KeyValue(ROW, FAMILY, Bytes.toBytes("_0"), ts, Bytes.toBytes("x")),
+                new KeyValue(ROW, FAMILY, Bytes.toBytes("V1"), ts, Bytes.toBytes(value)) });
+    }
+
+    private static byte[] getDigest(Result row) {
+        return RowDigestFilter.getDigest(Arrays.asList(row.rawCells()));
+    }
+
+    private static Scan getScan(String... columns) {
+        Scan scan = new Scan();
+        for (String column : columns) {
+            scan.addColumn(FAMILY, Bytes.toBytes(column));
+        }
+        return scan;
+    }
+
+    @Test
+    public void testRowIsValidatedWithDigest() {
+        IndexDataRowCache cache = new IndexDataRowCache(1024 * 1024);
+        ImmutableBytesPtr key = IndexDataRowCache.getKey(
+                IndexDataRowCache.getKeyPrefix(TABLE, getScan("_0", "V1"), 0), ROW);
+        assertFalse(cache.contains(key));
+        assertNull(cache.get(key, getDigest(getRow(10))));
+        cache.put(key, getRow(10));
+        assertTrue(cache.contains(key));
+        Result row = cache.get(key, getDigest(getRow(10)));
+        assertNotNull(row);
+        assertArrayEquals(Bytes.toBytes("v"), row.getValue(FAMILY, Bytes.toBytes("V1")));
+        assertEquals(1, cache.getHitCount());
+        // The row has been written again at the same timestamp since it was cached, as a
+        // CurrentSCN connection can, the entry must be invalidated
+        assertNull(cache.get(key, getDigest(getRow(10, "w"))));
+        assertEquals(0, cache.size());
+        cache.put(key, getRow(10));
+        // The row has been written since it was cached
+        assertNull(cache.get(key, getDigest(getRow(20))));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testKeyPrefixDependsOnTableColumnsAndTimeRange() {
+        byte[] prefix = IndexDataRowCache.getKeyPrefix(TABLE, getScan("_0", "V1"), 0);
+        assertArrayEquals(prefix, IndexDataRowCache.getKeyPrefix(TABLE, getScan("V1", "_0"), 0));
+        assertFalse(Bytes.equals(prefix,
+                IndexDataRowCache.getKeyPrefix(Bytes.toBytes("T2"), getScan("_0", "V1"), 0)));
+        assertFalse(Bytes.equals(prefix,
+                IndexDataRowCache.getKeyPrefix(TABLE, getScan("_0", "V2"), 0)));
+        assertFalse(Bytes.equals(prefix,
+                IndexDataRowCache.getKeyPrefix(TABLE, getScan("_0", "V1"), 5)));
+    }
+
+    @Test
+    public void testCacheIsSizeBounded() {
+        IndexDataRowCache cache = new IndexDataRowCache(4 * 1024);
+        byte[] prefix = IndexDataRowCache.getKeyPrefix(TABLE, getScan("_0", "V1"), 0);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(IndexDataRowCache.getKey(prefix, Bytes.toBytes(i)), getRow(10));
+        }
+        assertFalse(cache.size() >= 1000);
+    }
+}
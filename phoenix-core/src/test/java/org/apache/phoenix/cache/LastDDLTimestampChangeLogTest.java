@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+public class LastDDLTimestampChangeLogTest {
+
+    private static void logChange(LastDDLTimestampChangeLog changeLog, String tableName) {
+        changeLog.logChange(new byte[0], Bytes.toBytes("S"), Bytes.toBytes(tableName));
+    }
+
+    @Test
+    public void testChangesAfterSequenceNumber() throws Exception {
+        LastDDLTimestampChangeLog changeLog = new LastDDLTimestampChangeLog(10);
+        LastDDLTimestampChangeLog.Changes subscription = changeLog.subscribe();
+        assertFalse(subscription.isComplete());
+        assertEquals(0, subscription.getSequenceNumber());
+
+        logChange(changeLog, "T1");
+        logChange(changeLog, "T2");
+        LastDDLTimestampChangeLog.Changes changes = changeLog.getChanges(
+                subscription.getLogId(), subscription.getSequenceNumber());
+        assertTrue(changes.isComplete());
+        assertEquals(2, changes.getSequenceNumber());
+        assertEquals(2, changes.getTables().size());
+        assertArrayEquals(Bytes.toBytes("T1"), changes.getTables().get(0)[2]);
+        assertArrayEquals(Bytes.toBytes("T2"), changes.getTables().get(1)[2]);
+
+        logChange(changeLog, "T3");
+        changes = changeLog.getChanges(changes.getLogId(), changes.getSequenceNumber());
+        assertTrue(changes.isComplete());
+        assertEquals(1, changes.getTables().size());
+        assertArrayEquals(Bytes.toBytes("T3"), changes.getTables().get(0)[2]);
+
+        // No changes since the last call
+        changes = changeLog.getChanges(changes.getLogId(), changes.getSequenceNumber());
+        assertTrue(changes.isComplete());
+        assertEquals(0, changes.getTables().size());
+    }
+
+    @Test
+    public void testDroppedChangesAreNotComplete() throws Exception {
+        LastDDLTimestampChangeLog changeLog = new LastDDLTimestampChangeLog(2);
+        long logId = changeLog.subscribe().getLogId();
+        logChange(changeLog, "T1");
+        logChange(changeLog, "T2");
+        logChange(changeLog, "T3");
+        LastDDLTimestampChangeLog.Changes changes = changeLog.getChanges(logId, 0);
+        assertFalse(changes.isComplete());
+        assertEquals(0, changes.getTables().size());
+        assertEquals(3, changes.getSequenceNumber());
+        changes = changeLog.getChanges(logId, 1);
+        assertTrue(changes.isComplete());
+        assertEquals(2, changes.getTables().size());
+
+        // A sequence number of another log, for instance from before a restart
+        LastDDLTimestampChangeLog otherChangeLog = new LastDDLTimestampChangeLog(2);
+        assertNotEquals(logId, otherChangeLog.subscribe().getLogId());
+        assertFalse(otherChangeLog.getChanges(logId, 0).isComplete());
+    }
+
+    @Test
+    public void testNoChangeDoesNotWait() throws Exception {
+        final LastDDLTimestampChangeLog changeLog = new LastDDLTimestampChangeLog(10);
+        final long logId = changeLog.subscribe().getLogId();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Nothing changed, the call returns empty right away instead of holding the caller
+            Future<LastDDLTimestampChangeLog.Changes> future =
+                    executor.submit(() -> changeLog.getChanges(logId, 0));
+            LastDDLTimestampChangeLog.Changes changes = future.get(10, TimeUnit.SECONDS);
+            assertTrue(changes.isComplete());
+            assertEquals(0, changes.getTables().size());
+            assertEquals(0, changes.getSequenceNumber());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache.aggcache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.aggregator.Aggregator;
+import org.apache.phoenix.expression.aggregator.ServerAggregators;
+import org.apache.phoenix.expression.function.CountAggregateFunction;
+import org.apache.phoenix.expression.function.DistinctCountAggregateFunction;
+import org.apache.phoenix.expression.function.MaxAggregateFunction;
+import org.apache.phoenix.expression.function.MinAggregateFunction;
+import org.apache.phoenix.expression.function.SingleAggregateFunction;
+import org.apache.phoenix.expression.function.SumAggregateFunction;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.GlobalMemoryManager;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class CompactGroupByCacheTest {
+    private static final long MAX_BYTES = 64L * 1024L * 1024L;
+
+    private Configuration conf;
+    private ServerAggregators aggregators;
+    private GlobalMemoryManager memoryManager;
+
+    @Before
+    public void setUp() throws Exception {
+        conf = new Configuration(false);
+        List<Expression> children = Arrays.<Expression>asList(LiteralExpression.newConstant(0L));
+        List<SingleAggregateFunction> functions = Arrays.<SingleAggregateFunction>asList(
+                new CountAggregateFunction(CountAggregateFunction.STAR),
+                new SumAggregateFunction(children),
+                new MinAggregateFunction(children),
+                new MaxAggregateFunction(children),
+                new DistinctCountAggregateFunction(children));
+        aggregators = ServerAggregators.deserialize(
+                ServerAggregators.serialize(functions, 0), conf, null);
+        memoryManager = new GlobalMemoryManager(MAX_BYTES);
+    }
+
+    private static void aggregate(Aggregator[] rowAggregators, long value) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable(PLong.INSTANCE.toBytes(value));
+        for (Aggregator aggregator : rowAggregators) {
+            aggregator.aggregate(null, ptr);
+        }
+    }
+
+    @Test
+    public void testMatchesObjectAggregators() throws Exception {
+        CompactGroupByCache cache = new CompactGroupByCache(conf, memoryManager, null,
+                aggregators, 10, true);
+        Map<ImmutableBytesPtr, Aggregator[]> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50000; i++) {
+            // Variable length keys to exercise pages of different sizes
+            ImmutableBytesPtr key = new ImmutableBytesPtr(
+                    Bytes.toBytes("key" + random.nextInt(5000) + (i % 7 == 0 ? "-long-suffix" : "")));
+            long value = random.nextInt(1000) - 500;
+            aggregate(cache.cache(key), value);
+            Aggregator[] reference = expected.get(key);
+            if (reference == null) {
+                reference = aggregators.newAggregators(conf);
+                expected.put(key, reference);
+            }
+            aggregate(reference, value);
+        }
+        assertEquals(expected.size(), cache.size());
+
+        RegionScanner scanner = cache.getScanner(Mockito.mock(RegionScanner.class));
+        List<Cell> results = new ArrayList<>();
+        boolean hasMore;
+        do {
+            hasMore = scanner.next(results);
+        } while (hasMore);
+        assertEquals(expected.size(), results.size());
+        for (Cell cell : results) {
+            Aggregator[] reference = expected.remove(new ImmutableBytesPtr(CellUtil.cloneRow(cell)));
+            assertArrayEquals(aggregators.toBytes(reference), CellUtil.cloneValue(cell));
+        }
+        assertTrue(expected.isEmpty());
+        assertTrue(memoryManager.getAvailableMemory() < MAX_BYTES);
+        scanner.close();
+        assertEquals(MAX_BYTES, memoryManager.getAvailableMemory());
+    }
+
+    @Test
+    public void testLastScannedRowKey() throws Exception {
+        CompactGroupByCache cache = new CompactGroupByCache(conf, memoryManager, null,
+                aggregators, 10, false);
+        ImmutableBytesPtr key = new ImmutableBytesPtr(Bytes.toBytes("a"));
+        aggregate(cache.cache(key), 1);
+        cache.cacheAggregateRowKey(key, new ImmutableBytesPtr(Bytes.toBytes("row1")));
+        // Longer row key forces a new allocation, a shorter one is copied in place
+        aggregate(cache.cache(key), 2);
+        cache.cacheAggregateRowKey(key, new ImmutableBytesPtr(Bytes.toBytes("row1000")));
+        aggregate(cache.cache(key), 3);
+        cache.cacheAggregateRowKey(key, new ImmutableBytesPtr(Bytes.toBytes("row2")));
+
+        RegionScanner scanner = cache.getScanner(Mockito.mock(RegionScanner.class));
+        List<Cell> results = new ArrayList<>();
+        assertFalse(scanner.next(results));
+        assertEquals(1, results.size());
+        Cell cell = results.get(0);
+        assertArrayEquals(Bytes.toBytes("row2"), CellUtil.cloneRow(cell));
+        assertArrayEquals(QueryConstants.GROUPED_AGGREGATOR_VALUE_BYTES, CellUtil.cloneFamily(cell));
+        byte[] value = CellUtil.cloneValue(cell);
+        int keyLength = PInteger.INSTANCE.getCodec().decodeInt(value, 0, SortOrder.getDefault());
+        assertEquals(1, keyLength);
+        assertEquals('a', value[Bytes.SIZEOF_INT]);
+        // COUNT is the first aggregated value
+        assertEquals(3L, PLong.INSTANCE.getCodec().decodeLong(value, Bytes.SIZEOF_INT + keyLength,
+                SortOrder.getDefault()));
+        scanner.close();
+    }
+}
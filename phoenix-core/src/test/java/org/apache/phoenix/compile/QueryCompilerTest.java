@@ -25,7 +25,9 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -82,6 +84,7 @@ import org.apache.phoenix.filter.EncodedQualifiersColumnProjectionFilter;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.jdbc.PhoenixPreparedStatement;
 import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.apache.phoenix.parse.FilterableStatement;
 import org.apache.phoenix.parse.ParseNodeFactory;
 import org.apache.phoenix.query.BaseConnectionlessQueryTest;
 import org.apache.phoenix.query.QueryConstants;
@@ -7105,4 +7108,69 @@ public class QueryCompilerTest extends BaseConnectionlessQueryTest {
                     explainPlan);
         }
     }
+
+    @Test
+    public void testBulkLoadHintRunsUpsertSelectOnClient() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl());
+                Statement stmt = conn.createStatement();) {
+            conn.setAutoCommit(true);
+            stmt.execute("create table t_bulk (k integer primary key, v integer)");
+            ResultSet rs = stmt.executeQuery(
+                "EXPLAIN UPSERT INTO t_bulk SELECT k, v + 1 FROM t_bulk");
+            assertTrue(QueryUtil.getExplainPlan(rs).startsWith("UPSERT ROWS\n"));
+            rs = stmt.executeQuery(
+                "EXPLAIN UPSERT /*+ BULK_LOAD */ INTO t_bulk SELECT k, v + 1 FROM t_bulk");
+            assertEquals("UPSERT SELECT VIA HFILE BULK LOAD\n"
+                    + "CLIENT PARALLEL 1-WAY FULL SCAN OVER T_BULK",
+                    QueryUtil.getExplainPlan(rs));
+        }
+    }
+
+    @Test
+    public void testBulkLoadHintIgnoredForMutableTableWithIndex() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl());
+                Statement stmt = conn.createStatement();) {
+            stmt.execute("create table t_bulk_mutable (k integer primary key, v integer)");
+            stmt.execute("create index i_bulk_mutable on t_bulk_mutable (v)");
+            stmt.execute("create table t_bulk_immutable (k integer primary key, v integer)"
+                    + " IMMUTABLE_ROWS=true");
+            stmt.execute("create index i_bulk_immutable on t_bulk_immutable (v)");
+            ResultSet rs = stmt.executeQuery("EXPLAIN UPSERT /*+ BULK_LOAD */ INTO"
+                    + " t_bulk_mutable SELECT k, v + 1 FROM t_bulk_mutable");
+            assertFalse(QueryUtil.getExplainPlan(rs).contains("HFILE BULK LOAD"));
+            rs = stmt.executeQuery("EXPLAIN UPSERT /*+ BULK_LOAD */ INTO"
+                    + " t_bulk_immutable SELECT k, v + 1 FROM t_bulk_mutable");
+            assertTrue(QueryUtil.getExplainPlan(rs)
+                    .startsWith("UPSERT SELECT VIA HFILE BULK LOAD\n"));
+        }
+    }
+
+    @Test
+    public void testStatementRewriteIsReusedByLaterCompilations() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("create table t_rewrite (t varchar not null,"
+                    + " k integer not null, v integer constraint pk primary key (t, k))"
+                    + " multi_tenant=true");
+            String query = "select k from t_rewrite where v between ? and ?";
+            PhoenixPreparedStatement statement =
+                    conn.prepareStatement(query).unwrap(PhoenixPreparedStatement.class);
+            statement.setInt(1, 1);
+            statement.setInt(2, 2);
+            FilterableStatement rewritten = statement.compileQuery().getStatement();
+            statement.setInt(1, 3);
+            statement.setInt(2, 4);
+            assertSame(rewritten, statement.compileQuery().getStatement());
+            // The parsed statement is shared by the connections, but the tables resolve
+            // differently for a tenant, so the rewrite is not reused
+            Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+            props.setProperty(PhoenixRuntime.TENANT_ID_ATTRIB, "tenant1");
+            try (Connection tenantConn = DriverManager.getConnection(getUrl(), props)) {
+                PhoenixPreparedStatement tenantStatement = tenantConn.prepareStatement(query)
+                        .unwrap(PhoenixPreparedStatement.class);
+                tenantStatement.setInt(1, 1);
+                tenantStatement.setInt(2, 2);
+                assertNotSame(rewritten, tenantStatement.compileQuery().getStatement());
+            }
+        }
+    }
 }
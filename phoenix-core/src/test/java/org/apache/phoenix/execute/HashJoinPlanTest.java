@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.execute;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+import org.apache.phoenix.compile.OrderByCompiler.OrderBy;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.util.TestUtil;
+import org.junit.Test;
+
+public class HashJoinPlanTest extends BaseConnectionlessQueryTest {
+
+    private static HashJoinPlan getHashJoinPlan(Connection conn, String query) throws Exception {
+        QueryPlan plan = TestUtil.getOptimizeQueryPlanNoIterator(conn, query);
+        assertTrue(query, plan instanceof HashJoinPlan);
+        return (HashJoinPlan) plan;
+    }
+
+    private static boolean isPartitionable(HashJoinPlan plan) {
+        return HashJoinPlan.isPartitionable(plan.getDelegate(), plan.getJoinInfo());
+    }
+
+    @Test
+    public void testRowKeyOrderedJoinIsNotPartitioned() throws Exception {
+        String lhs = generateUniqueName();
+        String rhs = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + lhs
+                    + " (ID INTEGER NOT NULL PRIMARY KEY, RID INTEGER, V VARCHAR)");
+            conn.createStatement().execute("CREATE TABLE " + rhs
+                    + " (ID INTEGER NOT NULL PRIMARY KEY, V VARCHAR)");
+            String join = "SELECT L.ID, R.V FROM " + lhs + " L JOIN " + rhs
+                    + " R ON L.RID = R.ID";
+
+            HashJoinPlan plan = getHashJoinPlan(conn, join);
+            assertSame(OrderBy.EMPTY_ORDER_BY, plan.getDelegate().getOrderBy());
+            assertTrue(isPartitionable(plan));
+
+            // Concatenating the passes would break the row key order of the probe scan
+            plan = getHashJoinPlan(conn, join + " ORDER BY L.ID");
+            assertSame(OrderBy.FWD_ROW_KEY_ORDER_BY, plan.getDelegate().getOrderBy());
+            assertFalse(isPartitionable(plan));
+
+            plan = getHashJoinPlan(conn, join + " ORDER BY L.ID DESC");
+            assertSame(OrderBy.REV_ROW_KEY_ORDER_BY, plan.getDelegate().getOrderBy());
+            assertFalse(isPartitionable(plan));
+
+            plan = getHashJoinPlan(conn, join + " ORDER BY R.V");
+            assertEquals(1, plan.getDelegate().getOrderBy().getOrderByExpressions().size());
+            assertFalse(isPartitionable(plan));
+
+            plan = getHashJoinPlan(conn, join + " LIMIT 10");
+            assertFalse(isPartitionable(plan));
+        }
+    }
+}
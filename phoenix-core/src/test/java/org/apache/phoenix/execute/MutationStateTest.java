@@ -19,6 +19,7 @@ package org.apache.phoenix.execute;
 
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.AsyncTable;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
@@ -27,38 +28,59 @@ import org.apache.hadoop.hbase.util.Pair;
 import org.apache.phoenix.exception.SQLExceptionCode;
 import org.apache.phoenix.execute.MutationState.MultiRowMutationState;
 import org.apache.phoenix.execute.MutationState.RowMutationState;
+import org.apache.phoenix.execute.MutationState.RowTimestampColInfo;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.index.PhoenixIndexBuilderHelper;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.PColumn;
+import org.apache.phoenix.schema.PRow;
+import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.TableRef;
 import org.apache.phoenix.schema.types.PUnsignedInt;
 import org.apache.phoenix.schema.types.PVarchar;
 import org.apache.phoenix.thirdparty.com.google.common.collect.ImmutableList;
 import org.apache.phoenix.util.PhoenixRuntime;
 import org.apache.phoenix.util.PropertiesUtil;
+import org.apache.phoenix.util.SizedUtil;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.phoenix.execute.MutationState.joinSortedIntArrays;
 import static org.apache.phoenix.query.BaseTest.generateUniqueName;
 import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -281,4 +303,262 @@ public class MutationStateTest {
             }
         }
     }
+
+    @Test
+    public void testColumnValueArena() {
+        ColumnValueArena arena = new ColumnValueArena(1024);
+        assertEquals(0, arena.allocate(10));
+        byte[] chunk = arena.getLastChunk();
+        assertEquals(10, arena.allocate(20));
+        assertSame(chunk, arena.getLastChunk());
+        // Values too large for a shared chunk get their own
+        assertEquals(0, arena.allocate(500));
+        assertEquals(500, arena.getLastChunk().length);
+        assertEquals(30, arena.allocate(1));
+        assertSame(chunk, arena.getLastChunk());
+        // A new chunk is started once the current one is full
+        for (int i = 0; i < 9; i++) {
+            arena.allocate(120);
+        }
+        assertFalse(chunk == arena.getLastChunk());
+    }
+
+    @Test
+    public void testRowMutationStateJoin() {
+        PColumn a = mock(PColumn.class);
+        PColumn b = mock(PColumn.class);
+        PColumn c = mock(PColumn.class);
+        ColumnValueArena arena = new ColumnValueArena();
+        RowTimestampColInfo rowTsColInfo = RowTimestampColInfo.NULL_ROWTIMESTAMP_INFO;
+        RowMutationState row = new RowMutationState(arena, new PColumn[] { a, b, null },
+                new byte[][] { Bytes.toBytes("abc"), Bytes.toBytes("de"), null }, 2, 1,
+                rowTsColInfo, null);
+        assertEquals(2, row.getColumnCount());
+        long size = row.calculateEstimatedSize();
+
+        // Shorter value is overwritten in place
+        assertTrue(row.join(new RowMutationState(arena, new PColumn[] { a },
+                new byte[][] { Bytes.toBytes("x") }, 1, 2, rowTsColInfo, null)));
+        Map<PColumn, byte[]> values = row.getColumnValues();
+        assertEquals(2, values.size());
+        assertArrayEquals(Bytes.toBytes("x"), values.get(a));
+        assertArrayEquals(Bytes.toBytes("de"), values.get(b));
+        assertEquals(size - 2 + SizedUtil.INT_SIZE, row.calculateEstimatedSize());
+
+        // Longer and new values are repacked
+        assertTrue(row.join(new RowMutationState(arena, new PColumn[] { b, c },
+                new byte[][] { Bytes.toBytes("longer"), Bytes.toBytes("c") }, 2, 3,
+                rowTsColInfo, null)));
+        values = row.getColumnValues();
+        assertEquals(3, values.size());
+        assertArrayEquals(Bytes.toBytes("x"), values.get(a));
+        assertArrayEquals(Bytes.toBytes("longer"), values.get(b));
+        assertArrayEquals(Bytes.toBytes("c"), values.get(c));
+        assertArrayEquals(new int[] { 1, 2, 3 }, row.getStatementIndexes());
+        assertFalse(row.isDelete());
+    }
+
+    @Test
+    public void testSingleRowUpsertsShareArenaChunks() throws Exception {
+        String tableName = generateUniqueName();
+        int numRows = 10000;
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.setAutoCommit(false);
+            conn.createStatement().execute("create table " + tableName
+                    + " (id UNSIGNED_INT not null primary key, v VARCHAR)");
+            for (int i = 0; i < numRows; i++) {
+                conn.createStatement().executeUpdate(
+                        "upsert into " + tableName + " values(" + i + ", 'value" + i + "')");
+            }
+            // Overwrite some rows with longer values and delete some others
+            for (int i = 0; i < numRows; i += 10) {
+                conn.createStatement().executeUpdate("upsert into " + tableName + " values(" + i
+                        + ", 'a longer value " + i + "')");
+                conn.createStatement().executeUpdate(
+                        "delete from " + tableName + " where id = " + (i + 1));
+            }
+            MutationState state = conn.unwrap(PhoenixConnection.class).getMutationState();
+            assertEquals(numRows, state.getNumRows());
+
+            Map<byte[], Boolean> buffers = new IdentityHashMap<>();
+            long retainedSize = 0;
+            long valueSize = 0;
+            for (Map<TableRef, MultiRowMutationState> commitBatch : state.createCommitBatches()) {
+                for (MultiRowMutationState batch : commitBatch.values()) {
+                    for (RowMutationState row : batch.values()) {
+                        if (buffers.put(row.getValueBuffer(), Boolean.TRUE) == null) {
+                            retainedSize += row.getValueBuffer().length;
+                        }
+                        for (int i = 0; i < row.getColumnCount(); i++) {
+                            valueSize += row.getColumnValue(i).length;
+                        }
+                    }
+                }
+            }
+            // Rows are packed into the chunks of the connection batch instead of each pinning
+            // the chunk of its own statement
+            assertTrue("Retained " + retainedSize + " bytes for " + valueSize + " value bytes",
+                    retainedSize < valueSize + 2 * ColumnValueArena.DEFAULT_CHUNK_SIZE);
+            assertTrue(state.getEstimatedSize() >= valueSize);
+            assertTrue(state.getEstimatedSize() < retainedSize + (long) numRows * 256);
+        }
+    }
+
+    @Test
+    public void testRowMutationStateDelete() {
+        RowMutationState row = new RowMutationState(PRow.DELETE_MARKER, 1,
+                RowTimestampColInfo.NULL_ROWTIMESTAMP_INFO, null);
+        assertTrue(row.isDelete());
+        assertEquals(0, row.getColumnCount());
+        assertSame(PRow.DELETE_MARKER, row.getColumnValues());
+    }
+
+    private static final byte[] PIPELINE_TABLE = Bytes.toBytes("T");
+    private static final byte[] PIPELINE_FAMILY = Bytes.toBytes("0");
+    private static final long PIPELINE_TIMESTAMP = 1000L;
+
+    private static Connection getPipelineConnection() throws SQLException {
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        props.setProperty(QueryServices.MUTATE_PIPELINE_ENABLED_ATTRIB, "true");
+        props.setProperty(QueryServices.MUTATE_PIPELINE_MAX_IN_FLIGHT_BATCHES_ATTRIB, "3");
+        return DriverManager.getConnection(getUrl(), props);
+    }
+
+    private static List<List<Mutation>> newMutationBatches(int numBatches) {
+        List<List<Mutation>> mutationBatchList = new ArrayList<>(numBatches);
+        for (int i = 0; i < numBatches; i++) {
+            Put put = new Put(Bytes.toBytes("r" + i));
+            put.addColumn(PIPELINE_FAMILY, Bytes.toBytes("V"), PIPELINE_TIMESTAMP,
+                    Bytes.toBytes(i));
+            mutationBatchList.add(Collections.singletonList(put));
+        }
+        return mutationBatchList;
+    }
+
+    private static CompletableFuture<List<Object>> completedBatch() {
+        return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+
+    @Test
+    public void testPipelineEligibility() throws Exception {
+        PTable table = mock(PTable.class);
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            // Pipelining is off by default
+            assertFalse(conn.unwrap(PhoenixConnection.class).getMutationState()
+                    .isPipelineEligible(table, newMutationBatches(3), false));
+        }
+        try (Connection conn = getPipelineConnection()) {
+            MutationState state = conn.unwrap(PhoenixConnection.class).getMutationState();
+            assertTrue(state.isPipelineEligible(table, newMutationBatches(3), false));
+            assertFalse(state.isPipelineEligible(table, newMutationBatches(1), false));
+            assertFalse(state.isPipelineEligible(table, newMutationBatches(3), true));
+            List<List<Mutation>> onDupKeyBatches = newMutationBatches(3);
+            onDupKeyBatches.get(2).get(0).setAttribute(PhoenixIndexBuilderHelper.ATOMIC_OP_ATTRIB,
+                    new byte[0]);
+            assertFalse(state.isPipelineEligible(table, onDupKeyBatches, false));
+            when(table.isTransactional()).thenReturn(true);
+            assertFalse(state.isPipelineEligible(table, newMutationBatches(3), false));
+        }
+    }
+
+    @Test
+    public void testPipelineFallsBackWithoutAsyncConnection() throws Exception {
+        // Connectionless query services have no async connection, so the batches are left to
+        // the blocking sends
+        try (Connection conn = getPipelineConnection()) {
+            assertNull(conn.unwrap(PhoenixConnection.class).getMutationState()
+                    .getPipelineTable(PIPELINE_TABLE));
+        }
+    }
+
+    @Test
+    public void testPipelinedBatchesInFlight() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try (Connection conn = getPipelineConnection()) {
+            MutationState state = conn.unwrap(PhoenixConnection.class).getMutationState();
+            AsyncTable<?> asyncTable = mock(AsyncTable.class);
+            AtomicInteger inFlight = new AtomicInteger();
+            AtomicInteger maxInFlight = new AtomicInteger();
+            List<Object> sent = Collections.synchronizedList(new ArrayList<>());
+            when(asyncTable.batchAll(anyList())).thenAnswer(invocation -> {
+                sent.add(invocation.getArgument(0));
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                CompletableFuture<List<Object>> future = new CompletableFuture<>();
+                executor.schedule(() -> {
+                    inFlight.decrementAndGet();
+                    future.complete(Collections.emptyList());
+                }, 20, TimeUnit.MILLISECONDS);
+                return future;
+            });
+            List<List<Mutation>> mutationBatchList = newMutationBatches(7);
+            List<List<Mutation>> expected = new ArrayList<>(mutationBatchList);
+            long batchCount = state.getBatchCount();
+
+            state.sendBatchesPipelined(asyncTable, PIPELINE_TABLE, mutationBatchList);
+
+            assertTrue(mutationBatchList.isEmpty());
+            assertEquals(expected, sent);
+            assertEquals(3, maxInFlight.get());
+            assertEquals(batchCount + 7, state.getBatchCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPipelinedBatchFailure() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try (Connection conn = getPipelineConnection()) {
+            MutationState state = conn.unwrap(PhoenixConnection.class).getMutationState();
+            List<List<Mutation>> mutationBatchList = newMutationBatches(5);
+            List<List<Mutation>> expectedRemainder =
+                    new ArrayList<>(mutationBatchList.subList(1, 5));
+            IOException failure = new IOException("batch 1 failed");
+            CompletableFuture<List<Object>> failedBatch = new CompletableFuture<>();
+            failedBatch.completeExceptionally(failure);
+            CompletableFuture<List<Object>> slowBatch = new CompletableFuture<>();
+            executor.schedule(() -> slowBatch.complete(Collections.emptyList()), 100,
+                    TimeUnit.MILLISECONDS);
+            AsyncTable<?> asyncTable = mock(AsyncTable.class);
+            when(asyncTable.batchAll(anyList())).thenReturn(completedBatch(), failedBatch,
+                    slowBatch, completedBatch());
+            long batchCount = state.getBatchCount();
+
+            try {
+                state.sendBatchesPipelined(asyncTable, PIPELINE_TABLE, mutationBatchList);
+                fail();
+            } catch (IOException e) {
+                assertSame(failure, e);
+            }
+            // The batches in flight settled before the failure was thrown, and the last batch
+            // was never sent
+            assertTrue(slowBatch.isDone());
+            verify(asyncTable, times(4)).batchAll(anyList());
+            // Every batch that may not have been applied is left to the retry
+            assertEquals(expectedRemainder, mutationBatchList);
+            assertEquals(batchCount + 1, state.getBatchCount());
+
+            // The retry sends the same mutations with the same timestamps, so batches that were
+            // applied before the failure are overwritten with identical cells
+            AsyncTable<?> retryTable = mock(AsyncTable.class);
+            List<Object> resent = new ArrayList<>();
+            when(retryTable.batchAll(anyList())).thenAnswer(invocation -> {
+                resent.add(invocation.getArgument(0));
+                return completedBatch();
+            });
+            state.sendBatchesPipelined(retryTable, PIPELINE_TABLE, mutationBatchList);
+            assertTrue(mutationBatchList.isEmpty());
+            assertEquals(expectedRemainder, resent);
+            for (List<Mutation> mutationBatch : expectedRemainder) {
+                for (Mutation mutation : mutationBatch) {
+                    for (Cell cell : mutation.getFamilyCellMap().get(PIPELINE_FAMILY)) {
+                        assertEquals(PIPELINE_TIMESTAMP, cell.getTimestamp());
+                    }
+                }
+            }
+            assertEquals(batchCount + 5, state.getBatchCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.List;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PLong;
+import org.junit.Test;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Lists;
+
+public class BloomFilterExpressionTest {
+    private static final int NUM_VALUES = 10000;
+
+    private static List<ImmutableBytesWritable> evenValues() {
+        List<ImmutableBytesWritable> values = Lists.newArrayList();
+        for (long i = 0; i < NUM_VALUES; i++) {
+            values.add(new ImmutableBytesWritable(PLong.INSTANCE.toBytes(i * 2)));
+        }
+        return values;
+    }
+
+    private static Boolean evaluate(Expression expression) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        assertTrue(expression.evaluate(null, ptr));
+        return (Boolean) PBoolean.INSTANCE.toObject(ptr);
+    }
+
+    private static BloomFilterExpression withChild(BloomFilterExpression filter, Expression child) {
+        return filter.clone(Lists.newArrayList(child));
+    }
+
+    private static int countFalsePositives(BloomFilterExpression filter, SortOrder sortOrder)
+            throws Exception {
+        int falsePositives = 0;
+        for (long i = 0; i < NUM_VALUES; i++) {
+            Expression even = LiteralExpression.newConstant(i * 2, PLong.INSTANCE, sortOrder);
+            assertEquals(Boolean.TRUE, evaluate(withChild(filter, even)));
+            Expression odd = LiteralExpression.newConstant(i * 2 + 1, PLong.INSTANCE, sortOrder);
+            if (evaluate(withChild(filter, odd))) {
+                falsePositives++;
+            }
+        }
+        return falsePositives;
+    }
+
+    @Test
+    public void testNoFalseNegatives() throws Exception {
+        BloomFilterExpression filter = BloomFilterExpression.create(
+            LiteralExpression.newConstant(0L), evenValues(), 0.01);
+        int falsePositives = countFalsePositives(filter, SortOrder.ASC);
+        assertTrue("Too many false positives: " + falsePositives, falsePositives < NUM_VALUES / 50);
+    }
+
+    @Test
+    public void testDescendingChild() throws Exception {
+        BloomFilterExpression filter = BloomFilterExpression.create(
+            LiteralExpression.newConstant(0L), evenValues(), 0.01);
+        int falsePositives = countFalsePositives(filter, SortOrder.DESC);
+        assertTrue("Too many false positives: " + falsePositives, falsePositives < NUM_VALUES / 50);
+    }
+
+    @Test
+    public void testNullChild() throws Exception {
+        BloomFilterExpression filter = BloomFilterExpression.create(
+            LiteralExpression.newConstant(null, PLong.INSTANCE), evenValues(), 0.01);
+        assertEquals(null, evaluate(filter));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        BloomFilterExpression filter = BloomFilterExpression.create(
+            LiteralExpression.newConstant(42L), evenValues(), 0.01);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.write(new DataOutputStream(bytes));
+        BloomFilterExpression copy = new BloomFilterExpression();
+        copy.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(filter, copy);
+        assertEquals(Boolean.TRUE, evaluate(copy));
+    }
+}
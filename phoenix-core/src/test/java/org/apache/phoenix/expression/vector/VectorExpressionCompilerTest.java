@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.expression.AndExpression;
+import org.apache.phoenix.expression.BaseTerminalExpression;
+import org.apache.phoenix.expression.ComparisonExpression;
+import org.apache.phoenix.expression.DoubleAddExpression;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.LongAddExpression;
+import org.apache.phoenix.expression.LongDivideExpression;
+import org.apache.phoenix.expression.LongMultiplyExpression;
+import org.apache.phoenix.expression.LongSubtractExpression;
+import org.apache.phoenix.expression.NotExpression;
+import org.apache.phoenix.expression.OrExpression;
+import org.apache.phoenix.expression.visitor.ExpressionVisitor;
+import org.apache.phoenix.iterate.FilterResultIterator;
+import org.apache.phoenix.iterate.MaterializedResultIterator;
+import org.apache.phoenix.iterate.ResultIterator;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Lists;
+
+public class VectorExpressionCompilerTest {
+
+    /**
+     * Column like expression whose value for each tuple is looked up in a map.
+     */
+    private static class ValueExpression extends BaseTerminalExpression {
+        private final PDataType type;
+        private final Map<Tuple, Object> values = new IdentityHashMap<>();
+
+        ValueExpression(PDataType type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+            Object value = values.get(tuple);
+            ptr.set(type.toBytes(value));
+            return true;
+        }
+
+        @Override
+        public PDataType getDataType() {
+            return type;
+        }
+
+        @Override
+        public <T> T accept(ExpressionVisitor<T> visitor) {
+            return null;
+        }
+    }
+
+    private final ValueExpression a = new ValueExpression(PLong.INSTANCE);
+    private final ValueExpression b = new ValueExpression(PLong.INSTANCE);
+    private final ValueExpression d = new ValueExpression(PDouble.INSTANCE);
+    private final List<Tuple> tuples = Lists.newArrayList();
+
+    @Before
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            Tuple tuple = new SingleKeyValueTuple();
+            a.values.put(tuple, random.nextInt(10) == 0 ? null : (long) random.nextInt(20));
+            b.values.put(tuple, random.nextInt(10) == 0 ? null : (long) random.nextInt(20));
+            d.values.put(tuple, random.nextInt(10) == 0 ? null : random.nextDouble());
+            tuples.add(tuple);
+        }
+    }
+
+    private static Expression compare(CompareOperator op, Expression lhs, Expression rhs) {
+        return new ComparisonExpression(Arrays.asList(lhs, rhs), op);
+    }
+
+    private void assertSameRows(Expression filter) throws SQLException {
+        assertNotNull(VectorExpressionCompiler.compile(filter));
+        List<Tuple> expected = filter(new FilterResultIterator(
+                new MaterializedResultIterator(tuples), filter));
+        List<Tuple> actual = filter(new FilterResultIterator(
+                new MaterializedResultIterator(tuples), filter, 64));
+        assertTrue(expected.size() > 0);
+        assertEquals(expected, actual);
+    }
+
+    private static List<Tuple> filter(ResultIterator iterator) throws SQLException {
+        List<Tuple> results = Lists.newArrayList();
+        Tuple tuple;
+        while ((tuple = iterator.next()) != null) {
+            results.add(tuple);
+        }
+        iterator.close();
+        return results;
+    }
+
+    @Test
+    public void testArithmeticComparisonAnd() throws SQLException {
+        Expression sum = new LongAddExpression(Arrays.<Expression>asList(a, b));
+        assertSameRows(new AndExpression(Arrays.asList(
+                compare(CompareOperator.GREATER, sum, LiteralExpression.newConstant(10L)),
+                compare(CompareOperator.LESS, d, LiteralExpression.newConstant(0.5d)))));
+    }
+
+    @Test
+    public void testNotOr() throws SQLException {
+        Expression product = new LongMultiplyExpression(
+                Arrays.<Expression>asList(a, LiteralExpression.newConstant(2L)));
+        assertSameRows(new OrExpression(Arrays.asList(
+                new NotExpression(Arrays.asList(compare(CompareOperator.EQUAL, product, b))),
+                compare(CompareOperator.GREATER_OR_EQUAL, d, LiteralExpression.newConstant(0.3d)))));
+    }
+
+    @Test
+    public void testMixedArithmetic() throws SQLException {
+        Expression quotient = new LongDivideExpression(Arrays.<Expression>asList(
+                new LongSubtractExpression(Arrays.<Expression>asList(a, b)),
+                LiteralExpression.newConstant(3L)));
+        Expression doubleSum = new DoubleAddExpression(Arrays.<Expression>asList(d, a));
+        assertSameRows(new OrExpression(Arrays.asList(
+                compare(CompareOperator.LESS_OR_EQUAL, quotient, LiteralExpression.newConstant(-2L)),
+                compare(CompareOperator.GREATER, doubleSum, LiteralExpression.newConstant(15.5d)))));
+    }
+
+    @Test
+    public void testNotVectorizable() throws SQLException {
+        ValueExpression s = new ValueExpression(PVarchar.INSTANCE);
+        assertNull(VectorExpressionCompiler.compile(
+                compare(CompareOperator.EQUAL, s, LiteralExpression.newConstant("x"))));
+        assertNull(VectorExpressionCompiler.compile(LiteralExpression.newConstant(true)));
+    }
+}
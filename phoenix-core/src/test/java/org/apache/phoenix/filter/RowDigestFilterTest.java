@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.filter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+public class RowDigestFilterTest {
+    private static final byte[] ROW = Bytes.toBytes("row");
+    private static final byte[] FAMILY = Bytes.toBytes("0");
+    private static final byte[] EMPTY_CQ = Bytes.toBytes("_0");
+    private static final byte[] CQ = Bytes.toBytes("V1");
+
+    private static List<Cell> getCells(long ts, String value) {
+        return new ArrayList<Cell>(Arrays.asList(
+                new KeyValue(ROW, FAMILY, EMPTY_CQ, ts, Bytes.toBytes("x")),
+                new KeyValue(ROW, FAMILY, CQ, ts - 1, Bytes.toBytes(value))));
+    }
+
+    @Test
+    public void testRowIsReplacedWithDigest() throws Exception {
+        RowDigestFilter filter = new RowDigestFilter(FAMILY, EMPTY_CQ);
+        assertTrue(filter.hasFilterRow());
+        List<Cell> cells = getCells(10, "v");
+        byte[] digest = RowDigestFilter.getDigest(cells);
+        filter.filterRowCells(cells);
+        assertEquals(1, cells.size());
+        Cell cell = cells.get(0);
+        assertArrayEquals(ROW, CellUtil.cloneRow(cell));
+        assertArrayEquals(FAMILY, CellUtil.cloneFamily(cell));
+        assertArrayEquals(EMPTY_CQ, CellUtil.cloneQualifier(cell));
+        assertEquals(10, cell.getTimestamp());
+        assertArrayEquals(digest, CellUtil.cloneValue(cell));
+    }
+
+    @Test
+    public void testDigestChangesWithEveryWrite() {
+        byte[] digest = RowDigestFilter.getDigest(getCells(10, "v"));
+        assertArrayEquals(digest, RowDigestFilter.getDigest(getCells(10, "v")));
+        // Same timestamp, different value
+        assertFalse(Bytes.equals(digest, RowDigestFilter.getDigest(getCells(10, "w"))));
+        // Same value, different timestamp
+        assertFalse(Bytes.equals(digest, RowDigestFilter.getDigest(getCells(20, "v"))));
+        // A column removed
+        assertFalse(Bytes.equals(digest,
+                RowDigestFilter.getDigest(getCells(10, "v").subList(0, 1))));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        RowDigestFilter filter = RowDigestFilter.parseFrom(
+                new RowDigestFilter(FAMILY, EMPTY_CQ).toByteArray());
+        List<Cell> cells = getCells(10, "v");
+        byte[] digest = RowDigestFilter.getDigest(cells);
+        filter.filterRowCells(cells);
+        assertArrayEquals(EMPTY_CQ, CellUtil.cloneQualifier(cells.get(0)));
+        assertArrayEquals(digest, CellUtil.cloneValue(cells.get(0)));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.coprocessor.ObserverContext;
+import org.apache.hadoop.hbase.regionserver.MiniBatchOperationInProgress;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.GlobalMemoryManager;
+import org.junit.Test;
+
+public class TestDataRowStateCache {
+
+    private static final byte[] FAMILY = Bytes.toBytes("0");
+    private static final byte[] QUALIFIER = Bytes.toBytes("V");
+
+    private static ImmutableBytesPtr row(int i) {
+        return new ImmutableBytesPtr(Bytes.toBytes("row" + i));
+    }
+
+    private static Put rowState(ImmutableBytesPtr rowKey, String value) {
+        Put put = new Put(rowKey.copyBytes());
+        put.addColumn(FAMILY, QUALIFIER, 1L, Bytes.toBytes(value));
+        return put;
+    }
+
+    @Test
+    public void testGetReturnsIndependentCopy() {
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(1024 * 1024);
+        DataRowStateCache cache = new DataRowStateCache(memoryManager, 1024 * 1024);
+        cache.put(row(1), rowState(row(1), "a"));
+
+        Put cached = cache.get(row(1));
+        assertNotNull(cached);
+        assertArrayEquals(Bytes.toBytes("a"),
+                CellUtil.cloneValue(cached.get(FAMILY, QUALIFIER).get(0)));
+        cached.getFamilyCellMap().clear();
+        assertEquals(1, cache.get(row(1)).get(FAMILY, QUALIFIER).size());
+
+        cache.invalidate(row(1));
+        assertNull(cache.get(row(1)));
+        assertEquals(0, cache.getUsedBytes());
+        cache.close();
+        assertEquals(memoryManager.getMaxMemory(), memoryManager.getAvailableMemory());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchWithoutIndexMaintenanceInvalidatesRows() throws Exception {
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(1024 * 1024);
+        DataRowStateCache cache = new DataRowStateCache(memoryManager, 1024 * 1024);
+        cache.put(row(1), rowState(row(1), "a"));
+        cache.put(row(2), rowState(row(2), "b"));
+        IndexRegionObserver observer = new IndexRegionObserver();
+        observer.setRowStateCache(cache);
+
+        // A batch that did not go through index maintenance has no batch mutate context
+        MiniBatchOperationInProgress<Mutation> miniBatchOp =
+                mock(MiniBatchOperationInProgress.class);
+        when(miniBatchOp.size()).thenReturn(1);
+        when(miniBatchOp.getOperation(0)).thenReturn(rowState(row(1), "c"));
+        observer.postBatchMutateIndispensably(mock(ObserverContext.class), miniBatchOp, true);
+
+        assertNull(cache.get(row(1)));
+        assertNotNull(cache.get(row(2)));
+        cache.close();
+    }
+
+    @Test
+    public void testEvictionWithinMemoryBudget() {
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(1024 * 1024);
+        DataRowStateCache cache = new DataRowStateCache(memoryManager, 4 * 1024);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(row(i), rowState(row(i), "value" + i));
+        }
+        assertTrue(cache.getUsedBytes() <= 4 * 1024);
+        assertTrue(cache.getRowCount() < 1000);
+        // The most recently written rows are kept
+        assertNotNull(cache.get(row(999)));
+        assertNull(cache.get(row(0)));
+        assertTrue(memoryManager.getMaxMemory() - memoryManager.getAvailableMemory() <= 4 * 1024);
+
+        cache.invalidateAll();
+        assertEquals(0, cache.getRowCount());
+        assertEquals(memoryManager.getMaxMemory(), memoryManager.getAvailableMemory());
+        cache.close();
+    }
+
+    @Test
+    public void testEvictionWhenMemoryPoolIsExhausted() {
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(8 * 1024);
+        // Most of the pool is held by someone else
+        memoryManager.allocate(6 * 1024);
+        DataRowStateCache cache = new DataRowStateCache(memoryManager, 1024 * 1024);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(row(i), rowState(row(i), "value" + i));
+        }
+        assertTrue(cache.getRowCount() > 0);
+        assertTrue(cache.getUsedBytes() <= 2 * 1024);
+        cache.close();
+        assertEquals(2 * 1024, memoryManager.getAvailableMemory());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.hbase.index.LockManager.RowLock;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestPooledLockManager {
+
+    // Checks whether the rows are locked from a thread that never holds any lock
+    private ExecutorService executor;
+    private ExecutorService batchExecutor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        batchExecutor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        batchExecutor.shutdownNow();
+    }
+
+    private static ImmutableBytesPtr row(String row) {
+        return new ImmutableBytesPtr(Bytes.toBytes(row));
+    }
+
+    @Test
+    public void testRowsAreReleasedOneByOne() throws Exception {
+        PooledLockManager lockManager = new PooledLockManager(16);
+        List<RowLock> rowLocks = lockManager.lockRows(
+                Arrays.asList(row("a"), row("b"), row("c")), 1000);
+        assertEquals(3, rowLocks.size());
+        assertLockedByOtherThread(lockManager, row("d"), false);
+        // Release the locks of the rows one by one, as done for ON DUPLICATE KEY IGNORE rows
+        rowLocks.get(0).release();
+        assertLockedByOtherThread(lockManager, row("a"), false);
+        assertLockedByOtherThread(lockManager, row("b"), true);
+        rowLocks.get(1).release();
+        rowLocks.get(2).release();
+        assertLockedByOtherThread(lockManager, row("b"), false);
+        assertLockedByOtherThread(lockManager, row("c"), false);
+    }
+
+    @Test
+    public void testLocksAreReentrantAndReused() throws Exception {
+        PooledLockManager lockManager = new PooledLockManager(1);
+        RowLock first = lockManager.lockRow(row("a"), 1000);
+        RowLock second = lockManager.lockRow(row("a"), 1000);
+        first.release();
+        assertLockedByOtherThread(lockManager, row("a"), true);
+        second.release();
+        assertEquals(1, lockManager.getPoolSize());
+        // The pooled lock is used for the next row
+        RowLock other = lockManager.lockRow(row("b"), 1000);
+        assertEquals(0, lockManager.getPoolSize());
+        assertEquals(row("b"), other.getRowKey());
+        assertLockedByOtherThread(lockManager, row("a"), false);
+        assertLockedByOtherThread(lockManager, row("b"), true);
+        other.release();
+        assertEquals(1, lockManager.getPoolSize());
+    }
+
+    @Test
+    public void testBatchLockIsAllOrNothing() throws Exception {
+        PooledLockManager lockManager = new PooledLockManager(16);
+        ImmutableBytesPtr heldRow = row("held");
+        RowLock heldLock = lockManager.lockRow(heldRow, 1000);
+        List<ImmutableBytesPtr> batch = Arrays.asList(row("a"), row("b"), heldRow, row("c"));
+        Future<?> future = batchExecutor.submit(() -> {
+            try {
+                lockManager.lockRows(batch, 100);
+                fail("Expected the batch to time out");
+            } catch (TimeoutIOException e) {
+                // expected
+            }
+            return null;
+        });
+        future.get(10, TimeUnit.SECONDS);
+        // None of the rows of the failed batch are still locked
+        heldLock.release();
+        for (ImmutableBytesPtr rowKey : batch) {
+            assertLockedByOtherThread(lockManager, rowKey, false);
+        }
+    }
+
+    @Test
+    public void testDisjointBatchesDontBlockEachOther() throws Exception {
+        PooledLockManager lockManager = new PooledLockManager(1024);
+        int numBatches = 16;
+        int batchSize = 100;
+        CountDownLatch allLocked = new CountDownLatch(numBatches);
+        CountDownLatch done = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(numBatches);
+        for (int i = 0; i < numBatches; i++) {
+            TreeSet<ImmutableBytesPtr> batch = new TreeSet<>();
+            for (int j = 0; j < batchSize; j++) {
+                batch.add(row("row" + (j * numBatches + i)));
+            }
+            futures.add(batchExecutor.submit(() -> {
+                // Every batch holds its rows until all the batches have locked theirs, which
+                // only succeeds if none of them waits for another one
+                List<RowLock> rowLocks = lockManager.lockRows(batch, 1000);
+                try {
+                    allLocked.countDown();
+                    assertTrue(done.await(10, TimeUnit.SECONDS));
+                } finally {
+                    for (RowLock rowLock : rowLocks) {
+                        rowLock.release();
+                    }
+                }
+                return null;
+            }));
+        }
+        assertTrue(allLocked.await(10, TimeUnit.SECONDS));
+        done.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(Math.min(1024, numBatches * batchSize), lockManager.getPoolSize());
+    }
+
+    private void assertLockedByOtherThread(PooledLockManager lockManager,
+            ImmutableBytesPtr rowKey, boolean locked) throws Exception {
+        Future<Boolean> future = executor.submit(() -> {
+            try {
+                lockManager.lockRow(rowKey, 10).release();
+                return false;
+            } catch (TimeoutIOException e) {
+                return true;
+            }
+        });
+        assertEquals(locked, future.get(10, TimeUnit.SECONDS));
+        assertTrue(future.isDone());
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index.write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.Stoppable;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.VersionInfo;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSource;
+import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.ArrayListMultimap;
+import org.apache.phoenix.thirdparty.com.google.common.collect.Multimap;
+
+public class TestAdaptiveIndexCommitter {
+
+    private static final String UNKNOWN_SERVER = "unknown";
+    private final ImmutableBytesPtr indexTableName = new ImmutableBytesPtr(Bytes.toBytes("I"));
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    private Table table;
+    private MetricsIndexerSource metricSource;
+    private Stoppable stop;
+    private ExecutorService pool;
+    private ExecutorService writers;
+    private AdaptiveIndexCommitter.ServerQueues serverQueues;
+
+    @Before
+    public void setUp() {
+        table = Mockito.mock(Table.class);
+        metricSource = Mockito.mock(MetricsIndexerSource.class);
+        stop = Mockito.mock(Stoppable.class);
+        pool = Executors.newFixedThreadPool(4);
+        writers = Executors.newFixedThreadPool(3);
+        serverQueues = new AdaptiveIndexCommitter.ServerQueues();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        writers.shutdownNow();
+    }
+
+    private AdaptiveIndexCommitter createCommitter(int maxInFlight, long targetLatencyMs) {
+        AdaptiveIndexCommitter committer =
+                new AdaptiveIndexCommitter(VersionInfo.getVersion());
+        committer.setup(new FakeTableFactory(Collections.singletonMap(indexTableName, table)),
+                pool, stop, null, metricSource, serverQueues, maxInFlight, targetLatencyMs, 1000);
+        return committer;
+    }
+
+    private Multimap<HTableInterfaceReference, Mutation> updates(String row) {
+        Put put = new Put(Bytes.toBytes(row));
+        put.addColumn(Bytes.toBytes("0"), Bytes.toBytes("V"), Bytes.toBytes(row));
+        Multimap<HTableInterfaceReference, Mutation> updates = ArrayListMultimap.create();
+        updates.put(new HTableInterfaceReference(indexTableName), put);
+        return updates;
+    }
+
+    @Test
+    public void testQueuedUpdatesAreWrittenTogether() throws Exception {
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch firstWriteReleased = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            List<?> mutations = invocation.getArgument(0);
+            batchSizes.add(mutations.size());
+            if (batchSizes.size() == 1) {
+                firstWriteStarted.countDown();
+                firstWriteReleased.await();
+            }
+            return null;
+        }).when(table).batch(anyList(), any());
+        AdaptiveIndexCommitter committer = createCommitter(1, 60000);
+
+        Future<?> first = writers.submit(() -> {
+            committer.write(updates("a"), false, 0);
+            return null;
+        });
+        firstWriteStarted.await(10, TimeUnit.SECONDS);
+        // Only one write can be in flight, so these two are queued behind the first one
+        Future<?> second = writers.submit(() -> {
+            committer.write(updates("b"), false, 0);
+            return null;
+        });
+        Future<?> third = writers.submit(() -> {
+            committer.write(updates("c"), false, 0);
+            return null;
+        });
+        Mockito.verify(metricSource, Mockito.timeout(10000).times(3))
+                .updateIndexWriteQueueDepth(Mockito.eq(UNKNOWN_SERVER), anyLong());
+        firstWriteReleased.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+        third.get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, batchSizes.size());
+        assertEquals(1, (int) batchSizes.get(0));
+        assertEquals(2, (int) batchSizes.get(1));
+        Mockito.verify(metricSource, Mockito.times(2))
+                .updateIndexWriteLatency(Mockito.eq("I"), anyLong());
+    }
+
+    @Test
+    public void testInFlightLimitIsSharedByTheCommittersOfAllRegions() throws Exception {
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch firstWriteReleased = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            batchSizes.add(((List<?>) invocation.getArgument(0)).size());
+            if (batchSizes.size() == 1) {
+                firstWriteStarted.countDown();
+                firstWriteReleased.await();
+            }
+            return null;
+        }).when(table).batch(anyList(), any());
+        // One committer per region, writing to the same server
+        AdaptiveIndexCommitter first = createCommitter(1, 60000);
+        AdaptiveIndexCommitter second = createCommitter(1, 60000);
+
+        Future<?> firstWrite = writers.submit(() -> {
+            first.write(updates("a"), false, 0);
+            return null;
+        });
+        firstWriteStarted.await(10, TimeUnit.SECONDS);
+        Future<?> secondWrite = writers.submit(() -> {
+            second.write(updates("b"), false, 0);
+            return null;
+        });
+        // The write of the other region waits for the one in flight to the same server
+        Mockito.verify(metricSource, Mockito.timeout(10000).times(2))
+                .updateIndexWriteQueueDepth(Mockito.eq(UNKNOWN_SERVER), anyLong());
+        Thread.sleep(100);
+        assertEquals(1, batchSizes.size());
+        assertFalse(secondWrite.isDone());
+        firstWriteReleased.countDown();
+        firstWrite.get(10, TimeUnit.SECONDS);
+        secondWrite.get(10, TimeUnit.SECONDS);
+        assertEquals(2, batchSizes.size());
+    }
+
+    @Test
+    public void testStopFailsOnlyTheQueuedUpdatesOfTheCommitter() throws Exception {
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch firstWriteReleased = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            batchSizes.add(((List<?>) invocation.getArgument(0)).size());
+            if (batchSizes.size() == 1) {
+                firstWriteStarted.countDown();
+                firstWriteReleased.await();
+            }
+            return null;
+        }).when(table).batch(anyList(), any());
+        AdaptiveIndexCommitter first = createCommitter(1, 60000);
+        AdaptiveIndexCommitter stopped = new AdaptiveIndexCommitter(VersionInfo.getVersion());
+        // The committer of the closed region has its own writer pool, which it shuts down
+        ExecutorService stoppedPool = Executors.newFixedThreadPool(1);
+        stopped.setup(new FakeTableFactory(Collections.singletonMap(indexTableName, table)),
+                stoppedPool, stop, null, metricSource, serverQueues, 1, 60000, 1000);
+
+        Future<?> firstWrite = writers.submit(() -> {
+            first.write(updates("a"), false, 0);
+            return null;
+        });
+        firstWriteStarted.await(10, TimeUnit.SECONDS);
+        Future<?> stoppedWrite = writers.submit(() -> {
+            stopped.write(updates("b"), false, 0);
+            return null;
+        });
+        Future<?> queuedWrite = writers.submit(() -> {
+            first.write(updates("c"), false, 0);
+            return null;
+        });
+        Mockito.verify(metricSource, Mockito.timeout(10000).times(3))
+                .updateIndexWriteQueueDepth(Mockito.eq(UNKNOWN_SERVER), anyLong());
+        stopped.stop("region closed");
+        try {
+            stoppedWrite.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            // expected, the updates of the closed region are not written
+        }
+        firstWriteReleased.countDown();
+        firstWrite.get(10, TimeUnit.SECONDS);
+        queuedWrite.get(10, TimeUnit.SECONDS);
+        assertEquals(2, batchSizes.size());
+    }
+
+    @Test
+    public void testInFlightLimitAdaptsToLatency() throws Exception {
+        List<Long> delays = Collections.synchronizedList(new ArrayList<>());
+        Mockito.doAnswer(invocation -> {
+            if (!delays.isEmpty()) {
+                Thread.sleep(delays.remove(0));
+            }
+            return null;
+        }).when(table).batch(anyList(), any());
+        AdaptiveIndexCommitter committer = createCommitter(4, 50);
+
+        delays.add(200L);
+        committer.write(updates("a"), false, 0);
+        waitForInFlightLimit(committer, 2);
+        delays.add(200L);
+        committer.write(updates("b"), false, 0);
+        waitForInFlightLimit(committer, 1);
+        committer.write(updates("c"), false, 0);
+        waitForInFlightLimit(committer, 2);
+    }
+
+    // The limit is adjusted right after the waiting writers are released
+    private static void waitForInFlightLimit(AdaptiveIndexCommitter committer, int expected)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (committer.getInFlightLimit(UNKNOWN_SERVER) != expected
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, committer.getInFlightLimit(UNKNOWN_SERVER));
+    }
+}
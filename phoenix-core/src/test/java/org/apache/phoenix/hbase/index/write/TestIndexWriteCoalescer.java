@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index.write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSource;
+import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.ArrayListMultimap;
+import org.apache.phoenix.thirdparty.com.google.common.collect.Multimap;
+
+public class TestIndexWriteCoalescer {
+
+    private static final String DATA_TABLE = "T";
+    private final HTableInterfaceReference indexTable =
+            new HTableInterfaceReference(new ImmutableBytesPtr(Bytes.toBytes("I")));
+    private final CountDownLatch firstWriteStarted = new CountDownLatch(1);
+    private final CountDownLatch firstWriteReleased = new CountDownLatch(1);
+    private IndexWriter writer;
+    private MetricsIndexerSource metricSource;
+    private IndexWriteCoalescer coalescer;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        writer = Mockito.mock(IndexWriter.class);
+        metricSource = Mockito.mock(MetricsIndexerSource.class);
+        coalescer = new IndexWriteCoalescer(writer, 64, 1, metricSource, DATA_TABLE);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private Multimap<HTableInterfaceReference, Mutation> newUpdates(String row) {
+        Multimap<HTableInterfaceReference, Mutation> updates = ArrayListMultimap.create();
+        updates.put(indexTable, new Put(Bytes.toBytes(row)));
+        return updates;
+    }
+
+    private Future<Void> submitWrite(String row) {
+        return executor.submit(() -> {
+            coalescer.write(newUpdates(row), 0);
+            return null;
+        });
+    }
+
+    /**
+     * Blocks the first commit until released, and then starts three more batches which have to
+     * wait for it. Commits after the first one fail with the given exception, if any.
+     */
+    private List<Future<Void>> writeBehindBlockedCommit(IOException failure) throws Exception {
+        Mockito.doAnswer(invocation -> {
+            if (firstWriteStarted.getCount() > 0) {
+                firstWriteStarted.countDown();
+                firstWriteReleased.await();
+            } else if (failure != null) {
+                throw failure;
+            }
+            return null;
+        }).when(writer).write(Mockito.any(), Mockito.anyBoolean(), Mockito.anyInt());
+        List<Future<Void>> writes = new ArrayList<>();
+        writes.add(submitWrite("a"));
+        firstWriteStarted.await();
+        writes.add(submitWrite("b"));
+        writes.add(submitWrite("c"));
+        writes.add(submitWrite("d"));
+        while (coalescer.getWaitingBatchCount() < 3) {
+            Thread.sleep(1);
+        }
+        return writes;
+    }
+
+    @Test
+    public void testConcurrentBatchesAreWrittenInOneCommit() throws Exception {
+        List<Future<Void>> writes = writeBehindBlockedCommit(null);
+        firstWriteReleased.countDown();
+        for (Future<Void> write : writes) {
+            write.get();
+        }
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Multimap<HTableInterfaceReference, Mutation>> captor =
+                ArgumentCaptor.forClass(Multimap.class);
+        Mockito.verify(writer, Mockito.times(2)).write(captor.capture(), Mockito.eq(false),
+                Mockito.eq(0));
+        assertEquals(1, captor.getAllValues().get(0).size());
+        assertEquals(3, captor.getAllValues().get(1).size());
+        Mockito.verify(metricSource).updateIndexWriteCoalescedBatches(DATA_TABLE, 1);
+        Mockito.verify(metricSource).updateIndexWriteCoalescedBatches(DATA_TABLE, 3);
+        Mockito.verify(metricSource).incrementCoalescedIndexWrites(DATA_TABLE, 2);
+    }
+
+    @Test
+    public void testFailedCommitFailsAllBatchesOfTheGroup() throws Exception {
+        IOException failure = new IOException("index write failed");
+        List<Future<Void>> writes = writeBehindBlockedCommit(failure);
+        firstWriteReleased.countDown();
+        writes.get(0).get();
+        for (Future<Void> write : writes.subList(1, writes.size())) {
+            try {
+                write.get();
+            } catch (ExecutionException e) {
+                assertSame(failure, e.getCause());
+                continue;
+            }
+            throw new AssertionError("The batch should have failed with its group");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.thirdparty.com.google.common.collect.Maps;
+import org.junit.Test;
+
+public class IndexDigestRegionScannerTest {
+    private static final byte[] FAMILY = Bytes.toBytes("0");
+    private static final int BUCKET_COUNT = 4;
+
+    private static Map<byte[], List<Mutation>> getIndexMutationMap(byte[] value) {
+        Map<byte[], List<Mutation>> indexMutationMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        for (int i = 0; i < 10; i++) {
+            byte[] row = Bytes.toBytes("row" + i);
+            Put put = new Put(row);
+            put.addColumn(FAMILY, Bytes.toBytes("A"), 10L, value);
+            put.addColumn(FAMILY, Bytes.toBytes("B"), 10L, Bytes.toBytes("b" + i));
+            Delete delete = new Delete(row);
+            delete.addFamily(FAMILY, 5L);
+            indexMutationMap.put(row, Arrays.<Mutation>asList(put, delete));
+        }
+        return indexMutationMap;
+    }
+
+    private static long[][] scanDigests(Map<byte[], List<Mutation>> indexMutationMap)
+            throws IOException {
+        // The region scanner returns the cells of every row in an order which is different from
+        // the order of the cells of the mutations
+        final List<List<Cell>> rows = new ArrayList<>();
+        for (List<Mutation> mutations : indexMutationMap.values()) {
+            List<Cell> row = new ArrayList<>();
+            for (int i = mutations.size() - 1; i >= 0; i--) {
+                for (List<Cell> cells : mutations.get(i).getFamilyCellMap().values()) {
+                    row.addAll(cells);
+                }
+            }
+            rows.add(row);
+        }
+        final Iterator<List<Cell>> iterator = rows.iterator();
+        RegionScanner delegate = mock(RegionScanner.class);
+        when(delegate.nextRaw(anyList())).thenAnswer(invocation -> {
+            List<Cell> result = invocation.getArgument(0);
+            result.addAll(iterator.next());
+            return iterator.hasNext();
+        });
+        List<Cell> results = new ArrayList<>();
+        IndexDigestRegionScanner scanner = new IndexDigestRegionScanner(delegate, BUCKET_COUNT);
+        assertFalse(scanner.next(results));
+        long[][] digests = new long[BUCKET_COUNT][];
+        assertTrue(IndexDigestRegionScanner.addDigests(digests, Result.create(results)));
+        return digests;
+    }
+
+    @Test
+    public void testMatchingDigests() throws IOException {
+        Map<byte[], List<Mutation>> indexMutationMap = getIndexMutationMap(Bytes.toBytes("a"));
+        long[][] expected = IndexDigestRegionScanner.getDigests(indexMutationMap, BUCKET_COUNT);
+        long[][] actual = scanDigests(indexMutationMap);
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            assertArrayEquals(expected[bucket], actual[bucket]);
+        }
+    }
+
+    @Test
+    public void testMismatchingDigestOnlyInBucketOfChangedRow() throws IOException {
+        Map<byte[], List<Mutation>> expectedMutationMap = getIndexMutationMap(Bytes.toBytes("a"));
+        Map<byte[], List<Mutation>> actualMutationMap = getIndexMutationMap(Bytes.toBytes("a"));
+        byte[] changedRow = Bytes.toBytes("row3");
+        Put put = new Put(changedRow);
+        put.addColumn(FAMILY, Bytes.toBytes("A"), 10L, Bytes.toBytes("x"));
+        put.addColumn(FAMILY, Bytes.toBytes("B"), 10L, Bytes.toBytes("b3"));
+        actualMutationMap.put(changedRow, Arrays.<Mutation>asList(put,
+                actualMutationMap.get(changedRow).get(1)));
+        long[][] expected = IndexDigestRegionScanner.getDigests(expectedMutationMap, BUCKET_COUNT);
+        long[][] actual = scanDigests(actualMutationMap);
+        int changedBucket = IndexDigestRegionScanner.getBucket(changedRow, BUCKET_COUNT);
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            if (bucket == changedBucket) {
+                assertNotNull(actual[bucket]);
+                assertFalse(Arrays.equals(expected[bucket], actual[bucket]));
+            } else {
+                assertArrayEquals(expected[bucket], actual[bucket]);
+            }
+        }
+    }
+
+    @Test
+    public void testIndexRowsAreNotDigests() {
+        Put put = new Put(Bytes.toBytes("row"));
+        put.addColumn(FAMILY, Bytes.toBytes("A"), 10L, Bytes.toBytes("a"));
+        List<Cell> cells = new ArrayList<>(put.getFamilyCellMap().get(FAMILY));
+        assertFalse(IndexDigestRegionScanner.addDigests(new long[BUCKET_COUNT][],
+                Result.create(cells)));
+    }
+}
@@ -33,7 +33,10 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Arrays;
+
 import static org.apache.phoenix.mapreduce.index.IndexTool.FEATURE_NOT_APPLICABLE;
+import static org.apache.phoenix.mapreduce.index.IndexTool.INCREMENTAL_NOT_APPLICABLE;
 import static org.apache.phoenix.mapreduce.index.IndexTool.INVALID_TIME_RANGE_EXCEPTION_MESSAGE;
 import static org.apache.phoenix.mapreduce.index.IndexTool.RETRY_VERIFY_NOT_APPLICABLE;
 import static org.junit.Assert.assertEquals;
@@ -335,6 +338,56 @@ public class IndexToolTest extends BaseTest {
         CommandLine cmdLine = it.parseOptions(args);
     }
 
+    @Test
+    public void testParseOptions_incremental() throws Exception {
+        Long endTime = 15L;
+        String[] args = getIncrementalArgValues(IndexToolIT.getArgValues(false, schema,
+                dataTable, indexTable, tenantId, IndexTool.IndexVerifyType.NONE,
+                null, endTime));
+        CommandLine cmdLine = it.parseOptions(args);
+        it.populateIndexToolAttributes(cmdLine);
+        Assert.assertTrue(it.isIncremental());
+        Assert.assertNull(it.getStartTime());
+        assertEquals(endTime, it.getEndTime());
+    }
+
+    @Test
+    public void testParseOptions_incremental_startTimeNotApplicable() throws Exception {
+        String[] args = getIncrementalArgValues(IndexToolIT.getArgValues(false, schema,
+                dataTable, indexTable, tenantId, IndexTool.IndexVerifyType.NONE,
+                10L, 15L));
+        CommandLine cmdLine = it.parseOptions(args);
+        exceptionRule.expect(RuntimeException.class);
+        exceptionRule.expectMessage(INCREMENTAL_NOT_APPLICABLE);
+        it.populateIndexToolAttributes(cmdLine);
+    }
+
+    @Test
+    public void testParseOptions_incremental_snapshotNotApplicable() throws Exception {
+        String[] args = getIncrementalArgValues(IndexToolIT.getArgValues(true, schema,
+                dataTable, indexTable, tenantId, IndexTool.IndexVerifyType.NONE));
+        CommandLine cmdLine = it.parseOptions(args);
+        exceptionRule.expect(RuntimeException.class);
+        exceptionRule.expectMessage(INCREMENTAL_NOT_APPLICABLE);
+        it.populateIndexToolAttributes(cmdLine);
+    }
+
+    @Test
+    public void testParseOptions_incremental_verifyOnlyNotApplicable() throws Exception {
+        String[] args = getIncrementalArgValues(IndexToolIT.getArgValues(false, schema,
+                dataTable, indexTable, tenantId, IndexTool.IndexVerifyType.ONLY));
+        CommandLine cmdLine = it.parseOptions(args);
+        exceptionRule.expect(RuntimeException.class);
+        exceptionRule.expectMessage(INCREMENTAL_NOT_APPLICABLE);
+        it.populateIndexToolAttributes(cmdLine);
+    }
+
+    private static String[] getIncrementalArgValues(String[] args) {
+        String[] incrementalArgs = Arrays.copyOf(args, args.length + 1);
+        incrementalArgs[args.length] = "-inc";
+        return incrementalArgs;
+    }
+
     @Test
     public void testIndexToolDefaultSource() throws Exception {
         Long startTime = 1L;
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.query.ConnectionQueryServices;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.PropertiesUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
+
+public class AsyncResultIteratorTest extends BaseConnectionlessQueryTest {
+    private static final String ORG_ID = "000000000000001";
+
+    private ThreadPoolExecutor executor;
+    private ConnectionQueryServices services;
+
+    @Before
+    public void setUpExecutor() {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        services = mock(ConnectionQueryServices.class);
+        when(services.getAsyncExecutor()).thenReturn(executor);
+    }
+
+    @After
+    public void tearDownExecutor() {
+        executor.shutdownNow();
+    }
+
+    private static List<Tuple> newTuples(int count) {
+        List<Tuple> tuples = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tuples.add(new SingleKeyValueTuple(new KeyValue(Bytes.toBytes(i), Bytes.toBytes("0"),
+                    Bytes.toBytes("A"), Bytes.toBytes(i))));
+        }
+        return tuples;
+    }
+
+    /** Iterator over the given tuples that counts the calls to next(). */
+    private static ResultIterator countingIterator(List<Tuple> tuples, final AtomicInteger calls) {
+        final ResultIterator delegate = new MaterializedResultIterator(tuples);
+        return new DelegateResultIterator(delegate) {
+            @Override
+            public Tuple next() throws SQLException {
+                calls.incrementAndGet();
+                return super.next();
+            }
+        };
+    }
+
+    private static QueryPlan compile(Connection conn, String query) throws SQLException {
+        PhoenixStatement statement = conn.createStatement().unwrap(PhoenixStatement.class);
+        QueryPlan plan = statement.optimizeQuery(query);
+        // Sets up the scans of the plan without running them
+        plan.iterator();
+        return plan;
+    }
+
+    @Test
+    public void testPointLookupIsEligible() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            assertTrue(AsyncResultIterator.isAsyncScanEligible(compile(conn,
+                "SELECT * FROM ATABLE WHERE ORGANIZATION_ID = '" + ORG_ID + "'"
+                        + " AND ENTITY_ID IN ('000000000000002', '000000000000003')")));
+        }
+    }
+
+    @Test
+    public void testRangeScanIsNotEligible() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            assertFalse(AsyncResultIterator.isAsyncScanEligible(compile(conn,
+                "SELECT * FROM ATABLE WHERE ORGANIZATION_ID = '" + ORG_ID + "'")));
+        }
+    }
+
+    @Test
+    public void testPointLookupNeedingClientMergeIsNotEligible() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String pointLookup = "SELECT * FROM ATABLE WHERE ORGANIZATION_ID = '" + ORG_ID + "'"
+                    + " AND ENTITY_ID IN ('000000000000002', '000000000000003')";
+            assertFalse(AsyncResultIterator.isAsyncScanEligible(compile(conn,
+                pointLookup + " ORDER BY A_INTEGER")));
+            assertFalse(AsyncResultIterator.isAsyncScanEligible(compile(conn,
+                pointLookup + " LIMIT 1")));
+            assertFalse(AsyncResultIterator.isAsyncScanEligible(compile(conn,
+                "SELECT COUNT(*) FROM ATABLE WHERE ORGANIZATION_ID = '" + ORG_ID + "'"
+                        + " AND ENTITY_ID = '000000000000002'")));
+        }
+    }
+
+    @Test
+    public void testPlanIteratorIsCreatedOnAsyncExecutor() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<Thread> creator = new AtomicReference<>();
+        QueryPlan plan = mock(QueryPlan.class);
+        when(plan.iterator()).thenAnswer(invocation -> {
+            // Stands for a plan that blocks in iterator(), like a hash join sending its caches
+            creator.set(Thread.currentThread());
+            release.await();
+            return new MaterializedResultIterator(newTuples(1));
+        });
+        AsyncResultIterator iterator = new AsyncResultIterator(plan);
+        CompletableFuture<Void> started = iterator.start(services);
+        assertFalse(started.isDone());
+        release.countDown();
+        started.get(10, TimeUnit.SECONDS);
+        assertNotSame(Thread.currentThread(), creator.get());
+        assertTrue(iterator.next() != null);
+        assertNull(iterator.next());
+    }
+
+    @Test
+    public void testFetchAhead() throws Exception {
+        List<Tuple> tuples = newTuples(10);
+        AtomicInteger calls = new AtomicInteger();
+        QueryPlan plan = mock(QueryPlan.class);
+        when(plan.iterator()).thenReturn(countingIterator(tuples, calls));
+        AsyncResultIterator iterator = new AsyncResultIterator(plan);
+        iterator.start(services).get(10, TimeUnit.SECONDS);
+        // Only the first row is read by start
+        assertEquals(1, calls.get());
+        assertEquals(4, (int) iterator.fetch(4, executor).get(10, TimeUnit.SECONDS));
+        assertEquals(4, calls.get());
+        for (int i = 0; i < 4; i++) {
+            assertSame(tuples.get(i), iterator.next());
+        }
+        assertEquals(4, calls.get());
+        // Reading ahead past the end stops at the last row
+        assertEquals(6, (int) iterator.fetch(100, executor).get(10, TimeUnit.SECONDS));
+        assertEquals(11, calls.get());
+        for (int i = 4; i < 10; i++) {
+            assertSame(tuples.get(i), iterator.next());
+        }
+        assertNull(iterator.next());
+        assertEquals(0, (int) iterator.fetch(1, executor).get(10, TimeUnit.SECONDS));
+        assertEquals(11, calls.get());
+    }
+
+    @Test
+    public void testStartAfterClose() throws Exception {
+        QueryPlan plan = mock(QueryPlan.class);
+        when(plan.iterator()).thenReturn(new MaterializedResultIterator(newTuples(1)));
+        AsyncResultIterator iterator = new AsyncResultIterator(plan);
+        iterator.close();
+        try {
+            iterator.start(services).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(SQLExceptionCode.RESULTSET_CLOSED.getErrorCode(),
+                    ((SQLException) e.getCause()).getErrorCode());
+        }
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        props.setProperty(QueryServices.ASYNC_POINT_LOOKUP_ENABLED_ATTRIB, "false");
+        try (Connection conn = DriverManager.getConnection(getUrl(), props)) {
+            assertFalse(conn.unwrap(PhoenixConnection.class).getQueryServices().getProps()
+                    .getBoolean(QueryServices.ASYNC_POINT_LOOKUP_ENABLED_ATTRIB, true));
+            assertFalse(AsyncResultIterator.isAsyncScanEligible(compile(conn,
+                "SELECT * FROM ATABLE WHERE ORGANIZATION_ID = '" + ORG_ID + "'"
+                        + " AND ENTITY_ID = '000000000000002'")));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.expression.OrderByExpression;
+import org.apache.phoenix.schema.PDatum;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.ResultTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PLong;
+import org.junit.Test;
+
+/**
+ * Test class for {@link ExternalSortedQueue}, through {@link OrderedResultIterator}.
+ */
+public class ExternalSortedQueueTest {
+    private static final byte[] CF = Bytes.toBytes("0");
+    private static final byte[] CQ_A = Bytes.toBytes("A");
+    private static final byte[] CQ_B = Bytes.toBytes("B");
+    private static final int ROWS = 5000;
+    private static final int DISTINCT_A = 300;
+
+    private static final PDatum LONG_COLUMN = new PDatum() {
+        @Override
+        public boolean isNullable() {
+            return true;
+        }
+
+        @Override
+        public PDataType getDataType() {
+            return PLong.INSTANCE;
+        }
+
+        @Override
+        public Integer getMaxLength() {
+            return null;
+        }
+
+        @Override
+        public Integer getScale() {
+            return null;
+        }
+
+        @Override
+        public SortOrder getSortOrder() {
+            return SortOrder.getDefault();
+        }
+    };
+
+    /** Rows as {a, b} where a may be null and b is unique. */
+    private static List<Long[]> newRows() {
+        Random random = new Random(42);
+        List<Long[]> rows = new ArrayList<Long[]>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Long a = random.nextInt(20) == 0 ? null : (long) random.nextInt(DISTINCT_A) - DISTINCT_A / 2;
+            rows.add(new Long[] { a, (long) i });
+        }
+        return rows;
+    }
+
+    private static Tuple toTuple(Long[] row) {
+        byte[] rowKey = Bytes.toBytes(row[1]);
+        List<Cell> cells = new ArrayList<Cell>(2);
+        if (row[0] != null) {
+            cells.add(new KeyValue(rowKey, CF, CQ_A, PLong.INSTANCE.toBytes(row[0])));
+        }
+        cells.add(new KeyValue(rowKey, CF, CQ_B, PLong.INSTANCE.toBytes(row[1])));
+        return new ResultTuple(Result.create(cells));
+    }
+
+    private static Long getLong(Tuple tuple, byte[] cq) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        if (!tuple.getValue(CF, cq, ptr)) {
+            return null;
+        }
+        return (Long) PLong.INSTANCE.toObject(ptr);
+    }
+
+    private void testSort(final boolean ascending, final boolean nullsLast, ExecutorService executor)
+            throws SQLException {
+        List<Long[]> rows = newRows();
+        List<Tuple> tuples = new ArrayList<Tuple>(ROWS);
+        for (Long[] row : rows) {
+            tuples.add(toTuple(row));
+        }
+        Expression a = new KeyValueColumnExpression(LONG_COLUMN, CF, CQ_A);
+        Expression b = new KeyValueColumnExpression(LONG_COLUMN, CF, CQ_B);
+        List<OrderByExpression> orderBy = Arrays.asList(
+                OrderByExpression.createByCheckIfOrderByReverse(a, nullsLast, ascending, false),
+                OrderByExpression.createByCheckIfOrderByReverse(b, false, true, false));
+        OrderedResultIterator iterator = new OrderedResultIterator(
+                new MaterializedResultIterator(tuples), orderBy, true, Long.MAX_VALUE);
+        // Small runs so that the sort spills many of them
+        iterator.setExternalSort(16 * 1024, executor);
+
+        Collections.sort(rows, new Comparator<Long[]>() {
+            @Override
+            public int compare(Long[] r1, Long[] r2) {
+                if (r1[0] == null || r2[0] == null) {
+                    if (r1[0] == r2[0]) {
+                        return r1[1].compareTo(r2[1]);
+                    }
+                    return (r1[0] == null) == nullsLast ? 1 : -1;
+                }
+                int c = ascending ? r1[0].compareTo(r2[0]) : r2[0].compareTo(r1[0]);
+                return c != 0 ? c : r1[1].compareTo(r2[1]);
+            }
+        });
+        try {
+            for (Long[] row : rows) {
+                Tuple tuple = iterator.next();
+                assertEquals(row[0], getLong(tuple, CQ_A));
+                assertEquals(row[1], getLong(tuple, CQ_B));
+            }
+            assertNull(iterator.next());
+        } finally {
+            iterator.close();
+        }
+    }
+
+    @Test
+    public void testAscendingNullsFirst() throws SQLException {
+        testSort(true, false, null);
+    }
+
+    @Test
+    public void testDescendingNullsLast() throws SQLException {
+        testSort(false, true, null);
+    }
+
+    @Test
+    public void testParallelRunSorting() throws SQLException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            testSort(true, true, executor);
+            testSort(false, false, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSaturatedExecutor() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            blocked.await();
+            // All threads of the pool are busy, so runs are written on the calling thread
+            testSort(true, true, executor);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExecutorThatNeverRunsTasks() throws SQLException {
+        // Stands for a shared pool whose threads are all waiting on other work. The runs
+        // queued on it are written by the thread waiting for them.
+        final List<Runnable> queued = new ArrayList<Runnable>();
+        ExecutorService executor = new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+                queued.add(command);
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return queued;
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return false;
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return false;
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) {
+                return false;
+            }
+        };
+        testSort(false, false, executor);
+        assertTrue(queued.size() > 1);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.PageFilter;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.filter.SkipScanFilter;
+import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.PropertiesUtil;
+import org.apache.phoenix.util.QueryUtil;
+import org.junit.Test;
+
+public class MultiGetResultIteratorTest extends BaseConnectionlessQueryTest {
+    private static final String ORG_ID = "000000000000001";
+
+    private static String pointLookup(int nKeys) {
+        StringBuilder buf = new StringBuilder(
+                "SELECT * FROM ATABLE WHERE ORGANIZATION_ID = '" + ORG_ID + "' AND ENTITY_ID IN (");
+        for (int i = 0; i < nKeys; i++) {
+            buf.append(i == 0 ? "'" : ",'").append(String.format("%015d", i)).append("'");
+        }
+        return buf.append(")").toString();
+    }
+
+    private static Connection getMultiGetConnection() throws SQLException {
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        props.setProperty(QueryServices.MULTI_GET_POINT_LOOKUP_THRESHOLD_ATTRIB, "100");
+        return DriverManager.getConnection(getUrl(), props);
+    }
+
+    private static String explain(Connection conn, String query) throws SQLException {
+        ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + query);
+        return QueryUtil.getExplainPlan(rs);
+    }
+
+    private static QueryPlan compile(Connection conn, String query) throws SQLException {
+        QueryPlan plan = conn.createStatement().unwrap(PhoenixStatement.class).optimizeQuery(query);
+        plan.iterator();
+        return plan;
+    }
+
+    @Test
+    public void testLargePointLookupUsesMultiGet() throws Exception {
+        try (Connection conn = getMultiGetConnection()) {
+            assertTrue(explain(conn, pointLookup(150)).contains("CLIENT MULTI-GET"));
+            assertTrue(explain(conn, pointLookup(150) + " LIMIT 10").contains("CLIENT MULTI-GET"));
+        }
+    }
+
+    @Test
+    public void testSmallPointLookupUsesScan() throws Exception {
+        try (Connection conn = getMultiGetConnection()) {
+            assertFalse(explain(conn, pointLookup(10)).contains("CLIENT MULTI-GET"));
+        }
+    }
+
+    @Test
+    public void testOrderedPointLookupUsesScan() throws Exception {
+        try (Connection conn = getMultiGetConnection()) {
+            assertFalse(explain(conn, pointLookup(150) + " ORDER BY A_INTEGER")
+                    .contains("CLIENT MULTI-GET"));
+            assertFalse(explain(conn, pointLookup(150) + " LIMIT 10 OFFSET 2")
+                    .contains("CLIENT MULTI-GET"));
+        }
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            assertFalse(explain(conn, pointLookup(150)).contains("CLIENT MULTI-GET"));
+        }
+    }
+
+    @Test
+    public void testGetFilterDropsScanOnlyFilters() throws Exception {
+        try (Connection conn = getMultiGetConnection()) {
+            QueryPlan plan = compile(conn, pointLookup(150) + " AND A_INTEGER > 5 LIMIT 10");
+            Filter scanFilter = plan.getContext().getScan().getFilter();
+            assertTrue(scanFilter instanceof FilterList);
+            Filter getFilter = MultiGetResultIterator.getGetFilter(scanFilter);
+            assertNotNull(getFilter);
+            assertFalse(getFilter instanceof SkipScanFilter);
+            assertFalse(getFilter instanceof PageFilter);
+            if (getFilter instanceof FilterList) {
+                for (Filter f : ((FilterList) getFilter).getFilters()) {
+                    assertFalse(f instanceof SkipScanFilter);
+                    assertFalse(f instanceof PageFilter);
+                }
+            }
+            assertNull(MultiGetResultIterator.getGetFilter(new PageFilter(10)));
+        }
+    }
+}
@@ -44,6 +44,10 @@ public class SpoolingResultIteratorTest {
     private final static byte[] B = Bytes.toBytes("b");
 
     private void testSpooling(int threshold, long maxSizeSpool) throws Throwable {
+        testSpooling(threshold, maxSizeSpool, 0);
+    }
+
+    private void testSpooling(int threshold, long maxSizeSpool, int mappedBatchBytes) throws Throwable {
         Tuple[] results = new Tuple[] {
                 new SingleKeyValueTuple(new KeyValue(A, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, Bytes.toBytes(1))),
                 new SingleKeyValueTuple(new KeyValue(B, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, Bytes.toBytes(1))),
@@ -59,7 +63,7 @@ public class SpoolingResultIteratorTest {
         ResultIterator scanner = new SpoolingResultIterator(
                 SpoolingMetricsHolder.NO_OP_INSTANCE,
                 new MemoryMetricsHolder(new ReadMetricQueue(false,LogLevel.OFF), ""), iterator, memoryManager, threshold,
-                maxSizeSpool, "/tmp");
+                maxSizeSpool, "/tmp", mappedBatchBytes);
         AssertResults.assertResults(scanner, expectedResults);
     }
 
@@ -72,6 +76,34 @@ public class SpoolingResultIteratorTest {
         testSpooling(1, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES);
     }
 
+    @Test
+    public void testMappedOnDiskSpooling() throws Throwable {
+        testSpooling(1, QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES,
+                QueryServicesOptions.DEFAULT_CLIENT_SPOOL_MAPPED_BATCH_BYTES);
+    }
+
+    @Test
+    public void testMappedOnDiskSpoolingAcrossBatches() throws Throwable {
+        int rowCount = 1000;
+        Tuple[] results = new Tuple[rowCount];
+        Tuple[] expectedResults = new Tuple[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            byte[] row = Bytes.toBytes(String.format("row%05d", i));
+            // Values of varying length so that tuples straddle batch boundaries
+            byte[] value = new byte[i % 300];
+            Arrays.fill(value, (byte) i);
+            results[i] = new SingleKeyValueTuple(new KeyValue(row, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, value));
+            expectedResults[i] = new SingleKeyValueTuple(new KeyValue(row, SINGLE_COLUMN_FAMILY, SINGLE_COLUMN, value));
+        }
+        MemoryManager memoryManager = new DelegatingMemoryManager(new GlobalMemoryManager(1));
+        ResultIterator scanner = new SpoolingResultIterator(
+                SpoolingMetricsHolder.NO_OP_INSTANCE,
+                new MemoryMetricsHolder(new ReadMetricQueue(false,LogLevel.OFF), ""),
+                new MaterializedResultIterator(Arrays.asList(results)), memoryManager, 1,
+                QueryServicesOptions.DEFAULT_MAX_SPOOL_TO_DISK_BYTES, "/tmp", 1024);
+        AssertResults.assertResults(scanner, expectedResults);
+    }
+
     @Test(expected = SpoolTooBigToDiskException.class)
     public void testFailToSpool() throws Throwable{
     		testSpooling(1, 0L);
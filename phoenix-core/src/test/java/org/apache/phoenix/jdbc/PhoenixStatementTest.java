@@ -18,6 +18,7 @@
 package org.apache.phoenix.jdbc;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
@@ -33,8 +34,11 @@ import java.lang.reflect.Field;
 import java.sql.*;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.iterate.AsyncResultIterator;
 import org.apache.phoenix.query.BaseConnectionlessQueryTest;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
@@ -265,4 +269,60 @@ public class PhoenixStatementTest extends BaseConnectionlessQueryTest {
         assertTrue(rs41.isClosed());
         assertTrue(rs51.isClosed());
     }
+
+    @Test
+    public void testExecuteQueryAsync() throws Exception {
+        try (Connection connection = DriverManager.getConnection(getUrl())) {
+            PhoenixStatement stmt = connection.createStatement().unwrap(PhoenixStatement.class);
+            PhoenixResultSet rs = stmt.executeQueryAsync("select * from atable where 1=0").get();
+            assertTrue(rs.getUnderlyingIterator() instanceof AsyncResultIterator);
+            assertEquals(0, (int) rs.fetchAsync(10).get());
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    public void testFetchAsyncOfBlockingResultSetShouldFail() throws Exception {
+        try (Connection connection = DriverManager.getConnection(getUrl())) {
+            PhoenixStatement stmt = connection.createStatement().unwrap(PhoenixStatement.class);
+            PhoenixResultSet rs = stmt.executeQuery("select * from atable where 1=0")
+                    .unwrap(PhoenixResultSet.class);
+            try {
+                rs.fetchAsync(10).get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof SQLFeatureNotSupportedException);
+            }
+        }
+    }
+
+    @Test
+    public void testMutationUsingExecuteQueryAsyncShouldFail() throws Exception {
+        try (Connection connection = DriverManager.getConnection(getUrl())) {
+            PhoenixStatement stmt = connection.createStatement().unwrap(PhoenixStatement.class);
+            CompletableFuture<PhoenixResultSet> future = stmt.executeQueryAsync("DELETE FROM " + ATABLE);
+            assertTrue(future.isCompletedExceptionally());
+            try {
+                future.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof SQLException);
+                assertEquals(SQLExceptionCode.EXECUTE_QUERY_NOT_APPLICABLE.getErrorCode(),
+                        ((SQLException) e.getCause()).getErrorCode());
+            }
+        }
+    }
+
+    @Test
+    public void testBufferedExecuteUpdateAsyncCompletesInline() throws Exception {
+        try (Connection connection = DriverManager.getConnection(getUrl())) {
+            connection.setAutoCommit(false);
+            PhoenixStatement stmt = connection.createStatement().unwrap(PhoenixStatement.class);
+            CompletableFuture<Integer> future =
+                    stmt.executeUpdateAsync("upsert into ATABLE VALUES ('1', '2', '3')");
+            assertTrue(future.isDone());
+            assertEquals(1, future.get().intValue());
+            assertEquals(1, connection.unwrap(PhoenixConnection.class).getMutationState().getUpdateCount());
+        }
+    }
 }
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.cache.HashCache;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.ExpressionType;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.GlobalMemoryManager;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.PDatum;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.ResultTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.util.TupleUtil;
+import org.iq80.snappy.Snappy;
+import org.junit.Test;
+
+public class HashCacheFactoryTest {
+    private static final byte[] CF = Bytes.toBytes("0");
+    private static final byte[] CQ = Bytes.toBytes("K");
+    private static final int ROWS = 1000;
+    private static final int KEYS = 97;
+
+    private static final PDatum KEY_COLUMN = new PDatum() {
+        @Override
+        public boolean isNullable() {
+            return false;
+        }
+
+        @Override
+        public PDataType getDataType() {
+            return PLong.INSTANCE;
+        }
+
+        @Override
+        public Integer getMaxLength() {
+            return null;
+        }
+
+        @Override
+        public Integer getScale() {
+            return null;
+        }
+
+        @Override
+        public SortOrder getSortOrder() {
+            return SortOrder.getDefault();
+        }
+    };
+
+    private static ImmutableBytesWritable serialize(boolean singleValueOnly, int nRows)
+            throws IOException {
+        Expression onExpression = new KeyValueColumnExpression(KEY_COLUMN, CF, CQ);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(1);
+        WritableUtils.writeVInt(out, ExpressionType.valueOf(onExpression).ordinal());
+        onExpression.write(out);
+        int exprSize = bytes.size() + Bytes.SIZEOF_INT;
+        out.writeInt(exprSize * (singleValueOnly ? -1 : 1));
+        out.writeInt(nRows);
+        for (int i = 0; i < nRows; i++) {
+            Cell cell = new KeyValue(Bytes.toBytes("row" + i), CF, CQ, 1L,
+                    PLong.INSTANCE.toBytes((long) (i % KEYS)));
+            TupleUtil.write(new ResultTuple(Result.create(Collections.singletonList(cell))), out);
+        }
+        out.flush();
+        byte[] uncompressed = bytes.toByteArray();
+        byte[] compressed = new byte[Snappy.maxCompressedLength(uncompressed.length)];
+        int compressedSize = Snappy.compress(uncompressed, 0, uncompressed.length, compressed, 0);
+        return new ImmutableBytesWritable(compressed, 0, compressedSize);
+    }
+
+    private static HashCache newCache(ImmutableBytesWritable cachePtr, boolean compact)
+            throws Exception {
+        Configuration conf = new Configuration(false);
+        conf.setBoolean(QueryServices.COMPACT_HASH_CACHE_ENABLED_ATTRIB, compact);
+        HashCacheFactory factory = new HashCacheFactory();
+        factory.setConf(conf);
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(Integer.MAX_VALUE);
+        return (HashCache) factory.newCache(cachePtr, new byte[0], memoryManager.allocate(0),
+                false, 0);
+    }
+
+    private static ImmutableBytesPtr key(long value) {
+        return new ImmutableBytesPtr(PLong.INSTANCE.toBytes(value));
+    }
+
+    @Test
+    public void testCompactCacheMatchesDefault() throws Exception {
+        ImmutableBytesWritable cachePtr = serialize(false, ROWS);
+        HashCache expectedCache = newCache(cachePtr, false);
+        HashCache actualCache = newCache(cachePtr, true);
+        ImmutableBytesWritable expectedRow = new ImmutableBytesWritable();
+        ImmutableBytesWritable actualRow = new ImmutableBytesWritable();
+        for (long k = 0; k < KEYS; k++) {
+            List<Tuple> expected = expectedCache.get(key(k));
+            List<Tuple> actual = actualCache.get(key(k));
+            assertNotNull(actual);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                expected.get(i).getKey(expectedRow);
+                actual.get(i).getKey(actualRow);
+                assertArrayEquals(expectedRow.copyBytes(), actualRow.copyBytes());
+            }
+        }
+        assertNull(actualCache.get(key(KEYS)));
+        expectedCache.close();
+        actualCache.close();
+    }
+
+    @Test
+    public void testCompactCacheMaterializesRowsOnce() throws Exception {
+        HashCache cache = newCache(serialize(false, ROWS), true);
+        List<Tuple> first = cache.get(key(1));
+        List<Tuple> second = cache.get(key(1));
+        // Later probes of a key get the tuples deserialized by the first one
+        assertSame(first, second);
+        for (int i = 0; i < first.size(); i++) {
+            assertSame(first.get(i), second.get(i));
+        }
+        cache.close();
+    }
+
+    @Test
+    public void testCompactCacheSingleValueOnly() throws Exception {
+        HashCache cache = newCache(serialize(true, KEYS * 2), true);
+        try {
+            cache.get(key(0));
+            fail();
+        } catch (IOException e) {
+            // expected, each key has two rows
+        }
+        cache.close();
+        cache = newCache(serialize(true, KEYS), true);
+        assertEquals(1, cache.get(key(0)).size());
+        cache.close();
+    }
+}
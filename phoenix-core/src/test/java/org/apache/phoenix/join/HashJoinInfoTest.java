@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.parse.JoinTableNode.JoinType;
+import org.apache.phoenix.schema.PTable;
+import org.junit.Test;
+
+public class HashJoinInfoTest {
+
+    @SuppressWarnings("unchecked")
+    private static HashJoinInfo newJoinInfo() throws Exception {
+        List<Expression> joinExpressions = Collections.<Expression>singletonList(
+                LiteralExpression.newConstant("a"));
+        return new HashJoinInfo(null, new ImmutableBytesPtr[] { new ImmutableBytesPtr(Bytes.toBytes(1L)) },
+                new List[] { joinExpressions }, new JoinType[] { JoinType.Inner },
+                new boolean[] { true }, new PTable[] { null }, new int[] { 0 }, null, null);
+    }
+
+    @Test
+    public void testUnpartitionedByDefault() throws Exception {
+        Scan scan = new Scan();
+        HashJoinInfo.serializeHashJoinIntoScan(scan, newJoinInfo());
+        HashJoinInfo joinInfo = HashJoinInfo.deserializeHashJoinFromScan(scan);
+        assertFalse(joinInfo.isPartitioned());
+        assertEquals(-1, joinInfo.getPartitionJoinIndex());
+        assertTrue(joinInfo.isInPartition(new ImmutableBytesPtr(Bytes.toBytes("any"))));
+    }
+
+    @Test
+    public void testPartitionRoundTrip() throws Exception {
+        HashJoinInfo joinInfo = newJoinInfo();
+        joinInfo.setPartition(0, 8, 3);
+        Scan scan = new Scan();
+        HashJoinInfo.serializeHashJoinIntoScan(scan, joinInfo);
+        HashJoinInfo deserialized = HashJoinInfo.deserializeHashJoinFromScan(scan);
+        assertTrue(deserialized.isPartitioned());
+        assertEquals(0, deserialized.getPartitionJoinIndex());
+        assertEquals(8, deserialized.getNumPartitions());
+        assertEquals(3, deserialized.getPartition());
+        assertEquals(JoinType.Inner, deserialized.getJoinTypes()[0]);
+    }
+
+    @Test
+    public void testEveryKeyInExactlyOnePartition() throws Exception {
+        int numPartitions = 5;
+        HashJoinInfo[] partitions = new HashJoinInfo[numPartitions];
+        for (int p = 0; p < numPartitions; p++) {
+            partitions[p] = newJoinInfo();
+            partitions[p].setPartition(0, numPartitions, p);
+        }
+        int[] counts = new int[numPartitions];
+        for (int i = 0; i < 10000; i++) {
+            ImmutableBytesPtr key = new ImmutableBytesPtr(Bytes.toBytes("key" + i));
+            int matches = 0;
+            for (int p = 0; p < numPartitions; p++) {
+                if (partitions[p].isInPartition(key)) {
+                    matches++;
+                    counts[p]++;
+                }
+            }
+            assertEquals(1, matches);
+        }
+        for (int count : counts) {
+            assertTrue("Skewed partition: " + count, count > 1000 && count < 3000);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.parse;
+
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_CLIENT_PARSED_STATEMENT_CACHE_HIT_COUNTER;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_CLIENT_PARSED_STATEMENT_CACHE_MISS_COUNTER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParsedStatementCacheTest {
+    private static final String SQL = "SELECT a, b FROM t WHERE k = ?";
+
+    @Before
+    public void resetMetrics() {
+        GLOBAL_CLIENT_PARSED_STATEMENT_CACHE_HIT_COUNTER.getMetric().reset();
+        GLOBAL_CLIENT_PARSED_STATEMENT_CACHE_MISS_COUNTER.getMetric().reset();
+    }
+
+    @Test
+    public void testCachedStatementIsReturned() throws Exception {
+        ParsedStatementCache cache = new ParsedStatementCache(10);
+        assertNull(cache.get(SQL));
+        BindableStatement statement = new SQLParser(SQL).parseStatement();
+        cache.put(SQL, statement);
+        assertSame(statement, cache.get(SQL));
+        assertEquals(1, GLOBAL_CLIENT_PARSED_STATEMENT_CACHE_MISS_COUNTER.getMetric().getValue());
+        assertEquals(1, GLOBAL_CLIENT_PARSED_STATEMENT_CACHE_HIT_COUNTER.getMetric().getValue());
+        cache.invalidateAll();
+        assertNull(cache.get(SQL));
+    }
+
+    @Test
+    public void testDisabledCache() throws Exception {
+        ParsedStatementCache cache = new ParsedStatementCache(0);
+        assertFalse(cache.isEnabled());
+        cache.put(SQL, new SQLParser(SQL).parseStatement());
+        assertNull(cache.get(SQL));
+        assertEquals(0, cache.size());
+        assertEquals(0, GLOBAL_CLIENT_PARSED_STATEMENT_CACHE_MISS_COUNTER.getMetric().getValue());
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("SELECT a, b FROM t WHERE k = ?",
+                ParsedStatementCache.normalize("  SELECT a,  b\n\tFROM t\r\nWHERE k = ?  "));
+        // String literals, quoted identifiers and comments are kept as is
+        assertEquals("SELECT \"a  b\" FROM t WHERE v = 'x  ''  \\'  y'",
+                ParsedStatementCache.normalize(
+                        "SELECT  \"a  b\"  FROM t WHERE v =  'x  ''  \\'  y'"));
+        assertEquals("SELECT /*+  INDEX(t  i) */ a FROM t",
+                ParsedStatementCache.normalize("SELECT  /*+  INDEX(t  i) */\na FROM t"));
+        // A single line comment must still end before the rest of the statement
+        assertEquals("SELECT a -- the  a\n FROM t",
+                ParsedStatementCache.normalize("SELECT a -- the  a\n   FROM t"));
+        assertNotEquals(ParsedStatementCache.normalize("SELECT 'a b' FROM t"),
+                ParsedStatementCache.normalize("SELECT 'a  b' FROM t"));
+    }
+
+    @Test
+    public void testCacheIsBounded() throws Exception {
+        ParsedStatementCache cache = new ParsedStatementCache(10);
+        for (int i = 0; i < 100; i++) {
+            String sql = "SELECT a FROM t WHERE k = " + i;
+            cache.put(sql, new SQLParser(sql).parseStatement());
+        }
+        assertFalse(cache.size() > 10);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class InFlightCallCoalescerTest {
+
+    @Test
+    public void testConcurrentCallsAreCoalesced() throws Exception {
+        final InFlightCallCoalescer<String, Object> coalescer = new InFlightCallCoalescer<>();
+        final CountDownLatch callStarted = new CountDownLatch(1);
+        final CountDownLatch finishCall = new CountDownLatch(1);
+        final AtomicInteger callCount = new AtomicInteger();
+        final Object value = new Object();
+        final InFlightCallCoalescer.Call<Object> call = new InFlightCallCoalescer.Call<Object>() {
+            @Override
+            public Object call() throws SQLException {
+                callCount.incrementAndGet();
+                callStarted.countDown();
+                try {
+                    finishCall.await();
+                } catch (InterruptedException e) {
+                    throw new SQLException(e);
+                }
+                return value;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = executor.submit(() -> coalescer.execute("t", call));
+            callStarted.await();
+            Future<Object> second = executor.submit(() -> coalescer.execute("t", call));
+            // Wait for the second caller to join the in flight call
+            Thread.sleep(100);
+            finishCall.countDown();
+            assertSame(value, first.get(10, TimeUnit.SECONDS));
+            assertSame(value, second.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, callCount.get());
+        assertEquals(0, coalescer.getInFlightCallCount());
+
+        // Calls made after the in flight call completed are not coalesced
+        assertSame(value, coalescer.execute("t", call));
+        assertEquals(2, callCount.get());
+    }
+
+    @Test
+    public void testCallerRunsItsOwnCallIfResultCannotBeShared() throws Exception {
+        final InFlightCallCoalescer<String, Integer> coalescer = new InFlightCallCoalescer<>();
+        final CountDownLatch callStarted = new CountDownLatch(1);
+        final CountDownLatch finishCall = new CountDownLatch(1);
+        final AtomicInteger callCount = new AtomicInteger();
+        final InFlightCallCoalescer.Call<Integer> call = new InFlightCallCoalescer.Call<Integer>() {
+            @Override
+            public Integer call() throws SQLException {
+                int count = callCount.incrementAndGet();
+                callStarted.countDown();
+                try {
+                    finishCall.await();
+                } catch (InterruptedException e) {
+                    throw new SQLException(e);
+                }
+                return count;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> coalescer.execute("t", call));
+            callStarted.await();
+            Future<Integer> second =
+                    executor.submit(() -> coalescer.execute("t", call, result -> result > 1));
+            // Wait for the second caller to join the in flight call
+            Thread.sleep(100);
+            finishCall.countDown();
+            assertEquals(1, (int) first.get(10, TimeUnit.SECONDS));
+            // The result of the first call was rejected, so the second caller made its own call
+            assertEquals(2, (int) second.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, callCount.get());
+        assertEquals(0, coalescer.getInFlightCallCount());
+    }
+
+    @Test
+    public void testFailedCallIsNotRemembered() throws Exception {
+        InFlightCallCoalescer<String, Object> coalescer = new InFlightCallCoalescer<>();
+        try {
+            coalescer.execute("t", new InFlightCallCoalescer.Call<Object>() {
+                @Override
+                public Object call() throws SQLException {
+                    throw new SQLException("failed");
+                }
+            });
+            fail();
+        } catch (SQLException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertEquals(0, coalescer.getInFlightCallCount());
+        final Object value = new Object();
+        assertSame(value, coalescer.execute("t", new InFlightCallCoalescer.Call<Object>() {
+            @Override
+            public Object call() {
+                return value;
+            }
+        }));
+    }
+}
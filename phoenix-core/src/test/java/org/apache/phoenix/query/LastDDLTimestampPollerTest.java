@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.util.ByteStringer;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.coprocessor.generated.RegionServerEndpointProtos;
+import org.apache.phoenix.schema.PNameFactory;
+import org.apache.phoenix.schema.PTable;
+import org.junit.Test;
+
+public class LastDDLTimestampPollerTest {
+
+    private static PTable getTable(String tenantId, String name, String parentName,
+            PTable... indexes) {
+        PTable table = mock(PTable.class);
+        when(table.getTenantId()).thenReturn(tenantId == null ? null
+                : PNameFactory.newName(tenantId));
+        when(table.getName()).thenReturn(PNameFactory.newName(name));
+        when(table.getParentName()).thenReturn(parentName == null ? null
+                : PNameFactory.newName(parentName));
+        when(table.getIndexes()).thenReturn(Arrays.asList(indexes));
+        return table;
+    }
+
+    private static RegionServerEndpointProtos.LastDDLTimestampChange getChange(String tenantId,
+            String schemaName, String tableName) {
+        return RegionServerEndpointProtos.LastDDLTimestampChange.newBuilder()
+                .setTenantId(ByteStringer.wrap(tenantId == null ? new byte[0]
+                        : Bytes.toBytes(tenantId)))
+                .setSchemaName(ByteStringer.wrap(Bytes.toBytes(schemaName)))
+                .setTableName(ByteStringer.wrap(Bytes.toBytes(tableName)))
+                .build();
+    }
+
+    @Test
+    public void testGetChangedTables() {
+        PTable index = getTable(null, "S.I", "S.T");
+        PTable table = getTable(null, "S.T", null, index);
+        PTable otherTable = getTable(null, "S.O", null);
+        PTable view = getTable("tenant1", "S.V", "S.T");
+        PTable otherTenantView = getTable("tenant2", "S.V", "S.T");
+        List<PTable> cachedTables =
+                Arrays.asList(index, table, otherTable, view, otherTenantView);
+
+        // A change of a table makes its views stale, for all tenants
+        List<PTable> changedTables = LastDDLTimestampPoller.getChangedTables(cachedTables,
+                Collections.singletonList(getChange(null, "S", "T")));
+        assertEquals(Arrays.asList(index, table, view, otherTenantView), changedTables);
+
+        // A change of an index makes its table stale
+        changedTables = LastDDLTimestampPoller.getChangedTables(cachedTables,
+                Collections.singletonList(getChange(null, "S", "I")));
+        assertEquals(Arrays.asList(index, table), changedTables);
+
+        // A change of a tenant view only makes the view of that tenant stale
+        changedTables = LastDDLTimestampPoller.getChangedTables(cachedTables,
+                Collections.singletonList(getChange("tenant1", "S", "V")));
+        assertEquals(Collections.singletonList(view), changedTables);
+
+        changedTables = LastDDLTimestampPoller.getChangedTables(cachedTables,
+                new ArrayList<RegionServerEndpointProtos.LastDDLTimestampChange>());
+        assertEquals(0, changedTables.size());
+    }
+}
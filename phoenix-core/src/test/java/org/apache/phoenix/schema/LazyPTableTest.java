@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.junit.Test;
+
+import org.apache.phoenix.thirdparty.com.google.common.collect.Lists;
+
+public class LazyPTableTest extends BaseConnectionlessQueryTest {
+
+    private static PTable createTable(String tableName, String ddl) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute(ddl);
+            PhoenixConnection pconn = conn.unwrap(PhoenixConnection.class);
+            return pconn.getTable(new PTableKey(pconn.getTenantId(), tableName));
+        }
+    }
+
+    private static List<String> getFamilyNames(PTable table) {
+        List<String> names = Lists.newArrayList();
+        for (PColumnFamily family : table.getColumnFamilies()) {
+            names.add(family.getName().getString());
+        }
+        return names;
+    }
+
+    @Test
+    public void testColumnsAreMaterializedOnAccess() throws Exception {
+        PTable table = createTable("T1", "CREATE TABLE T1 (K1 VARCHAR NOT NULL, "
+                + "K2 INTEGER NOT NULL, A.C1 VARCHAR, A.C2 INTEGER, B.C1 VARCHAR, B.C3 DATE, "
+                + "C4 VARCHAR CONSTRAINT PK PRIMARY KEY (K1, K2))");
+        LazyPTable lazyTable = LazyPTable.of(table);
+        assertEquals(PTableImpl.toProto(table), lazyTable.toProto());
+        assertEquals(table.getKey(), lazyTable.getKey());
+        assertEquals(table.getPKColumns(), lazyTable.getPKColumns());
+        assertEquals(table.getRowKeySchema().getFieldCount(),
+                lazyTable.getRowKeySchema().getFieldCount());
+        assertEquals(0, lazyTable.getMaterializedColumnCount());
+
+        PColumn column = lazyTable.getColumnForColumnName("C3");
+        assertEquals(table.getColumnForColumnName("C3"), column);
+        assertEquals("B", column.getFamilyName().getString());
+        assertEquals(1, lazyTable.getMaterializedColumnCount());
+        // The same instance is handed out once a column is materialized
+        assertSame(column, lazyTable.getColumnFamily("B").getPColumnForColumnName("C3"));
+        assertEquals(2, lazyTable.getMaterializedColumnCount());
+
+        try {
+            lazyTable.getColumnForColumnName("C1");
+            fail();
+        } catch (AmbiguousColumnException e) {
+        }
+        try {
+            lazyTable.getColumnFamily("X");
+            fail();
+        } catch (ColumnFamilyNotFoundException e) {
+        }
+        try {
+            lazyTable.getColumnForColumnName("X");
+            fail();
+        } catch (ColumnNotFoundException e) {
+        }
+        assertEquals(table.getPKColumn("K2"), lazyTable.getPKColumn("K2"));
+        assertEquals(table.getPKColumn("C4"), lazyTable.getPKColumn("C4"));
+
+        assertEquals(table.getColumns(), lazyTable.getColumns());
+        assertEquals(getFamilyNames(table), getFamilyNames(lazyTable));
+        assertEquals(table.getColumnFamily(Bytes.toBytes("0")).getColumns(),
+                lazyTable.getColumnFamily(Bytes.toBytes("0")).getColumns());
+        assertEquals(table.getColumns().size(), lazyTable.getMaterializedColumnCount());
+    }
+
+    @Test
+    public void testSaltedTableWithIndex() throws Exception {
+        createTable("T2", "CREATE TABLE T2 (K1 VARCHAR NOT NULL PRIMARY KEY, A.C1 VARCHAR, "
+                + "B.C2 INTEGER) SALT_BUCKETS=4");
+        PTable table = createTable("T2", "CREATE INDEX I2 ON T2 (A.C1) INCLUDE (B.C2)");
+        LazyPTable lazyTable = LazyPTable.of(table);
+        assertEquals(PTableImpl.toProto(table), lazyTable.toProto());
+        assertEquals(SaltingUtil.SALTING_COLUMN, lazyTable.getColumns().get(0));
+        assertEquals(table.getColumnForColumnName("K1"), lazyTable.getColumnForColumnName("K1"));
+        assertEquals(table.getColumns(), lazyTable.getColumns());
+
+        assertEquals(1, lazyTable.getIndexes().size());
+        PTable index = table.getIndexes().get(0);
+        PTable lazyIndex = lazyTable.getIndexes().get(0);
+        assertTrue(lazyIndex instanceof LazyPTable);
+        assertEquals(index.getKey(), lazyIndex.getKey());
+        assertEquals(index.getColumns(), lazyIndex.getColumns());
+        assertEquals(PTableImpl.toProto(index), PTableImpl.toProto(lazyIndex));
+    }
+
+    @Test
+    public void testColumnForColumnQualifier() throws Exception {
+        PTable table = createTable("T3", "CREATE TABLE T3 (K1 VARCHAR NOT NULL PRIMARY KEY, "
+                + "A.C1 VARCHAR, B.C1 VARCHAR) COLUMN_ENCODED_BYTES=2");
+        LazyPTable lazyTable = LazyPTable.of(table);
+        byte[] cq = null;
+        for (String family : new String[] { "A", "B" }) {
+            PColumn column = table.getColumnFamily(family).getPColumnForColumnName("C1");
+            cq = column.getColumnQualifierBytes();
+            assertEquals(column, lazyTable.getColumnForColumnQualifier(Bytes.toBytes(family), cq));
+        }
+        try {
+            lazyTable.getColumnForColumnQualifier(Bytes.toBytes("X"), cq);
+            fail();
+        } catch (ColumnNotFoundException e) {
+        }
+    }
+
+    @Test
+    public void testLazySerializedTableRef() throws Exception {
+        StringBuilder ddl = new StringBuilder("CREATE TABLE T4 (K1 VARCHAR PRIMARY KEY");
+        for (int i = 0; i < 200; i++) {
+            ddl.append(", ").append(i % 2 == 0 ? "A" : "B").append(".COLUMN_").append(i)
+                    .append(" VARCHAR");
+        }
+        PTable table = createTable("T4", ddl.append(")").toString());
+        PTableRefFactory factory = LazySerializedPTableRefFactory.getFactory();
+        PTableRef tableRef = factory.makePTableRef(table, 1, 2);
+        // The cache is charged for the compact form, which is smaller than the materialized table
+        assertEquals(LazyPTable.of(table).getEstimatedSize(), tableRef.getEstimatedSize());
+        assertTrue(tableRef.getEstimatedSize() < table.getEstimatedSize());
+
+        // Each lookup gets its own copy, materialized from the serialized form
+        PTable lookedUpTable = tableRef.getTable();
+        assertNotSame(lookedUpTable, tableRef.getTable());
+        assertEquals(table.getColumnForColumnName("COLUMN_101"),
+                lookedUpTable.getColumnForColumnName("COLUMN_101"));
+        assertEquals(PTableImpl.toProto(table), PTableImpl.toProto(lookedUpTable));
+
+        PTableRef copy = factory.makePTableRef(tableRef);
+        assertTrue(copy instanceof LazySerializedPTableRef);
+        assertEquals(1, copy.getCreateTime());
+        assertEquals(2, copy.getResolvedTimeStamp());
+        assertEquals(tableRef.getEstimatedSize(), copy.getEstimatedSize());
+        assertEquals(table.getColumns(), copy.getTable().getColumns());
+
+        // Refs of another encoding are converted rather than cast
+        PTableRef objectRef = new PTableRefImpl(table, 3, 4, table.getEstimatedSize());
+        PTableRef convertedRef = factory.makePTableRef(objectRef);
+        assertTrue(convertedRef instanceof LazySerializedPTableRef);
+        assertEquals(3, convertedRef.getCreateTime());
+        assertEquals(4, convertedRef.getResolvedTimeStamp());
+        assertEquals(PTableImpl.toProto(table), PTableImpl.toProto(convertedRef.getTable()));
+    }
+}
@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.phoenix.monitoring.GlobalClientMetrics;
 import org.apache.phoenix.parse.PSchema;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.util.ReadOnlyProps;
@@ -198,6 +199,41 @@ public class PMetaDataImplTest {
         }
     }
 
+    @Test
+    public void testCacheMetrics() throws Exception {
+        TestTimeKeeper timeKeeper = new TestTimeKeeper();
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
+        props.put(QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB, "10");
+        props.put(QueryServices.CLIENT_CACHE_ENCODING, "object");
+        PMetaData metaData = new PMetaDataImpl(5, Long.MAX_VALUE, timeKeeper,  new ReadOnlyProps(props));
+        long evictions = GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_EVICTION_COUNTER
+                .getMetric().getValue();
+        long usedSize = GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_ESTIMATED_USED_SIZE
+                .getMetric().getValue();
+        long lookupSamples = GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_LOOKUP_TIME_NS
+                .getMetric().getNumberOfSamples();
+        addToTable(metaData, "a", 5, timeKeeper);
+        addToTable(metaData, "b", 4, timeKeeper);
+        addToTable(metaData, "c", 3, timeKeeper);
+        assertNames(metaData, "b", "c");
+        assertEquals(evictions + 1, GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_EVICTION_COUNTER
+                .getMetric().getValue());
+        assertEquals(usedSize + 7, GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_ESTIMATED_USED_SIZE
+                .getMetric().getValue());
+        getFromTable(metaData, "b", timeKeeper);
+        assertEquals(lookupSamples + 1, GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_LOOKUP_TIME_NS
+                .getMetric().getNumberOfSamples());
+
+        // Replacing a table only accounts for the size of the new one
+        addToTable(metaData, "b", 2, timeKeeper);
+        assertEquals(usedSize + 5, GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_ESTIMATED_USED_SIZE
+                .getMetric().getValue());
+        metaData.clear();
+        assertEquals(0, metaData.size());
+        assertEquals(usedSize, GlobalClientMetrics.GLOBAL_CLIENT_METADATA_CACHE_ESTIMATED_USED_SIZE
+                .getMetric().getValue());
+    }
+
     private static class PSizedTable extends PTableImpl {
         private final int size;
         private final PTableKey key;
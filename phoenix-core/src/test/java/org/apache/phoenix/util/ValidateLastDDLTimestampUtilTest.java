@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.phoenix.coprocessor.generated.RegionServerEndpointProtos;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.exception.SQLExceptionInfo;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTableKey;
+import org.apache.phoenix.schema.PTableType;
+import org.junit.Test;
+
+import com.google.protobuf.ServiceException;
+
+public class ValidateLastDDLTimestampUtilTest {
+
+    private static PTable getTable(String name) {
+        PTable table = mock(PTable.class);
+        when(table.getKey()).thenReturn(new PTableKey(null, name));
+        when(table.getType()).thenReturn(PTableType.TABLE);
+        when(table.getLastDDLTimestamp()).thenReturn(1L);
+        return table;
+    }
+
+    private static RegionServerEndpointProtos.RegionServerEndpointService.BlockingInterface
+            getService(final Set<String> staleTableNames, final AtomicInteger rpcCount)
+            throws ServiceException {
+        RegionServerEndpointProtos.RegionServerEndpointService.BlockingInterface service =
+                mock(RegionServerEndpointProtos.RegionServerEndpointService.BlockingInterface.class);
+        when(service.validateLastDDLTimestamp(any(), any())).thenAnswer(invocation -> {
+            rpcCount.incrementAndGet();
+            RegionServerEndpointProtos.ValidateLastDDLTimestampRequest request =
+                    invocation.getArgument(1);
+            for (RegionServerEndpointProtos.LastDDLTimestampRequest tableRequest
+                    : request.getLastDDLTimestampRequestsList()) {
+                if (staleTableNames.contains(tableRequest.getTableName().toStringUtf8())) {
+                    throw new ServiceException(new IOException(new SQLExceptionInfo.Builder(
+                            SQLExceptionCode.STALE_METADATA_CACHE_EXCEPTION).build().toString()));
+                }
+            }
+            return RegionServerEndpointProtos.ValidateLastDDLTimestampResponse
+                    .getDefaultInstance();
+        });
+        return service;
+    }
+
+    @Test
+    public void testFindStaleTables() throws Exception {
+        List<PTable> tables = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            tables.add(getTable("T" + i));
+        }
+        AtomicInteger rpcCount = new AtomicInteger();
+        List<PTable> staleTables = new ArrayList<>();
+        ValidateLastDDLTimestampUtil.findStaleTables(
+                getService(new HashSet<>(Arrays.asList("T3", "T12")), rpcCount), tables,
+                staleTables);
+        assertEquals(2, staleTables.size());
+        assertEquals("T3", staleTables.get(0).getKey().getName());
+        assertEquals("T12", staleTables.get(1).getKey().getName());
+        // Far fewer RPCs than one per table
+        assertEquals(15, rpcCount.get());
+
+        rpcCount.set(0);
+        staleTables.clear();
+        ValidateLastDDLTimestampUtil.findStaleTables(
+                getService(new HashSet<String>(), rpcCount), tables, staleTables);
+        assertEquals(0, staleTables.size());
+        assertEquals(1, rpcCount.get());
+    }
+
+    @Test
+    public void testFindStaleTablesFailsOnOtherErrors() throws Exception {
+        RegionServerEndpointProtos.RegionServerEndpointService.BlockingInterface service =
+                mock(RegionServerEndpointProtos.RegionServerEndpointService.BlockingInterface.class);
+        when(service.validateLastDDLTimestamp(any(), any()))
+                .thenThrow(new ServiceException(new IOException("Connection refused")));
+        try {
+            ValidateLastDDLTimestampUtil.findStaleTables(service,
+                    Arrays.asList(getTable("T0"), getTable("T1")), new ArrayList<PTable>());
+            fail();
+        } catch (SQLException e) {
+            // expected, the tables must not be considered stale
+        }
+    }
+}